@@ -6,8 +6,11 @@ import AutoDriveEditor.Handlers.GlobalExceptionHandler;
 import AutoDriveEditor.Locale.LocaleManager;
 import AutoDriveEditor.Managers.ButtonManager;
 import AutoDriveEditor.Managers.ChangeManager;
+import AutoDriveEditor.Managers.JournalManager;
 import AutoDriveEditor.Managers.VersionManager;
+import AutoDriveEditor.MapPanel.RenderScheduler;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.XMLConfig.SaveService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -60,21 +63,15 @@ public class AutoDriveEditor extends JFrame {
             }
             @Override
             public void windowClosing(WindowEvent e) {
+                // the journal is only kept if the changes should have been saved but weren't
+                boolean keepJournal = false;
                 if (isStale()) {
                     int response = JOptionPane.showConfirmDialog(e.getComponent(), getLocaleString("dialog_exit_unsaved"), "AutoDrive", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
                     if (response == JOptionPane.YES_OPTION) {
-                        saveConfigFile(null, false, false);
+                        keepJournal = !saveConfigFile(null, false, false);
                     }
                 }
-                if ( getMapPanel().connectionDrawThread != null ) {
-                    ConnectionDrawThread.stop();
-                    getMapPanel().connectionDrawThread.interrupt();
-                }
-
-                if ( getMapPanel().nodeDrawThread != null ) {
-                    NodeDrawThread.stop();
-                    getMapPanel().nodeDrawThread.interrupt();
-                }
+                RenderScheduler.shutdown();
 
                 if ( bAutoSaveEnabled && scheduledExecutorService != null ) {
 
@@ -83,6 +80,11 @@ public class AutoDriveEditor extends JFrame {
                 }
 
 
+                // let any background saves finish before exiting
+                SaveService.waitForSaves();
+                JournalManager.closeJournal(!keepJournal);
+                JournalManager.waitForJournal();
+
                 saveEditorXMLConfig();
                 super.windowClosing(e);
             }
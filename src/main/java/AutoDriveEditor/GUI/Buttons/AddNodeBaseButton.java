@@ -4,24 +4,28 @@ import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
+import static AutoDriveEditor.Managers.ScanManager.checkNodeOverlap;
 import static AutoDriveEditor.MapPanel.MapImage.image;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 
 public abstract class AddNodeBaseButton extends BaseButton {
 
     public static MapNode createNode(double worldX, double worldZ, int flag) {
-        canAutoSave = false;
+        suspendAutoSave();
         if ((roadMap == null) || (image == null)) {
             return null;
         }
         double heightMapY = getYValueFromHeightMap(worldX, worldZ);
         MapNode mapNode = new MapNode(RoadMap.mapNodes.size()+1, worldX, heightMapY, worldZ, flag, false, false); //flag = 0 causes created node to be regular by default
-        RoadMap.mapNodes.add(mapNode);
+        RoadMap.addMapNode(mapNode);
         getMapPanel().repaint();
         changeManager.addChangeable( new AddNodeChanger(mapNode) );
         setStale(true);
-        canAutoSave = true;
+        resumeAutoSave();
         return mapNode;
     }
 
@@ -41,14 +45,20 @@ public abstract class AddNodeBaseButton extends BaseButton {
 
         public void undo(){
             RoadMap.removeMapNode(storeNode);
+            checkNodeOverlap(storeNode);
             getMapPanel().repaint();
             setStale(this.isStale);
         }
 
         public void redo(){
             roadMap.insertMapNode(storeNode, null, null);
+            checkNodeOverlap(storeNode);
             getMapPanel().repaint();
             setStale(true);
         }
+
+        public Collection<MapNode> getChangedNodes() {
+            return Collections.singletonList(this.storeNode);
+        }
     }
 }
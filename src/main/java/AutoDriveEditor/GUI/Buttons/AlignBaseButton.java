@@ -2,8 +2,10 @@ package AutoDriveEditor.GUI.Buttons;
 
 import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import java.awt.event.MouseEvent;
+import java.util.Collection;
 import java.util.LinkedList;
 
 import static AutoDriveEditor.GUI.Buttons.Curves.CubicCurveButton.cubicCurve;
@@ -11,6 +13,7 @@ import static AutoDriveEditor.GUI.Buttons.Curves.CubicCurveButton.isCubicCurveCr
 import static AutoDriveEditor.GUI.Buttons.Curves.QuadCurveButton.isQuadCurveCreated;
 import static AutoDriveEditor.GUI.Buttons.Curves.QuadCurveButton.quadCurve;
 import static AutoDriveEditor.Managers.MultiSelectManager.*;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 
 public abstract class AlignBaseButton extends BaseButton {
@@ -22,11 +25,12 @@ public abstract class AlignBaseButton extends BaseButton {
         if (e.getButton() == MouseEvent.BUTTON1) {
             MapNode clickedNode = getNodeAt(e.getX(), e.getY());
             if (multiSelectList != null && isMultipleSelected &&  clickedNode != null) {
-                canAutoSave = false;
+                suspendAutoSave();
                 adjustNodesTo(clickedNode);
+                updateOverlapWarnings(multiSelectList);
                 if (quadCurve != null && isQuadCurveCreated) quadCurve.updateCurve();
                 if (cubicCurve != null && isCubicCurveCreated) cubicCurve.updateCurve();
-                canAutoSave = true;
+                resumeAutoSave();
                 setStale(true);
                 clearMultiSelection();
                 getMapPanel().repaint();
@@ -57,11 +61,13 @@ public abstract class AlignBaseButton extends BaseButton {
     public static class AlignmentChanger implements ChangeManager.Changeable {
         private final Boolean isStale;
         private final LinkedList<ZStore> nodeList;
+        private final LinkedList<MapNode> alignedNodes;
 
         public AlignmentChanger(LinkedList<MapNode> multiSelectList, double x, double y, double z){
             super();
             this.isStale = isStale();
             this.nodeList = new LinkedList<>();
+            this.alignedNodes = new LinkedList<>(multiSelectList);
 
             for (MapNode node : multiSelectList) {
                 nodeList.add(new ZStore(node, x, y, z));
@@ -73,7 +79,9 @@ public abstract class AlignBaseButton extends BaseButton {
                 storedNode.mapNode.x += storedNode.diffX;
                 storedNode.mapNode.y += storedNode.diffY;
                 storedNode.mapNode.z += storedNode.diffZ;
+                RoadMap.updateNodeLocation(storedNode.mapNode);
             }
+            updateOverlapWarnings(this.alignedNodes);
             getMapPanel().repaint();
             setStale(this.isStale);
         }
@@ -83,11 +91,17 @@ public abstract class AlignBaseButton extends BaseButton {
                 storedNode.mapNode.x -= storedNode.diffX;
                 storedNode.mapNode.y -= storedNode.diffY;
                 storedNode.mapNode.z -= storedNode.diffZ;
+                RoadMap.updateNodeLocation(storedNode.mapNode);
             }
+            updateOverlapWarnings(this.alignedNodes);
             getMapPanel().repaint();
             setStale(true);
         }
 
+        public Collection<MapNode> getChangedNodes() {
+            return this.alignedNodes;
+        }
+
         private static class ZStore {
             private final MapNode mapNode;
             private final double diffX;
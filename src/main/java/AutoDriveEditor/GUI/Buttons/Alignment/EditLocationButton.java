@@ -2,15 +2,21 @@ package AutoDriveEditor.GUI.Buttons.Alignment;
 
 import AutoDriveEditor.AutoDriveEditor;
 import AutoDriveEditor.GUI.Buttons.BaseButton;
+import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
 import AutoDriveEditor.Utils.Classes.LabelNumberFilter;
 
 import javax.swing.*;
 import javax.swing.text.PlainDocument;
 import java.awt.*;
 import java.awt.event.MouseEvent;
+import java.util.Collection;
+import java.util.Collections;
 
+import static AutoDriveEditor.AutoDriveEditor.changeManager;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
+import static AutoDriveEditor.Managers.ScanManager.checkNodeOverlap;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.GUIUtils.makeImageToggleButton;
 import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
@@ -72,9 +78,57 @@ public class EditLocationButton extends BaseButton {
         int option = JOptionPane.showConfirmDialog(AutoDriveEditor.editor, inputFields, ""+ getLocaleString("dialog_node_title"), JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
 
         if (option == JOptionPane.OK_OPTION) {
-            node.x = roundUpDoubleToDecimalPlaces(Double.parseDouble(posX.getText()), 3);
-            node.y = roundUpDoubleToDecimalPlaces(Double.parseDouble(posY.getText()), 3);
-            node.z = roundUpDoubleToDecimalPlaces(Double.parseDouble(posZ.getText()), 3);
+            double newX = roundUpDoubleToDecimalPlaces(Double.parseDouble(posX.getText()), 3);
+            double newY = roundUpDoubleToDecimalPlaces(Double.parseDouble(posY.getText()), 3);
+            double newZ = roundUpDoubleToDecimalPlaces(Double.parseDouble(posZ.getText()), 3);
+            EditLocationChanger changer = new EditLocationChanger(node, newX, newY, newZ);
+            changer.redo();
+            changeManager.addChangeable(changer);
+        }
+    }
+
+    //
+    //  Edit Location Undo
+    //
+
+    public static class EditLocationChanger implements ChangeManager.Changeable {
+        private final MapNode mapNode;
+        private final double oldX, oldY, oldZ;
+        private final double newX, newY, newZ;
+        private final boolean isStale;
+
+        public EditLocationChanger(MapNode node, double newX, double newY, double newZ) {
+            super();
+            this.mapNode = node;
+            this.oldX = node.x;
+            this.oldY = node.y;
+            this.oldZ = node.z;
+            this.newX = newX;
+            this.newY = newY;
+            this.newZ = newZ;
+            this.isStale = isStale();
+        }
+
+        public void undo() {
+            moveNodeTo(this.oldX, this.oldY, this.oldZ);
+            setStale(this.isStale);
+        }
+
+        public void redo() {
+            moveNodeTo(this.newX, this.newY, this.newZ);
+            setStale(true);
+        }
+
+        public Collection<MapNode> getChangedNodes() {
+            return Collections.singletonList(this.mapNode);
+        }
+
+        private void moveNodeTo(double x, double y, double z) {
+            this.mapNode.x = x;
+            this.mapNode.y = y;
+            this.mapNode.z = z;
+            RoadMap.updateNodeLocation(this.mapNode);
+            checkNodeOverlap(this.mapNode);
             getMapPanel().repaint();
         }
     }
@@ -2,6 +2,7 @@ package AutoDriveEditor.GUI.Buttons.Alignment;
 
 import AutoDriveEditor.GUI.Buttons.AlignBaseButton;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
 
@@ -35,6 +36,7 @@ public class HorizontalAlignButton extends AlignBaseButton {
         changeManager.addChangeable( new AlignmentChanger(multiSelectList, 0, 0, toNode.z));
         for (MapNode node : multiSelectList) {
             node.z = toNode.z;
+            RoadMap.updateNodeLocation(node);
         }
     }
 }
@@ -2,6 +2,7 @@ package AutoDriveEditor.GUI.Buttons.Alignment;
 
 import AutoDriveEditor.GUI.Buttons.AlignBaseButton;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
 
@@ -35,6 +36,7 @@ public class VerticalAlignButton extends AlignBaseButton {
         changeManager.addChangeable( new AlignmentChanger(multiSelectList, toNode.x, 0, 0));
         for (MapNode node : multiSelectList) {
             node.x = toNode.x;
+            RoadMap.updateNodeLocation(node);
         }
     }
 }
@@ -1,6 +1,7 @@
 package AutoDriveEditor.GUI.Buttons;
 
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
 import java.awt.*;
@@ -8,6 +9,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 
 import static AutoDriveEditor.AutoDriveEditor.buttonManager;
@@ -115,9 +117,18 @@ public abstract class BaseButton implements ButtonState, ActionListener {
             clearOutgoing();
         }
 
-        public void clearIncoming() { this.mapNode.incoming.clear(); }
+        // the connection types of the nodes it was connected to change as well as its own,
+        // so the caches are invalidated both before and after each change
 
-        public void clearOutgoing() { this.mapNode.outgoing.clear(); }
+        public void clearIncoming() {
+            RoadMap.invalidateConnectionTypes(this.mapNode);
+            this.mapNode.incoming.clear();
+        }
+
+        public void clearOutgoing() {
+            RoadMap.invalidateConnectionTypes(this.mapNode);
+            this.mapNode.outgoing.clear();
+        }
 
         public void backupConnections() {
             copyList(this.mapNode.incoming, this.incomingBackup);
@@ -125,23 +136,33 @@ public abstract class BaseButton implements ButtonState, ActionListener {
         }
 
         public void restoreConnections() {
+            RoadMap.invalidateConnectionTypes(this.mapNode);
             copyList(this.incomingBackup, this.mapNode.incoming);
             copyList(this.outgoingBackup, this.mapNode.outgoing);
+            RoadMap.invalidateConnectionTypes(this.mapNode);
         }
 
         @SuppressWarnings("unused")
         public void backupIncoming() { copyList(this.mapNode.incoming, this.incomingBackup); }
 
         @SuppressWarnings("unused")
-        public void restoreIncoming() { copyList(this.incomingBackup, this.mapNode.incoming); }
+        public void restoreIncoming() {
+            RoadMap.invalidateConnectionTypes(this.mapNode);
+            copyList(this.incomingBackup, this.mapNode.incoming);
+            RoadMap.invalidateConnectionTypes(this.mapNode);
+        }
 
         @SuppressWarnings("unused")
         public void backupOutgoing() { copyList(this.mapNode.outgoing, this.outgoingBackup); }
 
         @SuppressWarnings("unused")
-        public void restoreOutgoing() { copyList(this.outgoingBackup, this.mapNode.outgoing); }
+        public void restoreOutgoing() {
+            RoadMap.invalidateConnectionTypes(this.mapNode);
+            copyList(this.outgoingBackup, this.mapNode.outgoing);
+            RoadMap.invalidateConnectionTypes(this.mapNode);
+        }
 
-        private void copyList(LinkedList<MapNode> from, LinkedList<MapNode> to) {
+        private void copyList(List<MapNode> from, List<MapNode> to) {
             to.clear();
             // use .clone() ??
             for (int i = 0; i <= from.size() - 1 ; i++) {
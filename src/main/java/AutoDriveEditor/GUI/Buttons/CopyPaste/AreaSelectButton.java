@@ -46,7 +46,7 @@ public class AreaSelectButton extends CopyPasteBaseButton {
     @Override
     public void mouseDragged(MouseEvent e) {
         if (rectangleStart != null && isMultiSelectDragging) {
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
@@ -7,10 +7,12 @@ import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
+import java.util.Collection;
 import java.util.LinkedList;
 
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogCopyPasteInfo;
 import static AutoDriveEditor.Managers.MultiSelectManager.clearMultiSelection;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.GUIUtils.makeImageButton;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -54,15 +56,21 @@ public class PasteSelectionButton extends CopyPasteBaseButton {
 
         public void undo(){
             clearMultiSelection();
-            RoadMap.mapNodes.removeAll(this.storeNodes);
+            RoadMap.removeMapNodes(this.storeNodes);
+            updateOverlapWarnings(this.storeNodes);
             getMapPanel().repaint();
             setStale(this.isStale);
         }
 
         public void redo(){
-            RoadMap.mapNodes.addAll(this.storeNodes);
+            RoadMap.addMapNodes(this.storeNodes);
+            updateOverlapWarnings(this.storeNodes);
             getMapPanel().repaint();
             setStale(true);
         }
+
+        public Collection<MapNode> getChangedNodes() {
+            return this.storeNodes;
+        }
     }
 }
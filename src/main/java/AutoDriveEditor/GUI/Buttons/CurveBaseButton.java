@@ -5,11 +5,14 @@ import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 
 import static AutoDriveEditor.GUI.GUIBuilder.curveOptionsPanel;
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogUndoRedo;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.GUIUtils.showInTextArea;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -80,6 +83,7 @@ public abstract class CurveBaseButton extends BaseButton {
     public static class CurveChanger implements ChangeManager.Changeable {
 
         private final LinkedList<MapNodeStore> storedCurveNodeList;
+        private final ArrayList<MapNode> curveNodes;
         private final boolean isReversePath;
         private final boolean isDualPath;
         private final boolean isStale;
@@ -88,6 +92,7 @@ public abstract class CurveBaseButton extends BaseButton {
             super();
 
             this.storedCurveNodeList = new LinkedList<>();
+            this.curveNodes = new ArrayList<>(curveNodes);
             this.isReversePath = isReverse;
             this.isDualPath = isDual;
             this.isStale = isStale();
@@ -100,16 +105,22 @@ public abstract class CurveBaseButton extends BaseButton {
         }
 
         public void undo(){
+            ArrayList<MapNode> nodesToRemove = new ArrayList<>();
             for (int i = 1; i <= this.storedCurveNodeList.size() - 2 ; i++) {
                 MapNodeStore curveNode = this.storedCurveNodeList.get(i);
                 if (bDebugLogUndoRedo) LOG.info("## QuadCurveChanger.undo ## Removing node ID {}", curveNode.getMapNode().id);
-                RoadMap.removeMapNode(curveNode.getMapNode());
+                nodesToRemove.add(curveNode.getMapNode());
+            }
+            RoadMap.removeMapNodes(nodesToRemove);
+            for (int i = 1; i <= this.storedCurveNodeList.size() - 2 ; i++) {
+                MapNodeStore curveNode = this.storedCurveNodeList.get(i);
                 if (curveNode.hasChangedID()) {
                     if (bDebugLogUndoRedo) LOG.info("## QuadCurveChanger.undo ## ID {} changed", curveNode.getMapNode().id);
                     curveNode.resetID();
                     if (bDebugLogUndoRedo) LOG.info("## QuadCurveChanger.undo ## Reset ID to {}", curveNode.getMapNode().id);
                 }
             }
+            updateOverlapWarnings(getCurveLinkedList());
             getMapPanel().repaint();
             setStale(this.isStale);
         }
@@ -123,10 +134,15 @@ public abstract class CurveBaseButton extends BaseButton {
                 if (curveNode.hasChangedID()) curveNode.resetID();
             }
             connectNodes(getCurveLinkedList(), this.isReversePath, this.isDualPath);
+            updateOverlapWarnings(getCurveLinkedList());
             getMapPanel().repaint();
             setStale(true);
         }
 
+        public Collection<MapNode> getChangedNodes() {
+            return this.curveNodes;
+        }
+
         public static void connectNodes(LinkedList<MapNode> mergeNodesList, boolean reversePath, boolean dualPath)  {
             for (int j = 0; j < mergeNodesList.size() - 1; j++) {
                 MapNode startNode = mergeNodesList.get(j);
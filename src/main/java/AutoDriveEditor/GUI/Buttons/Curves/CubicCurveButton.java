@@ -131,7 +131,7 @@ public final class CubicCurveButton extends CurveBaseButton {
     @Override
     public void mouseMoved(MouseEvent e) {
         if (cubicCurve == null && showConnectingLine) {
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
@@ -145,7 +145,7 @@ public final class CubicCurveButton extends CurveBaseButton {
                 cubicCurve.moveControlPoint2(e.getX() - prevMousePosX, e.getY() - prevMousePosY);
             }
             cubicCurve.updateCurve();
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
@@ -163,7 +163,7 @@ public final class CubicCurveButton extends CurveBaseButton {
             }
 
             cubicCurve.updateCurve();
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
@@ -259,9 +259,9 @@ public final class CubicCurveButton extends CurveBaseButton {
                 // draw the connection arrows between the interpolation points
                 //
 
-                backBufferGraphics.setColor(colour);
-                drawArrowBetween(backBufferGraphics, currentNodePos, nextNodePos, cubicCurve.isDualPath()) ;
+                queueArrowBetween(backBufferGraphics, currentNodePos, nextNodePos, cubicCurve.isDualPath(), colour);
             }
+            drawQueuedArrows(backBufferGraphics);
 
             //
             // draw the control nodes, this is done last to make them visible at all times
@@ -128,7 +128,7 @@ public final class QuadCurveButton extends CurveBaseButton {
     @Override
     public void mouseMoved(MouseEvent e) {
         if (quadCurve == null && showConnectingLine) {
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
@@ -137,7 +137,7 @@ public final class QuadCurveButton extends CurveBaseButton {
         if (quadCurve != null && isQuadCurveCreated && !isDraggingMap && controlNodeSelected) {
             quadCurve.moveControlPoint(e.getX() - prevMousePosX, e.getY() - prevMousePosY);
             quadCurve.updateCurve();
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
    }
 
@@ -228,9 +228,9 @@ public final class QuadCurveButton extends CurveBaseButton {
                 } else {
                     colour = colourConnectRegular;
                 }
-                backBufferGraphics.setColor(colour);
-                drawArrowBetween(backBufferGraphics, currentNodePos, nextNodePos, quadCurve.isDualPath()) ;
+                queueArrowBetween(backBufferGraphics, currentNodePos, nextNodePos, quadCurve.isDualPath(), colour);
             }
+            drawQueuedArrows(backBufferGraphics);
 
             //
             // draw the control nodes, this is done last to make them visible at all times
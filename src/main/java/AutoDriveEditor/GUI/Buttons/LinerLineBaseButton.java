@@ -9,6 +9,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.concurrent.locks.Lock;
 
@@ -18,6 +20,7 @@ import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogUndoRedo;
 import static AutoDriveEditor.Listeners.MouseListener.currentMouseX;
 import static AutoDriveEditor.Listeners.MouseListener.currentMouseY;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapImage.backBufferGraphics;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_STANDARD;
@@ -126,7 +129,7 @@ public abstract class LinerLineBaseButton extends BaseButton{
             if (e.getY() <= 0) getMapPanel().moveMapBy( 0, 10);
             Point2D pointerPos = screenPosToWorldPos(e.getX(), e.getY());
             linearLine.updateLine(pointerPos.getX(), pointerPos.getY());
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
@@ -243,6 +246,7 @@ public abstract class LinerLineBaseButton extends BaseButton{
         private final MapNodeStore fromNode;
         private MapNodeStore toNode;
         private final LinkedList<MapNodeStore> autoGeneratedNodes;
+        private final ArrayList<MapNode> lineNodes;
         private final int connectionType;
         private final boolean wasEndNodeCreated;
         private final boolean isStale;
@@ -255,6 +259,9 @@ public abstract class LinerLineBaseButton extends BaseButton{
             }
             this.wasEndNodeCreated = endNodeCreated;
             this.autoGeneratedNodes = new LinkedList<>();
+            this.lineNodes = new ArrayList<>(inbetweenNodes);
+            this.lineNodes.add(fromNode);
+            if (toNode != null) this.lineNodes.add(toNode);
             this.connectionType=type;
             this.isStale = isStale();
 
@@ -284,11 +291,16 @@ public abstract class LinerLineBaseButton extends BaseButton{
                     RoadMap.removeMapNode(this.autoGeneratedNodes.getLast().getMapNode());
                 }
             } else {
+                ArrayList<MapNode> nodesToRemove = new ArrayList<>();
+                for (int i = 1; i < this.autoGeneratedNodes.size(); i++) {
+                    MapNode toDelete = this.autoGeneratedNodes.get(i).getMapNode();
+                    if (bDebugLogUndoRedo) LOG.info("## LinearLineChanger.undo ## undo is removing ID {} from MapNodes", toDelete.id);
+                    nodesToRemove.add(toDelete);
+                }
+                RoadMap.removeMapNodes(nodesToRemove);
                 for (int i = 1; i < this.autoGeneratedNodes.size(); i++) {
                     MapNodeStore storedNode = this.autoGeneratedNodes.get(i);
                     MapNode toDelete = storedNode.getMapNode();
-                    if (bDebugLogUndoRedo) LOG.info("## LinearLineChanger.undo ## undo is removing ID {} from MapNodes", toDelete.id);
-                    RoadMap.removeMapNode(toDelete);
                     if (storedNode.hasChangedID()) {
                         if (bDebugLogUndoRedo) LOG.info("## LinearLineChanger.undo ## Removed node changed ID {}", storedNode.getMapNode().id);
                         storedNode.resetID();
@@ -299,6 +311,7 @@ public abstract class LinerLineBaseButton extends BaseButton{
                     }
                 }
             }
+            updateOverlapWarnings(getLineLinkedList());
             getMapPanel().repaint();
             setStale(this.isStale);
         }
@@ -329,10 +342,15 @@ public abstract class LinerLineBaseButton extends BaseButton{
                 }
             }
             LinearLine.connectNodes(this.fromNode.getMapNode(), this.toNode.getMapNode(), getLineLinkedList(), this.connectionType);
+            updateOverlapWarnings(getLineLinkedList());
             getMapPanel().repaint();
             setStale(true);
         }
 
+        public Collection<MapNode> getChangedNodes() {
+            return this.lineNodes;
+        }
+
         public LinkedList<MapNode> getLineLinkedList() {
             LinkedList<MapNode> list = new LinkedList<>();
             for (int i = 0; i <= this.autoGeneratedNodes.size() - 1 ; i++) {
@@ -12,8 +12,8 @@ import javax.swing.*;
 import java.awt.event.MouseEvent;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.Objects;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
@@ -71,7 +71,7 @@ public class AddMarkerButton extends MarkerBaseButton {
         ArrayList<String> groupArray = new ArrayList<>();
 
         if (configType == CONFIG_SAVEGAME) {
-            LinkedList<MapNode> mapNodes = RoadMap.mapNodes;
+            ArrayList<MapNode> mapNodes = RoadMap.mapNodes;
             for (MapNode node : mapNodes) {
                 if (node.hasMapMarker()) {
                     if (!node.getMarkerGroup().equals("All")) {
@@ -184,5 +184,9 @@ public class AddMarkerButton extends MarkerBaseButton {
             getMapPanel().repaint();
             setStale(true);
         }
+
+        public Collection<MapNode> getChangedNodes() {
+            return Collections.singletonList(this.markerNode);
+        }
     }
 }
@@ -6,6 +6,8 @@ import AutoDriveEditor.RoadNetwork.MapNode;
 
 import javax.swing.*;
 import java.awt.event.MouseEvent;
+import java.util.Collection;
+import java.util.Collections;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
@@ -43,12 +45,12 @@ public class DeleteMarkerButton extends MarkerBaseButton {
     }
 
     public void removeMarkerFromNode(MapNode fromMapNode) {
-        canAutoSave = false;
+        suspendAutoSave();
         changeManager.addChangeable( new MarkerRemoveChanger(fromMapNode));
         fromMapNode.removeMapMarker();
         setStale(true);
         getMapPanel().repaint();
-        canAutoSave = true;
+        resumeAutoSave();
     }
 
     public static class MarkerRemoveChanger implements ChangeManager.Changeable {
@@ -75,5 +77,9 @@ public class DeleteMarkerButton extends MarkerBaseButton {
             getMapPanel().repaint();
             setStale(true);
         }
+
+        public Collection<MapNode> getChangedNodes() {
+            return Collections.singletonList(this.markerNode);
+        }
     }
 }
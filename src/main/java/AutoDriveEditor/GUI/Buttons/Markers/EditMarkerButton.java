@@ -11,8 +11,8 @@ import javax.swing.*;
 import java.awt.event.MouseEvent;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.Objects;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
@@ -90,7 +90,7 @@ public class EditMarkerButton extends MarkerBaseButton {
 
         ArrayList<String> groupArray = new ArrayList<>();
         if (configType == CONFIG_SAVEGAME) {
-            LinkedList<MapNode> mapNodes = RoadMap.mapNodes;
+            ArrayList<MapNode> mapNodes = RoadMap.mapNodes;
             for (MapNode mapNode : mapNodes) {
                 if (mapNode.hasMapMarker() && !mapNode.getMarkerGroup().equals("All")) {
                     if (!groupArray.contains(mapNode.getMarkerGroup())) {
@@ -201,5 +201,9 @@ public class EditMarkerButton extends MarkerBaseButton {
             getMapPanel().repaint();
             setStale(true);
         }
+
+        public Collection<MapNode> getChangedNodes() {
+            return Collections.singletonList(this.mapNode);
+        }
     }
 }
@@ -8,7 +8,7 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
-import static AutoDriveEditor.Managers.ScanManager.checkAreaForNodeOverlap;
+import static AutoDriveEditor.Managers.ScanManager.checkNodeOverlap;
 import static AutoDriveEditor.MapPanel.MapPanel.screenPosToWorldPos;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_STANDARD;
 import static AutoDriveEditor.Utils.GUIUtils.makeImageToggleButton;
@@ -36,7 +36,7 @@ public class AddPrimaryNodeButton extends AddNodeBaseButton {
         if (e.getButton() == MouseEvent.BUTTON1) {
             Point2D worldPos = screenPosToWorldPos(e.getX(), e.getY());
             MapNode newNode = createNode(worldPos.getX(), worldPos.getY(), NODE_FLAG_STANDARD);
-            checkAreaForNodeOverlap(newNode);
+            if (newNode != null) checkNodeOverlap(newNode);
         }
     }
 }
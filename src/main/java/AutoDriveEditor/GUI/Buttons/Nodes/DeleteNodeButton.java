@@ -7,6 +7,9 @@ import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.UUID;
 
@@ -19,7 +22,7 @@ import static AutoDriveEditor.GUI.Buttons.Curves.QuadCurveButton.quadCurve;
 import static AutoDriveEditor.GUI.MenuBuilder.*;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.Managers.MultiSelectManager.*;
-import static AutoDriveEditor.Managers.ScanManager.checkNodeOverlap;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.GUIUtils.makeImageToggleButton;
 import static AutoDriveEditor.Utils.GUIUtils.showInTextArea;
@@ -69,13 +72,6 @@ public class DeleteNodeButton extends BaseButton {
                     addToDeleteList(toDeleteNode);
                     changeManager.addChangeable( new DeleteNodeChanger(deleteNodeList));
                     getMapPanel().removeDeleteListNodes();
-                    if (toDeleteNode.hasWarning) {
-                        LOG.info("Checking {} warning nodes", toDeleteNode.warningNodes.size());
-                        for(MapNode overNode : toDeleteNode.warningNodes) {
-                            LOG.info("Checking node ID {}", overNode.id);
-                            checkNodeOverlap(overNode);
-                        }
-                    }
                     deleteNodeList.clear();
                     clearMultiSelection();
                 }
@@ -98,7 +94,7 @@ public class DeleteNodeButton extends BaseButton {
     @Override
     public void mouseDragged(MouseEvent e) {
         if (rectangleStart != null && isMultiSelectDragging) {
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
@@ -143,15 +139,16 @@ public class DeleteNodeButton extends BaseButton {
                 cubicCurve.getControlPoint2().isSelected = false;
             }
         }
-        for (MapNode node : multiSelectList) {
-
-            addToDeleteList(node);
-            if (bDebugLogUndoRedo) LOG.info("Added ID {} to delete list", node.id);
+        addToDeleteList(multiSelectList);
+        if (bDebugLogUndoRedo) {
+            for (MapNode node : multiSelectList) {
+                LOG.info("Added ID {} to delete list", node.id);
+            }
         }
         changeManager.addChangeable( new DeleteNodeChanger(deleteNodeList));
-        canAutoSave = false;
+        suspendAutoSave();
         getMapPanel().removeDeleteListNodes();
-        canAutoSave = true;
+        resumeAutoSave();
         deleteNodeList.clear();
         clearMultiSelection();
     }
@@ -177,14 +174,23 @@ public class DeleteNodeButton extends BaseButton {
         public void undo(){
             showInTextArea("Restoring " + this.nodeListToDelete.size() + " Nodes.", true, false);
             try {
-                for (NodeLinks insertNode : this.nodeListToDelete) {
+                // the nodes have to be put back in ID order, or the later ID's won't match their position
+                ArrayList<NodeLinks> sortedNodeLinks = new ArrayList<>(this.nodeListToDelete);
+                sortedNodeLinks.sort(Comparator.comparingInt(nodeLinks -> nodeLinks.nodeIDBackup));
+                ArrayList<MapNode> nodesToInsert = new ArrayList<>(sortedNodeLinks.size());
+                for (NodeLinks insertNode : sortedNodeLinks) {
                     if (bDebugLogUndoRedo) LOG.info("Insert {} ({})",insertNode.node.id,insertNode.nodeIDBackup);
                     if (insertNode.node.id != insertNode.nodeIDBackup) {
                         if (bDebugLogUndoRedo) LOG.info("## RemoveNode Undo ## ID mismatch.. correcting ID {} -> ID {}", insertNode.node.id, insertNode.nodeIDBackup);
                         insertNode.node.id = insertNode.nodeIDBackup;
                     }
-                    roadMap.insertMapNode(insertNode.node, insertNode.otherIncoming, insertNode.otherOutgoing);
+                    nodesToInsert.add(insertNode.node);
+                }
+                RoadMap.insertMapNodes(nodesToInsert);
+                for (NodeLinks insertNode : sortedNodeLinks) {
+                    RoadMap.restoreConnections(insertNode.node, insertNode.otherIncoming, insertNode.otherOutgoing);
                 }
+                updateOverlapWarnings(nodesToInsert);
                 String text = this.nodeListToDelete.size() + " nodes restored";
                 showInTextArea(text, true, true);
             } catch (IndexOutOfBoundsException outOfBoundsException) {
@@ -201,12 +207,26 @@ public class DeleteNodeButton extends BaseButton {
         }
 
         public void redo(){
+            ArrayList<MapNode> nodesToRemove = new ArrayList<>(this.nodeListToDelete.size());
             for (NodeLinks nodeLinks : this.nodeListToDelete) {
-                MapNode toDelete = nodeLinks.node;
-                RoadMap.removeMapNode(toDelete);
+                nodesToRemove.add(nodeLinks.node);
             }
+            RoadMap.removeMapNodes(nodesToRemove);
+            updateOverlapWarnings(nodesToRemove);
             getMapPanel().repaint();
             setStale(true);
         }
+
+        // the deleted nodes and every node they were connected to
+
+        public Collection<MapNode> getChangedNodes() {
+            ArrayList<MapNode> changedNodes = new ArrayList<>();
+            for (NodeLinks nodeLinks : this.nodeListToDelete) {
+                changedNodes.add(nodeLinks.node);
+                changedNodes.addAll(nodeLinks.otherIncoming);
+                changedNodes.addAll(nodeLinks.otherOutgoing);
+            }
+            return changedNodes;
+        }
     }
 }
@@ -1,6 +1,7 @@
 package AutoDriveEditor.GUI.Buttons.Nodes;
 
 import AutoDriveEditor.GUI.Buttons.BaseButton;
+import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
 
@@ -69,11 +70,13 @@ public final class FlipDirectionButton extends BaseButton {
         ArrayList<Connection> connectionList = new ArrayList<>();
 
         for (MapNode selectedListNode : multiSelectList) {
-            for (MapNode outgoingList : selectedListNode.outgoing) {
-                if (RoadMap.isDual(selectedListNode, outgoingList)) {
+            for (int i = 0; i < selectedListNode.outgoing.size(); i++) {
+                MapNode outgoingList = selectedListNode.outgoing.get(i);
+                int connectionType = RoadMap.getConnectionType(selectedListNode, i);
+                if (connectionType == RoadMap.CONNECTION_TYPE_DUAL || connectionType == RoadMap.CONNECTION_TYPE_DUAL_SUBPRIO) {
                     LOG.info("Detected dual Connection");
                     connectionList.add(new Connection(selectedListNode, outgoingList, CONNECTION_DUAL));
-                } else if (RoadMap.isReverse(selectedListNode, outgoingList)) {
+                } else if (connectionType == RoadMap.CONNECTION_TYPE_REVERSE || connectionType == RoadMap.CONNECTION_TYPE_REVERSE_SUBPRIO) {
                     LOG.info("Detected reverse connection");
                     connectionList.add(new Connection(selectedListNode, outgoingList, CONNECTION_REVERSE));
                 } else {
@@ -82,10 +85,18 @@ public final class FlipDirectionButton extends BaseButton {
                 }
             }
         }
+        ArrayList<MapNode> flippedNodes = new ArrayList<>();
         for (Connection connection : connectionList) {
             LOG.info("{} --> {} = {}", connection.fromNode.id, connection.toNode.id, connection.conType);
             createConnectionBetween(connection.fromNode, connection.toNode, connection.conType);
             createConnectionBetween(connection.toNode, connection.fromNode, connection.conType);
+            flippedNodes.add(connection.fromNode);
+            flippedNodes.add(connection.toNode);
+        }
+        // flipping can't be undone, so it's marked as a change directly
+        if (!flippedNodes.isEmpty()) {
+            ChangeManager.markModified(flippedNodes);
+            setStale(true);
         }
         clearMultiSelection();
     }
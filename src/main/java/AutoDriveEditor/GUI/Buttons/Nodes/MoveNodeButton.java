@@ -4,10 +4,12 @@ import AutoDriveEditor.GUI.Buttons.BaseButton;
 import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.MapPanel.MapPanel;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
+import java.util.Collection;
 import java.util.LinkedList;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
@@ -20,8 +22,7 @@ import static AutoDriveEditor.Listeners.MouseListener.prevMousePosX;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosY;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.Managers.MultiSelectManager.*;
-import static AutoDriveEditor.Managers.ScanManager.checkAreaForNodeOverlap;
-import static AutoDriveEditor.Managers.ScanManager.checkNodeOverlap;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.GUIUtils.makeImageToggleButton;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -91,11 +92,11 @@ public class MoveNodeButton extends BaseButton {
 
                 changeManager.addChangeable( new MoveNodeChanger(multiSelectList, moveDiffX, moveDiffY));
                 MapPanel.setStale(true);
+                updateOverlapWarnings(multiSelectList);
                 if (removeSelectedOnComplete) {
                     multiSelectList.remove(selectedNode);
                     removeSelectedOnComplete = false;
                 }
-                checkNodeOverlap(selectedNode);
                 isDraggingNode = false;
             }
         }
@@ -128,7 +129,7 @@ public class MoveNodeButton extends BaseButton {
         double scaledDiffX;
         double scaledDiffY;
 
-        canAutoSave = false;
+        suspendAutoSave();
 
         Point2D p = screenPosToWorldPos( prevMousePosX + diffX, prevMousePosY + diffY);
         double newX, newY;
@@ -150,6 +151,7 @@ public class MoveNodeButton extends BaseButton {
                 if (node.z + scaledDiffY > -1024 * mapZoomFactor && node.z + scaledDiffY < 1024 * mapZoomFactor) {
                     node.z = roundUpDoubleToDecimalPlaces(node.z + scaledDiffY, 3);
                 }
+                RoadMap.updateNodeLocation(node);
             }
             if (isQuadCurveCreated) {
                 if (node == quadCurve.getCurveStartNode()) {
@@ -175,7 +177,7 @@ public class MoveNodeButton extends BaseButton {
                 }
             }
         }
-        canAutoSave = true;
+        resumeAutoSave();
         getMapPanel().repaint();
     }
 
@@ -183,7 +185,7 @@ public class MoveNodeButton extends BaseButton {
         double scaledDiffX;
         double scaledDiffY;
 
-        canAutoSave = false;
+        suspendAutoSave();
 
         for (MapNode node : nodeList) {
             if (bGridSnap && !snapOverride) {
@@ -219,6 +221,7 @@ public class MoveNodeButton extends BaseButton {
                         node.z = roundUpDoubleToDecimalPlaces(node.z + scaledDiffY, 3);
                     }
                 }
+                RoadMap.updateNodeLocation(node);
             }
 
             if (isQuadCurveCreated) {
@@ -245,7 +248,7 @@ public class MoveNodeButton extends BaseButton {
                 }
             }
         }
-        canAutoSave = true;
+        resumeAutoSave();
         getMapPanel().repaint();
     }
 
@@ -273,20 +276,20 @@ public class MoveNodeButton extends BaseButton {
 
         public void undo(){
             moveNodeBy(this.moveNodes, -this.diffX, -this.diffY, true);
-            for (MapNode node : this.moveNodes) {
-                checkAreaForNodeOverlap(node);
-            }
+            updateOverlapWarnings(this.moveNodes);
             getMapPanel().repaint();
             setStale(this.isStale);
         }
 
         public void redo(){
             moveNodeBy(this.moveNodes, this.diffX, this.diffY, true);
-            for (MapNode node : this.moveNodes) {
-                checkAreaForNodeOverlap(node);
-            }
+            updateOverlapWarnings(this.moveNodes);
             getMapPanel().repaint();
             setStale(true);
         }
+
+        public Collection<MapNode> getChangedNodes() {
+            return this.moveNodes;
+        }
     }
 }
@@ -3,9 +3,11 @@ package AutoDriveEditor.GUI.Buttons.Nodes;
 import AutoDriveEditor.GUI.Buttons.BaseButton;
 import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
 import java.awt.event.MouseEvent;
+import java.util.Collection;
 import java.util.LinkedList;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
@@ -60,28 +62,30 @@ public class NodePriorityButton extends BaseButton {
     @Override
     public void mouseDragged(MouseEvent e) {
         if (rectangleStart != null && isMultiSelectDragging) {
-            getMapPanel().repaint();
+            getMapPanel().repaintOverlay();
         }
     }
 
     public void changeNodePriority(MapNode nodeToChange) {
         nodeToChange.flag = 1 - nodeToChange.flag;
+        RoadMap.invalidateConnectionTypes(nodeToChange);
         changeManager.addChangeable( new NodePriorityChanger(nodeToChange));
         setStale(true);
         getMapPanel().repaint();
     }
 
     public void changeAllNodesPriInScreenArea() {
-        canAutoSave = false;
+        suspendAutoSave();
         if (!multiSelectList.isEmpty()) {
             for (MapNode node : multiSelectList) {
                 node.flag = 1 - node.flag;
             }
+            RoadMap.invalidateConnectionTypes(multiSelectList);
         }
         changeManager.addChangeable( new NodePriorityChanger(multiSelectList));
         setStale(true);
         clearMultiSelection();
-        canAutoSave = true;
+        resumeAutoSave();
     }
 
     //
@@ -115,6 +119,7 @@ public class NodePriorityButton extends BaseButton {
                 MapNode mapNode = this.nodesPriorityChanged.get(i);
                 mapNode.flag = 1 - mapNode.flag;
             }
+            RoadMap.invalidateConnectionTypes(this.nodesPriorityChanged);
             getMapPanel().repaint();
             setStale(this.isStale);
         }
@@ -124,8 +129,13 @@ public class NodePriorityButton extends BaseButton {
                 MapNode mapNode = this.nodesPriorityChanged.get(i);
                 mapNode.flag = 1 - mapNode.flag;
             }
+            RoadMap.invalidateConnectionTypes(this.nodesPriorityChanged);
             getMapPanel().repaint();
             setStale(true);
         }
+
+        public Collection<MapNode> getChangedNodes() {
+            return this.nodesPriorityChanged;
+        }
     }
 }
@@ -178,6 +178,34 @@ public class ConfigGUI extends JFrame {
         mapPanelOptions.add(maxZoomLabel);
 
         mapPanelOptions.add(zoomPanel);
+
+        // Simplified network threshold slider, 0 turns it off
+
+        JLabel lodLabel = new JLabel(getLocaleString("panel_config_tab_mappanel_lod") + " ( " + lodMetresPerPixel + " )  ", JLabel.TRAILING);
+        JSlider lodSlider = new JSlider(SwingConstants.HORIZONTAL);
+        lodSlider.addChangeListener(e -> {
+            JSlider source = (JSlider) e.getSource();
+            if (source.getValueIsAdjusting()) {
+                lodMetresPerPixel = lodSlider.getValue();
+                String text = getLocaleString("panel_config_tab_mappanel_lod") + " ( " + lodMetresPerPixel + " )  ";
+                lodLabel.setText(text);
+                getMapPanel().repaint();
+            }
+        });
+
+        lodSlider.setBorder(BorderFactory.createEmptyBorder(0,0,0,0));
+        lodSlider.setPaintTicks(true);
+        lodSlider.setSnapToTicks(true);
+        lodSlider.setMajorTickSpacing(2);
+        lodSlider.setMinorTickSpacing(1);
+        lodSlider.setPaintLabels(true);
+        lodSlider.setMinimum(0);
+        lodSlider.setMaximum(10);
+        lodSlider.setValue(lodMetresPerPixel);
+
+        lodLabel.setLabelFor(lodSlider);
+        mapPanelOptions.add(lodLabel);
+        mapPanelOptions.add(lodSlider);
         mapPanelTab.add(mapPanelOptions);
 
         //
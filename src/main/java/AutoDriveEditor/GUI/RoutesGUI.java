@@ -15,7 +15,7 @@ import static AutoDriveEditor.GUI.GUIImages.getTractorImage;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.Utils.GUIUtils.makeBasicButton;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
-import static AutoDriveEditor.XMLConfig.GameXML.saveConfigFile;
+import static AutoDriveEditor.XMLConfig.GameXML.saveConfigFileInBackground;
 import static AutoDriveEditor.XMLConfig.RouteManagerXML.*;
 
 public class RoutesGUI extends JFrame {
@@ -65,7 +65,7 @@ public class RoutesGUI extends JFrame {
             if (MapPanel.isStale()) {
                 int response = JOptionPane.showConfirmDialog(editor, getLocaleString("dialog_exit_unsaved"), "AutoDrive", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
                 if (response == JOptionPane.YES_OPTION) {
-                    saveConfigFile(null, false, false);
+                    saveConfigFileInBackground(null);
                 }
             }
             loadRouteManagerXML(new File(routeFile), true, mapName);
@@ -31,7 +31,7 @@ import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.EditorXML.*;
 import static AutoDriveEditor.XMLConfig.GameXML.*;
 import static AutoDriveEditor.XMLConfig.RouteManagerXML.loadRouteManagerXML;
-import static AutoDriveEditor.XMLConfig.RouteManagerXML.saveRouteManagerXML;
+import static AutoDriveEditor.XMLConfig.RouteManagerXML.saveRouteManagerXMLInBackground;
 
 public class MenuListener implements ActionListener, ItemListener {
 
@@ -46,7 +46,7 @@ public class MenuListener implements ActionListener, ItemListener {
                 if (isStale()) {
                     int response = JOptionPane.showConfirmDialog(editor, getLocaleString("dialog_exit_unsaved"), getLocaleString("AutoDrive"), JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
                     if (response == JOptionPane.YES_OPTION) {
-                        saveConfigFile(null, false, false);
+                        saveConfigFileInBackground(null);
                     }
                 }
                 fc.setDialogTitle(getLocaleString("dialog_load_config_xml_title"));
@@ -67,7 +67,7 @@ public class MenuListener implements ActionListener, ItemListener {
                 });
 
                 if (fc.showOpenDialog(editor) == JFileChooser.APPROVE_OPTION) {
-                    canAutoSave = false;
+                    suspendAutoSave();
                     lastLoadLocation = fc.getCurrentDirectory().getAbsolutePath();
                     File fileName = fc.getSelectedFile();
                     if (loadConfigFile(fileName)) {
@@ -78,12 +78,12 @@ public class MenuListener implements ActionListener, ItemListener {
                         scanNetworkForOverlapNodes();
                         bShowHeightMap = false;
                         showHeightMapMenuItem.setSelected(false);
-                        canAutoSave=true;
                     }
+                    resumeAutoSave();
                 }
                 break;
             case MENU_SAVE_CONFIG:
-                saveConfigFile(null, false, false);
+                saveConfigFileInBackground(null);
                 break;
             case MENU_SAVE_SAVEAS:
                 if (xmlConfigFile == null) break;
@@ -108,7 +108,7 @@ public class MenuListener implements ActionListener, ItemListener {
                 if (fc.showSaveDialog(editor) == JFileChooser.APPROVE_OPTION) {
                     lastLoadLocation = fc.getCurrentDirectory().getAbsolutePath();
                     LOG.info("{} {}", getLocaleString("console_config_save_as"), getSelectedFileWithExtension(fc));
-                    saveConfigFile(getSelectedFileWithExtension(fc).toString(), false, false);
+                    saveConfigFileInBackground(getSelectedFileWithExtension(fc).toString());
                 }
                 break;
             case MENU_LOAD_ROUTES_MANAGER_CONFIG:
@@ -130,21 +130,21 @@ public class MenuListener implements ActionListener, ItemListener {
                 });
 
                 if (fc.showOpenDialog(editor) == JFileChooser.APPROVE_OPTION) {
-                    canAutoSave = false;
+                    suspendAutoSave();
                     lastLoadLocation = fc.getCurrentDirectory().getAbsolutePath();
                     //getMapPanel().confirmCurve();
                     File fileName = fc.getSelectedFile();
 
                     createRoutesGUI(fileName, editor);
                     configType = CONFIG_ROUTEMANAGER;
-                    canAutoSave = true;
+                    resumeAutoSave();
                 }
                 break;
             case MENU_LOAD_ROUTES_MANAGER_XML:
                 if (isStale()) {
                     int response = JOptionPane.showConfirmDialog(editor, getLocaleString("dialog_exit_unsaved"), "AutoDrive", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
                     if (response == JOptionPane.YES_OPTION) {
-                        saveConfigFile(null, false, false);
+                        saveConfigFileInBackground(null);
                     }
                 }
                 fc.setDialogTitle(getLocaleString("dialog_load_route_xml_title"));
@@ -165,19 +165,19 @@ public class MenuListener implements ActionListener, ItemListener {
                 });
 
                 if (fc.showOpenDialog(editor) == JFileChooser.APPROVE_OPTION) {
-                    canAutoSave = false;
+                    suspendAutoSave();
                     lastLoadLocation = fc.getCurrentDirectory().getAbsolutePath();
                     File fileName = fc.getSelectedFile();
                     if (loadRouteManagerXML(fileName, false, null)) {
                         isUsingImportedImage = false;
                         saveImageEnabled(false);
                         setStale(false);
-                        canAutoSave = true;
                     }
+                    resumeAutoSave();
                 }
                 break;
             case MENU_SAVE_ROUTES_MANAGER_XML:
-                saveRouteManagerXML(null, false, false);
+                saveRouteManagerXMLInBackground(null);
                 break;
             case MENU_EXIT:
                 editor.dispatchEvent(new WindowEvent(editor, WindowEvent.WINDOW_CLOSING));
@@ -1,7 +1,14 @@
 package AutoDriveEditor.Managers;
 
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static AutoDriveEditor.GUI.MenuBuilder.*;
-import static AutoDriveEditor.MapPanel.MapPanel.canAutoSave;
+import static AutoDriveEditor.MapPanel.MapPanel.resumeAutoSave;
+import static AutoDriveEditor.MapPanel.MapPanel.suspendAutoSave;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 
 /**
@@ -23,8 +30,20 @@ public class ChangeManager {
 
         // Redoes an action
         void redo();
+
+        // The nodes the action adds, removes or changes, including the ones at the other end of a
+        // connection it changes. After the action is done, undone or redone only these nodes are
+        // written to the journal, see JournalManager
+        Collection<MapNode> getChangedNodes();
     }
 
+    // counts every change made to the road network through a ChangeManager ( adding a change, undo
+    // and redo ). It's shared by all ChangeManagers so it keeps counting when a config is loaded, the
+    // autosave compares it against the count at the last save to skip saving an unchanged map.
+
+    private static final AtomicLong modificationCount = new AtomicLong();
+    private static volatile long savedModificationCount = 0;
+
     //the current index node
     private Node currentIndex;
     //the parent node far left node.
@@ -47,6 +66,28 @@ public class ChangeManager {
         currentIndex = manager.currentIndex;
     }
 
+    public static long getModificationCount() { return modificationCount.get(); }
+
+     // Records the modification count the road map had when it was captured for a save ( or loaded )
+
+    public static void setSavedModificationCount(long count) { savedModificationCount = count; }
+
+    public static boolean isModifiedSinceSave() { return modificationCount.get() != savedModificationCount; }
+
+     // Marks the road map as changed, any edit that doesn't go through a Changeable ( e.g. one that can't
+     // be undone ) must call this, or the autosave and the journal won't know about it. The journal
+     // has to write a full copy of the road map for it, use markModified(changedNodes) when the nodes
+     // the edit changed are known
+
+    public static void markModified() {
+        markModified(null);
+    }
+
+    public static void markModified(Collection<MapNode> changedNodes) {
+        modificationCount.incrementAndGet();
+        JournalManager.recordChange(changedNodes);
+    }
+
      // Clears all Changables contained in this manager.
 
     @SuppressWarnings("unused")
@@ -61,6 +102,7 @@ public class ChangeManager {
         currentIndex.right = node;
         node.left = currentIndex;
         currentIndex = node;
+        markModified(changeable.getChangedNodes());
         if (bDebugLogUndoRedo) LOG.info("addChangeable");
         undoMenuItem.setEnabled(true);
     }
@@ -77,23 +119,24 @@ public class ChangeManager {
 
     public void undo(){
         //validate
-        canAutoSave = false;
+        suspendAutoSave();
         if ( !canUndo() ){
             LOG.info("Reached Beginning of Undo History.");
             undoMenuItem.setEnabled(false);
-            canAutoSave = true;
+            resumeAutoSave();
             return;
             //throw new IllegalStateException("Cannot undo. Index is out of range.");
         }
         //undo
         if (currentIndex.changeable != null) {
             currentIndex.changeable.undo();
+            markModified(currentIndex.changeable.getChangedNodes());
         } else {
             LOG.info("Unable to Undo");
         }
         //set index
         moveLeft();
-        canAutoSave = true;
+        resumeAutoSave();
     }
 
     /**
@@ -132,11 +175,11 @@ public class ChangeManager {
 
     public void redo(){
         //validate
-        canAutoSave = false;
+        suspendAutoSave();
         if ( !canRedo() ){
             LOG.info("Reached End of Undo History.");
             redoMenuItem.setEnabled(false);
-            canAutoSave = true;
+            resumeAutoSave();
             return;
         }
         //reset index
@@ -144,11 +187,12 @@ public class ChangeManager {
         //redo
         if (currentIndex.changeable != null) {
             currentIndex.changeable.redo();
+            markModified(currentIndex.changeable.getChangedNodes());
         } else {
             LOG.info("Unable to Redo");
         }
 
-        canAutoSave = true;
+        resumeAutoSave();
     }
 
     /**
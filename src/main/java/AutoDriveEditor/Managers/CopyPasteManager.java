@@ -13,6 +13,7 @@ import java.util.LinkedList;
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogCopyPasteInfo;
 import static AutoDriveEditor.Managers.MultiSelectManager.*;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapImage.image;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -49,9 +50,7 @@ public class CopyPasteManager {
 
     public void CutSelection(LinkedList<MapNode> nodesToCopy) {
         deleteNodeList.clear();
-        for (MapNode node : nodesToCopy) {
-            addToDeleteList(node);
-        }
+        addToDeleteList(nodesToCopy);
         changeManager.addChangeable( new DeleteNodeChanger(deleteNodeList));
         CopySelection(nodesToCopy);
         getMapPanel().removeDeleteListNodes();
@@ -164,7 +163,7 @@ public class CopyPasteManager {
         }
         clearMultiSelection();
 
-        canAutoSave = false;
+        suspendAutoSave();
 
         int startID = RoadMap.mapNodes.size() + 1;
         for (MapNode node : newNodes) {
@@ -176,11 +175,12 @@ public class CopyPasteManager {
                 if (yValue != -1) node.y = yValue;
             }
             node.isSelected = true;
-            RoadMap.mapNodes.add(node);
+            RoadMap.addMapNode(node);
             multiSelectList.add(node);
         }
 
-        canAutoSave = true;
+        updateOverlapWarnings(newNodes);
+        resumeAutoSave();
 
         isMultipleSelected = true;
 
@@ -191,13 +191,19 @@ public class CopyPasteManager {
 
     public static void rotateSelected(double angle) {
         selectionAreaInfo recInfo = getSelectionBounds(multiSelectList, WORLD_COORDINATES);
-        canAutoSave = false;
+        suspendAutoSave();
         for (MapNode node : multiSelectList) {
             if ( recInfo != null ) {
                 rotate(node, recInfo.selectionCentre, angle);
             }
         }
-        canAutoSave = true;
+        updateOverlapWarnings(multiSelectList);
+        // rotating can't be undone, so it's marked as a change directly
+        if (recInfo != null && !multiSelectList.isEmpty()) {
+            ChangeManager.markModified(multiSelectList);
+            setStale(true);
+        }
+        resumeAutoSave();
         getMapPanel().repaint();
         getSelectionBounds(multiSelectList, WORLD_COORDINATES);
     }
@@ -210,6 +216,7 @@ public class CopyPasteManager {
         rotation.transform(new Point2D.Double(node.x, node.z), result);
         node.x = result.getX();
         node.z = result.getY();
+        RoadMap.updateNodeLocation(node);
     }
 
     @SuppressWarnings("SameParameterValue")
@@ -0,0 +1,705 @@
+package AutoDriveEditor.Managers;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
+
+import javax.swing.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static AutoDriveEditor.AutoDriveEditor.editor;
+import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
+import static AutoDriveEditor.Managers.ScanManager.scanNetworkForOverlapNodes;
+import static AutoDriveEditor.MapPanel.MapPanel.getMapPanel;
+import static AutoDriveEditor.MapPanel.MapPanel.runWhenNoEditInProgress;
+import static AutoDriveEditor.MapPanel.MapPanel.setStale;
+import static AutoDriveEditor.Utils.FileUtils.writeFileAtomically;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+
+//
+// Journal of the edits made to a config since it was last saved, written next to the config
+// ( <config>.xml.editorjournal ) so the edits can be recovered if the editor exits without
+// saving them ( e.g. a crash ).
+//
+// Every change made through the ChangeManager ( including undo and redo ) is appended as one record
+// holding only what the change touched: the indexes of the nodes removed from and inserted into the
+// road map, in the order RoadMap reported them, followed by the index and state ( location, flag,
+// connections and map marker ) of every node the change reported ( see Changeable.getChangedNodes() )
+// plus the inserted nodes and the nodes that lost a connection to a removed one. A change that can't
+// say which nodes it touched is written as a full copy of the road map. The records are written on
+// the journal thread and synced to disk at most once a second. Once the records get too big the
+// journal is compacted into a new file holding a single full copy of the road map.
+//
+// The file layout is
+//
+//      header      - magic, format version, config size, config modified time
+//      records     - payload length, CRC32C of the payload, then the payload ( record type and data )
+//
+// A record with a bad length or CRC ends the journal, so a record torn by a crash is dropped. When a
+// config with a journal is opened again, replaying it is offered if the config is still the one the
+// journal was started from. All the functions except the file writing must be called on the EDT.
+//
+
+public class JournalManager {
+
+    private static final int MAGIC = 0x4144454A; // "ADEJ"
+    private static final int FORMAT_VERSION = 2;
+    private static final String JOURNAL_EXTENSION = ".editorjournal";
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte RECORD_FULL = 1;
+    private static final byte RECORD_CHANGE = 2;
+    private static final byte STEP_REMOVE = 1;
+    private static final byte STEP_INSERT = 2;
+    private static final long SYNC_DELAY_MILLISECONDS = 1000;
+    private static final long COMPACT_SIZE = 8L * 1024 * 1024;
+
+    private static final ScheduledExecutorService journalExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "JournalManager");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the journaled config and the changes made since the last record, only used on the EDT
+
+    private static File journalConfigFile;
+    private static UUID journalUUID;
+    private static long bytesSinceCompaction = 0;
+    private static boolean isChangePending = false;
+    private static boolean isFullRecordPending = false;
+    private static final Set<MapNode> changedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static final ByteArrayOutputStream pendingSteps = new ByteArrayOutputStream();
+    private static final DataOutputStream pendingStepOutput = new DataOutputStream(pendingSteps);
+    private static int pendingStepCount = 0;
+
+    // the open journal file, only used on the journal thread
+
+    private static FileChannel journalChannel;
+    private static boolean isSyncScheduled = false;
+
+    //
+    // A node as read back from a record, connections are node indexes after the record is applied
+    //
+
+    private static class NodeRecord {
+        private final int index;
+        private final double x, y, z;
+        private final int flag;
+        private final int[] outgoing;
+        private final int[] incoming;
+        private final String markerName;
+        private final String markerGroup;
+        private final boolean hasMarker;
+
+        private NodeRecord(DataInputStream input, int index) throws IOException {
+            this.index = index;
+            this.x = input.readDouble();
+            this.y = input.readDouble();
+            this.z = input.readDouble();
+            this.flag = input.readInt();
+            this.outgoing = readIndexes(input);
+            this.incoming = readIndexes(input);
+            this.hasMarker = input.readBoolean();
+            this.markerName = (hasMarker) ? readString(input) : null;
+            this.markerGroup = (hasMarker) ? readString(input) : null;
+        }
+    }
+
+    public static Path getJournalPath(File configFile) {
+        return new File(configFile.getAbsolutePath() + JOURNAL_EXTENSION).toPath();
+    }
+
+    //
+    // Starts journaling the config that has just been loaded, the journal of the previously loaded
+    // config is deleted. Any journal left over is read on the journal thread, then the EDT either
+    // offers to replay it or starts the new journal. The records only fit the config as it was
+    // loaded, so if it was edited while the journal was being read they can't be replayed, the new
+    // journal then starts with a full copy of the road map.
+    //
+
+    public static void openJournal(File configFile) {
+        closeJournal(true);
+        UUID configUUID = RoadMap.uuid;
+        journalExecutor.execute(() -> {
+            List<byte[]> records;
+            try {
+                records = readJournal(configFile);
+            } catch (IOException e) {
+                LOG.error("Unable to read journal {}", getJournalPath(configFile), e);
+                records = Collections.emptyList();
+            }
+            List<byte[]> journalRecords = records;
+            SwingUtilities.invokeLater(() -> {
+                if (RoadMap.uuid != configUUID) return;
+                if (journalRecords.isEmpty() || ChangeManager.isModifiedSinceSave()) {
+                    if (!journalRecords.isEmpty()) LOG.info("{} was edited before its journal was read, the journal can't be replayed", configFile.getName());
+                    startJournal(configFile, configUUID, ChangeManager.isModifiedSinceSave());
+                } else {
+                    offerReplay(configFile, configUUID, journalRecords);
+                }
+            });
+        });
+    }
+
+    //
+    // Stops journaling, the journal is kept if it may still be needed to recover unsaved changes. The
+    // file is closed on the journal thread, use waitForJournal() to wait for it
+    //
+
+    public static void closeJournal(boolean deleteJournal) {
+        File configFile = journalConfigFile;
+        journalConfigFile = null;
+        journalUUID = null;
+        clearPendingChanges();
+        if (configFile == null) return;
+        journalExecutor.execute(() -> {
+            closeChannel();
+            if (!deleteJournal) return;
+            try {
+                Files.deleteIfExists(getJournalPath(configFile));
+            } catch (IOException e) {
+                LOG.error("Unable to delete journal {}", getJournalPath(configFile), e);
+            }
+        });
+    }
+
+    //
+    // Blocks until everything queued on the journal thread so far has been written, e.g. before the editor exits
+    //
+
+    public static void waitForJournal() {
+        try {
+            journalExecutor.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    //
+    // Called by the ChangeManager after every change with the nodes it changed, or null if they aren't
+    // known. The record is written once no edit is in progress, so it holds the nodes as the edit left them
+    //
+
+    public static void recordChange(Collection<MapNode> nodes) {
+        if (!isJournaling()) return;
+        if (nodes == null) {
+            isFullRecordPending = true;
+        } else {
+            changedNodes.addAll(nodes);
+        }
+        scheduleChangeRecord();
+    }
+
+    //
+    // Called by RoadMap when nodes go into or come out of the road map, the indexes are in ascending
+    // order and are the ones the nodes have in the road map after ( inserted ) or before ( removed )
+    // the call. Along with the inserted nodes, the nodes that lost a connection to a removed node
+    // are written by the next record.
+    //
+
+    public static void recordInsertedNodes(int[] insertedIndexes, Collection<MapNode> insertedNodes) {
+        if (!isJournaling()) return;
+        addStep(STEP_INSERT, insertedIndexes);
+        changedNodes.addAll(insertedNodes);
+        scheduleChangeRecord();
+    }
+
+    public static void recordRemovedNodes(int[] removedIndexes, Collection<MapNode> unlinkedNodes) {
+        if (!isJournaling()) return;
+        addStep(STEP_REMOVE, removedIndexes);
+        changedNodes.addAll(unlinkedNodes);
+        scheduleChangeRecord();
+    }
+
+    private static boolean isJournaling() {
+        return journalConfigFile != null && RoadMap.uuid == journalUUID;
+    }
+
+    private static void addStep(byte step, int[] indexes) {
+        try {
+            pendingStepOutput.writeByte(step);
+            pendingStepOutput.writeInt(indexes.length);
+            for (int index : indexes) {
+                pendingStepOutput.writeInt(index);
+            }
+            pendingStepCount++;
+        } catch (IOException e) {
+            // a ByteArrayOutputStream can't fail, but if it did the steps would be lost
+            LOG.error(e.getMessage(), e);
+            isFullRecordPending = true;
+        }
+    }
+
+    private static void scheduleChangeRecord() {
+        if (isChangePending) return;
+        isChangePending = true;
+        runWhenNoEditInProgress(JournalManager::writeChangeRecord);
+    }
+
+    private static void clearPendingChanges() {
+        changedNodes.clear();
+        pendingSteps.reset();
+        pendingStepCount = 0;
+        isFullRecordPending = false;
+    }
+
+    //
+    // Called after the config has been saved, the journal is started again from the saved config ( if
+    // the config was saved under a new name, the journal moves to the new file )
+    //
+
+    public static void onConfigSaved(File savedFile) {
+        if (journalConfigFile == null) return;
+        UUID configUUID = journalUUID;
+        runWhenNoEditInProgress(() -> {
+            if (journalConfigFile == null || RoadMap.uuid != configUUID) return;
+            // anything changed while the save was being written isn't in the saved config
+            boolean isModified = ChangeManager.isModifiedSinceSave();
+            if (journalConfigFile.getAbsoluteFile().equals(savedFile.getAbsoluteFile())) {
+                resetJournal(isModified);
+            } else {
+                closeJournal(true);
+                startJournal(savedFile, configUUID, isModified);
+            }
+        });
+    }
+
+    private static void offerReplay(File configFile, UUID configUUID, List<byte[]> records) {
+        if (RoadMap.uuid != configUUID) return;
+        int response = JOptionPane.showConfirmDialog(editor, getLocaleString("dialog_journal_replay"), "AutoDrive", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (response != JOptionPane.YES_OPTION) {
+            LOG.info("Discarding the unsaved changes journal of {}", configFile.getName());
+            startJournal(configFile, configUUID, false);
+            return;
+        }
+        try {
+            ArrayList<MapNode> nodes = replayJournal(RoadMap.mapNodes, records);
+            RoadMap.setMapNodes(nodes);
+            RoadMap.invalidateAllConnectionTypes();
+            ChangeManager.markModified();
+            LOG.info("Replayed {} journal records of {}", records.size(), configFile.getName());
+            startJournal(configFile, configUUID, true);
+            scanNetworkForOverlapNodes();
+            setStale(true);
+            getMapPanel().repaint();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Unable to replay the journal of {}", configFile.getName(), e);
+            JOptionPane.showMessageDialog(editor, getLocaleString("dialog_journal_replay_failed"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
+            startJournal(configFile, configUUID, false);
+        }
+    }
+
+    private static void startJournal(File configFile, UUID configUUID, boolean writeFullRecord) {
+        journalConfigFile = configFile;
+        journalUUID = configUUID;
+        resetJournal(writeFullRecord);
+    }
+
+    //
+    // Replaces the journal with a new one for the current config, optionally holding a full copy of the road map
+    //
+
+    private static void resetJournal(boolean writeFullRecord) {
+        clearPendingChanges();
+        byte[] fullRecord = null;
+        if (writeFullRecord) {
+            try {
+                fullRecord = createFullRecord(RoadMap.mapNodes);
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+        bytesSinceCompaction = 0;
+        File configFile = journalConfigFile;
+        byte[] record = fullRecord;
+        journalExecutor.execute(() -> createJournal(configFile, record));
+    }
+
+    //
+    // Appends the nodes inserted, removed and changed since the last record
+    //
+
+    private static void writeChangeRecord() {
+        isChangePending = false;
+        if (!isJournaling()) {
+            clearPendingChanges();
+            return;
+        }
+        if (isFullRecordPending) {
+            resetJournal(true);
+            return;
+        }
+        if (pendingStepCount == 0 && changedNodes.isEmpty()) return;
+
+        List<MapNode> mapNodes = RoadMap.mapNodes;
+        byte[] record;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeByte(RECORD_CHANGE);
+            output.writeInt(pendingStepCount);
+            pendingStepOutput.flush();
+            pendingSteps.writeTo(output);
+
+            // nodes that were removed again ( or were never in the road map, e.g. curve control points ) are skipped
+            ArrayList<MapNode> nodesToWrite = new ArrayList<>(changedNodes.size());
+            for (MapNode mapNode : changedNodes) {
+                int index = mapNode.id - 1;
+                if (index >= 0 && index < mapNodes.size() && mapNodes.get(index) == mapNode) nodesToWrite.add(mapNode);
+            }
+            output.writeInt(nodesToWrite.size());
+            for (MapNode mapNode : nodesToWrite) {
+                output.writeInt(mapNode.id - 1);
+                writeNode(output, mapNode);
+            }
+            output.flush();
+            record = bytes.toByteArray();
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            resetJournal(true);
+            return;
+        }
+        clearPendingChanges();
+
+        if (bytesSinceCompaction + record.length > COMPACT_SIZE) {
+            LOG.info("Compacting journal of {}", journalConfigFile.getName());
+            resetJournal(true);
+            return;
+        }
+        bytesSinceCompaction += record.length;
+        journalExecutor.execute(() -> appendRecord(record));
+    }
+
+    private static byte[] createFullRecord(List<MapNode> mapNodes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(RECORD_FULL);
+        output.writeInt(mapNodes.size());
+        for (MapNode mapNode : mapNodes) {
+            writeNode(output, mapNode);
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeNode(DataOutputStream output, MapNode mapNode) throws IOException {
+        output.writeDouble(mapNode.x);
+        output.writeDouble(mapNode.y);
+        output.writeDouble(mapNode.z);
+        output.writeInt(mapNode.flag);
+        writeConnections(output, mapNode.outgoing);
+        writeConnections(output, mapNode.incoming);
+        output.writeBoolean(mapNode.hasMapMarker());
+        if (mapNode.hasMapMarker()) {
+            writeString(output, mapNode.getMarkerName());
+            writeString(output, mapNode.getMarkerGroup());
+        }
+    }
+
+    private static void writeConnections(DataOutputStream output, List<MapNode> connections) throws IOException {
+        output.writeInt(connections.size());
+        for (MapNode connection : connections) {
+            output.writeInt(connection.id - 1);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String text) throws IOException {
+        if (text == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    //
+    // Replay
+    //
+
+    //
+    // Applies the records to a copy of the loaded nodes, so the loaded road map is left as it was if
+    // the journal can't be replayed
+    //
+
+    static ArrayList<MapNode> replayJournal(List<MapNode> baseNodes, List<byte[]> records) throws IOException {
+        ArrayList<MapNode> nodes = copyNodes(baseNodes);
+        for (byte[] record : records) {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+            byte type = input.readByte();
+            if (type == RECORD_FULL) {
+                int count = readCount(input);
+                nodes = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    nodes.add(new MapNode(i + 1, 0, 0, 0, 0, false, false));
+                }
+                for (int i = 0; i < count; i++) {
+                    applyRecord(nodes, new NodeRecord(input, i));
+                }
+            } else if (type == RECORD_CHANGE) {
+                int stepCount = readCount(input);
+                for (int i = 0; i < stepCount; i++) {
+                    byte step = input.readByte();
+                    int[] indexes = readIndexes(input);
+                    if (step == STEP_REMOVE) {
+                        nodes = removeNodes(nodes, indexes);
+                    } else if (step == STEP_INSERT) {
+                        nodes = insertNodes(nodes, indexes);
+                    } else {
+                        throw new IOException("Unknown journal step type " + step);
+                    }
+                }
+                int changedCount = readCount(input);
+                for (int i = 0; i < changedCount; i++) {
+                    applyRecord(nodes, new NodeRecord(input, input.readInt()));
+                }
+            } else {
+                throw new IOException("Unknown journal record type " + type);
+            }
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).id = i + 1;
+        }
+        return nodes;
+    }
+
+    private static ArrayList<MapNode> copyNodes(List<MapNode> baseNodes) {
+        ArrayList<MapNode> nodes = new ArrayList<>(baseNodes.size());
+        for (MapNode baseNode : baseNodes) {
+            MapNode mapNode = new MapNode(baseNode.id, 0, 0, 0, baseNode.flag, false, false);
+            mapNode.x = baseNode.x;
+            mapNode.y = baseNode.y;
+            mapNode.z = baseNode.z;
+            if (baseNode.hasMapMarker()) mapNode.createMapMarker(baseNode.getMarkerName(), baseNode.getMarkerGroup());
+            nodes.add(mapNode);
+        }
+        for (int i = 0; i < baseNodes.size(); i++) {
+            MapNode baseNode = baseNodes.get(i);
+            MapNode mapNode = nodes.get(i);
+            for (MapNode outgoing : baseNode.outgoing) {
+                mapNode.outgoing.add(nodes.get(outgoing.id - 1));
+            }
+            for (MapNode incoming : baseNode.incoming) {
+                mapNode.incoming.add(nodes.get(incoming.id - 1));
+            }
+        }
+        return nodes;
+    }
+
+    //
+    // The connections the remaining nodes had to a removed node are left alone, the record that
+    // removed it also holds the new state of those nodes
+    //
+
+    private static ArrayList<MapNode> removeNodes(ArrayList<MapNode> nodes, int[] removedIndexes) throws IOException {
+        ArrayList<MapNode> survivors = new ArrayList<>(nodes.size());
+        int nodeIndex = 0;
+        for (int removedIndex : removedIndexes) {
+            if (removedIndex < nodeIndex || removedIndex >= nodes.size()) throw new IOException("Removed node index " + removedIndex + " is out of range");
+            while (nodeIndex < removedIndex) {
+                survivors.add(nodes.get(nodeIndex++));
+            }
+            nodeIndex++;
+        }
+        while (nodeIndex < nodes.size()) {
+            survivors.add(nodes.get(nodeIndex++));
+        }
+        return survivors;
+    }
+
+    //
+    // Inserts an empty node at each index, the record that inserted them also holds their state
+    //
+
+    private static ArrayList<MapNode> insertNodes(ArrayList<MapNode> nodes, int[] insertedIndexes) throws IOException {
+        ArrayList<MapNode> merged = new ArrayList<>(nodes.size() + insertedIndexes.length);
+        int nodeIndex = 0;
+        for (int insertedIndex : insertedIndexes) {
+            while (merged.size() < insertedIndex && nodeIndex < nodes.size()) {
+                merged.add(nodes.get(nodeIndex++));
+            }
+            if (merged.size() != insertedIndex) throw new IOException("Inserted node index " + insertedIndex + " is out of range");
+            merged.add(new MapNode(insertedIndex + 1, 0, 0, 0, 0, false, false));
+        }
+        while (nodeIndex < nodes.size()) {
+            merged.add(nodes.get(nodeIndex++));
+        }
+        return merged;
+    }
+
+    private static void applyRecord(List<MapNode> nodes, NodeRecord nodeRecord) throws IOException {
+        if (nodeRecord.index < 0 || nodeRecord.index >= nodes.size()) throw new IOException("Node index " + nodeRecord.index + " is out of range");
+        MapNode mapNode = nodes.get(nodeRecord.index);
+        // the values were copied from a node, so they have already been rounded
+        mapNode.x = nodeRecord.x;
+        mapNode.y = nodeRecord.y;
+        mapNode.z = nodeRecord.z;
+        mapNode.flag = nodeRecord.flag;
+        setConnections(mapNode.outgoing, nodeRecord.outgoing, nodes);
+        setConnections(mapNode.incoming, nodeRecord.incoming, nodes);
+        if (nodeRecord.hasMarker) {
+            mapNode.createMapMarker(nodeRecord.markerName, nodeRecord.markerGroup);
+        } else if (mapNode.hasMapMarker()) {
+            mapNode.removeMapMarker();
+        }
+    }
+
+    private static void setConnections(List<MapNode> connections, int[] indexes, List<MapNode> nodes) throws IOException {
+        connections.clear();
+        for (int index : indexes) {
+            if (index < 0 || index >= nodes.size()) throw new IOException("Connection index " + index + " is out of range");
+            connections.add(nodes.get(index));
+        }
+    }
+
+    private static int[] readIndexes(DataInputStream input) throws IOException {
+        int[] indexes = new int[readCount(input)];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = input.readInt();
+        }
+        return indexes;
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length == -1) return null;
+        if (length < 0 || length > input.available()) throw new IOException("Bad string length " + length);
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0 || count > input.available()) throw new IOException("Bad count " + count);
+        return count;
+    }
+
+    //
+    // Journal file, only used on the journal thread
+    //
+
+    private static List<byte[]> readJournal(File configFile) throws IOException {
+        Path journalPath = getJournalPath(configFile);
+        if (!Files.exists(journalPath)) return Collections.emptyList();
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            LOG.info("Ignoring unknown journal {}", journalPath);
+            return Collections.emptyList();
+        }
+        long configSize = buffer.getLong();
+        long configModified = buffer.getLong();
+        if (configSize != Files.size(configFile.toPath()) || configModified != Files.getLastModifiedTime(configFile.toPath()).toMillis()) {
+            LOG.info("Ignoring journal {}, the config has been changed since it was written", journalPath);
+            return Collections.emptyList();
+        }
+
+        ArrayList<byte[]> records = new ArrayList<>();
+        CRC32C crc = new CRC32C();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) break;
+            byte[] record = new byte[length];
+            buffer.get(record);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != checksum) break;
+            records.add(record);
+        }
+        if (buffer.hasRemaining()) LOG.info("Journal {} ends with an incomplete record, it was dropped", journalPath);
+        return records;
+    }
+
+    private static void createJournal(File configFile, byte[] fullRecord) {
+        closeChannel();
+        Path journalPath = getJournalPath(configFile);
+        try {
+            long configSize = Files.size(configFile.toPath());
+            long configModified = Files.getLastModifiedTime(configFile.toPath()).toMillis();
+            writeFileAtomically(journalPath.toFile(), outputStream -> {
+                DataOutputStream output = new DataOutputStream(outputStream);
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(configSize);
+                output.writeLong(configModified);
+                if (fullRecord != null) output.write(createRecordBuffer(fullRecord).array());
+                output.flush();
+            });
+            journalChannel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOG.error("Unable to create journal {}", journalPath, e);
+        }
+    }
+
+    private static void appendRecord(byte[] record) {
+        if (journalChannel == null) return;
+        try {
+            ByteBuffer buffer = createRecordBuffer(record);
+            while (buffer.hasRemaining()) {
+                journalChannel.write(buffer);
+            }
+            if (!isSyncScheduled) {
+                isSyncScheduled = true;
+                journalExecutor.schedule(JournalManager::syncJournal, SYNC_DELAY_MILLISECONDS, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            LOG.error("Unable to write to journal", e);
+            closeChannel();
+        }
+    }
+
+    private static ByteBuffer createRecordBuffer(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.length);
+        buffer.putInt(record.length).putInt((int) crc.getValue()).put(record).flip();
+        return buffer;
+    }
+
+    private static void syncJournal() {
+        isSyncScheduled = false;
+        if (journalChannel == null) return;
+        try {
+            journalChannel.force(false);
+        } catch (IOException e) {
+            LOG.error("Unable to sync journal", e);
+        }
+    }
+
+    private static void closeChannel() {
+        if (journalChannel == null) return;
+        try {
+            journalChannel.force(false);
+            journalChannel.close();
+        } catch (IOException e) {
+            LOG.error("Unable to close journal", e);
+        }
+        journalChannel = null;
+    }
+}
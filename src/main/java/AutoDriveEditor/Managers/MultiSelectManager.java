@@ -5,6 +5,8 @@ import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 
 import static AutoDriveEditor.GUI.Buttons.Curves.CubicCurveButton.cubicCurve;
@@ -69,7 +71,10 @@ public class MultiSelectManager {
         int count = 0;
 
         Rectangle2D rectangle = getNormalizedRectangleFor(rectangleStart.getX(), rectangleStart.getY(), rectangleEnd.getX() - rectangleStart.getX(), rectangleEnd.getY() - rectangleStart.getY());
-        for (MapNode mapNode : RoadMap.mapNodes) {
+        ArrayList<MapNode> areaNodes = new ArrayList<>();
+        RoadMap.getNodesInArea(rectangle.getX(), rectangle.getY(), rectangle.getX() + rectangle.getWidth(), rectangle.getY() + rectangle.getHeight(), areaNodes);
+        areaNodes.sort(Comparator.comparingInt(node -> node.id));
+        for (MapNode mapNode : areaNodes) {
             if (mapNode.x > rectangle.getX() && mapNode.x < rectangle.getX() + rectangle.getWidth() && mapNode.z > rectangle.getY() && mapNode.z < rectangle.getY() + rectangle.getHeight()) {
                 if (multiSelectList.contains(mapNode)) {
                     multiSelectList.remove(mapNode);
@@ -2,19 +2,36 @@ package AutoDriveEditor.Managers;
 
 import AutoDriveEditor.AutoDriveEditor;
 import AutoDriveEditor.GUI.MenuBuilder;
+import AutoDriveEditor.RoadNetwork.ConnectionList;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
 
 import javax.swing.*;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static AutoDriveEditor.AutoDriveEditor.changeManager;
+import static AutoDriveEditor.AutoDriveEditor.editor;
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogMerge;
+import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogUndoRedo;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_WARNING_OVERLAP;
-import static AutoDriveEditor.RoadNetwork.RoadMap.mapNodes;
-import static AutoDriveEditor.RoadNetwork.RoadMap.removeMapNode;
 import static AutoDriveEditor.Utils.FileUtils.removeExtension;
 import static AutoDriveEditor.Utils.GUIUtils.showInTextArea;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -25,6 +42,13 @@ import static AutoDriveEditor.XMLConfig.RouteManagerXML.saveRouteManagerXML;
 
 public class ScanManager {
 
+    // networks with fewer nodes than this are scanned on a single thread
+
+    private static final int PARALLEL_SCAN_MIN_NODES = 20000;
+    // tiles holding more nodes than this are split in two
+    private static final int SCAN_TILE_NODES = 2048;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
     public static boolean networkScanned;
     public static double searchDistance = 0.05;
 
@@ -56,36 +80,125 @@ public class ScanManager {
         return 0;
     }
 
-    public static class ScanNetworkWorker extends SwingWorker<Integer, Void> {
+    public static class ScanNetworkWorker extends SwingWorker<Integer, String> {
 
         public double scanArea;
         public long timer;
 
+        // the nodes are copied when the scan is started, so nodes added or deleted on the EDT while
+        // it's running can't change the list or the positions the results are stored at
+        private final ArrayList<MapNode> scanNodes;
+        private long nextProgressTime;
+
         public ScanNetworkWorker(double distance) {
             this.scanArea = distance;
+            this.scanNodes = new ArrayList<>(RoadMap.mapNodes);
         }
 
         @Override
-        protected Integer doInBackground() {
+        protected Integer doInBackground() throws Exception {
             int count = 0;
             Thread.currentThread().setName("Network Scan Thread");
             LOG.info("Starting Background Scan");
             timer = System.currentTimeMillis();
 
-            for (MapNode node : RoadMap.mapNodes) {
-                int result = checkAreaForNodeOverlap(node);
-                if (result > 0) count += 1;
+            // bucket the nodes into a spatial hash with cells the size of the search distance, the search
+            // area only reaches 1.5 cells either side of a node, so only the surrounding 5x5 cells need
+            // to be checked instead of every node in the network.
+
+            nextProgressTime = timer + PROGRESS_INTERVAL_MS;
+            if (scanArea <= 0) {
+                for (int i = 0; i < scanNodes.size(); i++) {
+                    int result = checkAreaForNodeOverlap(scanNodes.get(i));
+                    if (result > 0) count += 1;
+                    publishSerialProgress(i + 1, count);
+                }
+            } else {
+                // cells larger than the search distance are still correct, the minimum size just stops
+                // the cell index overflowing for very small search distances
+                double cellSize = Math.max(scanArea, 0.001);
+                HashMap<Long, ArrayList<MapNode>> scanGrid = new HashMap<>();
+                for (MapNode node : scanNodes) {
+                    scanGrid.computeIfAbsent(getScanCellKey(scanCellIndex(node.x, cellSize), scanCellIndex(node.z, cellSize)), k -> new ArrayList<>()).add(node);
+                }
+
+                if (scanNodes.size() >= PARALLEL_SCAN_MIN_NODES && ForkJoinPool.getCommonPoolParallelism() > 1) {
+                    count = parallelScan(scanGrid, cellSize);
+                } else {
+                    ArrayList<MapNode> candidates = new ArrayList<>();
+                    ArrayList<MapNode> overlaps = new ArrayList<>();
+                    for (int i = 0; i < scanNodes.size(); i++) {
+                        MapNode node = scanNodes.get(i);
+                        getScanCandidates(node, scanGrid, cellSize, candidates);
+                        findOverlappingNodes(node, candidates, overlaps);
+                        if (addOverlapWarnings(node, overlaps) > 0) count += 1;
+                        publishSerialProgress(i + 1, count);
+                    }
+                }
             }
             LOG.info("Finished Background Scan");
             return count;
         }
 
+        private void publishSerialProgress(int nodesChecked, int nodesFound) {
+            long now = System.currentTimeMillis();
+            if (now < nextProgressTime) return;
+            nextProgressTime = now + PROGRESS_INTERVAL_MS;
+            publish("Scanning for overlapping nodes --- Checked " + nodesChecked + " / " + scanNodes.size() + " nodes --- Found " + nodesFound + " overlapping nodes");
+        }
+
+        //
+        // Parallel scan mode, used on larger networks.
+        //
+        // The occupied cells are split into tiles that are searched on the ForkJoin common pool. A tile
+        // is a rectangle of cells, split across its longer side at the point that leaves half of its
+        // nodes on each side, until each one holds no more than SCAN_TILE_NODES nodes. That way every
+        // task has about the same amount of work and the cells it reads around its nodes are mostly
+        // its own.
+        //
+        // Each tile only reads the nodes and writes the overlaps it finds into the results slot of the
+        // nodes in its own cells, so the tiles never touch the same data. Once all the tiles are finished,
+        // the results are merged into the nodes warning lists on this thread in road map order, which
+        // gives exactly the same warning lists as the single threaded scan.
+        //
+
+        private int parallelScan(HashMap<Long, ArrayList<MapNode>> scanGrid, double cellSize) throws InterruptedException, ExecutionException {
+            int totalNodes = scanNodes.size();
+            ParallelScan scan = new ParallelScan(scanGrid, cellSize, scanNodes);
+            ForkJoinTask<?> scanFuture = ForkJoinPool.commonPool().submit(() -> scan.scanTile(0, scan.cells.length, totalNodes));
+
+            while (!scanFuture.isDone()) {
+                try {
+                    scanFuture.get(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    publish("Scanning for overlapping nodes ( " + ForkJoinPool.getCommonPoolParallelism() + " threads ) --- Checked " + scan.nodesChecked.get() + " / " + totalNodes + " nodes --- Found " + scan.pairsFound.get() + " overlapping pairs");
+                }
+            }
+            scanFuture.get();
+
+            int count = 0;
+            ArrayList<MapNode> overlaps = new ArrayList<>();
+            for (int i = 0; i < totalNodes; i++) {
+                MapNode node = scanNodes.get(i);
+                overlaps.clear();
+                MapNode[] nodeResults = scan.overlapResults[i];
+                if (nodeResults != null) Collections.addAll(overlaps, nodeResults);
+                if (addOverlapWarnings(node, overlaps) > 0) count += 1;
+            }
+            return count;
+        }
+
+        @Override
+        protected void process(List<String> progressText) {
+            if (!progressText.isEmpty()) showInTextArea(progressText.get(progressText.size() - 1), true, false);
+        }
+
         @Override
         protected void done() {
             networkScanned = true;
             try {
                 int count = get();
-                String text = "## Background Scan Complete ## Checked " + mapNodes.size() + " Roadmap nodes --- Found " + count + " nodes overlapping --- Time Taken " +
+                String text = "## Background Scan Complete ## Checked " + scanNodes.size() + " Roadmap nodes --- Found " + count + " nodes overlapping --- Time Taken " +
                         (float) (System.currentTimeMillis() - timer) / 1000 + " seconds" ;
                 showInTextArea(text, true, true);
             } catch (InterruptedException | ExecutionException e) {
@@ -97,67 +210,291 @@ public class ScanManager {
         }
     }
 
+    //
+    // A cell of the scan grid, holding the positions of its nodes in the list being scanned
+    //
+
+    private static class ScanCell {
+        private final int x;
+        private final int z;
+        private int[] positions = new int[4];
+        private int size = 0;
+
+        private ScanCell(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        private void add(int position) {
+            if (size == positions.length) positions = Arrays.copyOf(positions, size * 2);
+            positions[size++] = position;
+        }
+    }
+
+    private static class ParallelScan {
+
+        private static final Comparator<ScanCell> BY_X = Comparator.comparingInt((ScanCell cell) -> cell.x).thenComparingInt(cell -> cell.z);
+        private static final Comparator<ScanCell> BY_Z = Comparator.comparingInt((ScanCell cell) -> cell.z).thenComparingInt(cell -> cell.x);
+
+        private final ScanCell[] cells;
+        private final HashMap<Long, ArrayList<MapNode>> scanGrid;
+        private final double cellSize;
+        private final ArrayList<MapNode> scanNodes;
+        // the overlaps found for each node, at the node's position in scanNodes
+        private final MapNode[][] overlapResults;
+        private final AtomicInteger nodesChecked = new AtomicInteger();
+        private final AtomicLong pairsFound = new AtomicLong();
+
+        private ParallelScan(HashMap<Long, ArrayList<MapNode>> scanGrid, double cellSize, ArrayList<MapNode> scanNodes) {
+            this.scanGrid = scanGrid;
+            this.cellSize = cellSize;
+            this.scanNodes = scanNodes;
+            this.overlapResults = new MapNode[scanNodes.size()][];
+            HashMap<Long, ScanCell> cellsByKey = new HashMap<>(scanGrid.size() * 2);
+            for (int position = 0; position < scanNodes.size(); position++) {
+                MapNode node = scanNodes.get(position);
+                int x = scanCellIndex(node.x, cellSize);
+                int z = scanCellIndex(node.z, cellSize);
+                cellsByKey.computeIfAbsent(getScanCellKey(x, z), k -> new ScanCell(x, z)).add(position);
+            }
+            this.cells = cellsByKey.values().toArray(new ScanCell[0]);
+        }
+
+        //
+        // Searches the cells from start to end, which hold nodeCount nodes, splitting them into two
+        // tiles that are searched in parallel if there are too many nodes for one task
+        //
+
+        private void scanTile(int start, int end, int nodeCount) {
+            if (nodeCount > SCAN_TILE_NODES && end - start > 1) {
+                int middle = splitTile(start, end, nodeCount);
+                int startNodes = 0;
+                for (int i = start; i < middle; i++) startNodes += cells[i].size;
+                int firstNodes = startNodes;
+                ForkJoinTask.invokeAll(ForkJoinTask.adapt(() -> scanTile(start, middle, firstNodes)),
+                        ForkJoinTask.adapt(() -> scanTile(middle, end, nodeCount - firstNodes)));
+                return;
+            }
+
+            ArrayList<MapNode> candidates = new ArrayList<>();
+            ArrayList<MapNode> overlaps = new ArrayList<>();
+            int checked = 0;
+            long pairs = 0;
+            for (int i = start; i < end; i++) {
+                ScanCell cell = cells[i];
+                for (int j = 0; j < cell.size; j++) {
+                    int position = cell.positions[j];
+                    MapNode node = scanNodes.get(position);
+                    getScanCandidates(node, scanGrid, cellSize, candidates);
+                    findOverlappingNodes(node, candidates, overlaps);
+                    if (!overlaps.isEmpty()) {
+                        overlapResults[position] = overlaps.toArray(new MapNode[0]);
+                        for (MapNode overlapNode : overlaps) {
+                            if (overlapNode.id > node.id) pairs++;
+                        }
+                    }
+                    checked++;
+                }
+            }
+            nodesChecked.addAndGet(checked);
+            pairsFound.addAndGet(pairs);
+        }
+
+        //
+        // Sorts the cells from start to end along the longer side of the rectangle they cover, and
+        // returns the index that splits them into two halves with about the same number of nodes
+        //
+
+        private int splitTile(int start, int end, int nodeCount) {
+            int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+            int minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+            for (int i = start; i < end; i++) {
+                minX = Math.min(minX, cells[i].x);
+                maxX = Math.max(maxX, cells[i].x);
+                minZ = Math.min(minZ, cells[i].z);
+                maxZ = Math.max(maxZ, cells[i].z);
+            }
+            Arrays.sort(cells, start, end, ((long) maxX - minX >= (long) maxZ - minZ) ? BY_X : BY_Z);
+
+            int middle = start + 1;
+            int startNodes = cells[start].size;
+            while (middle < end - 1 && startNodes < nodeCount / 2) {
+                startNodes += cells[middle++].size;
+            }
+            return middle;
+        }
+    }
+
+    private static void getScanCandidates(MapNode node, HashMap<Long, ArrayList<MapNode>> scanGrid, double cellSize, ArrayList<MapNode> candidates) {
+        candidates.clear();
+        int cellX = scanCellIndex(node.x, cellSize);
+        int cellZ = scanCellIndex(node.z, cellSize);
+        for (int x = cellX - 2; x <= cellX + 2; x++) {
+            for (int z = cellZ - 2; z <= cellZ + 2; z++) {
+                ArrayList<MapNode> cell = scanGrid.get(getScanCellKey(x, z));
+                if (cell != null) candidates.addAll(cell);
+            }
+        }
+    }
+
     public static int checkAreaForNodeOverlap(MapNode node) {
 
-        int result = 0;
+        if (roadMap == null) return 0;
 
-        if (roadMap != null) {
-            double searchAreaHalf = searchDistance / 2;
+        // the search area reaches at most 1.5x the search distance from the node, so pad the
+        // spatial index query a little past that and let checkNodesForOverlap() do the exact test
 
-            double worldStartX = node.x - searchAreaHalf;
-            double worldStartY = node.y - searchAreaHalf;
-            double worldStartZ = node.z - searchAreaHalf;
+        ArrayList<MapNode> candidates = new ArrayList<>();
+        double queryDistance = Math.abs(searchDistance) * 2;
+        RoadMap.getNodesInArea(node.x - queryDistance, node.z - queryDistance, node.x + queryDistance, node.z + queryDistance, candidates);
+        return checkNodesForOverlap(node, candidates);
+    }
 
-            double areaX = (node.x + searchAreaHalf) - worldStartX;
-            double areaY = (node.y + searchAreaHalf) - worldStartY;
-            double areaZ = (node.z + searchAreaHalf) - worldStartZ;
+    //
+    // Checks the node against the list of candidate nodes, any that are inside the search area
+    // are added to each other's warning lists. The candidates are checked in road map order, so
+    // the warning lists are built in the same order as a check against every node would.
+    //
 
-            node.hasWarning = false;
-            node.warningNodes.clear();
+    private static int checkNodesForOverlap(MapNode node, ArrayList<MapNode> candidates) {
+        ArrayList<MapNode> overlaps = new ArrayList<>();
+        findOverlappingNodes(node, candidates, overlaps);
+        return addOverlapWarnings(node, overlaps);
+    }
 
-            for (MapNode mapNode : RoadMap.mapNodes) {
-                if (mapNode != node) {
-                    if (worldStartX < mapNode.x + searchDistance && (worldStartX + areaX) > mapNode.x - searchDistance &&
-                            worldStartY < mapNode.y + searchDistance && (worldStartY + areaY) > mapNode.y - searchDistance &&
-                            worldStartZ < mapNode.z + searchDistance && (worldStartZ + areaZ) > mapNode.z - searchDistance) {
+    //
+    // Fills overlaps with the candidates inside the nodes search area, in road map order. This only
+    // reads the nodes, so it's safe to call from the parallel scan tiles.
+    //
 
-                        result += 1;
+    private static void findOverlappingNodes(MapNode node, ArrayList<MapNode> candidates, ArrayList<MapNode> overlaps) {
 
-                        if (!mapNode.warningNodes.contains(node)) {
-                            mapNode.warningNodes.add(node);
-                            mapNode.hasWarning = true;
-                            mapNode.warningType = NODE_WARNING_OVERLAP;
-                        }
-                        if (!node.warningNodes.contains(mapNode)) {
-                            node.warningNodes.add(mapNode);
-                            node.hasWarning = true;
-                            node.warningType = NODE_WARNING_OVERLAP;
-                        }
-                    }
+        overlaps.clear();
+
+        double searchAreaHalf = searchDistance / 2;
+
+        double worldStartX = node.x - searchAreaHalf;
+        double worldStartY = node.y - searchAreaHalf;
+        double worldStartZ = node.z - searchAreaHalf;
+
+        double areaX = (node.x + searchAreaHalf) - worldStartX;
+        double areaY = (node.y + searchAreaHalf) - worldStartY;
+        double areaZ = (node.z + searchAreaHalf) - worldStartZ;
+
+        candidates.sort(Comparator.comparingInt(candidate -> candidate.id));
+
+        for (MapNode mapNode : candidates) {
+            if (mapNode != node) {
+                if (worldStartX < mapNode.x + searchDistance && (worldStartX + areaX) > mapNode.x - searchDistance &&
+                        worldStartY < mapNode.y + searchDistance && (worldStartY + areaY) > mapNode.y - searchDistance &&
+                        worldStartZ < mapNode.z + searchDistance && (worldStartZ + areaZ) > mapNode.z - searchDistance) {
+                    overlaps.add(mapNode);
                 }
             }
         }
-        return result;
+    }
+
+    private static int addOverlapWarnings(MapNode node, ArrayList<MapNode> overlaps) {
+
+        node.hasWarning = false;
+        node.warningNodes.clear();
+
+        linkOverlapWarnings(node, overlaps);
+        return overlaps.size();
+    }
+
+    private static void linkOverlapWarnings(MapNode node, ArrayList<MapNode> overlaps) {
+        for (MapNode mapNode : overlaps) {
+            if (!mapNode.warningNodes.contains(node)) {
+                mapNode.warningNodes.add(node);
+                mapNode.hasWarning = true;
+                mapNode.warningType = NODE_WARNING_OVERLAP;
+            }
+            if (!node.warningNodes.contains(mapNode)) {
+                node.warningNodes.add(mapNode);
+                node.hasWarning = true;
+                node.warningType = NODE_WARNING_OVERLAP;
+            }
+        }
+    }
+
+    private static int scanCellIndex(double worldPos, double cellSize) {
+        return (int) Math.floor(worldPos / cellSize);
+    }
+
+    // z is multiplied by an odd constant so Long.hashCode(), which xors the two halves, doesn't
+    // give neighbouring cells the same hash ( see SpatialGrid.keyFor() )
+
+    private static long getScanCellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | ((cellZ * 0x9E3779B9) & 0xFFFFFFFFL);
     }
 
     public static void checkNodeOverlap(MapNode node) {
-        if (checkAreaForNodeOverlap(node) == 0 ) {
-            for (MapNode mapNode : node.warningNodes) {
-                mapNode.warningNodes.remove(node);
-                if (mapNode.warningNodes.size() != 0) {
-                    mapNode.hasWarning = true;
-                    mapNode.warningType = NODE_WARNING_OVERLAP;
-                } else {
-                    //mapNode.hasWarning = false;
-                    mapNode.clearWarning();
+        updateOverlapWarnings(Collections.singletonList(node));
+    }
+
+    //
+    // Incremental overlap tracking
+    //
+    // Keeps the overlap warnings up to date after nodes are added, moved or deleted without
+    // rescanning the whole network. Only the changed nodes are checked against the nodes
+    // around them, the overlap links to their old neighbours are removed first, so any
+    // neighbour that no longer overlaps anything has its warning cleared.
+    //
+    // Changed nodes that are no longer part of the road map ( i.e. deleted ones ) are only
+    // unlinked from their neighbours.
+    //
+
+    public static void updateOverlapWarnings(Collection<MapNode> changedNodes) {
+        if (roadMap == null || changedNodes.isEmpty()) return;
+
+        Set<MapNode> changedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        changedSet.addAll(changedNodes);
+
+        ArrayList<MapNode> oldNeighbours = new ArrayList<>();
+        ArrayList<MapNode> nodesToCheck = new ArrayList<>();
+        for (MapNode node : changedSet) {
+            for (MapNode neighbour : node.warningNodes) {
+                if (!changedSet.contains(neighbour)) {
+                    neighbour.warningNodes.remove(node);
+                    oldNeighbours.add(neighbour);
                 }
             }
-
             node.clearWarning();
             node.warningNodes.clear();
+            if (RoadMap.getMapNodeByID(node.id) == node) nodesToCheck.add(node);
+        }
+
+        // check in road map order, so the warning lists are built in the same order as a full scan
+
+        nodesToCheck.sort(Comparator.comparingInt(node -> node.id));
+        ArrayList<MapNode> candidates = new ArrayList<>();
+        ArrayList<MapNode> overlaps = new ArrayList<>();
+        double queryDistance = Math.abs(searchDistance) * 2;
+        for (MapNode node : nodesToCheck) {
+            candidates.clear();
+            RoadMap.getNodesInArea(node.x - queryDistance, node.z - queryDistance, node.x + queryDistance, node.z + queryDistance, candidates);
+            findOverlappingNodes(node, candidates, overlaps);
+            linkOverlapWarnings(node, overlaps);
         }
+
+        for (MapNode neighbour : oldNeighbours) {
+            if (neighbour.warningNodes.isEmpty()) neighbour.clearWarning();
+        }
+
+        if (bDebugLogMerge) LOG.info("## updateOverlapWarnings() ## checked {} nodes, unlinked {} neighbours", nodesToCheck.size(), oldNeighbours.size());
     }
 
+    //
+    // Merges every group of overlapping nodes into the lowest ID node of the group.
+    //
+    // The groups are found with a union-find over the overlap warnings, so nodes that only
+    // overlap each other through a chain of other nodes end up in the same group. All the
+    // connections are then rewired to the surviving node of each group in one pass over the
+    // road map and the merged nodes are removed in a single compaction. The whole merge is
+    // added to the undo system as one change.
+    //
+
     public static void  mergeOverlappingNodes() {
         int response = JOptionPane.showConfirmDialog(AutoDriveEditor.editor, getLocaleString("dialog_merge_confirm"), "AutoDrive Editor", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
         if (response == JOptionPane.YES_OPTION) {
@@ -165,110 +502,264 @@ public class ScanManager {
                 LOG.info("need to run network scan first");
             } else {
                 saveMergeBackupConfigFile();
-                canAutoSave = false;
-                LinkedList<MapNode> mergedIncoming = new LinkedList<>();
-                LinkedList<MapNode> mergedOutgoing = new LinkedList<>();
-                LinkedList<MapNode> deleteNodeList = new LinkedList<>();
-                LinkedList<MapNode> mergeNodeList = new LinkedList<>();
+                suspendAutoSave();
 
                 LOG.info("Running merge nodes");
-                for (MapNode mapNode : RoadMap.mapNodes) {
-                    if (mapNode.hasWarning && !mapNode.scheduledToBeDeleted) {
-
-                        if (bDebugLogMerge) LOG.info("Merging overlapping nodes into ID {}", mapNode.id);
-
-                        for (MapNode overlapNode : mapNode.warningNodes) {
-
-                            if (bDebugLogMerge) LOG.info("Storing incoming for {}", overlapNode.id);
-
-                            for (MapNode overlapNodeIncoming : overlapNode.incoming) {
-                                if (overlapNodeIncoming != mapNode && !mergedIncoming.contains(overlapNodeIncoming)) {
-                                    if (bDebugLogMerge) LOG.info("adding {} to mergedIncoming", overlapNodeIncoming.id);
-                                    mergedIncoming.add(overlapNodeIncoming);
-                                }
-                                if (overlapNodeIncoming.outgoing.contains(overlapNode)) {
-                                    if (!overlapNodeIncoming.outgoing.contains(mapNode)) {
-                                        if (bDebugLogMerge) LOG.info("adding {} to {}.outgoing", mapNode.id, overlapNodeIncoming.id);
-                                        overlapNodeIncoming.outgoing.add(mapNode);
-                                    }
-                                }
-                            }
-
-                            if (bDebugLogMerge) LOG.info("Storing outgoing for {}", overlapNode.id);
-
-                            for (MapNode outgoingNode : overlapNode.outgoing) {
-                                if (!mergedOutgoing.contains(outgoingNode)) {
-                                    if (bDebugLogMerge) LOG.info("adding {} to mergedOutgoing", outgoingNode.id);
-                                    if (outgoingNode != mapNode) mergedOutgoing.add(outgoingNode);
-                                }
-                                if (outgoingNode.incoming.contains(overlapNode)) {
-                                    if (bDebugLogMerge) LOG.info("adding {} to {}.outgoing", mapNode.id, outgoingNode.id);
-                                    if (!outgoingNode.incoming.contains(mapNode)) outgoingNode.incoming.add(mapNode);
-                                }
-                            }
-
-                            for (MapNode reverseNode : RoadMap.mapNodes) {
-                                if (reverseNode.outgoing.contains(overlapNode) && !overlapNode.incoming.contains(reverseNode)) {
-                                    if (bDebugLogMerge) LOG.info("#### reverse incoming Connection from {}", reverseNode.id);
-                                    if (!reverseNode.outgoing.contains(mapNode)) reverseNode.outgoing.add(mapNode);
-                                }
-                                if (reverseNode.incoming.contains(overlapNode)) {
-                                    if (bDebugLogMerge) LOG.info("#### reverse incoming Connection from {}", reverseNode.id);
-                                    if (!reverseNode.incoming.contains(mapNode)) reverseNode.incoming.add(mapNode);
-                                }
-                            }
-
-                            // edge case #1 - remove self references
-                            for (MapNode node : mapNode.incoming) {
-                                if (node == mapNode) mapNode.incoming.remove(mapNode);
-                            }
-                            for (MapNode node : mapNode.outgoing) {
-                                if (node == mapNode) mapNode.outgoing.remove(mapNode);
-                            }
-
-                            if (bDebugLogMerge) LOG.info("stored Connections - Deleting node {}", overlapNode.id);
-                            overlapNode.scheduledToBeDeleted = true;
-                            deleteNodeList.add(overlapNode);
-                        }
-                        if (bDebugLogMerge) LOG.info("Adding all connections to mapNode {}", mapNode.id);
+                MergeNodesChanger mergeChanger = mergeNodeGroups();
+                if (mergeChanger != null) {
+                    changeManager.addChangeable(mergeChanger);
+                    setStale(true);
+                    String text = "Merging nodes completed - Removing " + mergeChanger.mergedNodes.size() + " nodes";
+                    showInTextArea(text, true, true);
+                } else {
+                    showInTextArea("Merging nodes completed - Removing 0 nodes", true, true);
+                }
 
-                        for (MapNode node : mapNode.incoming) {
-                            if (!mergedIncoming.contains(node) && !node.scheduledToBeDeleted) mergedIncoming.add(node);
-                        }
-                        for (MapNode node : mapNode.outgoing) {
-                            if (!mergedOutgoing.contains(node) && !node.scheduledToBeDeleted) mergedOutgoing.add(node);
-                        }
-                        mapNode.incoming.clear();
-                        mapNode.outgoing.clear();
-                        mapNode.incoming.addAll(mergedIncoming);
-                        mapNode.outgoing.addAll(mergedOutgoing);
-                        mergeNodeList.add(mapNode);
-                        mergedIncoming.clear();
-                        mergedOutgoing.clear();
+                for (MapNode node : RoadMap.mapNodes) {
+                    if ( node.incoming.size() >10 || node.outgoing.size() > 10 ) {
+                        LOG.info(" #### HIGH CONNECTION COUNT #### ID {} -- incoming {} , outgoing {}", node.id, node.incoming.size(), node.outgoing.size());
                     }
                 }
-                String text = "Merging nodes completed - Removing " + deleteNodeList.size() + " nodes";
-                showInTextArea(text, true, true);
-                for (MapNode nodeToDelete : deleteNodeList) {
-                    removeMapNode(nodeToDelete);
+                getMapPanel().repaint();
+                resumeAutoSave();
+            }
+        }
+    }
+
+    static MergeNodesChanger mergeNodeGroups() {
+        int nodeCount = RoadMap.mapNodes.size();
+        int[] groupParent = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            groupParent[i] = i;
+        }
+
+        // group the overlapping nodes
+
+        boolean foundOverlap = false;
+        for (MapNode mapNode : RoadMap.mapNodes) {
+            if (!mapNode.hasWarning) continue;
+            for (MapNode overlapNode : mapNode.warningNodes) {
+                if (RoadMap.getMapNodeByID(overlapNode.id) != overlapNode) continue;
+                unionGroups(groupParent, mapNode.id - 1, overlapNode.id - 1);
+                foundOverlap = true;
+            }
+        }
+        if (!foundOverlap) return null;
+
+        // the root of each group is always the lowest index in it, so the surviving node of
+        // a group is the lowest ID and any node that isn't its own root gets merged
+
+        MapNode[] mergeTarget = new MapNode[nodeCount];
+        ArrayList<MapNode> mergedNodes = new ArrayList<>();
+        ArrayList<ArrayList<MapNode>> groupMembers = new ArrayList<>();
+        int[] groupIndex = new int[nodeCount];
+        Arrays.fill(groupIndex, -1);
+        for (int i = 0; i < nodeCount; i++) {
+            int root = findGroup(groupParent, i);
+            mergeTarget[i] = RoadMap.mapNodes.get(root);
+            if (root != i) {
+                mergedNodes.add(RoadMap.mapNodes.get(i));
+                if (groupIndex[root] == -1) {
+                    groupIndex[root] = groupMembers.size();
+                    groupMembers.add(new ArrayList<>());
                 }
+                groupMembers.get(groupIndex[root]).add(RoadMap.mapNodes.get(i));
+            }
+        }
 
-                for (MapNode mergedNode : mergeNodeList) {
-                    if (checkAreaForNodeOverlap(mergedNode) == 0) {
-                        mergedNode.hasWarning = false;
-                        mergedNode.warningNodes.clear();
-                        getMapPanel().repaint();
-                    } else {
-                        LOG.info("mapNode is still overlapping");
-                    }
+        MergeNodesChanger mergeChanger = new MergeNodesChanger(mergedNodes);
+
+        // rewire every remaining connection to the surviving node of its group, a node that
+        // is merged takes its connections with it to the surviving node
+
+        Set<MapNode> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayList<MapNode> rewiredList = new ArrayList<>();
+        ArrayList<MapNode> survivingNodes = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            MapNode mapNode = RoadMap.mapNodes.get(i);
+            if (mergeTarget[i] != mapNode) continue;
+
+            ArrayList<MapNode> members = (groupIndex[i] == -1) ? null : groupMembers.get(groupIndex[i]);
+            boolean needsRewire = members != null || needsRewire(mapNode.incoming, mergeTarget) || needsRewire(mapNode.outgoing, mergeTarget);
+            if (!needsRewire) continue;
+
+            if (bDebugLogMerge && members != null) LOG.info("Merging {} overlapping nodes into ID {}", members.size(), mapNode.id);
+            mergeChanger.storeConnections(mapNode);
+            RoadMap.invalidateConnectionTypes(mapNode);
+
+            buildRewiredList(mapNode, mapNode.incoming, members, true, mergeTarget, seen, rewiredList);
+            mapNode.incoming.clear();
+            mapNode.incoming.addAll(rewiredList);
+
+            buildRewiredList(mapNode, mapNode.outgoing, members, false, mergeTarget, seen, rewiredList);
+            mapNode.outgoing.clear();
+            mapNode.outgoing.addAll(rewiredList);
+            RoadMap.invalidateConnectionTypes(mapNode);
+
+            if (members != null) survivingNodes.add(mapNode);
+        }
+
+        mergeChanger.storeMergedConnections();
+        RoadMap.removeMapNodes(mergedNodes);
+
+        updateOverlapWarnings(mergedNodes);
+        updateOverlapWarnings(survivingNodes);
+        for (MapNode survivingNode : survivingNodes) {
+            if (survivingNode.hasWarning) LOG.info("mapNode ID {} is still overlapping", survivingNode.id);
+        }
+        return mergeChanger;
+    }
+
+    private static boolean needsRewire(ConnectionList connections, MapNode[] mergeTarget) {
+        for (MapNode node : connections) {
+            if (mergeTarget[node.id - 1] != node) return true;
+        }
+        return false;
+    }
+
+    private static void buildRewiredList(MapNode mapNode, ConnectionList connections, ArrayList<MapNode> members, boolean isIncoming, MapNode[] mergeTarget, Set<MapNode> seen, ArrayList<MapNode> rewiredList) {
+        seen.clear();
+        rewiredList.clear();
+        addRewiredConnections(mapNode, connections, mergeTarget, seen, rewiredList);
+        if (members != null) {
+            for (MapNode member : members) {
+                addRewiredConnections(mapNode, isIncoming ? member.incoming : member.outgoing, mergeTarget, seen, rewiredList);
+            }
+        }
+    }
+
+    private static void addRewiredConnections(MapNode mapNode, ConnectionList connections, MapNode[] mergeTarget, Set<MapNode> seen, ArrayList<MapNode> rewiredList) {
+        for (MapNode node : connections) {
+            MapNode target = mergeTarget[node.id - 1];
+            // edge case #1 - remove self references
+            if (target != mapNode && seen.add(target)) rewiredList.add(target);
+        }
+    }
+
+    private static int findGroup(int[] groupParent, int index) {
+        while (groupParent[index] != index) {
+            groupParent[index] = groupParent[groupParent[index]];
+            index = groupParent[index];
+        }
+        return index;
+    }
+
+    private static void unionGroups(int[] groupParent, int first, int second) {
+        int firstRoot = findGroup(groupParent, first);
+        int secondRoot = findGroup(groupParent, second);
+        if (firstRoot < secondRoot) {
+            groupParent[secondRoot] = firstRoot;
+        } else if (secondRoot < firstRoot) {
+            groupParent[firstRoot] = secondRoot;
+        }
+    }
+
+    //
+    // Merge Nodes Undo
+    //
+
+    public static class MergeNodesChanger implements ChangeManager.Changeable {
+
+        private final ArrayList<MapNode> mergedNodes;
+        private final int[] mergedNodeIDBackup;
+        private final ArrayList<MapNode> rewiredNodes;
+        private final ArrayList<ConnectionList[]> connectionsBefore;
+        private final ArrayList<ConnectionList[]> connectionsAfter;
+        private final boolean isStale;
+        private final UUID opUUID;
+
+        public MergeNodesChanger(ArrayList<MapNode> mergedNodes) {
+            super();
+            this.mergedNodes = new ArrayList<>(mergedNodes);
+            this.mergedNodeIDBackup = new int[mergedNodes.size()];
+            for (int i = 0; i < mergedNodes.size(); i++) {
+                this.mergedNodeIDBackup[i] = mergedNodes.get(i).id;
+            }
+            this.rewiredNodes = new ArrayList<>();
+            this.connectionsBefore = new ArrayList<>();
+            this.connectionsAfter = new ArrayList<>();
+            this.isStale = isStale();
+            this.opUUID = RoadMap.uuid;
+        }
+
+        private void storeConnections(MapNode node) {
+            this.rewiredNodes.add(node);
+            this.connectionsBefore.add(new ConnectionList[] { new ConnectionList(node.incoming), new ConnectionList(node.outgoing) });
+        }
+
+        private void storeMergedConnections() {
+            for (MapNode node : this.rewiredNodes) {
+                this.connectionsAfter.add(new ConnectionList[] { new ConnectionList(node.incoming), new ConnectionList(node.outgoing) });
+            }
+        }
+
+        public void undo() {
+            try {
+                restoreMergedNodes();
+            } catch (IndexOutOfBoundsException outOfBoundsException) {
+                if (!this.opUUID.equals(RoadMap.uuid)) {
+                    JOptionPane.showMessageDialog(editor, getLocaleString("dialog_undo_uuid_mismatch"), getLocaleString("dialog_undo_error_title"), JOptionPane.ERROR_MESSAGE);
+                    showInTextArea(getLocaleString("dialog_undo_uuid_mismatch"), true, true);
+                } else {
+                    JOptionPane.showMessageDialog(editor, getLocaleString("dialog_undo_outofbounds"), getLocaleString("dialog_undo_error_title"), JOptionPane.ERROR_MESSAGE);
+                    showInTextArea(getLocaleString("dialog_undo_outofbounds"), true, true);
                 }
+                return;
+            }
+            showInTextArea(this.mergedNodes.size() + " merged nodes restored", true, true);
+            getMapPanel().repaint();
+            setStale(this.isStale);
+        }
 
-                for (MapNode node : RoadMap.mapNodes) {
-                    if ( node.incoming.size() >10 || node.outgoing.size() > 10 ) {
-                        LOG.info(" #### HIGH CONNECTION COUNT #### ID {} -- incoming {} , outgoing {}", node.id, node.incoming.size(), node.outgoing.size());
-                    }
+        public void redo() {
+            removeMergedNodes();
+            getMapPanel().repaint();
+            setStale(true);
+        }
+
+        //
+        // The road map side of undo() and redo(), kept apart from the GUI updates
+        //
+
+        // the merged nodes and the nodes whose connections were moved over to the nodes they were merged into
+
+        public Collection<MapNode> getChangedNodes() {
+            ArrayList<MapNode> changedNodes = new ArrayList<>(this.mergedNodes);
+            changedNodes.addAll(this.rewiredNodes);
+            return changedNodes;
+        }
+
+        void restoreMergedNodes() {
+            // the merged nodes are already in ID order, as they were collected from the road map
+            for (int i = 0; i < this.mergedNodes.size(); i++) {
+                MapNode mergedNode = this.mergedNodes.get(i);
+                if (mergedNode.id != this.mergedNodeIDBackup[i]) {
+                    if (bDebugLogUndoRedo) LOG.info("## MergeNodes Undo ## ID mismatch.. correcting ID {} -> ID {}", mergedNode.id, this.mergedNodeIDBackup[i]);
+                    mergedNode.id = this.mergedNodeIDBackup[i];
                 }
-                canAutoSave = true;
+            }
+            RoadMap.insertMapNodes(this.mergedNodes);
+            setConnections(this.connectionsBefore);
+            updateOverlapWarnings(this.mergedNodes);
+            updateOverlapWarnings(this.rewiredNodes);
+        }
+
+        void removeMergedNodes() {
+            setConnections(this.connectionsAfter);
+            RoadMap.removeMapNodes(this.mergedNodes);
+            updateOverlapWarnings(this.mergedNodes);
+            updateOverlapWarnings(this.rewiredNodes);
+        }
+
+        private void setConnections(ArrayList<ConnectionList[]> connections) {
+            for (int i = 0; i < this.rewiredNodes.size(); i++) {
+                MapNode node = this.rewiredNodes.get(i);
+                RoadMap.invalidateConnectionTypes(node);
+                node.incoming.clear();
+                node.incoming.addAll(connections.get(i)[0]);
+                node.outgoing.clear();
+                node.outgoing.addAll(connections.get(i)[1]);
+                RoadMap.invalidateConnectionTypes(node);
             }
         }
     }
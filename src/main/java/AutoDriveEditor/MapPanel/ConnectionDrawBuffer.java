@@ -0,0 +1,116 @@
+package AutoDriveEditor.MapPanel;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+
+//
+// Collects the lines and arrow heads of all the connections of one type into two paths, so the
+// whole type is drawn with one draw() and one fill() call and a single colour change, instead of a
+// drawLine() for every line and a fillPolygon() for every arrow head.
+//
+// The arrow arms are the direction of the connection rotated by a fixed 20 degrees, so no trig
+// functions are needed for each connection, and the paths are reset rather than replaced between
+// frames, so once they have grown to fit the visible network nothing is allocated for each
+// connection.
+//
+// The points are rounded down to whole pixels, the same as drawLine() and fillPolygon() did, so the
+// connections are drawn exactly where they used to be.
+//
+
+public class ConnectionDrawBuffer {
+
+    private static final double ARROW_ARM_COS = Math.cos(Math.toRadians(20));
+    private static final double ARROW_ARM_SIN = Math.sin(Math.toRadians(20));
+
+    // every line as a moveTo() and lineTo(), the arms of unfilled arrows are stored as lines
+
+    private final Path2D.Float lines = new Path2D.Float(Path2D.WIND_NON_ZERO, 4096);
+    private boolean hasLines = false;
+
+    // every filled arrow head as a closed triangle ( tip, left and right corners )
+
+    private final Path2D.Float arrowHeads = new Path2D.Float(Path2D.WIND_NON_ZERO, 4096);
+    private boolean hasArrowHeads = false;
+
+    private double nodeRadius;
+    private double arrowLength;
+    private boolean drawArrowHeads;
+    private boolean fillArrowHeads;
+
+    //
+    // Empties the buffer, ready for the next frame to be drawn at the given node size
+    //
+
+    public void reset(double nodeSizeScaled, boolean drawArrowHeads, boolean fillArrowHeads) {
+        lines.reset();
+        arrowHeads.reset();
+        hasLines = false;
+        hasArrowHeads = false;
+        this.nodeRadius = nodeSizeScaled * 0.25;
+        this.arrowLength = nodeSizeScaled * 0.70;
+        this.drawArrowHeads = drawArrowHeads;
+        this.fillArrowHeads = fillArrowHeads;
+    }
+
+    public void addConnection(double startX, double startY, double targetX, double targetY, boolean isDual) {
+        double vecX = startX - targetX;
+        double vecY = startY - targetY;
+        double length = Math.sqrt(vecX * vecX + vecY * vecY);
+
+        // the direction from the target back to the start, a zero length connection points
+        // along the x axis, the same as atan2(0, 0)
+
+        double dirX = 1;
+        double dirY = 0;
+        if (length > 0) {
+            dirX = vecX / length;
+            dirY = vecY / length;
+        }
+
+        // start and finish the line on the circumference of the nodes
+
+        double lineStartX = startX - nodeRadius * dirX;
+        double lineStartY = startY - nodeRadius * dirY;
+        double lineEndX = targetX + nodeRadius * dirX;
+        double lineEndY = targetY + nodeRadius * dirY;
+        addLine(lineStartX, lineStartY, lineEndX, lineEndY);
+
+        if (drawArrowHeads) {
+            addArrowHead(lineEndX, lineEndY, targetX, targetY, dirX, dirY);
+            if (isDual) {
+                addArrowHead(lineStartX, lineStartY, startX, startY, -dirX, -dirY);
+            }
+        }
+    }
+
+    private void addLine(double x1, double y1, double x2, double y2) {
+        lines.moveTo((int) x1, (int) y1);
+        lines.lineTo((int) x2, (int) y2);
+        hasLines = true;
+    }
+
+    private void addArrowHead(double tipX, double tipY, double nodeX, double nodeY, double dirX, double dirY) {
+        double leftX = nodeX + (dirX * ARROW_ARM_COS + dirY * ARROW_ARM_SIN) * arrowLength;
+        double leftY = nodeY + (dirY * ARROW_ARM_COS - dirX * ARROW_ARM_SIN) * arrowLength;
+        double rightX = nodeX + (dirX * ARROW_ARM_COS - dirY * ARROW_ARM_SIN) * arrowLength;
+        double rightY = nodeY + (dirY * ARROW_ARM_COS + dirX * ARROW_ARM_SIN) * arrowLength;
+
+        if (fillArrowHeads) {
+            arrowHeads.moveTo((int) tipX, (int) tipY);
+            arrowHeads.lineTo((int) leftX, (int) leftY);
+            arrowHeads.lineTo((int) rightX, (int) rightY);
+            arrowHeads.closePath();
+            hasArrowHeads = true;
+        } else {
+            addLine(tipX, tipY, leftX, leftY);
+            addLine(tipX, tipY, rightX, rightY);
+        }
+    }
+
+    public void draw(Graphics2D g, Color colour) {
+        if (!hasLines) return;
+        g.setColor(colour);
+        g.draw(lines);
+        if (hasArrowHeads) g.fill(arrowHeads);
+    }
+}
@@ -13,6 +13,7 @@ import static AutoDriveEditor.AutoDriveEditor.changeManager;
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogCurveInfo;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosX;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosY;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.RoadNetwork.MapNode.*;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -97,7 +98,7 @@ public class CubicCurve {
     }
 
     public void commitCurve() {
-        canAutoSave = false;
+        suspendAutoSave();
         LinkedList<MapNode> mergeNodesList  = new LinkedList<>();
 
         mergeNodesList.add(curveStartNode);
@@ -117,15 +118,16 @@ public class CubicCurve {
             if (heightMapY == -1) {
                 heightMapY = curveStartNode.y + ( yInterpolation * j);
             }
-            MapNode newNode = new MapNode(RoadMap.mapNodes.size() + 1, tempNode.x, heightMapY, tempNode.z, this.nodeType, false, false);            RoadMap.mapNodes.add(newNode);
+            MapNode newNode = new MapNode(RoadMap.mapNodes.size() + 1, tempNode.x, heightMapY, tempNode.z, this.nodeType, false, false);            RoadMap.addMapNode(newNode);
             mergeNodesList.add(newNode);
         }
 
         mergeNodesList.add(curveEndNode);
         changeManager.addChangeable( new CurveBaseButton.CurveChanger(mergeNodesList, isReversePath, isDualPath));
         connectNodes(mergeNodesList, isReversePath, isDualPath);
+        updateOverlapWarnings(mergeNodesList);
 
-        canAutoSave = true;
+        resumeAutoSave();
 
         if (bDebugLogCurveInfo) LOG.info("CubicCurve created {} nodes", mergeNodesList.size() - 2 );
     }
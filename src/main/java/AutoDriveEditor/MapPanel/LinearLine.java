@@ -9,6 +9,7 @@ import java.util.LinkedList;
 
 import static AutoDriveEditor.AutoDriveEditor.changeManager;
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogLinearlineInfo;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.EditorXML.linearLineNodeDistance;
@@ -70,7 +71,7 @@ public class LinearLine {
         boolean endNodeCreated = false;
         double heightMapY;
 
-        canAutoSave = false;
+        suspendAutoSave();
 
         LinkedList<MapNode> mergeNodesList  = new LinkedList<>();
 
@@ -86,7 +87,7 @@ public class LinearLine {
                 if (bDebugLogLinearlineInfo) LOG.info("## LinearLine.commit Debug ## End node does not exists...Creating node");
                 Point2D newNodeLoc = screenPosToWorldPos((int)endConnectionScreenPos.getX(), (int)endConnectionScreenPos.getY());
                 MapNode newNode = new MapNode(RoadMap.mapNodes.size() + 1, newNodeLoc.getX(), getYValueFromHeightMap(newNodeLoc.getX(), newNodeLoc.getY()), newNodeLoc.getY(), nodeType, false, false);
-                RoadMap.mapNodes.add(newNode);
+                RoadMap.addMapNode(newNode);
                 endNode = newNode;
                 endNodeCreated = true;
             } else {
@@ -103,7 +104,7 @@ public class LinearLine {
                 MapNode tempNode = this.lineNodeList.get(j);
                 heightMapY = lineStartNode.y + ( yInterpolation * j);
                 MapNode newNode = new MapNode(RoadMap.mapNodes.size() + 1, tempNode.x, heightMapY, tempNode.z, nodeType, false, false);
-                RoadMap.mapNodes.add(newNode);
+                RoadMap.addMapNode(newNode);
                 mergeNodesList.add(newNode);
                 if (bDebugLogLinearlineInfo) LOG.info("## LinearLine.commit Debug ## creating node {} : ID {} at x {}, y {}, z {}", j, newNode.id, newNode.x, newNode.y, newNode.z);
             }
@@ -113,7 +114,7 @@ public class LinearLine {
                 Point2D endNodeWorldLoc = screenPosToWorldPos((int)endConnectionScreenPos.getX(), (int)endConnectionScreenPos.getY());
                 MapNode newEndNode = new MapNode(RoadMap.mapNodes.size() + 1, endNodeWorldLoc.getX(), getYValueFromHeightMap(endNodeWorldLoc.getX(), endNodeWorldLoc.getY()), endNodeWorldLoc.getY(), nodeType, false, false);
                 if (bDebugLogLinearlineInfo) LOG.info("## LinearLine.commit Debug ## Created end node at world co-ordinates {},{},{}",endNodeWorldLoc.getX(), getYValueFromHeightMap(endNodeWorldLoc.getX(), endNodeWorldLoc.getY()), endNodeWorldLoc.getY());
-                RoadMap.mapNodes.add(newEndNode);
+                RoadMap.addMapNode(newEndNode);
                 endNode = newEndNode;
                 endNodeCreated = true;
             }
@@ -123,7 +124,11 @@ public class LinearLine {
         changeManager.addChangeable( new LinerLineBaseButton.LinearLineChanger(this.lineStartNode, endNode, endNodeCreated, mergeNodesList, connectionType));
         connectNodes(this.lineStartNode, endNode, mergeNodesList, connectionType);
 
-        canAutoSave = true;
+        LinkedList<MapNode> lineNodes = new LinkedList<>(mergeNodesList);
+        lineNodes.add(endNode);
+        updateOverlapWarnings(lineNodes);
+
+        resumeAutoSave();
 
     }
 
@@ -160,7 +165,7 @@ public class LinearLine {
     }
 
     public static void connectNodes(MapNode startNode, MapNode endNode, LinkedList<MapNode> mergeNodesList, int connectionType)  {
-        canAutoSave = false;
+        suspendAutoSave();
         if ( mergeNodesList.size() <= 1) {
             MapPanel.createConnectionBetween(startNode,endNode,connectionType);
         } else {
@@ -173,7 +178,7 @@ public class LinearLine {
             if (bDebugLogLinearlineInfo) LOG.info("## LinearLine.connectNodes Debug ## Creating connection between last interpolation node : ID {} ({},{},{}) and end node : ID {} ({},{},{})", mergeNodesList.getLast().id, mergeNodesList.getLast().x, mergeNodesList.getLast().y, mergeNodesList.getLast().z, endNode.id, endNode.x, endNode.y, endNode.z);
             MapPanel.createConnectionBetween(mergeNodesList.getLast(),endNode,connectionType);
         }
-        canAutoSave = true;
+        resumeAutoSave();
         if (bDebugLogLinearlineInfo) LOG.info("## LinearLine.connectNodes Debug ## Finished Creating LinearLine");
     }
 
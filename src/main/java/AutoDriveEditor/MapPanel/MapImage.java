@@ -15,7 +15,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.Objects;
 
 import static AutoDriveEditor.AutoDriveEditor.EXPERIMENTAL;
@@ -348,7 +348,7 @@ public class MapImage {
     public static float  calculateHeightMapScaling(){
         double heightDiff = 0;
 
-        LinkedList<MapNode> mapNodes = RoadMap.mapNodes;
+        ArrayList<MapNode> mapNodes = RoadMap.mapNodes;
         if (heightMapImage != null) {
             for (MapNode node : mapNodes) {
                 heightDiff += ((getYValueFromHeightMap(node.x, node.z) - node.y) / node.y);
@@ -382,16 +382,37 @@ public class MapImage {
         backBufferImage = gc.createCompatibleImage(width, height, Transparency.OPAQUE);
         if (bDebugLogRenderInfo) LOG.info("Accelerated BackBufferImage = {}", gc.getImageCapabilities().isAccelerated());
         backBufferImage.setAccelerationPriority(1);
-        backBufferGraphics = (Graphics2D) backBufferImage.getGraphics();
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-        backBufferGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        backBufferGraphics = createBufferGraphics(backBufferImage);
+
+        invalidateNetworkLayer();
+    }
+
+    //
+    // The network layer is drawn off the EDT, so it uses the map panel's graphics configuration if
+    // it has one rather than asking the graphics environment for the default screen
+    //
+
+    public static BufferedImage getNewNetworkLayerImage(int width, int height) {
+        GraphicsConfiguration gc = (getMapPanel() != null) ? getMapPanel().getGraphicsConfiguration() : null;
+        if (gc == null) return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage layerImage = gc.createCompatibleImage(width, height, Transparency.OPAQUE);
+        layerImage.setAccelerationPriority(1);
+        return layerImage;
+    }
+
+    public static Graphics2D createBufferGraphics(Image bufferImage) {
+        Graphics2D bufferGraphics = (Graphics2D) bufferImage.getGraphics();
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        bufferGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        return bufferGraphics;
     }
 
     public static BufferedImage getNewBufferImage(int width, int height) {
@@ -440,6 +461,7 @@ public class MapImage {
             Graphics2D g2d = (Graphics2D) image.getGraphics();
             g2d.drawImage(loadedImage, 0, 0, null);
             g2d.dispose();
+            MapImageTiles.buildTiles(image);
 
             enableConfigEdit(canEditConfig);
         }
@@ -0,0 +1,183 @@
+package AutoDriveEditor.MapPanel;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogRenderInfo;
+import static AutoDriveEditor.Utils.ImageUtils.getNewBufferedImage;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+
+//
+// Splits the map image into a pyramid of 256px tiles, level 0 is the full size image and every
+// level above it is half the size of the one below, down to a single tile.
+//
+// The map panel only draws the tiles that are visible, taken from the level closest to the zoom
+// level, instead of scaling the whole visible part of the map image every frame. Each level is
+// built from the one below, so the zoomed out levels are properly filtered rather than skipping
+// pixels. The tiles are built on a background thread whenever a new map image is set, until they
+// are ready the visible part of the map image is drawn directly.
+//
+
+public class MapImageTiles {
+
+    public static final int TILE_SIZE = 256;
+
+    private static final ExecutorService tileExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MapImageTiles");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the tiles of the current map image, null while they are being built
+
+    private static volatile TilePyramid tilePyramid;
+    private static volatile BufferedImage tileSourceImage;
+
+    private static class TilePyramid {
+        private final BufferedImage sourceImage;
+        // indexed by [level][tileY][tileX]
+        private final BufferedImage[][][] tiles;
+        private final int[] levelWidth;
+        private final int[] levelHeight;
+
+        private TilePyramid(BufferedImage sourceImage) {
+            this.sourceImage = sourceImage;
+            int levelCount = 1;
+            int size = Math.max(sourceImage.getWidth(), sourceImage.getHeight());
+            while (size > TILE_SIZE) {
+                size = (size + 1) / 2;
+                levelCount++;
+            }
+            tiles = new BufferedImage[levelCount][][];
+            levelWidth = new int[levelCount];
+            levelHeight = new int[levelCount];
+            int width = sourceImage.getWidth();
+            int height = sourceImage.getHeight();
+            for (int level = 0; level < levelCount; level++) {
+                levelWidth[level] = width;
+                levelHeight[level] = height;
+                tiles[level] = new BufferedImage[tileCount(height)][tileCount(width)];
+                width = (width + 1) / 2;
+                height = (height + 1) / 2;
+            }
+        }
+
+        private int getLevelCount() { return tiles.length; }
+    }
+
+    private static int tileCount(int size) {
+        return (size + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    //
+    // Starts building the tiles for a newly set map image
+    //
+
+    public static void buildTiles(BufferedImage sourceImage) {
+        tilePyramid = null;
+        tileSourceImage = sourceImage;
+        if (sourceImage == null) return;
+        tileExecutor.execute(() -> {
+            // a newer image may have been set while this one was waiting
+            if (tileSourceImage != sourceImage) return;
+            long startTime = System.currentTimeMillis();
+            TilePyramid pyramid = new TilePyramid(sourceImage);
+            for (int level = 0; level < pyramid.getLevelCount(); level++) {
+                BufferedImage[][] levelTiles = pyramid.tiles[level];
+                for (int tileY = 0; tileY < levelTiles.length; tileY++) {
+                    for (int tileX = 0; tileX < levelTiles[tileY].length; tileX++) {
+                        if (tileSourceImage != sourceImage) return;
+                        levelTiles[tileY][tileX] = createTile(pyramid, level, tileX, tileY);
+                    }
+                }
+            }
+            if (tileSourceImage == sourceImage) {
+                tilePyramid = pyramid;
+                if (bDebugLogRenderInfo) LOG.info("Map image tiles ready, {} levels in {}ms", pyramid.getLevelCount(), System.currentTimeMillis() - startTime);
+                MapPanel mapPanel = MapPanel.getMapPanel();
+                if (mapPanel != null) mapPanel.repaint();
+            }
+        });
+    }
+
+    private static BufferedImage createTile(TilePyramid pyramid, int level, int tileX, int tileY) {
+        int width = Math.min(TILE_SIZE, pyramid.levelWidth[level] - tileX * TILE_SIZE);
+        int height = Math.min(TILE_SIZE, pyramid.levelHeight[level] - tileY * TILE_SIZE);
+        BufferedImage tile = getNewBufferedImage(width, height, Transparency.OPAQUE);
+        Graphics2D g = tile.createGraphics();
+        if (level == 0) {
+            int sourceX = tileX * TILE_SIZE;
+            int sourceY = tileY * TILE_SIZE;
+            g.drawImage(pyramid.sourceImage, 0, 0, width, height, sourceX, sourceY, sourceX + width, sourceY + height, null);
+        } else {
+            // halve the ( up to ) four tiles of the level below that cover this tile
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            BufferedImage[][] belowTiles = pyramid.tiles[level - 1];
+            for (int y = 0; y < 2; y++) {
+                for (int x = 0; x < 2; x++) {
+                    int belowX = tileX * 2 + x;
+                    int belowY = tileY * 2 + y;
+                    if (belowY >= belowTiles.length || belowX >= belowTiles[belowY].length) continue;
+                    BufferedImage belowTile = belowTiles[belowY][belowX];
+                    int destX = x * TILE_SIZE / 2;
+                    int destY = y * TILE_SIZE / 2;
+                    g.drawImage(belowTile, destX, destY, destX + (belowTile.getWidth() + 1) / 2, destY + (belowTile.getHeight() + 1) / 2, 0, 0, belowTile.getWidth(), belowTile.getHeight(), null);
+                }
+            }
+        }
+        g.dispose();
+        return tile;
+    }
+
+    //
+    // Draws the part of the source image starting at ( sourceX, sourceY ) that is sourceWidth x sourceHeight
+    // pixels in size, scaled to fill a destWidth x destHeight area at the top left of g.
+    //
+
+    public static void drawVisibleTiles(Graphics2D g, BufferedImage sourceImage, int sourceX, int sourceY, int sourceWidth, int sourceHeight, int destWidth, int destHeight) {
+        TilePyramid pyramid = tilePyramid;
+        if (pyramid == null || pyramid.sourceImage != sourceImage) {
+            g.drawImage(sourceImage, 0, 0, destWidth, destHeight, sourceX, sourceY, sourceX + sourceWidth, sourceY + sourceHeight, null);
+            return;
+        }
+
+        double scaleX = (double) destWidth / sourceWidth;
+        double scaleY = (double) destHeight / sourceHeight;
+
+        // use the smallest level that still has at least one pixel for every screen pixel
+
+        int level = 0;
+        double scale = Math.max(scaleX, scaleY);
+        while (level < pyramid.getLevelCount() - 1 && scale * (2 << level) <= 1) {
+            level++;
+        }
+
+        // the size of a level pixel in source image pixels
+
+        double levelScaleX = (double) sourceImage.getWidth() / pyramid.levelWidth[level];
+        double levelScaleY = (double) sourceImage.getHeight() / pyramid.levelHeight[level];
+        BufferedImage[][] levelTiles = pyramid.tiles[level];
+
+        int firstTileX = Math.max(0, (int) (sourceX / levelScaleX) / TILE_SIZE);
+        int firstTileY = Math.max(0, (int) (sourceY / levelScaleY) / TILE_SIZE);
+        int lastTileX = Math.min(levelTiles[0].length - 1, (int) Math.ceil((sourceX + sourceWidth) / levelScaleX) / TILE_SIZE);
+        int lastTileY = Math.min(levelTiles.length - 1, (int) Math.ceil((sourceY + sourceHeight) / levelScaleY) / TILE_SIZE);
+
+        for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+            for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                BufferedImage tile = levelTiles[tileY][tileX];
+                // both edges of a tile are worked out the same way as its neighbours edges, so the tiles always meet
+                int levelX = tileX * TILE_SIZE;
+                int levelY = tileY * TILE_SIZE;
+                int destX1 = (int) Math.round((levelX * levelScaleX - sourceX) * scaleX);
+                int destY1 = (int) Math.round((levelY * levelScaleY - sourceY) * scaleY);
+                int destX2 = (int) Math.round(((levelX + tile.getWidth()) * levelScaleX - sourceX) * scaleX);
+                int destY2 = (int) Math.round(((levelY + tile.getHeight()) * levelScaleY - sourceY) * scaleY);
+                g.drawImage(tile, destX1, destY1, destX2, destY2, 0, 0, tile.getWidth(), tile.getHeight(), null);
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package AutoDriveEditor.MapPanel;
 
 import AutoDriveEditor.Listeners.MouseListener;
+import AutoDriveEditor.Managers.ChangeManager;
 import AutoDriveEditor.Managers.CopyPasteManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
 import AutoDriveEditor.Utils.Classes.LabelNumberFilter;
 import AutoDriveEditor.Utils.Classes.NameableThread;
 import AutoDriveEditor.Utils.TimeProfiler;
@@ -18,13 +20,17 @@ import java.awt.event.KeyListener;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.RasterFormatException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static AutoDriveEditor.AutoDriveEditor.*;
@@ -39,13 +45,14 @@ import static AutoDriveEditor.GUI.MenuBuilder.*;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosX;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosY;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
+import static AutoDriveEditor.Managers.ChangeManager.getModificationCount;
 import static AutoDriveEditor.Managers.MultiSelectManager.isMultiSelectDragging;
 import static AutoDriveEditor.Managers.MultiSelectManager.rectangleStart;
 import static AutoDriveEditor.Managers.ScanManager.scanNetworkForOverlapNodes;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.Managers.ScanManager.searchDistance;
 import static AutoDriveEditor.MapPanel.MapImage.*;
 import static AutoDriveEditor.RoadNetwork.MapNode.NODE_FLAG_STANDARD;
-import static AutoDriveEditor.RoadNetwork.MapNode.NODE_WARNING_OVERLAP;
 import static AutoDriveEditor.Utils.GUIUtils.showInTextArea;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.*;
@@ -64,30 +71,39 @@ public class MapPanel extends JPanel {
     public static final int CONFIG_SAVEGAME = 1;
     public static final int CONFIG_ROUTEMANAGER = 2;
 
+    // how far ( in pixels at zoom level 1 ) past the panel edges nodes are still drawn
+    public static final int OFFSCREEN_MARGIN = 40;
+
     public static int configType;
 
-    public Thread nodeDrawThread;
-    public Thread connectionDrawThread;
     public static ScheduledExecutorService scheduledExecutorService;
     @SuppressWarnings("rawtypes")
     public static ScheduledFuture scheduledFuture;
     public static final Lock drawLock = new ReentrantLock();
-    private static CountDownLatch latch;
-    public static volatile boolean canAutoSave= true;
-
-    public static BufferedImage croppedImage;
-
-    public int offsetX, oldOffsetX;
-    public int offsetY, oldOffsetY;
-    public int widthScaled, oldWidthScaled;
-    public int heightScaled, oldHeightScaled;
+    // false while an edit is being made to the road network, some edits ( e.g. dragging nodes ) are
+    // spread over several events, so the road map can be half changed between two EDT events
+    private static volatile boolean canAutoSave = true;
+    private static final ConcurrentLinkedQueue<Runnable> runAfterEdit = new ConcurrentLinkedQueue<>();
+
+    // the part of the map image shown in the panel
+    public int offsetX;
+    public int offsetY;
+    public int widthScaled;
+    public int heightScaled;
     public static boolean isUsingImportedImage = false;
     private static double x = 0.5;
     private static double y = 0.5;
     public static double zoomLevel = 1.0;
     public static int mapZoomFactor = 1;
 
+    // draw the nodes and connections of each network layer frame, see drawNetworkLayer()
+    private static final NodeDrawer nodeDrawer = new NodeDrawer();
+    private static final ConnectionDrawer connectionDrawer = new ConnectionDrawer();
+
     public static boolean stale = false;
+    // bumped every time the config is marked as changed, so a background save can tell if
+    // anything was changed after it captured the road map
+    private static int staleGeneration = 0;
     public static RoadMap roadMap;
     public static MapNode hoveredNode = null;
     public static boolean isDraggingMap = false;
@@ -142,18 +158,6 @@ public class MapPanel extends JPanel {
 
         setFocusable(true);
 
-        // start the thread responsible for drawing node connections
-
-        ConnectionDrawThread t1 = new ConnectionDrawThread();
-        connectionDrawThread = new Thread(t1 ,"ConnectionDraw Thread");
-        connectionDrawThread.start();
-
-        // start the thread responsible for drawing nodes
-
-        NodeDrawThread t2 = new NodeDrawThread();
-        nodeDrawThread = new Thread(t2 ,"NodeDraw Thread");
-        nodeDrawThread.start();
-
         // initialize the copy/paste manager
 
         if (cnpManager == null) {
@@ -214,426 +218,472 @@ public class MapPanel extends JPanel {
     }
 
     //
-    // The NodeDraw thread is 2 or 3 times quicker to execute than connectionDraw(), so we
-    // try and spread the draw load around by doing the curve/line/rectangle drawing here
+    // The node drawing is 2 or 3 times quicker than the connection drawing, so we try and spread
+    // the draw load around by doing the text drawing here. The render scheduler runs the two in
+    // parallel for each frame, see drawNetworkLayer()
     //
 
-    public static class NodeDrawThread implements Runnable {
-
-        private static volatile boolean isStopped = false;
+    private static class NodeDrawer {
 
-        private static class TextDisplayStore {
-            String text;
-            Point2D position;
-            Color colour;
-            boolean useBackground;
+        private final ArrayList<TextDisplayStore> textList = new ArrayList<>();
+        private final NodeIndexList visibleNodes = new NodeIndexList();
+        private final TimeProfiler nodeDrawTimer = new TimeProfiler();
 
-            public TextDisplayStore(String text, Point2D textPos, Color textColour, boolean background) {
-                this.text = text;
-                this.position = textPos;
-                this.colour = textColour;
-                this.useBackground = background;
-            }
-        }
+        private void draw(Graphics2D g, RenderScheduler.View view) {
 
-        public static void stop() {
-            LOG.info("Stopping NodeDraw thread");
-            isStopped = true;
-        }
+            if (bDebugProfile) nodeDrawTimer.startTimer();
 
-        @Override
-        public synchronized void run() {
+            RoadMapSnapshot snapshot = view.getSnapshot();
+            int width = view.getWidth();
+            int height = view.getHeight();
 
-            ArrayList<TextDisplayStore> textList = new ArrayList<>();
-            LOG.info("Starting NodeDraw thread");
-            TimeProfiler nodeDrawTimer = new TimeProfiler();
+            double nodeSizeScaled = nodeSize * view.getZoomLevel();
+            double nodeSizeScaledHalf = nodeSizeScaled * 0.5;
+            double nodeSizeScaledQuarter = nodeSizeScaled * 0.25;
 
-            while ( !isStopped ) {
+            FontMetrics fm = g.getFontMetrics();
 
-                try {
-                    this.wait();
-                } catch (InterruptedException e) {
-                    if (isStopped) {
-                        LOG.info("NodeDraw Thread exiting");
-                        return;
-                    }
-
-
-                    if (bDebugProfile) nodeDrawTimer.startTimer();
-
-                    int width = getMapPanel().getWidth();
-                    int height = getMapPanel().getHeight();
-
-                    double nodeSizeScaled = nodeSize * zoomLevel;
-                    double nodeSizeScaledHalf = nodeSizeScaled * 0.5;
-                    double nodeSizeScaledQuarter = nodeSizeScaled * 0.25;
-
-                    FontMetrics fm = backBufferGraphics.getFontMetrics();
-
-
-
-                    if (backBufferGraphics != null) {
-
-                        //
-                        // Draw all nodes in visible area of map
-                        // The original code would drawToScreen all the nodes even if they were not visible
-                        //
-
-                        for (MapNode mapNode : RoadMap.mapNodes) {
-                            Point2D nodePos = worldPosToScreenPos(mapNode.x, mapNode.z);
-                            if (0 < nodePos.getX() && width > nodePos.getX() && 0 < nodePos.getY() && height > nodePos.getY()) {
-                                if (bDebugProfile) nodeDrawTimer.pauseTimer();
-                                drawLock.lock();
-                                try {
-                                    if (bDebugProfile) nodeDrawTimer.restartTimer();
-                                    if (mapNode.flag == NODE_FLAG_STANDARD) {
-                                        backBufferGraphics.setColor(colourNodeRegular);
-                                    } else {
-                                        backBufferGraphics.setColor(colourNodeSubprio);
-                                    }
-                                    backBufferGraphics.fillArc((int) (nodePos.getX() - nodeSizeScaledQuarter), (int) (nodePos.getY() - nodeSizeScaledQuarter), (int) (nodeSizeScaledQuarter * 2), (int) (nodeSizeScaledQuarter * 2), 0, 360);
-                                    if (mapNode.isSelected) {
-                                        backBufferGraphics.setColor(Color.WHITE);
-                                        Graphics2D g2 = (Graphics2D) backBufferGraphics.create();
-                                        BasicStroke bs = new BasicStroke((float) (nodeSizeScaledHalf / 5));
-                                        g2.setStroke(bs);
-                                        g2.drawArc((int) (nodePos.getX() - (nodeSizeScaledHalf / 2)), (int) (nodePos.getY() - (nodeSizeScaledHalf / 2)), (int) nodeSizeScaledHalf, (int) nodeSizeScaledHalf, 0, 360);
-                                        g2.dispose();
-                                    }
-
-                                    if (mapNode.hasWarning) {
-                                        if (mapNode.warningType == NODE_WARNING_OVERLAP) {
-                                            int overlapImageWidth = overlapWarningImage.getWidth();
-                                            int overlapImageHeight = overlapWarningImage.getHeight();
-                                            backBufferGraphics.drawImage(overlapWarningImage, (int) (nodePos.getX() - (overlapImageWidth / 2)), (int) (nodePos.getY() - (overlapImageHeight / 2)), overlapImageWidth, overlapImageHeight, null);
-                                        }
-                                    } else {
-                                        if (mapNode.y == -1) {
-                                            int negativeImageWidth = negativeHeightWarningImage.getWidth();
-                                            int negativeImageHeight = negativeHeightWarningImage.getHeight();
-                                            backBufferGraphics.drawImage(negativeHeightWarningImage, (int) (nodePos.getX() - (negativeImageWidth / 2)), (int) (nodePos.getY() - (negativeImageHeight / 2)), negativeImageWidth, negativeImageHeight, null);
-                                        }
-                                    }
-                                } finally {
-                                    drawLock.unlock();
-                                }
-                            }
+            //
+            // Draw all nodes in visible area of map
+            // The original code would drawToScreen all the nodes even if they were not visible
+            //
+            // Only the nodes the snapshot's area index returns for the visible area ( plus the same
+            // off screen margin as the connections ) are checked, the margin lets the ID/marker text
+            // of nodes just off the edge of the screen still be drawn.
+            //
+            // When zoomed out past the level of detail threshold, the simplified network is drawn
+            // instead and no individual nodes are.
+            //
 
-                            // show the node ID if we in debug mode, the higher the node count, the more text spam there is :-P
-                            // It will affect editor speed, the more nodes the worse it will get, you have been warned :)
+            visibleNodes.clear();
+            boolean isSimplified = NetworkLevelOfDetail.isActive(view.getZoomLevel(), view.getMapZoomFactor());
+            if (isSimplified) {
+                if (bDebugProfile) nodeDrawTimer.pauseTimer();
+                drawSimplifiedNodes(g, view);
+                if (bDebugProfile) nodeDrawTimer.restartTimer();
+            } else {
+                getVisibleNodes(view, OFFSCREEN_MARGIN * view.getZoomLevel(), visibleNodes);
+            }
+            for (int visible = 0; visible < visibleNodes.size(); visible++) {
+                if (RenderScheduler.isCancelled(view)) break;
+                int node = visibleNodes.get(visible);
+                Point2D nodePos = view.worldPosToScreenPos(snapshot.getX(node), snapshot.getZ(node));
+                if (0 < nodePos.getX() && width > nodePos.getX() && 0 < nodePos.getY() && height > nodePos.getY()) {
+                    if (bDebugProfile) nodeDrawTimer.pauseTimer();
+                    RenderScheduler.layerLock.lock();
+                    try {
+                        if (bDebugProfile) nodeDrawTimer.restartTimer();
+                        if (snapshot.getFlag(node) == NODE_FLAG_STANDARD) {
+                            g.setColor(colourNodeRegular);
+                        } else {
+                            g.setColor(colourNodeSubprio);
+                        }
+                        g.fillArc((int) (nodePos.getX() - nodeSizeScaledQuarter), (int) (nodePos.getY() - nodeSizeScaledQuarter), (int) (nodeSizeScaledQuarter * 2), (int) (nodeSizeScaledQuarter * 2), 0, 360);
+                        if (snapshot.isSelected(node)) {
+                            g.setColor(Color.WHITE);
+                            Graphics2D g2 = (Graphics2D) g.create();
+                            BasicStroke bs = new BasicStroke((float) (nodeSizeScaledHalf / 5));
+                            g2.setStroke(bs);
+                            g2.drawArc((int) (nodePos.getX() - (nodeSizeScaledHalf / 2)), (int) (nodePos.getY() - (nodeSizeScaledHalf / 2)), (int) nodeSizeScaledHalf, (int) nodeSizeScaledHalf, 0, 360);
+                            g2.dispose();
+                        }
 
-                            if (bDebugShowID) {
-                                String text = String.valueOf(mapNode.id);
-                                Rectangle2D rect = fm.getStringBounds(text, backBufferGraphics);
-                                Point2D newPoint =  new Point2D.Double(nodePos.getX() - (rect.getWidth() / 2) , (nodePos.getY() + (rect.getHeight() / 2) - 3));
-                                textList.add(new TextDisplayStore(String.valueOf(mapNode.id), newPoint, Color.WHITE, false));
+                        if (snapshot.hasWarning(node)) {
+                            if (snapshot.hasOverlapWarning(node)) {
+                                int overlapImageWidth = overlapWarningImage.getWidth();
+                                int overlapImageHeight = overlapWarningImage.getHeight();
+                                g.drawImage(overlapWarningImage, (int) (nodePos.getX() - (overlapImageWidth / 2)), (int) (nodePos.getY() - (overlapImageHeight / 2)), overlapImageWidth, overlapImageHeight, null);
                             }
-
-                            if (mapNode.hasMapMarker()) {
-                                if (mapNode.getMarkerName() != null) {
-                                    Point2D nodeScreenPos = worldPosToScreenPos(mapNode.x - 1, mapNode.z - 1);
-                                    String markerText = mapNode.getMarkerName();
-                                    if ((hoveredNode != null) && (mapNode == hoveredNode)) {
-                                        markerText +=" ( " + mapNode.getMarkerGroup() + " )";
-                                    }
-                                    textList.add(new TextDisplayStore(markerText, nodeScreenPos, Color.WHITE, false));
-                                }
+                        } else {
+                            if (snapshot.getY(node) == -1) {
+                                int negativeImageWidth = negativeHeightWarningImage.getWidth();
+                                int negativeImageHeight = negativeHeightWarningImage.getHeight();
+                                g.drawImage(negativeHeightWarningImage, (int) (nodePos.getX() - (negativeImageWidth / 2)), (int) (nodePos.getY() - (negativeImageHeight / 2)), negativeImageWidth, negativeImageHeight, null);
                             }
                         }
+                    } finally {
+                        RenderScheduler.layerLock.unlock();
+                    }
+                }
 
-                        // do we drawToScreen the node hover-over image and add the marker name/group to the drawToScreen list
-
-                        if (hoveredNode != null) {
-                            Point2D hoverNodePos = worldPosToScreenPos(hoveredNode.x, hoveredNode.z);
-                            if (bDebugProfile) nodeDrawTimer.pauseTimer();
-                            drawLock.lock();
-                            try {
-                                if (bDebugProfile) nodeDrawTimer.restartTimer();
-                                if (!hoveredNode.isControlNode()) {
-                                    backBufferGraphics.setColor(Color.WHITE);
-                                    Graphics2D g2 = (Graphics2D) backBufferGraphics.create();
-                                    BasicStroke bs = new BasicStroke((float) (nodeSizeScaledHalf / 5));
-                                    g2.setStroke(bs);
-                                    g2.drawArc((int) (hoverNodePos.getX() - (nodeSizeScaledHalf / 2)), (int) (hoverNodePos.getY() - (nodeSizeScaledHalf / 2)), (int) nodeSizeScaledHalf, (int) nodeSizeScaledHalf, 0, 360);
-                                    g2.dispose();
-                                }
-                            } finally {
-                                drawLock.unlock();
-                            }
-
-                            if (bDebugShowSelectedLocation) {
-                                String nodeInfo;
-                                if (!bDebugShowID) {
-                                    nodeInfo = "ID = " + hoveredNode.id + " >> ";
-                                } else {
-                                    nodeInfo = " ";
-                                }
-                                nodeInfo += "X = " + hoveredNode.x + ", Y = " + hoveredNode.y + ", Z = " + hoveredNode.z + ", Flag = " + hoveredNode.flag + ", In = " + hoveredNode.incoming.size() + ", Out = " + hoveredNode.outgoing.size();
-                                if (hoveredNode.hasWarning) nodeInfo +=" , " + (hoveredNode.warningNodes.size() + 1) + " Overlapping Nodes";
-                                Point2D nodePosMarker = worldPosToScreenPos(hoveredNode.x + 1, hoveredNode.z);
-                                textList.add( new TextDisplayStore( nodeInfo, nodePosMarker, Color.WHITE, false));
-                            }
-                            if (hoveredNode.hasWarning && !bDebugShowSelectedLocation ) {
-                                String text = (hoveredNode.warningNodes.size() + 1) + " Nodes Overlapping";
-                                Point2D nodePosMarker = worldPosToScreenPos(hoveredNode.x + 1, hoveredNode.z);
-                                textList.add( new TextDisplayStore( text, nodePosMarker, Color.WHITE, true));
+                // show the node ID if we in debug mode, the higher the node count, the more text spam there is :-P
+                // It will affect editor speed, the more nodes the worse it will get, you have been warned :)
 
-                            }
+                if (bDebugShowID) {
+                    String text = String.valueOf(snapshot.getID(node));
+                    Rectangle2D rect = fm.getStringBounds(text, g);
+                    Point2D newPoint =  new Point2D.Double(nodePos.getX() - (rect.getWidth() / 2) , (nodePos.getY() + (rect.getHeight() / 2) - 3));
+                    textList.add(new TextDisplayStore(text, newPoint, Color.WHITE, false));
+                }
+            }
 
-                            if (hoveredNode.y == -1 ) {
-                                String text = "Node Y is invalid ( -1 )";
-                                Point2D nodePosMarker = worldPosToScreenPos(hoveredNode.x + 1, hoveredNode.z);
-                                textList.add( new TextDisplayStore( text, nodePosMarker, Color.WHITE, true));
-                            }
-                        }
+            // the marker names of the nodes within the off screen margin, the hovered node's marker
+            // group is added by drawOverlay()
 
-                        // display all the text we need to render
-
-                        if (textList.size() > 0) {
-                            if (bDebugProfile) nodeDrawTimer.pauseTimer();
-                            drawLock.lock();
-                            try {
-                                if (bDebugProfile) nodeDrawTimer.restartTimer();
-                                for (TextDisplayStore list : textList) {
-                                    backBufferGraphics.setColor(list.colour);
-                                    if (list.useBackground) {
-                                        //FontMetrics fm = backBufferGraphics.getFontMetrics();
-                                        Rectangle2D rect = fm.getStringBounds(list.text, backBufferGraphics);
-
-                                        backBufferGraphics.setColor(Color.YELLOW);
-                                        backBufferGraphics.fillRect((int)list.position.getX(),
-                                                (int) list.position.getY() - fm.getAscent(),
-                                                (int) rect.getWidth(),
-                                                (int) rect.getHeight() + 2);
-                                        backBufferGraphics.setColor(Color.BLACK);
-                                    }
-                                    backBufferGraphics.drawString(list.text, (int) list.position.getX(), (int) list.position.getY());
-                                }
-                            } finally {
-                                drawLock.unlock();
-                            }
-                        }
-                    }
+            if (!RenderScheduler.isCancelled(view)) addMarkerNames(view, textList);
 
-                    // Draw anything the buttons need
+            // display all the text we need to render
 
-                    if (bDebugProfile) nodeDrawTimer.pauseTimer();
-                    drawLock.lock();
-                    try {
-                        if (bDebugProfile) nodeDrawTimer.restartTimer();
-                        buttonManager.draw(backBufferGraphics, drawLock, nodeSizeScaledQuarter, nodeSizeScaledHalf);
-                    } finally {
-                        drawLock.unlock();
-                    }
+            if (textList.size() > 0 && !RenderScheduler.isCancelled(view)) {
+                if (bDebugProfile) nodeDrawTimer.pauseTimer();
+                RenderScheduler.layerLock.lock();
+                try {
+                    if (bDebugProfile) nodeDrawTimer.restartTimer();
+                    drawTextList(g, fm, textList);
+                } finally {
+                    RenderScheduler.layerLock.unlock();
+                }
+            }
 
-                    // draw the right button selection rectangle
-
-                    if (isMultiSelectDragging) {
-                        Point2D mousePos = new Point2D.Float(prevMousePosX,prevMousePosY);
-                        Point2D rectWorldStart = worldPosToScreenPos(rectangleStart.getX(), rectangleStart.getY());
-                        int diffX = (int) (mousePos.getX() - rectWorldStart.getX());
-                        int diffY = (int) (mousePos.getY() - rectWorldStart.getY());
-                        int rectangleX = (int) rectWorldStart.getX();
-                        int rectangleY = (int) rectWorldStart.getY();
-                        if (diffX < 0) {
-                            rectangleX += diffX;
-                            diffX = -diffX;
-                        }
-                        if (diffY < 0) {
-                            rectangleY += diffY;
-                            diffY = -diffY;
-                        }
+            if (bDebugProfile) {
+                nodeDrawTimer.stopTimer();
+                String text = "Finished Node Rendering in " + nodeDrawTimer.getTime() + " ms";
+                showInTextArea(text,false, false);
+                nodeDrawTimer.resetTimer();
+            }
 
-                        Graphics2D gTemp = (Graphics2D) backBufferGraphics.create();
-                        BasicStroke bsDash = new BasicStroke(1, BasicStroke.CAP_BUTT,
-                                BasicStroke.JOIN_ROUND, 1.0f, new float[]{4f, 0f, 2f}, 2f);
-                        gTemp.setStroke(bsDash);
-
-                        if (bDebugProfile) nodeDrawTimer.pauseTimer();
-                        drawLock.lock();
-                        try {
-                            if (bDebugProfile) nodeDrawTimer.restartTimer();
-                            gTemp.setColor(Color.WHITE);
-                            gTemp.drawRect(rectangleX, rectangleY, diffX, diffY);
-                        } finally {
-                            drawLock.unlock();
-                            gTemp.dispose();
-                        }
-                    }
+            textList.clear();
+            visibleNodes.clear();
+        }
 
-                    if (bDebugProfile) {
-                        nodeDrawTimer.stopTimer();
-                        String text = "Finished Node Rendering in " + nodeDrawTimer.getTime() + " ms";
-                        showInTextArea(text,false, false);
-                        nodeDrawTimer.resetTimer();
+        //
+        // Draws the density points of the simplified network, with the selected nodes on top so
+        // they can still be found when zoomed out.
+        //
+
+        private static void drawSimplifiedNodes(Graphics2D g, RenderScheduler.View view) {
+            RoadMapSnapshot snapshot = view.getSnapshot();
+            int width = view.getWidth();
+            int height = view.getHeight();
+            NetworkLevelOfDetail.Level level = NetworkLevelOfDetail.getLevel(view);
+            if (level == null) return;
+            Point2D origin = view.worldPosToScreenPos(0, 0);
+            double scale = view.getZoomLevel() / view.getMapZoomFactor();
+
+            RenderScheduler.layerLock.lock();
+            try {
+                NetworkLevelOfDetail.drawCells(g, level, origin.getX(), origin.getY(), scale, width, height, colourNodeRegular, colourNodeSubprio);
+                g.setColor(Color.WHITE);
+                for (int selected = 0; selected < snapshot.getSelectedCount(); selected++) {
+                    int node = snapshot.getSelectedNodeIndex(selected);
+                    Point2D nodePos = view.worldPosToScreenPos(snapshot.getX(node), snapshot.getZ(node));
+                    if (isOnScreen(nodePos, width, height, 0)) {
+                        g.fillRect((int) nodePos.getX() - 1, (int) nodePos.getY() - 1, 3, 3);
                     }
+                }
+            } finally {
+                RenderScheduler.layerLock.unlock();
+            }
+        }
 
-                    textList.clear();
-                    latch.countDown();
+        private static void addMarkerNames(RenderScheduler.View view, ArrayList<TextDisplayStore> textList) {
+            RoadMapSnapshot snapshot = view.getSnapshot();
+            for (int marker = 0; marker < snapshot.getMarkerCount(); marker++) {
+                int node = snapshot.getMarkerNodeIndex(marker);
+                String markerName = snapshot.getMarkerName(marker);
+                if (markerName != null && isOnScreen(view.worldPosToScreenPos(snapshot.getX(node), snapshot.getZ(node)), view.getWidth(), view.getHeight(), OFFSCREEN_MARGIN * view.getZoomLevel())) {
+                    Point2D nodeScreenPos = view.worldPosToScreenPos(snapshot.getX(node) - 1, snapshot.getZ(node) - 1);
+                    textList.add(new TextDisplayStore(markerName, nodeScreenPos, Color.WHITE, false));
                 }
             }
+        }
+    }
+
+    private static class TextDisplayStore {
+        String text;
+        Point2D position;
+        Color colour;
+        boolean useBackground;
+
+        public TextDisplayStore(String text, Point2D textPos, Color textColour, boolean background) {
+            this.text = text;
+            this.position = textPos;
+            this.colour = textColour;
+            this.useBackground = background;
+        }
+    }
 
+    private static void drawTextList(Graphics2D g, FontMetrics fm, ArrayList<TextDisplayStore> textList) {
+        for (TextDisplayStore list : textList) {
+            g.setColor(list.colour);
+            if (list.useBackground) {
+                Rectangle2D rect = fm.getStringBounds(list.text, g);
+
+                g.setColor(Color.YELLOW);
+                g.fillRect((int)list.position.getX(),
+                        (int) list.position.getY() - fm.getAscent(),
+                        (int) rect.getWidth(),
+                        (int) rect.getHeight() + 2);
+                g.setColor(Color.BLACK);
+            }
+            g.drawString(list.text, (int) list.position.getX(), (int) list.position.getY());
         }
     }
 
     //
-    // The connection drawing thread finishes last in almost all cases, so we keep this as small as possible
+    // The connection drawing finishes last in almost all cases, so we keep this as small as possible
     // we only drawToScreen the connections in the visible area (plus some extra padding) so we don't see the
     // connections clipping.
     //
 
-    public static class ConnectionDrawThread implements Runnable {
-        private static volatile boolean isStopped = false;
-        private final ArrayList<DrawList> dualSubprioArrowDrawList = new ArrayList<>();
-        private final ArrayList<DrawList> dualArrowDrawList = new ArrayList<>();
-        private final ArrayList<DrawList> reverseArrowDrawList = new ArrayList<>();
-        private final ArrayList<DrawList> reverseSubprioArrowDrawList = new ArrayList<>();
-        private final ArrayList<DrawList> subprioArrowDrawList = new ArrayList<>();
-        private final ArrayList<DrawList> regularArrowDrawList = new ArrayList<>();
-
-        private static class DrawList {
-            Point2D startPos;
-            Point2D endPos;
-            boolean isDual;
-
-            public DrawList(Point2D start, Point2D end, boolean dual) {
-                this.startPos = start;
-                this.endPos = end;
-                this.isDual = dual;
-            }
-        }
-
-        public static void stop() {
-            LOG.info("Stopping ConnectionDraw Thread");
-            isStopped = true;
-        }
+    private static class ConnectionDrawer {
+        // the connections of each type, drawn in this order
+        private final ConnectionDrawBuffer dualSubprioConnections = new ConnectionDrawBuffer();
+        private final ConnectionDrawBuffer dualConnections = new ConnectionDrawBuffer();
+        private final ConnectionDrawBuffer reverseConnections = new ConnectionDrawBuffer();
+        private final ConnectionDrawBuffer reverseSubprioConnections = new ConnectionDrawBuffer();
+        private final ConnectionDrawBuffer subprioConnections = new ConnectionDrawBuffer();
+        private final ConnectionDrawBuffer regularConnections = new ConnectionDrawBuffer();
+        private final NodeIndexList visibleNodes = new NodeIndexList();
+        private final TimeProfiler connectionDrawTimer = new TimeProfiler();
+
+        // the nodes with an outgoing connection longer than longConnectionLength, see addLongConnections()
+        private int[] longConnectionNodes = new int[0];
+        private RoadMapSnapshot longConnectionsSnapshot;
+        private double longConnectionLength;
+
+        private void draw(Graphics2D g, RenderScheduler.View view) {
+
+            if (bDebugProfile) connectionDrawTimer.startTimer();
+
+            RoadMapSnapshot snapshot = view.getSnapshot();
+            int width = view.getWidth();
+            int height = view.getHeight();
+
+            visibleNodes.clear();
+            double offScreenDistance = OFFSCREEN_MARGIN * view.getZoomLevel();
+            boolean isSimplified = NetworkLevelOfDetail.isActive(view.getZoomLevel(), view.getMapZoomFactor());
+            if (!isSimplified) getVisibleNodes(view, offScreenDistance, visibleNodes);
+
+            // only draw the arms of the arrows if the zoom level is high enough to see them,
+            // the lines of the simplified network join the cell centres, so have no arrows
+            // and don't stop short of the nodes
+
+            double nodeSizeScaled = isSimplified ? 0 : nodeSize * view.getZoomLevel();
+            boolean drawArrowHeads = !isSimplified && view.getZoomLevel() > 2.5;
+            dualSubprioConnections.reset(nodeSizeScaled, drawArrowHeads, bFilledArrows);
+            dualConnections.reset(nodeSizeScaled, drawArrowHeads, bFilledArrows);
+            reverseConnections.reset(nodeSizeScaled, drawArrowHeads, bFilledArrows);
+            reverseSubprioConnections.reset(nodeSizeScaled, drawArrowHeads, bFilledArrows);
+            subprioConnections.reset(nodeSizeScaled, drawArrowHeads, bFilledArrows);
+            regularConnections.reset(nodeSizeScaled, drawArrowHeads, bFilledArrows);
+
+            if (isSimplified) addSimplifiedLinks(view);
+
+            // mapNodes is kept in ID order, so the node with ID n is at index n - 1 of the snapshot
+
+            int nodeCount = snapshot.getNodeCount();
+            for (int visible = 0; visible < visibleNodes.size(); visible++) {
+                if (RenderScheduler.isCancelled(view)) break;
+                int node = visibleNodes.get(visible);
+                Point2D nodePos = view.worldPosToScreenPos(snapshot.getX(node), snapshot.getZ(node));
+                for (int i = snapshot.getOutStart(node); i < snapshot.getOutEnd(node); i++) {
+                    int outgoing = snapshot.getOutID(i) - 1;
+                    if (outgoing < 0 || outgoing >= nodeCount) continue;
+                    Point2D outPos = view.worldPosToScreenPos(snapshot.getX(outgoing), snapshot.getZ(outgoing));
+                    addToDrawList(snapshot.getOutType(i), nodePos, outPos);
+                }
 
-        @Override
-        public synchronized void run() {
+                // connections coming in from nodes outside the visible area would not be drawn by the
+                // outgoing pass above, so add them here or they vanish as soon as their start node
+                // scrolls off the screen.
+
+                for (int i = snapshot.getIncomingStart(node); i < snapshot.getIncomingEnd(node); i++) {
+                    int incoming = snapshot.getIncomingID(i) - 1;
+                    if (incoming < 0 || incoming >= nodeCount) continue;
+                    Point2D inPos = view.worldPosToScreenPos(snapshot.getX(incoming), snapshot.getZ(incoming));
+                    if (!isOnScreen(inPos, width, height, offScreenDistance)) {
+                        int connectionType = snapshot.getConnectionType(incoming, node);
+                        if (connectionType != -1) addToDrawList(connectionType, inPos, nodePos);
+                    }
+                }
+            }
 
-            LOG.info("Starting ConnectionDraw Thread");
-            TimeProfiler connectionDrawTimer = new TimeProfiler();
+            if (!isSimplified && !RenderScheduler.isCancelled(view)) addLongConnections(view, offScreenDistance);
 
-            while ( !isStopped ) {
+            // draw all the connection arrows
 
+            if (!RenderScheduler.isCancelled(view)) {
+                if (bDebugProfile) connectionDrawTimer.pauseTimer();
+                RenderScheduler.layerLock.lock();
                 try {
-                    dualSubprioArrowDrawList.clear();
-                    dualArrowDrawList.clear();
-                    reverseArrowDrawList.clear();
-                    reverseSubprioArrowDrawList.clear();
-                    subprioArrowDrawList.clear();
-                    regularArrowDrawList.clear();
-                    this.wait();
-                } catch (InterruptedException e) {
-                    if (isStopped) {
-                        LOG.info("ConnectionDraw Thread exiting");
-                        return;
-                    }
+                    if (bDebugProfile) connectionDrawTimer.restartTimer();
+                    dualSubprioConnections.draw(g, colourConnectDualSubprio);
+                    dualConnections.draw(g, colourConnectDual);
+                    reverseConnections.draw(g, colourConnectReverse);
+                    reverseSubprioConnections.draw(g, colourConnectReverseSubprio);
+                    subprioConnections.draw(g, colourConnectSubprio);
+                    regularConnections.draw(g, colourConnectRegular);
+                } finally {
+                    RenderScheduler.layerLock.unlock();
+                }
+            }
 
-                    if (bDebugProfile) connectionDrawTimer.startTimer();
-
-                    if (backBufferGraphics != null) {
-
-                        int width = getMapPanel().getWidth();
-                        int height = getMapPanel().getHeight();
-
-                        for (MapNode mapNode : RoadMap.mapNodes) {
-                            Point2D nodePos = worldPosToScreenPos(mapNode.x, mapNode.z);
-                            double offScreenDistance = 40 * zoomLevel;
-                            if (0 - offScreenDistance < nodePos.getX() && width + offScreenDistance > nodePos.getX() && 0 - offScreenDistance < nodePos.getY() && height + offScreenDistance > nodePos.getY()) {
-                                for (MapNode outgoing : mapNode.outgoing) {
-                                    Point2D outPos = worldPosToScreenPos(outgoing.x, outgoing.z);
-                                    if (RoadMap.isDual(mapNode, outgoing)) {
-                                        if ( mapNode.flag == 1) {
-                                            dualSubprioArrowDrawList.add(new DrawList(nodePos, outPos, true));
-                                        } else {
-                                            dualArrowDrawList.add(new DrawList(nodePos, outPos, true));
-                                        }
-                                    } else if (RoadMap.isReverse(mapNode, outgoing)) {
-                                        if ( mapNode.flag == 1) {
-                                            reverseSubprioArrowDrawList.add(new DrawList(nodePos, outPos, false));
-                                        } else {
-                                            reverseArrowDrawList.add(new DrawList(nodePos, outPos, false));
-                                        }
-
-                                    } else {
-                                        if (mapNode.flag == 1) {
-                                            subprioArrowDrawList.add(new DrawList(nodePos, outPos, false));
-                                        } else {
-                                            regularArrowDrawList.add(new DrawList(nodePos, outPos, false));
-                                        }
-                                    }
-                                }
-                            }
-                        }
+            if (bDebugProfile) {
+                connectionDrawTimer.stopTimer();
+                String text = "Finished Connection Rendering in " + connectionDrawTimer.getTime() + " ms";
+                showInTextArea(text, false, false);
+                connectionDrawTimer.resetTimer();
+            }
+            visibleNodes.clear();
+        }
 
-                        // draw all the connection arrows
-
-                        connectionDrawTimer.pauseTimer();
-                        drawLock.lock();
-                        try {
-                            connectionDrawTimer.restartTimer();
-                            batchDrawArrowBetween(backBufferGraphics, colourConnectDualSubprio, dualSubprioArrowDrawList);
-                            batchDrawArrowBetween(backBufferGraphics, colourConnectDual, dualArrowDrawList);
-                            batchDrawArrowBetween(backBufferGraphics, colourConnectReverse, reverseArrowDrawList);
-                            batchDrawArrowBetween(backBufferGraphics, colourConnectReverseSubprio, reverseSubprioArrowDrawList);
-                            batchDrawArrowBetween(backBufferGraphics, colourConnectSubprio, subprioArrowDrawList);
-                            batchDrawArrowBetween(backBufferGraphics, colourConnectRegular, regularArrowDrawList);
-                        } finally {
-                            drawLock.unlock();
-                        }
+        //
+        // A connection with both of its nodes off the screen can still cross it, but only if it's longer
+        // than twice the off screen margin. Every node is checked for connections longer than the margin
+        // once for each snapshot, the ones that cross the screen are added to the draw lists.
+        //
+
+        private void addLongConnections(RenderScheduler.View view, double offScreenDistance) {
+            RoadMapSnapshot snapshot = view.getSnapshot();
+            int width = view.getWidth();
+            int height = view.getHeight();
+
+            // the off screen margin is OFFSCREEN_MARGIN pixels at a zoom level of 1, which is
+            // OFFSCREEN_MARGIN * mapZoomFactor world units at any zoom level
+
+            double minLength = OFFSCREEN_MARGIN * view.getMapZoomFactor();
+            if (longConnectionsSnapshot != snapshot || longConnectionLength != minLength) {
+                longConnectionNodes = findLongConnectionNodes(snapshot, minLength);
+                longConnectionsSnapshot = snapshot;
+                longConnectionLength = minLength;
+            }
+
+            Rectangle2D screenArea = new Rectangle2D.Double(-offScreenDistance, -offScreenDistance, width + offScreenDistance * 2, height + offScreenDistance * 2);
+            for (int node : longConnectionNodes) {
+                Point2D nodePos = view.worldPosToScreenPos(snapshot.getX(node), snapshot.getZ(node));
+                // any connection of a node on the screen has already been added
+                if (isOnScreen(nodePos, width, height, offScreenDistance)) continue;
+                for (int i = snapshot.getOutStart(node); i < snapshot.getOutEnd(node); i++) {
+                    int outgoing = snapshot.getOutID(i) - 1;
+                    if (!isLongConnection(snapshot, node, outgoing, minLength)) continue;
+                    Point2D outPos = view.worldPosToScreenPos(snapshot.getX(outgoing), snapshot.getZ(outgoing));
+                    if (!isOnScreen(outPos, width, height, offScreenDistance) && screenArea.intersectsLine(nodePos.getX(), nodePos.getY(), outPos.getX(), outPos.getY())) {
+                        addToDrawList(snapshot.getOutType(i), nodePos, outPos);
                     }
+                }
+            }
+        }
 
-                    if (bDebugProfile) {
-                        connectionDrawTimer.stopTimer();
-                        String text = "Finished Connection Rendering in " + connectionDrawTimer.getTime() + " ms";
-                        showInTextArea(text, false, false);
-                        connectionDrawTimer.resetTimer();
+        private static int[] findLongConnectionNodes(RoadMapSnapshot snapshot, double minLength) {
+            NodeIndexList longConnectionNodes = new NodeIndexList();
+            for (int node = 0; node < snapshot.getNodeCount(); node++) {
+                for (int i = snapshot.getOutStart(node); i < snapshot.getOutEnd(node); i++) {
+                    if (isLongConnection(snapshot, node, snapshot.getOutID(i) - 1, minLength)) {
+                        longConnectionNodes.add(node);
+                        break;
                     }
-                    latch.countDown();
                 }
             }
+            return longConnectionNodes.toArray();
+        }
+
+        private static boolean isLongConnection(RoadMapSnapshot snapshot, int start, int end, double minLength) {
+            if (end < 0 || end >= snapshot.getNodeCount()) return false;
+            double diffX = snapshot.getX(end) - snapshot.getX(start);
+            double diffZ = snapshot.getZ(end) - snapshot.getZ(start);
+            return diffX * diffX + diffZ * diffZ > minLength * minLength;
+        }
+
+        //
+        // Adds the lines between the connected cells of the simplified network that cross the screen
+        //
+
+        private void addSimplifiedLinks(RenderScheduler.View view) {
+            int width = view.getWidth();
+            int height = view.getHeight();
+            NetworkLevelOfDetail.Level level = NetworkLevelOfDetail.getLevel(view);
+            if (level == null) return;
+            Point2D origin = view.worldPosToScreenPos(0, 0);
+            double scale = view.getZoomLevel() / view.getMapZoomFactor();
+
+            for (int link = 0; link < level.getLinkCount(); link++) {
+                int start = level.getLinkStart(link);
+                int end = level.getLinkEnd(link);
+                double startX = origin.getX() + level.getCellX(start) * scale;
+                double startY = origin.getY() + level.getCellZ(start) * scale;
+                double endX = origin.getX() + level.getCellX(end) * scale;
+                double endY = origin.getY() + level.getCellZ(end) * scale;
+                if (Math.max(startX, endX) < 0 || Math.min(startX, endX) > width || Math.max(startY, endY) < 0 || Math.min(startY, endY) > height) continue;
+                addToDrawList(level.getLinkType(link), startX, startY, endX, endY);
+            }
+        }
+
+        private void addToDrawList(int connectionType, Point2D startPos, Point2D targetPos) {
+            addToDrawList(connectionType, startPos.getX(), startPos.getY(), targetPos.getX(), targetPos.getY());
+        }
+
+        private void addToDrawList(int connectionType, double startX, double startY, double targetX, double targetY) {
+            switch (connectionType) {
+                case RoadMap.CONNECTION_TYPE_DUAL_SUBPRIO:
+                    dualSubprioConnections.addConnection(startX, startY, targetX, targetY, true);
+                    break;
+                case RoadMap.CONNECTION_TYPE_DUAL:
+                    dualConnections.addConnection(startX, startY, targetX, targetY, true);
+                    break;
+                case RoadMap.CONNECTION_TYPE_REVERSE_SUBPRIO:
+                    reverseSubprioConnections.addConnection(startX, startY, targetX, targetY, false);
+                    break;
+                case RoadMap.CONNECTION_TYPE_REVERSE:
+                    reverseConnections.addConnection(startX, startY, targetX, targetY, false);
+                    break;
+                case RoadMap.CONNECTION_TYPE_SUBPRIO:
+                    subprioConnections.addConnection(startX, startY, targetX, targetY, false);
+                    break;
+                default:
+                    regularConnections.addConnection(startX, startY, targetX, targetY, false);
+                    break;
+            }
         }
     }
 
     // Draw the snap grid
 
-    public synchronized void drawGrid() {
+    public static void drawGrid(Graphics2D g, RenderScheduler.View view) {
 
-        int worldMax = 1024 * mapZoomFactor;
-        Point2D panelWorldTopLeft = screenPosToWorldPos(0,0);
-        Point2D panelWorldBottomRight = screenPosToWorldPos(MapPanel.getMapPanel().getWidth(),MapPanel.getMapPanel().getHeight());
+        int worldMax = 1024 * view.getMapZoomFactor();
+        Point2D panelWorldTopLeft = view.screenPosToWorldPos(0,0);
+        Point2D panelWorldBottomRight = view.screenPosToWorldPos(view.getWidth(), view.getHeight());
 
-        if (zoomLevel > 2 ) {
+        if (view.getZoomLevel() > 2 ) {
             Color colour = new Color(25,25,25);
-            backBufferGraphics.setPaint(colour);
+            g.setPaint(colour);
             for (double worldX = 0; worldX < worldMax; worldX += gridSpacingX) {
                 if ( worldX < panelWorldBottomRight.getX()) {
-                    Point2D worldStart = worldPosToScreenPos(worldX, panelWorldTopLeft.getY());
-                    Point2D worldEnd = worldPosToScreenPos(worldX, panelWorldBottomRight.getY());
-                    backBufferGraphics.drawLine((int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
+                    Point2D worldStart = view.worldPosToScreenPos(worldX, panelWorldTopLeft.getY());
+                    Point2D worldEnd = view.worldPosToScreenPos(worldX, panelWorldBottomRight.getY());
+                    g.drawLine((int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
                 }
                 if ( -worldX > panelWorldTopLeft.getX()) {
-                    Point2D worldStart = worldPosToScreenPos(-worldX, panelWorldTopLeft.getY());
-                    Point2D worldEnd = worldPosToScreenPos(-worldX, panelWorldBottomRight.getY());
-                    backBufferGraphics.drawLine( (int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
+                    Point2D worldStart = view.worldPosToScreenPos(-worldX, panelWorldTopLeft.getY());
+                    Point2D worldEnd = view.worldPosToScreenPos(-worldX, panelWorldBottomRight.getY());
+                    g.drawLine( (int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
                 }
             }
             for (double worldY = 0; worldY < worldMax; worldY += gridSpacingY) {
                 if ( worldY > panelWorldTopLeft.getY() && worldY < panelWorldBottomRight.getY() ) {
-                    Point2D worldStart = worldPosToScreenPos(panelWorldTopLeft.getX(), worldY);
-                    Point2D worldEnd = worldPosToScreenPos(panelWorldBottomRight.getX(), worldY);
-                    backBufferGraphics.drawLine((int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
+                    Point2D worldStart = view.worldPosToScreenPos(panelWorldTopLeft.getX(), worldY);
+                    Point2D worldEnd = view.worldPosToScreenPos(panelWorldBottomRight.getX(), worldY);
+                    g.drawLine((int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
                 }
                 if (-worldY < panelWorldBottomRight.getY()) {
-                    Point2D worldStart = worldPosToScreenPos(panelWorldTopLeft.getX(), -worldY);
-                    Point2D worldEnd = worldPosToScreenPos(panelWorldBottomRight.getX(), -worldY);
-                    backBufferGraphics.drawLine( (int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
+                    Point2D worldStart = view.worldPosToScreenPos(panelWorldTopLeft.getX(), -worldY);
+                    Point2D worldEnd = view.worldPosToScreenPos(panelWorldBottomRight.getX(), -worldY);
+                    g.drawLine( (int) worldStart.getX(), (int) worldStart.getY(), (int) worldEnd.getX(), (int) worldEnd.getY());
                 }
             }
         }
     }
 
+    //
+    // Only the overlay ( hover highlights, button previews and the selection rectangle ) is drawn every
+    // frame, it goes on top of a copy of the network layer. The network layer ( map image, grid,
+    // connections and nodes ) is drawn by the render scheduler off the EDT, a new frame of it is asked
+    // for when it has been invalidated, the map has been moved or zoomed, or the road map has changed
+    // since it was last drawn. Until the new frame is ready the last one is shown, lined up with the
+    // current view.
+    //
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -643,29 +693,144 @@ public class MapPanel extends JPanel {
         }
 
         if (image != null) {
-            backBufferGraphics.clipRect(0, 0, this.getWidth(), this.getHeight());
-            backBufferGraphics.drawImage(croppedImage, 0, 0, this.getWidth(), this.getHeight(), null);
-
-            if (bShowGrid) drawGrid();
+            RenderScheduler.View view = new RenderScheduler.View(image, x, y, zoomLevel, mapZoomFactor, this.getWidth(), this.getHeight(),
+                    offsetX, offsetY, widthScaled, heightScaled, getModificationCount());
+            if (!RenderScheduler.isShowing(view)) {
+                RenderScheduler.requestFrame(view);
+            }
 
             if (roadMap != null) {
-                latch = new CountDownLatch(2);
+                RenderScheduler.drawLayer(backBufferGraphics, view, this.getBackground());
+                drawOverlay(backBufferGraphics);
+                g.drawImage(backBufferImage, 0, 0, null);
+            }
+        }
+    }
 
-                connectionDrawThread.interrupt();
-                nodeDrawThread.interrupt();
+    //
+    // Called by the render scheduler to draw a frame of the network layer, the nodes and connections are
+    // drawn in parallel. Returns once the frame is drawn, or as soon as the view it is for is out of date.
+    //
 
-                try {
-                    latch.await();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+    public static void drawNetworkLayer(Graphics2D g, RenderScheduler.View view) throws InterruptedException, ExecutionException {
+        g.setClip(0, 0, view.getWidth(), view.getHeight());
+        MapImageTiles.drawVisibleTiles(g, view.getMapImage(), view.getOffsetX(), view.getOffsetY(), view.getWidthScaled(), view.getHeightScaled(), view.getWidth(), view.getHeight());
+
+        if (bShowGrid) drawGrid(g, view);
+
+        if (view.getSnapshot() != null && !RenderScheduler.isCancelled(view)) {
+            Future<?> connections = RenderScheduler.submitDraw(() -> connectionDrawer.draw(g, view));
+            nodeDrawer.draw(g, view);
+            connections.get();
+        }
+    }
+
+    private void drawOverlay(Graphics2D g) {
+
+        double nodeSizeScaled = nodeSize * zoomLevel;
+        double nodeSizeScaledHalf = nodeSizeScaled * 0.5;
+        double nodeSizeScaledQuarter = nodeSizeScaled * 0.25;
+
+        // draw the node hover-over image and the hovered node's information
+
+        if (hoveredNode != null) {
+            ArrayList<TextDisplayStore> textList = new ArrayList<>();
+            Point2D hoverNodePos = worldPosToScreenPos(hoveredNode.x, hoveredNode.z);
+            if (!hoveredNode.isControlNode()) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setColor(Color.WHITE);
+                g2.setStroke(new BasicStroke((float) (nodeSizeScaledHalf / 5)));
+                g2.drawArc((int) (hoverNodePos.getX() - (nodeSizeScaledHalf / 2)), (int) (hoverNodePos.getY() - (nodeSizeScaledHalf / 2)), (int) nodeSizeScaledHalf, (int) nodeSizeScaledHalf, 0, 360);
+                g2.dispose();
+            }
+
+            // drawn over the marker name already in the network layer
+
+            if (hoveredNode.hasMapMarker() && hoveredNode.getMarkerName() != null) {
+                Point2D nodeScreenPos = worldPosToScreenPos(hoveredNode.x - 1, hoveredNode.z - 1);
+                textList.add(new TextDisplayStore(hoveredNode.getMarkerName() + " ( " + hoveredNode.getMarkerGroup() + " )", nodeScreenPos, Color.WHITE, false));
+            }
+
+            if (bDebugShowSelectedLocation) {
+                String nodeInfo;
+                if (!bDebugShowID) {
+                    nodeInfo = "ID = " + hoveredNode.id + " >> ";
+                } else {
+                    nodeInfo = " ";
                 }
+                nodeInfo += "X = " + hoveredNode.x + ", Y = " + hoveredNode.y + ", Z = " + hoveredNode.z + ", Flag = " + hoveredNode.flag + ", In = " + hoveredNode.incoming.size() + ", Out = " + hoveredNode.outgoing.size();
+                if (hoveredNode.hasWarning) nodeInfo +=" , " + (hoveredNode.warningNodes.size() + 1) + " Overlapping Nodes";
+                Point2D nodePosMarker = worldPosToScreenPos(hoveredNode.x + 1, hoveredNode.z);
+                textList.add( new TextDisplayStore( nodeInfo, nodePosMarker, Color.WHITE, false));
+            }
+            if (hoveredNode.hasWarning && !bDebugShowSelectedLocation ) {
+                String text = (hoveredNode.warningNodes.size() + 1) + " Nodes Overlapping";
+                Point2D nodePosMarker = worldPosToScreenPos(hoveredNode.x + 1, hoveredNode.z);
+                textList.add( new TextDisplayStore( text, nodePosMarker, Color.WHITE, true));
 
-                g.drawImage(backBufferImage, 0, 0, null);
             }
+
+            if (hoveredNode.y == -1 ) {
+                String text = "Node Y is invalid ( -1 )";
+                Point2D nodePosMarker = worldPosToScreenPos(hoveredNode.x + 1, hoveredNode.z);
+                textList.add( new TextDisplayStore( text, nodePosMarker, Color.WHITE, true));
+            }
+
+            drawTextList(g, g.getFontMetrics(), textList);
+        }
+
+        // Draw anything the buttons need
+
+        buttonManager.draw(g, drawLock, nodeSizeScaledQuarter, nodeSizeScaledHalf);
+
+        // draw the right button selection rectangle
+
+        if (isMultiSelectDragging) {
+            Point2D mousePos = new Point2D.Float(prevMousePosX,prevMousePosY);
+            Point2D rectWorldStart = worldPosToScreenPos(rectangleStart.getX(), rectangleStart.getY());
+            int diffX = (int) (mousePos.getX() - rectWorldStart.getX());
+            int diffY = (int) (mousePos.getY() - rectWorldStart.getY());
+            int rectangleX = (int) rectWorldStart.getX();
+            int rectangleY = (int) rectWorldStart.getY();
+            if (diffX < 0) {
+                rectangleX += diffX;
+                diffX = -diffX;
+            }
+            if (diffY < 0) {
+                rectangleY += diffY;
+                diffY = -diffY;
+            }
+
+            Graphics2D gTemp = (Graphics2D) g.create();
+            BasicStroke bsDash = new BasicStroke(1, BasicStroke.CAP_BUTT,
+                    BasicStroke.JOIN_ROUND, 1.0f, new float[]{4f, 0f, 2f}, 2f);
+            gTemp.setStroke(bsDash);
+            gTemp.setColor(Color.WHITE);
+            gTemp.drawRect(rectangleX, rectangleY, diffX, diffY);
+            gTemp.dispose();
         }
     }
 
-    private void getResizedMap() throws RasterFormatException {
+    //
+    // Any repaint of the map panel redraws the network layer, as something in it may have changed,
+    // use repaintOverlay() when only the overlay has changed.
+    //
+
+    @Override
+    public void repaint() {
+        invalidateNetworkLayer();
+        super.repaint();
+    }
+
+    public void repaintOverlay() {
+        super.repaint();
+    }
+
+    public static void invalidateNetworkLayer() {
+        RenderScheduler.invalidate();
+    }
+
+    private void getResizedMap() {
         if (image != null) {
             widthScaled = (int) (this.getWidth() / zoomLevel);
             heightScaled = (int) (this.getHeight() / zoomLevel);
@@ -717,20 +882,6 @@ public class MapPanel extends JPanel {
             offsetY = Math.max(1, offsetY);
             widthScaled = Math.max(1, widthScaled);
             heightScaled = Math.max(1, heightScaled);
-
-            if (offsetX != oldOffsetX || offsetY != oldOffsetY || widthScaled != oldWidthScaled || heightScaled != oldHeightScaled) {
-                try {
-                    croppedImage = image.getSubimage(offsetX, offsetY, widthScaled, heightScaled);
-                    oldOffsetX = offsetX;
-                    oldOffsetY = offsetY;
-                    oldWidthScaled = widthScaled;
-                    oldHeightScaled = heightScaled;
-                } catch (Exception e) {
-                    LOG.info("## MapPanel.ResizeMap() ## Exception in getSubImage()");
-                    LOG.info("## MapPanel.ResizeMap() ## x = {} , y = {} , offsetX = {} , offsetY = {}  -- width = {} , height = {} , zoomLevel = {} , widthScaled = {} , heightScaled = {}", x, y, offsetX, offsetY, this.getWidth(), this.getHeight(), zoomLevel, widthScaled, heightScaled);
-                    e.printStackTrace();
-                }
-            }
         }
     }
 
@@ -742,7 +893,8 @@ public class MapPanel extends JPanel {
         y -= diffY / (zoomLevel * image.getHeight());
 
         getResizedMap();
-        this.repaint();
+        // the view has moved, so the next paint asks for a new frame without the layer being invalidated
+        this.repaintOverlay();
     }
 
     public void increaseZoomLevelBy(int rotations) {
@@ -768,10 +920,57 @@ public class MapPanel extends JPanel {
             zoomLevel = limitDoubleToDecimalPlaces(zoomLevel - rotations, 1, RoundingMode.UP);
             if (bDebugLogZoomScale) LOG.info("## after ## zoomLevel = {}", zoomLevel);
             getResizedMap();
-            this.repaint();
+            this.repaintOverlay();
         }
     }
 
+    //
+    // Adds the snapshot index of every node that is visible in the view to the visibleNodes list, the
+    // visible area is extended by screenMargin pixels on all sides.
+    //
+
+    private static void getVisibleNodes(RenderScheduler.View view, double screenMargin, NodeIndexList visibleNodes) {
+        RoadMapSnapshot snapshot = view.getSnapshot();
+        int width = view.getWidth();
+        int height = view.getHeight();
+
+        // pad the world area by a pixel to allow for the rounding in screenPosToWorldPos()
+
+        double worldPadding = (double) view.getMapZoomFactor() / view.getZoomLevel();
+        Point2D worldTopLeft = view.screenPosToWorldPos((int) -screenMargin, (int) -screenMargin);
+        Point2D worldBottomRight = view.screenPosToWorldPos((int) (width + screenMargin), (int) (height + screenMargin));
+
+        snapshot.getNodesInArea(worldTopLeft.getX() - worldPadding, worldTopLeft.getY() - worldPadding, worldBottomRight.getX() + worldPadding, worldBottomRight.getY() + worldPadding, node -> {
+            if (isOnScreen(view.worldPosToScreenPos(snapshot.getX(node), snapshot.getZ(node)), width, height, screenMargin)) {
+                visibleNodes.add(node);
+            }
+        });
+    }
+
+    // a growable list of snapshot node indexes, reused from frame to frame by the drawers
+
+    private static class NodeIndexList {
+        private int[] indexes = new int[256];
+        private int size;
+
+        private void add(int index) {
+            if (size == indexes.length) indexes = Arrays.copyOf(indexes, size * 2);
+            indexes[size++] = index;
+        }
+
+        private int get(int i) { return indexes[i]; }
+
+        private int size() { return size; }
+
+        private void clear() { size = 0; }
+
+        private int[] toArray() { return Arrays.copyOf(indexes, size); }
+    }
+
+    private static boolean isOnScreen(Point2D screenPos, int width, int height, double screenMargin) {
+        return 0 - screenMargin < screenPos.getX() && width + screenMargin > screenPos.getX() && 0 - screenMargin < screenPos.getY() && height + screenMargin > screenPos.getY();
+    }
+
     public static MapNode getNodeAt(double screenPosX, double screenPosY) {
 
         MapNode selected = null;
@@ -782,16 +981,25 @@ public class MapPanel extends JPanel {
             double currentNodeSize = nodeSize * zoomLevel * 0.5;
             int nodeSizeScaledHalf = (int) (currentNodeSize * 0.5);
 
-            // make sure we prioritize returning control nodes over regular nodes
+            // only check the nodes the spatial index finds near the cursor, the search area
+            // is padded by one screen pixel to allow for the rounding in screenPosToWorldPos()
 
-            for (MapNode mapNode : RoadMap.mapNodes) {
+            Point2D worldPos = screenPosToWorldPos((int) screenPosX, (int) screenPosY);
+            double worldSearchHalf = ((nodeSizeScaledHalf + 1) * mapZoomFactor) / zoomLevel;
+            ArrayList<MapNode> nearbyNodes = new ArrayList<>();
+            RoadMap.getNodesInArea(worldPos.getX() - worldSearchHalf, worldPos.getY() - worldSearchHalf, worldPos.getX() + worldSearchHalf, worldPos.getY() + worldSearchHalf, nearbyNodes);
+
+            for (MapNode mapNode : nearbyNodes) {
+                // when nodes overlap, return the lowest ID to match the order of the road map
+                if (selected != null && mapNode.id > selected.id) continue;
                 outPos = worldPosToScreenPos(mapNode.x, mapNode.z);
                 if (screenPosX < outPos.getX() + nodeSizeScaledHalf && screenPosX > outPos.getX() - nodeSizeScaledHalf && screenPosY < outPos.getY() + nodeSizeScaledHalf && screenPosY > outPos.getY() - nodeSizeScaledHalf) {
                     selected = mapNode;
-                    break;
                 }
             }
 
+            // make sure we prioritize returning control nodes over regular nodes
+
             if (quadCurve != null && isQuadCurveCreated) {
                 outPos = worldPosToScreenPos(quadCurve.getControlPoint().x, quadCurve.getControlPoint().z);
                 if (screenPosX < outPos.getX() + nodeSizeScaledHalf && screenPosX > outPos.getX() - nodeSizeScaledHalf && screenPosY < outPos.getY() + nodeSizeScaledHalf && screenPosY > outPos.getY() - nodeSizeScaledHalf) {
@@ -888,23 +1096,15 @@ public class MapPanel extends JPanel {
             start.outgoing.add(target);
 
             if (type == CONNECTION_STANDARD) {
-                if (!target.incoming.contains(start)) {
-                    target.incoming.add(start);
-                }
+                target.incoming.addIfAbsent(start);
             } else if (type == CONNECTION_REVERSE) {
                 start.incoming.remove(target);
                 target.incoming.remove(start);
                 target.outgoing.remove(start);
             } else if (type == CONNECTION_DUAL) {
-                if (!target.incoming.contains(start)) {
-                    target.incoming.add(start);
-                }
-                if (!target.outgoing.contains(start)) {
-                    target.outgoing.add(start);
-                }
-                if (!start.incoming.contains(target)) {
-                    start.incoming.add(target);
-                }
+                target.incoming.addIfAbsent(start);
+                target.outgoing.addIfAbsent(start);
+                start.incoming.addIfAbsent(target);
             }
         } else {
             if (type == CONNECTION_STANDARD) {
@@ -923,186 +1123,54 @@ public class MapPanel extends JPanel {
                 target.outgoing.remove(start);
             }
         }
+        RoadMap.invalidateConnectionTypes(start);
+        RoadMap.invalidateConnectionTypes(target);
     }
 
     public void removeDeleteListNodes() {
-        canAutoSave = false;
+        suspendAutoSave();
 
+        ArrayList<MapNode> nodesToRemove = new ArrayList<>(deleteNodeList.size());
         for (NodeLinks nodeLinks : deleteNodeList) {
-            MapNode inList = nodeLinks.node;
-            RoadMap.removeMapNode(inList);
+            nodesToRemove.add(nodeLinks.node);
         }
+        RoadMap.removeMapNodes(nodesToRemove);
+        updateOverlapWarnings(nodesToRemove);
 
-        canAutoSave = true;
+        resumeAutoSave();
 
         setStale(true);
         hoveredNode = null;
         getMapPanel().repaint();
     }
 
-    public static void  batchDrawArrowBetween(Graphics g, Color colour, ArrayList<ConnectionDrawThread.DrawList> nodeList) {
-        if (nodeList.size() >0 ) {
-            final double[] startX = new double[1];
-            final double[] startY = new double[1];
-            final double[] targetX = new double[1];
-            final double[] targetY = new double[1];
-            final double relativeNodeSize = nodeSize * zoomLevel;
-
-            g.setColor(colour);
-
-            nodeList.forEach(mapNode -> {
-                startX[0] = mapNode.startPos.getX();
-                startY[0] = mapNode.startPos.getY();
-                targetX[0] = mapNode.endPos.getX();
-                targetY[0] = mapNode.endPos.getY();
-
-                double vecX = startX[0] - targetX[0];
-                double vecY = startY[0] - targetY[0];
-
-                double angleRad = Math.atan2(vecY, vecX);
-
-                //angleRad = normalizeAngle(angleRad);
-
-                // calculate where to start the line based around the circumference of the node
-
-                double distCos = (relativeNodeSize * 0.25) * Math.cos(angleRad);
-                double distSin = (relativeNodeSize * 0.25) * Math.sin(angleRad);
-
-                double lineStartX = startX[0] - distCos;
-                double lineStartY = startY[0] - distSin;
-
-                // calculate where to finish the line based around the circumference of the node
-                double lineEndX = targetX[0] + distCos;
-                double lineEndY = targetY[0] + distSin;
-
-                g.drawLine((int) lineStartX, (int) lineStartY, (int) lineEndX, (int) lineEndY);
-
-                // olny drawToScreen the arms of the arrow if the zoom level is high enough to be seen
-
-                if (zoomLevel > 2.5) {
-                    double arrowLength = relativeNodeSize * 0.70;
-
-                    double arrowLeft = normalizeAngle(angleRad + Math.toRadians(-20));
-                    double arrowLeftX = targetX[0] + Math.cos(arrowLeft) * arrowLength;
-                    double arrowLeftY = targetY[0] + Math.sin(arrowLeft) * arrowLength;
-
-                    double arrowRight = normalizeAngle(angleRad + Math.toRadians(20));
-                    double arrowRightX = targetX[0] + Math.cos(arrowRight) * arrowLength;
-                    double arrowRightY = targetY[0] + Math.sin(arrowRight) * arrowLength;
-
-
-                    if (bFilledArrows) {
-                        Polygon p = new Polygon();
-                        p.addPoint((int) lineEndX, (int) lineEndY);
-                        p.addPoint((int) arrowLeftX, (int) arrowLeftY);
-                        p.addPoint((int) arrowRightX, (int) arrowRightY);
-                        g.fillPolygon(p);
-                    } else {
-                        g.drawLine((int) lineEndX, (int) lineEndY, (int) arrowLeftX, (int) arrowLeftY);
-                        g.drawLine((int) lineEndX, (int) lineEndY, (int) arrowRightX, (int) arrowRightY);
-                    }
-
-                    if (mapNode.isDual) {
-                        angleRad = normalizeAngle(angleRad+Math.PI);
-
-                        arrowLeft = normalizeAngle(angleRad + Math.toRadians(-20));
-                        arrowRight = normalizeAngle(angleRad + Math.toRadians(20));
+    //
+    // The connection previews of the curve and line buttons go through a ConnectionDrawBuffer the same
+    // as the road network, queueArrowBetween() collects the arrows of one colour and they are drawn
+    // in one go when the colour changes or drawQueuedArrows() is called. Only used on the EDT.
+    //
 
-                        arrowLeftX = startX[0] + Math.cos(arrowLeft) * arrowLength;
-                        arrowLeftY = startY[0] + Math.sin(arrowLeft) * arrowLength;
-                        arrowRightX = startX[0] + Math.cos(arrowRight) * arrowLength;
-                        arrowRightY = startY[0] + Math.sin(arrowRight) * arrowLength;
+    private static final ConnectionDrawBuffer previewArrows = new ConnectionDrawBuffer();
+    private static Color previewArrowColour = null;
 
-                        if (bFilledArrows) {
-                            Polygon p = new Polygon();
-                            p.addPoint((int) lineStartX, (int) lineStartY);
-                            p.addPoint((int) arrowLeftX, (int) arrowLeftY);
-                            p.addPoint((int) arrowRightX, (int) arrowRightY);
-                            g.fillPolygon(p);
-                        } else {
-                            g.drawLine((int) lineStartX, (int) lineStartY, (int) arrowLeftX, (int) arrowLeftY);
-                            g.drawLine((int) lineStartX, (int) lineStartY, (int) arrowRightX, (int) arrowRightY);
-                        }
-                    }
-                }
-            });
+    public static void queueArrowBetween(Graphics2D g, Point2D start, Point2D target, boolean dual, Color colour) {
+        if (previewArrowColour != null && !previewArrowColour.equals(colour)) drawQueuedArrows(g);
+        if (previewArrowColour == null) {
+            previewArrows.reset(nodeSize * zoomLevel, zoomLevel > 2.5, bFilledArrows);
+            previewArrowColour = colour;
         }
+        previewArrows.addConnection(start.getX(), start.getY(), target.getX(), target.getY(), dual);
     }
 
-    public static void drawArrowBetween(Graphics g, Point2D start, Point2D target, boolean dual) {
-
-        double startX = start.getX();
-        double startY = start.getY();
-        double targetX = target.getX();
-        double targetY = target.getY();
-
-
-        double vecX = startX - targetX;
-        double vecY = startY - targetY;
-
-        double angleRad = Math.atan2(vecY, vecX);
-
-        angleRad = normalizeAngle(angleRad);
-
-        // calculate where to start the line based around the circumference of the node
-
-        double distCos = ((nodeSize * zoomLevel) * 0.25) * Math.cos(angleRad);
-        double distSin = ((nodeSize * zoomLevel) * 0.25) * Math.sin(angleRad);
-
-        double lineStartX = startX - distCos;
-        double lineStartY = startY - distSin;
-
-        // calculate where to finish the line based around the circumference of the node
-        double lineEndX = targetX + distCos;
-        double lineEndY = targetY + distSin;
-
-        g.drawLine((int) lineStartX, (int) lineStartY, (int) lineEndX, (int) lineEndY);
-
-        if (zoomLevel > 2.5) {
-            double arrowLength = (nodeSize * zoomLevel) * 0.70;
-
-            double arrowLeft = normalizeAngle(angleRad + Math.toRadians(-20));
-            double arrowLeftX = targetX + Math.cos(arrowLeft) * arrowLength;
-            double arrowLeftY = targetY + Math.sin(arrowLeft) * arrowLength;
-
-            double arrowRight = normalizeAngle(angleRad + Math.toRadians(20));
-            double arrowRightX = targetX + Math.cos(arrowRight) * arrowLength;
-            double arrowRightY = targetY + Math.sin(arrowRight) * arrowLength;
-
-            if (bFilledArrows) {
-                Polygon p = new Polygon();
-                p.addPoint((int) lineEndX, (int) lineEndY);
-                p.addPoint((int) arrowLeftX, (int) arrowLeftY);
-                p.addPoint((int) arrowRightX, (int) arrowRightY);
-                g.fillPolygon(p);
-            } else {
-                g.drawLine((int) lineEndX, (int) lineEndY, (int) arrowLeftX, (int) arrowLeftY);
-                g.drawLine((int) lineEndX, (int) lineEndY, (int) arrowRightX, (int) arrowRightY);
-            }
-
-            if (dual) {
-                angleRad = normalizeAngle(angleRad+Math.PI);
-
-                arrowLeft = normalizeAngle(angleRad + Math.toRadians(-20));
-                arrowRight = normalizeAngle(angleRad + Math.toRadians(20));
-
-                arrowLeftX = start.getX() + Math.cos(arrowLeft) * arrowLength;
-                arrowLeftY = start.getY() + Math.sin(arrowLeft) * arrowLength;
-                arrowRightX = start.getX() + Math.cos(arrowRight) * arrowLength;
-                arrowRightY = start.getY() + Math.sin(arrowRight) * arrowLength;
+    public static void drawQueuedArrows(Graphics2D g) {
+        if (previewArrowColour == null) return;
+        previewArrows.draw(g, previewArrowColour);
+        previewArrowColour = null;
+    }
 
-                if (bFilledArrows) {
-                    Polygon p = new Polygon();
-                    p.addPoint((int) lineStartX, (int) lineStartY);
-                    p.addPoint((int) arrowLeftX, (int) arrowLeftY);
-                    p.addPoint((int) arrowRightX, (int) arrowRightY);
-                    g.fillPolygon(p);
-                } else {
-                    g.drawLine((int) lineStartX, (int) lineStartY, (int) arrowLeftX, (int) arrowLeftY);
-                    g.drawLine((int) lineStartX, (int) lineStartY, (int) arrowRightX, (int) arrowRightY);
-                }
-            }
-        }
+    public static void drawArrowBetween(Graphics2D g, Point2D start, Point2D target, boolean dual) {
+        queueArrowBetween(g, start, target, dual, g.getColor());
+        drawQueuedArrows(g);
     }
 
     //
@@ -1140,7 +1208,7 @@ public class MapPanel extends JPanel {
             MapNode cursorPosNode = getNodeAt(mousePosX, mousePosY);
             if (cursorPosNode != hoveredNode) {
                 hoveredNode = cursorPosNode;
-                this.repaint();
+                this.repaintOverlay();
             }
         }
     }
@@ -1203,34 +1271,62 @@ public class MapPanel extends JPanel {
     public void mouseButton3Released(int ignoredMousePosX, int ignoredMousePosY) {}
 
     public static void addToDeleteList(MapNode node) {
-        LinkedList<MapNode> otherNodesInLinks = new LinkedList<>();
-        LinkedList<MapNode> otherNodesOutLinks = new LinkedList<>();
-
-        LinkedList<MapNode> roadmapNodes = RoadMap.mapNodes;
-        for (MapNode mapNode : roadmapNodes) {
-            if (mapNode != node) {
-                if (mapNode.outgoing.contains(node)) {
-                    otherNodesOutLinks.add(mapNode);
-                }
-                if (mapNode.incoming.contains(node)) {
-                    otherNodesInLinks.add(mapNode);
-                }
+        addToDeleteList(Collections.singletonList(node));
+    }
+
+    //
+    // Finds the nodes linked to each of the nodes about to be deleted in a single pass over the road
+    // map, a reverse connection coming into a node isn't in the node's own lists, so the other nodes
+    // have to be checked to find them all. The links are kept for DeleteNodeChanger to put back
+    //
+
+    public static void addToDeleteList(Collection<MapNode> nodes) {
+        IdentityHashMap<MapNode, Integer> deleteIndexes = new IdentityHashMap<>();
+        ArrayList<LinkedList<MapNode>> otherNodesInLinks = new ArrayList<>();
+        ArrayList<LinkedList<MapNode>> otherNodesOutLinks = new ArrayList<>();
+        ArrayList<MapNode> nodesToDelete = new ArrayList<>();
+        for (MapNode node : nodes) {
+            if (deleteIndexes.putIfAbsent(node, nodesToDelete.size()) == null) {
+                nodesToDelete.add(node);
+                otherNodesInLinks.add(new LinkedList<>());
+                otherNodesOutLinks.add(new LinkedList<>());
             }
+        }
 
+        for (MapNode mapNode : RoadMap.mapNodes) {
+            for (int i = 0; i < mapNode.outgoing.size(); i++) {
+                Integer index = deleteIndexes.get(mapNode.outgoing.get(i));
+                if (index != null && nodesToDelete.get(index) != mapNode) otherNodesOutLinks.get(index).add(mapNode);
+            }
+            for (int i = 0; i < mapNode.incoming.size(); i++) {
+                Integer index = deleteIndexes.get(mapNode.incoming.get(i));
+                if (index != null && nodesToDelete.get(index) != mapNode) otherNodesInLinks.get(index).add(mapNode);
+            }
+        }
+
+        for (int i = 0; i < nodesToDelete.size(); i++) {
+            deleteNodeList.add(new NodeLinks(nodesToDelete.get(i), otherNodesInLinks.get(i), otherNodesOutLinks.get(i)));
         }
-        deleteNodeList.add(new NodeLinks(node, otherNodesInLinks, otherNodesOutLinks));
     }
 
     public static void fixNodeHeight() {
         if (roadMap != null) {
             int result = JOptionPane.showConfirmDialog(editor, getLocaleString("dialog_fix_node_height"), "AutoDrive Editor", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
             if (result == JOptionPane.OK_OPTION) {
+                ArrayList<MapNode> fixedNodes = new ArrayList<>();
                 for (MapNode node : RoadMap.mapNodes) {
                     double heightMapY = getYValueFromHeightMap(node.x, node.z);
                     if (node.y == -1) {
                         node.y = heightMapY;
+                        fixedNodes.add(node);
                     }
                 }
+                // this can't be undone, so it's marked as a change directly
+                if (!fixedNodes.isEmpty()) {
+                    ChangeManager.markModified(fixedNodes);
+                    setStale(true);
+                    getMapPanel().repaint();
+                }
             } else {
                 LOG.info("Cancelled node fix");
             }
@@ -1363,12 +1459,15 @@ public class MapPanel extends JPanel {
        return stale;
    }
 
+   public static int getStaleGeneration() {
+       return staleGeneration;
+   }
+
     public static MapPanel getMapPanel() {
         return mapPanel;
     }
 
     public static void forceMapImageRedraw() {
-        mapPanel.oldWidthScaled = 0;
         MapPanel.getMapPanel().getResizedMap();
         MapPanel.getMapPanel().moveMapBy(0,1); // hacky way to get map image to refresh
         mapPanel.repaint();
@@ -1391,6 +1490,7 @@ public class MapPanel extends JPanel {
     //
 
     public static void setStale(boolean newStaleState) {
+        if (newStaleState) staleGeneration++;
         if (isStale() != newStaleState) {
             stale = newStaleState;
             editor.setTitle(createTitle());
@@ -1402,6 +1502,53 @@ public class MapPanel extends JPanel {
         }
     }
 
+    //
+    // Edits to the road network are wrapped in suspendAutoSave() / resumeAutoSave() so anything reading
+    // the road map from outside the EDT can wait for a consistent view of it instead of polling.
+    //
+
+    public static void suspendAutoSave() {
+        canAutoSave = false;
+    }
+
+    public static void resumeAutoSave() {
+        canAutoSave = true;
+        if (!runAfterEdit.isEmpty()) SwingUtilities.invokeLater(MapPanel::runQueuedAfterEdit);
+    }
+
+    private static void runQueuedAfterEdit() {
+        Runnable runnable;
+        while (canAutoSave && (runnable = runAfterEdit.poll()) != null) {
+            runnable.run();
+        }
+    }
+
+    //
+    // Runs the runnable on the EDT once no edit is in progress, it can be called from any thread
+    //
+
+    public static void runWhenNoEditInProgress(Runnable runnable) {
+        runAfterEdit.add(runnable);
+        SwingUtilities.invokeLater(MapPanel::runQueuedAfterEdit);
+    }
+
+    //
+    // Runs the supplier on the EDT once no edit is in progress and waits for the result, it must not
+    // be called from the EDT. Used by the autosave to capture the road map in between edits.
+    //
+
+    public static <T> T callWhenNoEditInProgress(Supplier<T> supplier) throws InterruptedException, ExecutionException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        runWhenNoEditInProgress(() -> {
+            try {
+                future.complete(supplier.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future.get();
+    }
+
     //
     //
     //
@@ -0,0 +1,287 @@
+package AutoDriveEditor.MapPanel;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogRenderInfo;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+import static AutoDriveEditor.XMLConfig.EditorXML.lodMetresPerPixel;
+
+//
+// A simplified copy of the road network for drawing the map when it is zoomed out too far to see
+// the individual nodes.
+//
+// The nodes are merged into square cells, each level has cells twice the size of the level below
+// it. A cell is drawn as a single point at the centre of its nodes, shaded by how many nodes it
+// holds, and the connections are replaced by one line between each pair of connected cells, so the
+// cost of drawing a level depends on the size of the screen rather than the size of the network.
+//
+// The levels are built from the road map snapshot of the view being drawn, the first time they are
+// needed after a new snapshot is captured ( when the road map changes or the network layer is
+// invalidated ), panning and zooming reuse them.
+//
+
+public class NetworkLevelOfDetail {
+
+    // the cell size of the most detailed level, in world units
+    private static final double BASE_CELL_SIZE = 2;
+    // the largest size a cell can be on screen, the level is picked to keep the cells no bigger
+    private static final double MAX_CELL_PIXELS = 3;
+    private static final int MAX_LEVELS = 16;
+
+    // the cell x/z of the most detailed level are offset to be positive and limited to 20 bits,
+    // which covers +/- 1000km, so the cell code fits in 40 bits and leaves room for a node index
+    private static final int CELL_BITS = 20;
+    private static final int CELL_OFFSET = 1 << (CELL_BITS - 1);
+    private static final int INDEX_BITS = 23;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private static RoadMapSnapshot levelsSnapshot;
+    private static Level[] levels;
+
+    //
+    // The cells of a level are kept in the order of their cell code, which interleaves the bits of
+    // the cell x and z ( a Morton or Z-order code ). Dropping the lowest two bits of a code gives the
+    // code of the cell that covers it in the level above, and all the cells it covers are next to
+    // each other in the list, so each level can be built from the one below without any lookups.
+    //
+
+    public static class Level {
+        private final double cellSize;
+        private int cellCount;
+        private long[] cellCode;
+        private double[] sumX;
+        private double[] sumZ;
+        private int[] nodeCount;
+        private int[] subprioCount;
+
+        // each link joins two cells with at least one connection between them, packed into a
+        // long as ( lower cell index, higher cell index, connection type ) so sorting them puts
+        // the duplicates next to each other
+        private int linkCount;
+        private long[] links;
+
+        private Level(double cellSize, int maxCells) {
+            this.cellSize = cellSize;
+            this.cellCode = new long[maxCells];
+            this.sumX = new double[maxCells];
+            this.sumZ = new double[maxCells];
+            this.nodeCount = new int[maxCells];
+            this.subprioCount = new int[maxCells];
+        }
+
+        public double getCellSize() { return this.cellSize; }
+
+        public int getCellCount() { return this.cellCount; }
+
+        public int getLinkCount() { return this.linkCount; }
+
+        public double getCellX(int cell) { return sumX[cell] / nodeCount[cell]; }
+
+        public double getCellZ(int cell) { return sumZ[cell] / nodeCount[cell]; }
+
+        public int getNodeCount(int cell) { return nodeCount[cell]; }
+
+        public boolean isMostlySubprio(int cell) { return subprioCount[cell] * 2 > nodeCount[cell]; }
+
+        public int getLinkStart(int link) { return (int) (links[link] >>> (INDEX_BITS + 3)); }
+
+        public int getLinkEnd(int link) { return (int) ((links[link] >>> 3) & INDEX_MASK); }
+
+        public int getLinkType(int link) { return (int) (links[link] & 7); }
+
+        // adds to the last cell if it has the same code, the cells must be added in code order
+
+        private int addToCell(long code, double worldX, double worldZ, int count, int subprio) {
+            if (cellCount == 0 || cellCode[cellCount - 1] != code) {
+                cellCode[cellCount++] = code;
+            }
+            int cell = cellCount - 1;
+            sumX[cell] += worldX;
+            sumZ[cell] += worldZ;
+            nodeCount[cell] += count;
+            subprioCount[cell] += subprio;
+            return cell;
+        }
+
+        private static long packLink(int startCell, int endCell, int type) {
+            return ((long) Math.min(startCell, endCell) << (INDEX_BITS + 3)) | ((long) Math.max(startCell, endCell) << 3) | (type & 7);
+        }
+
+        // keeps one link for each pair of cells, the one with the lowest connection type
+
+        private void setLinks(long[] packedLinks, int count) {
+            Arrays.sort(packedLinks, 0, count);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (kept == 0 || (packedLinks[i] >>> 3) != (packedLinks[kept - 1] >>> 3)) {
+                    packedLinks[kept++] = packedLinks[i];
+                }
+            }
+            links = Arrays.copyOf(packedLinks, kept);
+            linkCount = kept;
+        }
+
+        private void trim() {
+            cellCode = Arrays.copyOf(cellCode, cellCount);
+            sumX = Arrays.copyOf(sumX, cellCount);
+            sumZ = Arrays.copyOf(sumZ, cellCount);
+            nodeCount = Arrays.copyOf(nodeCount, cellCount);
+            subprioCount = Arrays.copyOf(subprioCount, cellCount);
+        }
+    }
+
+    //
+    // Returns true if the map is zoomed out far enough for the simplified network to be drawn
+    // instead of the individual nodes and connections.
+    //
+
+    public static boolean isActive(double zoomLevel, int mapZoomFactor) {
+        return lodMetresPerPixel > 0 && mapZoomFactor / zoomLevel > lodMetresPerPixel;
+    }
+
+    //
+    // Returns the level with the largest cells that are still no bigger than MAX_CELL_PIXELS on screen,
+    // building the levels first if the view has a different snapshot to the one they were built from.
+    //
+
+    public static synchronized Level getLevel(RenderScheduler.View view) {
+        RoadMapSnapshot snapshot = view.getSnapshot();
+        if (snapshot == null) return null;
+        if (levels == null || levelsSnapshot != snapshot) {
+            levels = buildLevels(snapshot);
+            levelsSnapshot = snapshot;
+        }
+        double maxCellSize = MAX_CELL_PIXELS * view.getMapZoomFactor() / view.getZoomLevel();
+        int level = 0;
+        while (level < levels.length - 1 && levels[level + 1].cellSize <= maxCellSize) {
+            level++;
+        }
+        return levels[level];
+    }
+
+    private static Level[] buildLevels(RoadMapSnapshot snapshot) {
+        long startTime = System.currentTimeMillis();
+        int totalNodes = Math.min(snapshot.getNodeCount(), (int) INDEX_MASK);
+
+        // sort the nodes by the code of their cell, with the node index in the low bits
+
+        long[] sortedNodes = new long[totalNodes];
+        for (int i = 0; i < totalNodes; i++) {
+            sortedNodes[i] = (getCellCode(snapshot.getX(i), snapshot.getZ(i)) << INDEX_BITS) | i;
+        }
+        Arrays.sort(sortedNodes);
+
+        ArrayList<Level> levelList = new ArrayList<>();
+        Level base = new Level(BASE_CELL_SIZE, totalNodes);
+        int[] nodeCell = new int[totalNodes];
+        for (long sortedNode : sortedNodes) {
+            int node = (int) (sortedNode & INDEX_MASK);
+            nodeCell[node] = base.addToCell(sortedNode >>> INDEX_BITS, snapshot.getX(node), snapshot.getZ(node), 1, (snapshot.getFlag(node) == MapNode.NODE_FLAG_STANDARD) ? 0 : 1);
+        }
+        base.trim();
+
+        // mapNodes is kept in ID order, so a node with ID n is at index n - 1
+
+        long[] packedLinks = new long[(totalNodes == 0) ? 0 : snapshot.getOutEnd(totalNodes - 1)];
+        int linkCount = 0;
+        for (int i = 0; i < totalNodes; i++) {
+            for (int j = snapshot.getOutStart(i); j < snapshot.getOutEnd(i); j++) {
+                int targetIndex = snapshot.getOutID(j) - 1;
+                if (targetIndex < 0 || targetIndex >= totalNodes) continue;
+                if (nodeCell[i] != nodeCell[targetIndex]) {
+                    packedLinks[linkCount++] = Level.packLink(nodeCell[i], nodeCell[targetIndex], snapshot.getOutType(j));
+                }
+            }
+        }
+        base.setLinks(packedLinks, linkCount);
+        levelList.add(base);
+
+        // every level above is made by merging each 2x2 block of cells of the level below
+
+        Level below = base;
+        while (below.cellCount > 1 && levelList.size() < MAX_LEVELS) {
+            Level level = new Level(below.cellSize * 2, below.cellCount);
+            int[] parentCell = new int[below.cellCount];
+            for (int cell = 0; cell < below.cellCount; cell++) {
+                parentCell[cell] = level.addToCell(below.cellCode[cell] >>> 2, below.sumX[cell], below.sumZ[cell], below.nodeCount[cell], below.subprioCount[cell]);
+            }
+            level.trim();
+            linkCount = 0;
+            for (int link = 0; link < below.linkCount; link++) {
+                int start = parentCell[below.getLinkStart(link)];
+                int end = parentCell[below.getLinkEnd(link)];
+                if (start != end) packedLinks[linkCount++] = Level.packLink(start, end, below.getLinkType(link));
+            }
+            level.setLinks(packedLinks, linkCount);
+            levelList.add(level);
+            below = level;
+        }
+
+        if (bDebugLogRenderInfo) LOG.info("Network level of detail built, {} levels from {} nodes in {}ms", levelList.size(), totalNodes, System.currentTimeMillis() - startTime);
+        return levelList.toArray(new Level[0]);
+    }
+
+    private static long getCellCode(double worldX, double worldZ) {
+        int cellX = Math.max(0, Math.min((1 << CELL_BITS) - 1, (int) Math.floor(worldX / BASE_CELL_SIZE) + CELL_OFFSET));
+        int cellZ = Math.max(0, Math.min((1 << CELL_BITS) - 1, (int) Math.floor(worldZ / BASE_CELL_SIZE) + CELL_OFFSET));
+        return spreadBits(cellX) | (spreadBits(cellZ) << 1);
+    }
+
+    // spaces the 20 low bits of value out to every other bit
+
+    private static long spreadBits(long value) {
+        value = (value | (value << 16)) & 0x0000FFFF0000FFFFL;
+        value = (value | (value << 8)) & 0x00FF00FF00FF00FFL;
+        value = (value | (value << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value << 2)) & 0x3333333333333333L;
+        value = (value | (value << 1)) & 0x5555555555555555L;
+        return value;
+    }
+
+    //
+    // Draws a point for every cell of the level that is on screen, originX/Y is the screen location of the
+    // world origin and scale is the number of screen pixels for each world unit.
+    //
+
+    public static void drawCells(Graphics2D g, Level level, double originX, double originY, double scale, int width, int height, Color regularColour, Color subprioColour) {
+        // the points are half the size of a cell, so the lines between the cells still show through
+
+        int pointSize = (int) Math.max(1, level.cellSize * scale * 0.5);
+        double pointOffset = pointSize * 0.5;
+
+        // the more nodes a cell holds, the more solid its point is drawn
+
+        Color[] regularShades = getDensityShades(regularColour);
+        Color[] subprioShades = getDensityShades(subprioColour);
+        Color current = null;
+
+        for (int cell = 0; cell < level.cellCount; cell++) {
+            double screenX = originX + level.getCellX(cell) * scale;
+            double screenY = originY + level.getCellZ(cell) * scale;
+            if (screenX < -pointSize || screenX > width + pointSize || screenY < -pointSize || screenY > height + pointSize) continue;
+
+            int count = level.nodeCount[cell];
+            int shade = (count >= 8) ? 3 : (count >= 4) ? 2 : (count >= 2) ? 1 : 0;
+            Color colour = level.isMostlySubprio(cell) ? subprioShades[shade] : regularShades[shade];
+            if (colour != current) {
+                g.setColor(colour);
+                current = colour;
+            }
+            g.fillRect((int) (screenX - pointOffset), (int) (screenY - pointOffset), pointSize, pointSize);
+        }
+    }
+
+    private static Color[] getDensityShades(Color colour) {
+        return new Color[] {
+                new Color(colour.getRed(), colour.getGreen(), colour.getBlue(), 96),
+                new Color(colour.getRed(), colour.getGreen(), colour.getBlue(), 144),
+                new Color(colour.getRed(), colour.getGreen(), colour.getBlue(), 200),
+                new Color(colour.getRed(), colour.getGreen(), colour.getBlue(), 255)
+        };
+    }
+}
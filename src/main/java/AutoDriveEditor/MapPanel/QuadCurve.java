@@ -13,6 +13,7 @@ import static AutoDriveEditor.AutoDriveEditor.changeManager;
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogCurveInfo;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosX;
 import static AutoDriveEditor.Listeners.MouseListener.prevMousePosY;
+import static AutoDriveEditor.Managers.ScanManager.updateOverlapWarnings;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.RoadNetwork.MapNode.*;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -100,7 +101,7 @@ public class QuadCurve {
     }
 
     public void commitCurve() {
-        canAutoSave = false;
+        suspendAutoSave();
 
         LinkedList<MapNode> mergeNodesList = new LinkedList<>();
 
@@ -121,21 +122,22 @@ public class QuadCurve {
                 heightMapY = curveStartNode.y + ( yInterpolation * j);
             }
             MapNode newNode = new MapNode(RoadMap.mapNodes.size() + 1, tempNode.x, heightMapY, tempNode.z, this.nodeType, false, false);
-            RoadMap.mapNodes.add(newNode);
+            RoadMap.addMapNode(newNode);
             mergeNodesList.add(newNode);
         }
 
         mergeNodesList.add(curveEndNode);
         changeManager.addChangeable(new CurveBaseButton.CurveChanger(mergeNodesList, isReversePath, isDualPath));
         connectNodes(mergeNodesList, isReversePath, isDualPath);
+        updateOverlapWarnings(mergeNodesList);
 
-        canAutoSave = true;
+        resumeAutoSave();
 
         if (bDebugLogCurveInfo) LOG.info("QuadCurve created {} nodes", mergeNodesList.size() - 2);
     }
 
     public static void connectNodes(LinkedList<MapNode> mergeNodesList, boolean reversePath, boolean dualPath) {
-        canAutoSave = false;
+        suspendAutoSave();
         for (int j = 0; j < mergeNodesList.size() - 1; j++) {
             MapNode startNode = mergeNodesList.get(j);
             MapNode endNode = mergeNodesList.get(j + 1);
@@ -147,7 +149,7 @@ public class QuadCurve {
                 createConnectionBetween(startNode, endNode, CONNECTION_STANDARD);
             }
         }
-        canAutoSave = true;
+        resumeAutoSave();
     }
 
     public void clear() {
@@ -0,0 +1,352 @@
+package AutoDriveEditor.MapPanel;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogRenderInfo;
+import static AutoDriveEditor.MapPanel.MapImage.getNewNetworkLayerImage;
+import static AutoDriveEditor.MapPanel.MapPanel.getMapPanel;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
+
+//
+// Draws the network layer ( map image, grid, connections and nodes ) of the map panel off the EDT.
+//
+// When the layer the map panel is showing doesn't match the view it wants, it asks for a new frame
+// and carries on painting with the last finished frame, moved and scaled to line up with the view.
+// Requests are coalesced, there is never more than one frame waiting to be drawn and it is always
+// drawn for the newest view asked for. A frame being drawn is abandoned when the map is moved or
+// zoomed again, unless the frame being shown is already out of date by more than MAX_FRAME_AGE_MS,
+// then it is finished anyway so a continuous pan or zoom still shows new frames.
+//
+// Each frame is drawn into a spare layer image, which is handed to the EDT once it is finished, so
+// the EDT never waits for a frame or paints an image that is still being drawn.
+//
+// The render threads never read the road map itself, it is edited on the EDT while they draw. Each
+// requested view carries a RoadMapSnapshot captured on the EDT when the frame was asked for, which
+// is reused until the road map changes or the layer is invalidated, so panning and zooming don't
+// need a new one.
+//
+
+public class RenderScheduler {
+
+    private static final long MAX_FRAME_AGE_MS = 100;
+
+    // the connection and node drawers share the layer graphics, this stops them using it at the same time
+    static final Lock layerLock = new ReentrantLock();
+
+    private static final ExecutorService frameExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NetworkLayer Render");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ExecutorService drawExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NetworkLayer Draw");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // bumped every time the network layer is invalidated
+    private static final AtomicLong layerGeneration = new AtomicLong();
+
+    private static final AtomicReference<View> requestedView = new AtomicReference<>();
+    private static final AtomicBoolean isFrameQueued = new AtomicBoolean(false);
+    private static volatile long lastShownTime = 0;
+
+    // the layer the map panel is showing, only used on the EDT
+    private static Layer shownLayer;
+    // the layer the next frame is drawn into, the EDT hands the old layer back here when it swaps them
+    private static final AtomicReference<Layer> spareLayer = new AtomicReference<>();
+
+    // the last snapshot captured for a frame and what it was captured from, only used on the EDT
+    private static RoadMapSnapshot lastSnapshot;
+    private static ArrayList<MapNode> lastSnapshotNodeList;
+    private static long lastSnapshotModificationCount;
+    private static long lastSnapshotLayerGeneration;
+
+    //
+    // Everything about the map panel that changes what the network layer looks like
+    //
+
+    public static class View {
+        private final BufferedImage mapImage;
+        private final double x;
+        private final double y;
+        private final double zoomLevel;
+        private final int mapZoomFactor;
+        private final int width;
+        private final int height;
+        private final int offsetX;
+        private final int offsetY;
+        private final int widthScaled;
+        private final int heightScaled;
+        private final long modificationCount;
+        private final long layerGeneration;
+        // set by requestFrame() before the view is handed to the render threads
+        private RoadMapSnapshot snapshot;
+
+        public View(BufferedImage mapImage, double x, double y, double zoomLevel, int mapZoomFactor, int width, int height,
+                    int offsetX, int offsetY, int widthScaled, int heightScaled, long modificationCount) {
+            this.mapImage = mapImage;
+            this.x = x;
+            this.y = y;
+            this.zoomLevel = zoomLevel;
+            this.mapZoomFactor = mapZoomFactor;
+            this.width = width;
+            this.height = height;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.widthScaled = widthScaled;
+            this.heightScaled = heightScaled;
+            this.modificationCount = modificationCount;
+            this.layerGeneration = RenderScheduler.layerGeneration.get();
+        }
+
+        public BufferedImage getMapImage() { return this.mapImage; }
+
+        public int getWidth() { return this.width; }
+
+        public int getHeight() { return this.height; }
+
+        public int getOffsetX() { return this.offsetX; }
+
+        public int getOffsetY() { return this.offsetY; }
+
+        public int getWidthScaled() { return this.widthScaled; }
+
+        public int getHeightScaled() { return this.heightScaled; }
+
+        public double getZoomLevel() { return this.zoomLevel; }
+
+        public int getMapZoomFactor() { return this.mapZoomFactor; }
+
+        public long getModificationCount() { return this.modificationCount; }
+
+        public long getLayerGeneration() { return this.layerGeneration; }
+
+        // the road map to draw, null if no config is loaded
+
+        public RoadMapSnapshot getSnapshot() { return this.snapshot; }
+
+        //
+        // The same as MapPanel.worldPosToScreenPos() and screenPosToWorldPos(), but for this view instead
+        // of wherever the map panel has been moved to since the frame was asked for
+        //
+
+        public Point2D worldPosToScreenPos(double worldX, double worldY) {
+            int centerPointOffset = 1024 * mapZoomFactor;
+
+            double scaledX = ((worldX + centerPointOffset) / mapZoomFactor) * zoomLevel;
+            double scaledY = ((worldY + centerPointOffset) / mapZoomFactor) * zoomLevel;
+
+            double topLeftX = (x * (mapImage.getWidth() * zoomLevel)) - (width / 2F);
+            double topLeftY = (y * (mapImage.getHeight() * zoomLevel)) - (height / 2F);
+
+            return new Point2D.Double(scaledX - topLeftX, scaledY - topLeftY);
+        }
+
+        public Point2D screenPosToWorldPos(int screenX, int screenY) {
+            double topLeftX = (x * mapImage.getWidth()) - ((double) width / zoomLevel / 2);
+            double topLeftY = (y * mapImage.getHeight()) - ((double) height / zoomLevel / 2);
+
+            int centerPointOffsetX = (mapImage.getWidth() / 2) * mapZoomFactor;
+            int centerPointOffsetY = (mapImage.getHeight() / 2) * mapZoomFactor;
+
+            double worldPosX = roundUpDoubleToDecimalPlaces(((topLeftX + (double) screenX / zoomLevel) * mapZoomFactor) - centerPointOffsetX, 3);
+            double worldPosY = roundUpDoubleToDecimalPlaces(((topLeftY + (double) screenY / zoomLevel) * mapZoomFactor) - centerPointOffsetY, 3);
+
+            return new Point2D.Double(worldPosX, worldPosY);
+        }
+
+        private boolean isSameCamera(View other) {
+            return other != null && mapImage == other.mapImage && x == other.x && y == other.y && zoomLevel == other.zoomLevel &&
+                    mapZoomFactor == other.mapZoomFactor && width == other.width && height == other.height &&
+                    offsetX == other.offsetX && offsetY == other.offsetY && widthScaled == other.widthScaled && heightScaled == other.heightScaled;
+        }
+
+        private boolean isSameAs(View other) {
+            return isSameCamera(other) && modificationCount == other.modificationCount && layerGeneration == other.layerGeneration;
+        }
+    }
+
+    private static class Layer {
+        private final BufferedImage image;
+        private final Graphics2D graphics;
+        private View view;
+
+        private Layer(int width, int height) {
+            this.image = getNewNetworkLayerImage(width, height);
+            this.graphics = MapImage.createBufferGraphics(image);
+        }
+
+        private boolean isSize(int width, int height) {
+            return image.getWidth() == width && image.getHeight() == height;
+        }
+    }
+
+    //
+    // Marks the network layer as out of date, the next paint of the map panel will ask for a new frame
+    //
+
+    public static void invalidate() {
+        layerGeneration.incrementAndGet();
+    }
+
+    //
+    // Returns true if the map panel is already showing a frame of the view, only call from the EDT
+    //
+
+    public static boolean isShowing(View view) {
+        return shownLayer != null && shownLayer.view.isSameAs(view);
+    }
+
+    //
+    // Asks for a frame of the view to be drawn, if a frame of it has already been asked for this does
+    // nothing, otherwise it replaces any frame that is waiting to be drawn
+    //
+
+    public static void requestFrame(View view) {
+        View current = requestedView.get();
+        if (current != null && current.isSameAs(view)) return;
+        view.snapshot = getSnapshot(view);
+        requestedView.set(view);
+        if (isFrameQueued.compareAndSet(false, true)) {
+            frameExecutor.execute(RenderScheduler::drawRequestedFrame);
+        }
+    }
+
+    //
+    // Called from requestFrame() on the EDT, so the snapshot is never captured part way through an edit
+    //
+
+    private static RoadMapSnapshot getSnapshot(View view) {
+        if (RoadMap.mapNodes == null) return null;
+        if (lastSnapshot == null || lastSnapshotNodeList != RoadMap.mapNodes || lastSnapshotModificationCount != view.modificationCount ||
+                lastSnapshotLayerGeneration != view.layerGeneration) {
+            long startTime = System.currentTimeMillis();
+            lastSnapshot = RoadMapSnapshot.captureForRendering();
+            lastSnapshotNodeList = RoadMap.mapNodes;
+            lastSnapshotModificationCount = view.modificationCount;
+            lastSnapshotLayerGeneration = view.layerGeneration;
+            if (bDebugLogRenderInfo) LOG.info("Network layer snapshot of {} nodes captured in {}ms", lastSnapshot.getNodeCount(), System.currentTimeMillis() - startTime);
+        }
+        return lastSnapshot;
+    }
+
+    //
+    // Returns true if the frame being drawn for the view should be abandoned
+    //
+
+    public static boolean isCancelled(View view) {
+        View latest = requestedView.get();
+        if (latest == view || latest == null) return false;
+        if (!latest.isSameCamera(view)) {
+            return System.currentTimeMillis() - lastShownTime < MAX_FRAME_AGE_MS;
+        }
+        return false;
+    }
+
+    static Future<?> submitDraw(Runnable runnable) {
+        return drawExecutor.submit(runnable);
+    }
+
+    public static void shutdown() {
+        LOG.info("Stopping NetworkLayer render threads");
+        frameExecutor.shutdownNow();
+        drawExecutor.shutdownNow();
+    }
+
+    private static void drawRequestedFrame() {
+        isFrameQueued.set(false);
+        View view = requestedView.get();
+        if (view == null || view.width <= 0 || view.height <= 0) return;
+
+        Layer layer = spareLayer.getAndSet(null);
+        if (layer == null || !layer.isSize(view.width, view.height)) {
+            layer = new Layer(view.width, view.height);
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            MapPanel.drawNetworkLayer(layer.graphics, view);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            LOG.error("Failed to draw network layer connections", e.getCause());
+            spareLayer.compareAndSet(null, layer);
+            return;
+        }
+
+        if (isCancelled(view)) {
+            if (bDebugLogRenderInfo) LOG.info("Network layer frame abandoned after {}ms", System.currentTimeMillis() - startTime);
+            spareLayer.compareAndSet(null, layer);
+            return;
+        }
+
+        if (bDebugLogRenderInfo) LOG.info("Network layer frame drawn in {}ms", System.currentTimeMillis() - startTime);
+        layer.view = view;
+        Layer finishedLayer = layer;
+        SwingUtilities.invokeLater(() -> showLayer(finishedLayer));
+    }
+
+    private static void showLayer(Layer layer) {
+        Layer oldLayer = shownLayer;
+        shownLayer = layer;
+        lastShownTime = System.currentTimeMillis();
+        if (oldLayer != null) spareLayer.compareAndSet(null, oldLayer);
+        MapPanel mapPanel = getMapPanel();
+        if (mapPanel != null) mapPanel.repaintOverlay();
+    }
+
+    //
+    // Draws the layer the map panel is showing onto g, if it was drawn for a different position or zoom
+    // level it is moved and scaled to line up with the view. Only call from the EDT
+    //
+
+    public static void drawLayer(Graphics2D g, View view, Color background) {
+        Layer layer = shownLayer;
+        if (layer != null && layer.view.isSameCamera(view)) {
+            g.drawImage(layer.image, 0, 0, null);
+            return;
+        }
+
+        g.setColor(background);
+        g.fillRect(0, 0, view.width, view.height);
+        if (layer == null) return;
+
+        View shown = layer.view;
+        if (shown.mapImage != view.mapImage || shown.mapZoomFactor != view.mapZoomFactor) return;
+
+        // the map image pixel at the top left of each view, see MapPanel.worldPosToScreenPos()
+
+        double shownLeft = shown.x * shown.mapImage.getWidth() - shown.width / (2 * shown.zoomLevel);
+        double shownTop = shown.y * shown.mapImage.getHeight() - shown.height / (2 * shown.zoomLevel);
+        double viewLeft = view.x * view.mapImage.getWidth() - view.width / (2 * view.zoomLevel);
+        double viewTop = view.y * view.mapImage.getHeight() - view.height / (2 * view.zoomLevel);
+
+        double scale = view.zoomLevel / shown.zoomLevel;
+        int destX = (int) Math.round((shownLeft - viewLeft) * view.zoomLevel);
+        int destY = (int) Math.round((shownTop - viewTop) * view.zoomLevel);
+        int destWidth = (int) Math.round(shown.width * scale);
+        int destHeight = (int) Math.round(shown.height * scale);
+        g.drawImage(layer.image, destX, destY, destX + destWidth, destY + destHeight, 0, 0, shown.width, shown.height, null);
+    }
+}
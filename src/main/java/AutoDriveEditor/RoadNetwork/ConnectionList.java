@@ -0,0 +1,143 @@
+package AutoDriveEditor.RoadNetwork;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+//
+// Compact list of connected MapNodes, used for a nodes incoming/outgoing/warning lists.
+//
+// Almost every node in a road network has 4 or fewer connections, so the nodes are stored
+// in a small array that starts with room for 4 entries and only grows when needed, this
+// avoids the per-entry allocations of a LinkedList. Membership tests compare references
+// only ( MapNode doesn't override equals() ), so contains() is a short array scan.
+//
+
+public class ConnectionList extends AbstractList<MapNode> implements RandomAccess {
+
+    private static final int INLINE_CAPACITY = 4;
+    private static final MapNode[] EMPTY = new MapNode[0];
+
+    private MapNode[] nodes;
+    private int size;
+
+    public ConnectionList() {
+        this.nodes = EMPTY;
+        this.size = 0;
+    }
+
+    public ConnectionList(Collection<MapNode> from) {
+        this();
+        addAll(from);
+    }
+
+    @Override
+    public int size() { return this.size; }
+
+    @Override
+    public MapNode get(int index) {
+        checkIndex(index);
+        return this.nodes[index];
+    }
+
+    @Override
+    public MapNode set(int index, MapNode node) {
+        checkIndex(index);
+        MapNode oldNode = this.nodes[index];
+        this.nodes[index] = node;
+        return oldNode;
+    }
+
+    @Override
+    public boolean add(MapNode node) {
+        ensureCapacity(this.size + 1);
+        this.nodes[this.size++] = node;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, MapNode node) {
+        if (index < 0 || index > this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        ensureCapacity(this.size + 1);
+        System.arraycopy(this.nodes, index, this.nodes, index + 1, this.size - index);
+        this.nodes[index] = node;
+        this.size++;
+        modCount++;
+    }
+
+    //
+    // Adds the node only if it's not already in the list, returns true if it was added
+    //
+
+    public boolean addIfAbsent(MapNode node) {
+        if (indexOf(node) != -1) return false;
+        return add(node);
+    }
+
+    @Override
+    public MapNode remove(int index) {
+        checkIndex(index);
+        MapNode oldNode = this.nodes[index];
+        int moveCount = this.size - index - 1;
+        if (moveCount > 0) System.arraycopy(this.nodes, index + 1, this.nodes, index, moveCount);
+        this.nodes[--this.size] = null;
+        modCount++;
+        return oldNode;
+    }
+
+    @Override
+    public boolean remove(Object node) {
+        int index = indexOf(node);
+        if (index == -1) return false;
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super MapNode> filter) {
+        int writeIndex = 0;
+        for (int readIndex = 0; readIndex < this.size; readIndex++) {
+            MapNode node = this.nodes[readIndex];
+            if (!filter.test(node)) this.nodes[writeIndex++] = node;
+        }
+        if (writeIndex == this.size) return false;
+        Arrays.fill(this.nodes, writeIndex, this.size, null);
+        this.size = writeIndex;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        return indexOf(node) != -1;
+    }
+
+    @Override
+    public int indexOf(Object node) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.nodes[i] == node) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.nodes, 0, this.size, null);
+        this.size = 0;
+        modCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.nodes.length) {
+            int newCapacity = Math.max(INLINE_CAPACITY, Math.max(capacity, this.nodes.length * 2));
+            this.nodes = Arrays.copyOf(this.nodes, newCapacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+}
@@ -1,7 +1,5 @@
 package AutoDriveEditor.RoadNetwork;
 
-import java.util.LinkedList;
-
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogMarkerInfo;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.MathUtils.roundUpDoubleToDecimalPlaces;
@@ -22,17 +20,26 @@ public class MapNode {
 
     public int id;
     public double x, y, z;
-    public LinkedList<MapNode> incoming;
-    public LinkedList<MapNode> outgoing;
+    public ConnectionList incoming;
+    public ConnectionList outgoing;
     public int flag;
     public MapMarker mapMarker;
     public boolean isSelected;
     public boolean isControlNode;
     public boolean hasWarning;
-    public LinkedList<MapNode> warningNodes;
+    public ConnectionList warningNodes;
     public int warningType;
     public boolean scheduledToBeDeleted;
 
+    // spatial grid bookkeeping, only SpatialGrid should change these
+
+    long gridCellKey;
+    boolean isGridIndexed;
+
+    // cached type of each outgoing connection, only RoadMap should use this
+
+    byte[] connectionTypes;
+
     public MapNode(int id, double x, double y, double z, int flag, boolean isSelected, boolean isControlNode) {
 
         // Autodrive mod created
@@ -41,8 +48,8 @@ public class MapNode {
         this.x = roundUpDoubleToDecimalPlaces(x, 3);
         this.y = roundUpDoubleToDecimalPlaces(y, 3);
         this.z = roundUpDoubleToDecimalPlaces(z, 3);
-        this.incoming = new LinkedList<>();
-        this.outgoing = new LinkedList<>();
+        this.incoming = new ConnectionList();
+        this.outgoing = new ConnectionList();
         this.flag = flag;
 
         // editor use only!
@@ -51,7 +58,7 @@ public class MapNode {
         this.isSelected = isSelected;
         this.isControlNode = isControlNode;
         this.hasWarning = false;
-        this.warningNodes = new LinkedList<>();
+        this.warningNodes = new ConnectionList();
         this.warningType = NODE_WARNING_NONE;
         this.scheduledToBeDeleted = false;
     }
@@ -105,10 +112,8 @@ public class MapNode {
 
     public MapNode getCopyOfNode(MapNode oldNode) {
         MapNode newNode = new MapNode(oldNode.id, oldNode.x, oldNode.y, oldNode.z, oldNode.flag, oldNode.isSelected, oldNode.isControlNode);
-        newNode.incoming = new LinkedList<>();
-        newNode.incoming.addAll(oldNode.incoming);
-        newNode.outgoing = new LinkedList<>();
-        newNode.outgoing.addAll(oldNode.outgoing);
+        newNode.incoming = new ConnectionList(oldNode.incoming);
+        newNode.outgoing = new ConnectionList(oldNode.outgoing);
         if (oldNode.hasMapMarker()) {
             newNode.createMapMarker(oldNode.getMarkerName(), oldNode.getMarkerGroup());
         }
@@ -1,7 +1,15 @@
 package AutoDriveEditor.RoadNetwork;
 
+import AutoDriveEditor.Managers.JournalManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogUndoRedo;
@@ -9,12 +17,24 @@ import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 
 public class RoadMap {
 
+    public static final int CONNECTION_TYPE_REGULAR = 0;
+    public static final int CONNECTION_TYPE_SUBPRIO = 1;
+    public static final int CONNECTION_TYPE_DUAL = 2;
+    public static final int CONNECTION_TYPE_DUAL_SUBPRIO = 3;
+    public static final int CONNECTION_TYPE_REVERSE = 4;
+    public static final int CONNECTION_TYPE_REVERSE_SUBPRIO = 5;
+
     public static String mapName;
-    public static LinkedList<MapNode> mapNodes;
+    public static ArrayList<MapNode> mapNodes;
     public static UUID uuid;
 
+    // spatial index of mapNodes by x/z world location, see SpatialGrid
+
+    private static final SpatialGrid nodeGrid = new SpatialGrid();
+
     public RoadMap() {
-        mapNodes = new LinkedList<>();
+        mapNodes = new ArrayList<>();
+        nodeGrid.clear();
         mapName = null;
 
         // generate a unique random UUID, we can use this to compare and detect when
@@ -27,48 +47,292 @@ public class RoadMap {
         uuid = UUID.randomUUID();
     }
 
-    public void insertMapNode(MapNode toAdd, LinkedList<MapNode> otherNodesInList, LinkedList<MapNode> otherNodesOutList) {
+    //
+    // mapNodes is always kept in ID order with no gaps, so a node with ID n is at index n - 1.
+    // All the functions below that add or remove nodes renumber the IDs to keep it that way, and
+    // tell the JournalManager where the nodes went in or came out.
+    //
+
+    public static void setMapNodes(ArrayList<MapNode> nodes) {
+        mapNodes = nodes;
+        nodeGrid.rebuild(nodes);
+    }
+
+    public static MapNode getMapNodeByID(int id) {
+        if (id < 1 || id > mapNodes.size()) return null;
+        return mapNodes.get(id - 1);
+    }
+
+    public static void addMapNode(MapNode toAdd) {
+        mapNodes.add(toAdd);
+        nodeGrid.insert(toAdd);
+        JournalManager.recordInsertedNodes(new int[] { mapNodes.size() - 1 }, Collections.singletonList(toAdd));
+    }
+
+    public static void addMapNodes(Collection<MapNode> nodesToAdd) {
+        int[] addedIndexes = new int[nodesToAdd.size()];
+        for (int i = 0; i < addedIndexes.length; i++) {
+            addedIndexes[i] = mapNodes.size() + i;
+        }
+        mapNodes.addAll(nodesToAdd);
+        for (MapNode node : nodesToAdd) {
+            nodeGrid.insert(node);
+        }
+        JournalManager.recordInsertedNodes(addedIndexes, nodesToAdd);
+    }
 
-        // starting at the index of where we need to insert the node
-        // increment the ID's of all nodes to the right of the mapNodes by +1
-        // so when we insert the node, all the id's match their index
+    //
+    // Must be called after changing the x/z location of a node, so the
+    // spatial index stays in sync with the node. Nodes that are not part
+    // of the road map ( e.g. curve control points ) are ignored.
+    //
 
-        ListIterator<MapNode> roadMap = mapNodes.listIterator(toAdd.id - 1);
-        while (roadMap.hasNext()) {
-            MapNode node = roadMap.next();
-            node.id++;
+    public static void updateNodeLocation(MapNode node) {
+        nodeGrid.update(node);
+    }
+
+    public static void updateNodeLocations(Collection<MapNode> nodes) {
+        for (MapNode node : nodes) {
+            nodeGrid.update(node);
         }
+    }
 
-        // insert the MapNode into the list
+    public static void getNodesInArea(double minX, double minZ, double maxX, double maxZ, List<MapNode> results) {
+        nodeGrid.getNodesInArea(minX, minZ, maxX, maxZ, results);
+    }
+
+    public static MapNode getNearestNode(double worldX, double worldZ, double maxDistance) {
+        return nodeGrid.getNearestNode(worldX, worldZ, maxDistance);
+    }
+
+    public void insertMapNode(MapNode toAdd, LinkedList<MapNode> otherNodesInList, LinkedList<MapNode> otherNodesOutList) {
+
+        // insert the MapNode into the list at the index matching its ID, then
+        // increment the ID's of all nodes to the right of it by +1 so all the
+        // id's match their index again
 
         if (bDebugLogUndoRedo) LOG.info("## insertMapNode() ## inserting index {} ( ID {} ) into mapNodes", toAdd.id - 1, toAdd.id );
-        mapNodes.add(toAdd.id -1 , toAdd);
+        int index = toAdd.id - 1;
+        mapNodes.add(index, toAdd);
+        renumberMapNodesFrom(index + 1);
+        nodeGrid.insert(toAdd);
+        JournalManager.recordInsertedNodes(new int[] { index }, Collections.singletonList(toAdd));
 
         //now we need to restore all the connections that went from/to it
 
+        restoreConnections(toAdd, otherNodesInList, otherNodesOutList);
+    }
+
+    //
+    // Re-inserts a list of previously removed nodes in a single pass, each node is placed
+    // at the index matching its ID, so the list must be sorted by ID and the ID's must be
+    // the ones the nodes had before they were removed.
+    //
+    // Throws IndexOutOfBoundsException ( without changing the road map ) if the ID's don't
+    // fit the current road map.
+    //
+
+    public static void insertMapNodes(List<MapNode> sortedNodesToAdd) {
+        if (sortedNodesToAdd.isEmpty()) return;
+
+        ArrayList<MapNode> mergedList = new ArrayList<>(mapNodes.size() + sortedNodesToAdd.size());
+        int sourceIndex = 0;
+        for (MapNode toAdd : sortedNodesToAdd) {
+            int index = toAdd.id - 1;
+            if (index < mergedList.size() || index > mergedList.size() + (mapNodes.size() - sourceIndex)) {
+                throw new IndexOutOfBoundsException("Cannot insert ID " + toAdd.id + " into road map of size " + (mergedList.size() + (mapNodes.size() - sourceIndex)));
+            }
+            while (mergedList.size() < index) {
+                mergedList.add(mapNodes.get(sourceIndex++));
+            }
+            mergedList.add(toAdd);
+        }
+        while (sourceIndex < mapNodes.size()) {
+            mergedList.add(mapNodes.get(sourceIndex++));
+        }
+
+        if (bDebugLogUndoRedo) LOG.info("## insertMapNodes() ## inserted {} nodes into mapNodes", sortedNodesToAdd.size());
+        int firstIndex = sortedNodesToAdd.get(0).id - 1;
+        mapNodes.clear();
+        mapNodes.addAll(mergedList);
+        renumberMapNodesFrom(firstIndex);
+        int[] insertedIndexes = new int[sortedNodesToAdd.size()];
+        for (int i = 0; i < insertedIndexes.length; i++) {
+            MapNode toAdd = sortedNodesToAdd.get(i);
+            nodeGrid.insert(toAdd);
+            insertedIndexes[i] = toAdd.id - 1;
+        }
+        JournalManager.recordInsertedNodes(insertedIndexes, sortedNodesToAdd);
+    }
+
+    public static void restoreConnections(MapNode toRestore, Collection<MapNode> otherNodesInList, Collection<MapNode> otherNodesOutList) {
         if (otherNodesInList != null) {
             for (MapNode otherInNode : otherNodesInList) {
-                if (!otherInNode.incoming.contains(toAdd)) otherInNode.incoming.add(toAdd);
+                otherInNode.incoming.addIfAbsent(toRestore);
             }
         }
 
         if (otherNodesOutList != null) {
             for (MapNode otherOutNode : otherNodesOutList) {
-                if (!otherOutNode.outgoing.contains(toAdd)) otherOutNode.outgoing.add(toAdd);
+                otherOutNode.outgoing.addIfAbsent(toRestore);
             }
         }
+        invalidateConnectionTypes(toRestore);
     }
 
+    //
+    // Removes a single node, it's only unlinked from the nodes in its own incoming/outgoing lists.
+    // A reverse connection coming into the node isn't in either of them, so the caller has to have
+    // removed those already ( the callers take back a node they created, after putting the
+    // connections of its neighbours back ), use removeMapNodes() for anything else.
+    //
+
     public static void removeMapNode(MapNode toDelete) {
-        for (MapNode mapNode : mapNodes) {
-            mapNode.outgoing.remove(toDelete);
-            mapNode.incoming.remove(toDelete);
-            if (mapNode.id > toDelete.id) {
-                mapNode.id--;
+        ArrayList<MapNode> unlinkedNodes = new ArrayList<>();
+        for (int i = 0; i < toDelete.incoming.size(); i++) {
+            MapNode otherNode = toDelete.incoming.get(i);
+            if (otherNode.outgoing.remove(toDelete)) unlinkedNodes.add(otherNode);
+        }
+        for (int i = 0; i < toDelete.outgoing.size(); i++) {
+            MapNode otherNode = toDelete.outgoing.get(i);
+            boolean isOutgoingRemoved = otherNode.outgoing.remove(toDelete);
+            if (otherNode.incoming.remove(toDelete) || isOutgoingRemoved) unlinkedNodes.add(otherNode);
+        }
+        for (MapNode otherNode : unlinkedNodes) {
+            otherNode.connectionTypes = null;
+        }
+
+        int index = indexOfMapNode(toDelete);
+        if (index != -1) {
+            mapNodes.remove(index);
+            renumberMapNodesFrom(index);
+            JournalManager.recordRemovedNodes(new int[] { index }, unlinkedNodes);
+        }
+        nodeGrid.remove(toDelete);
+    }
+
+    //
+    // Removes all the nodes in the list in a single pass, connections from the remaining
+    // nodes to the removed ones are deleted and the remaining nodes are renumbered once.
+    //
+    // The removed nodes keep their ID's and their own incoming/outgoing lists, so the
+    // undo system can put them back exactly as they were.
+    //
+
+    public static void removeMapNodes(Collection<MapNode> nodesToRemove) {
+        if (nodesToRemove.isEmpty()) return;
+
+        Set<MapNode> removeSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        removeSet.addAll(nodesToRemove);
+
+        int[] removedIndexes = new int[removeSet.size()];
+        int removedCount = 0;
+        ArrayList<MapNode> unlinkedNodes = new ArrayList<>();
+        int writeIndex = 0;
+        for (int readIndex = 0; readIndex < mapNodes.size(); readIndex++) {
+            MapNode mapNode = mapNodes.get(readIndex);
+            if (removeSet.contains(mapNode)) {
+                removedIndexes[removedCount++] = readIndex;
+            } else {
+                boolean isOutgoingRemoved = mapNode.outgoing.removeIf(removeSet::contains);
+                if (mapNode.incoming.removeIf(removeSet::contains) || isOutgoingRemoved) {
+                    mapNode.connectionTypes = null;
+                    unlinkedNodes.add(mapNode);
+                }
+                mapNodes.set(writeIndex++, mapNode);
             }
         }
+        mapNodes.subList(writeIndex, mapNodes.size()).clear();
+        if (removedCount > 0) {
+            renumberMapNodesFrom(removedIndexes[0]);
+            JournalManager.recordRemovedNodes(Arrays.copyOf(removedIndexes, removedCount), unlinkedNodes);
+        }
+
+        for (MapNode node : removeSet) {
+            nodeGrid.remove(node);
+        }
+    }
+
+    private static int indexOfMapNode(MapNode node) {
+        int index = node.id - 1;
+        if (index >= 0 && index < mapNodes.size() && mapNodes.get(index) == node) return index;
+        return mapNodes.indexOf(node);
+    }
+
+    private static void renumberMapNodesFrom(int index) {
+        for (int i = index; i < mapNodes.size(); i++) {
+            mapNodes.get(i).id = i + 1;
+        }
+    }
+
+    //
+    // Connection type cache
+    //
+    // The type of a connection only depends on the flag of its start node and the connection
+    // lists of its two end nodes, so each node caches the type of its outgoing connections and
+    // the cache is only rebuilt after one of those things has been changed.
+    //
+    // invalidateConnectionTypes(node) must be called after the flag or the connection lists of a
+    // node change, it drops the cache of the node and of every node it's connected to. An edit
+    // between two nodes has to invalidate both of them, as a connection that has been removed no
+    // longer links them.
+    //
+    // The caches are only used on the EDT, the render threads read the types from the snapshot
+    // they are drawing, see RoadMapSnapshot.captureForRendering()
+    //
+
+    public static int getConnectionType(MapNode start, int outgoingIndex) {
+        byte[] types = start.connectionTypes;
+        if (types == null || types.length != start.outgoing.size()) {
+            types = rebuildConnectionTypes(start);
+        }
+        return (outgoingIndex >= 0 && outgoingIndex < types.length) ? types[outgoingIndex] : -1;
+    }
+
+    public static int getConnectionType(MapNode start, MapNode target) {
+        int index = start.outgoing.indexOf(target);
+        return (index == -1) ? -1 : getConnectionType(start, index);
+    }
+
+    public static void invalidateConnectionTypes(MapNode node) {
+        node.connectionTypes = null;
+        for (int i = 0; i < node.incoming.size(); i++) {
+            node.incoming.get(i).connectionTypes = null;
+        }
+        for (int i = 0; i < node.outgoing.size(); i++) {
+            node.outgoing.get(i).connectionTypes = null;
+        }
+    }
 
-        mapNodes.remove(toDelete);
+    public static void invalidateConnectionTypes(Collection<MapNode> nodes) {
+        for (MapNode node : nodes) {
+            invalidateConnectionTypes(node);
+        }
+    }
+
+    // only for when the whole road map has been replaced or rebuilt
+
+    public static void invalidateAllConnectionTypes() {
+        for (MapNode mapNode : mapNodes) {
+            mapNode.connectionTypes = null;
+        }
+    }
+
+    private static byte[] rebuildConnectionTypes(MapNode start) {
+        byte[] types = new byte[start.outgoing.size()];
+        boolean isSubprio = start.flag == 1;
+        for (int i = 0; i < types.length; i++) {
+            MapNode target = start.outgoing.get(i);
+            if (isDual(start, target)) {
+                types[i] = (byte) (isSubprio ? CONNECTION_TYPE_DUAL_SUBPRIO : CONNECTION_TYPE_DUAL);
+            } else if (isReverse(start, target)) {
+                types[i] = (byte) (isSubprio ? CONNECTION_TYPE_REVERSE_SUBPRIO : CONNECTION_TYPE_REVERSE);
+            } else {
+                types[i] = (byte) (isSubprio ? CONNECTION_TYPE_SUBPRIO : CONNECTION_TYPE_REGULAR);
+            }
+        }
+        start.connectionTypes = types;
+        return types;
     }
 
     public static boolean isDual(MapNode start, MapNode target) {
@@ -0,0 +1,302 @@
+package AutoDriveEditor.RoadNetwork;
+
+import AutoDriveEditor.Managers.ChangeManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+//
+// Immutable copy of the road network, used to save the config and draw the network layer on
+// background threads while the network carries on being edited.
+//
+// The node values are copied into primitive columns in the same order as mapNodes, the connections
+// are stored as the ID's of the connected nodes in CSR form ( the connections of node i are at
+// offsets[i] to offsets[i + 1] ). Capturing only copies values, so it is cheap enough to do on the
+// EDT before every save.
+//
+// A snapshot captured for rendering also holds the type of every outgoing connection and the
+// selection/warning state of every node, and can be searched by location, so the render threads
+// never have to look at the road map itself.
+//
+
+public class RoadMapSnapshot {
+
+    private static final byte STATE_SELECTED = 1;
+    private static final byte STATE_WARNING = 2;
+    private static final byte STATE_OVERLAP_WARNING = 4;
+
+    // the area index aims for this many nodes in each cell, with no more than MAX_INDEX_CELLS per side
+    private static final int NODES_PER_INDEX_CELL = 8;
+    private static final int MAX_INDEX_CELLS = 1024;
+
+    private final long modificationCount;
+    private final int nodeCount;
+    private final int[] ids;
+    private final double[] xValues;
+    private final double[] yValues;
+    private final double[] zValues;
+    private final int[] flags;
+    private final int[] outOffsets;
+    private final int[] outIDs;
+    private final int[] incomingOffsets;
+    private final int[] incomingIDs;
+    private final int[] markerNodeIndexes;
+    private final String[] markerNames;
+    private final String[] markerGroups;
+
+    // only filled in by captureForRendering()
+    private final byte[] outTypes;
+    private final byte[] states;
+    private final int[] selectedNodeIndexes;
+    private AreaIndex areaIndex;
+
+    private RoadMapSnapshot(List<MapNode> nodes, long modificationCount, boolean isForRendering) {
+        this.modificationCount = modificationCount;
+        this.nodeCount = nodes.size();
+        this.ids = new int[nodeCount];
+        this.xValues = new double[nodeCount];
+        this.yValues = new double[nodeCount];
+        this.zValues = new double[nodeCount];
+        this.flags = new int[nodeCount];
+        this.outOffsets = new int[nodeCount + 1];
+        this.incomingOffsets = new int[nodeCount + 1];
+        this.states = isForRendering ? new byte[nodeCount] : null;
+
+        int outCount = 0;
+        int incomingCount = 0;
+        int markerCount = 0;
+        int selectedCount = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            MapNode mapNode = nodes.get(i);
+            this.ids[i] = mapNode.id;
+            this.xValues[i] = mapNode.x;
+            this.yValues[i] = mapNode.y;
+            this.zValues[i] = mapNode.z;
+            this.flags[i] = mapNode.flag;
+            outCount += mapNode.outgoing.size();
+            incomingCount += mapNode.incoming.size();
+            this.outOffsets[i + 1] = outCount;
+            this.incomingOffsets[i + 1] = incomingCount;
+            if (mapNode.hasMapMarker()) markerCount++;
+            if (isForRendering) {
+                if (mapNode.isSelected) {
+                    this.states[i] |= STATE_SELECTED;
+                    selectedCount++;
+                }
+                if (mapNode.hasWarning) {
+                    this.states[i] |= STATE_WARNING;
+                    if (mapNode.warningType == MapNode.NODE_WARNING_OVERLAP) this.states[i] |= STATE_OVERLAP_WARNING;
+                }
+            }
+        }
+
+        this.outIDs = new int[outCount];
+        this.incomingIDs = new int[incomingCount];
+        this.markerNodeIndexes = new int[markerCount];
+        this.markerNames = new String[markerCount];
+        this.markerGroups = new String[markerCount];
+        this.outTypes = isForRendering ? new byte[outCount] : null;
+        this.selectedNodeIndexes = isForRendering ? new int[selectedCount] : null;
+
+        int markerIndex = 0;
+        int selectedIndex = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            MapNode mapNode = nodes.get(i);
+            copyIDs(mapNode.outgoing, this.outIDs, this.outOffsets[i]);
+            copyIDs(mapNode.incoming, this.incomingIDs, this.incomingOffsets[i]);
+            if (isForRendering) {
+                for (int j = 0; j < mapNode.outgoing.size(); j++) {
+                    this.outTypes[this.outOffsets[i] + j] = (byte) RoadMap.getConnectionType(mapNode, j);
+                }
+                if (mapNode.isSelected) this.selectedNodeIndexes[selectedIndex++] = i;
+            }
+            if (mapNode.hasMapMarker()) {
+                this.markerNodeIndexes[markerIndex] = i;
+                this.markerNames[markerIndex] = mapNode.getMarkerName();
+                this.markerGroups[markerIndex] = mapNode.getMarkerGroup();
+                markerIndex++;
+            }
+        }
+    }
+
+    //
+    // Must be called on the EDT ( or wherever the road map is being edited ) so the copy is consistent,
+    // from any other thread use MapPanel.callWhenNoEditInProgress(RoadMapSnapshot::capture)
+    //
+
+    public static RoadMapSnapshot capture() {
+        return new RoadMapSnapshot(RoadMap.mapNodes, ChangeManager.getModificationCount(), false);
+    }
+
+    //
+    // The same as capture(), plus everything the network layer needs to be drawn from the snapshot
+    //
+
+    public static RoadMapSnapshot captureForRendering() {
+        return new RoadMapSnapshot(RoadMap.mapNodes, ChangeManager.getModificationCount(), true);
+    }
+
+    // the ChangeManager modification count when the snapshot was captured
+
+    public long getModificationCount() { return this.modificationCount; }
+
+    public int getNodeCount() { return this.nodeCount; }
+
+    public int getID(int index) { return this.ids[index]; }
+
+    public double getX(int index) { return this.xValues[index]; }
+
+    public double getY(int index) { return this.yValues[index]; }
+
+    public double getZ(int index) { return this.zValues[index]; }
+
+    public int getFlag(int index) { return this.flags[index]; }
+
+    public int getOutStart(int index) { return this.outOffsets[index]; }
+
+    public int getOutEnd(int index) { return this.outOffsets[index + 1]; }
+
+    public int getIncomingStart(int index) { return this.incomingOffsets[index]; }
+
+    public int getIncomingEnd(int index) { return this.incomingOffsets[index + 1]; }
+
+    public int getOutID(int offset) { return this.outIDs[offset]; }
+
+    public int getIncomingID(int offset) { return this.incomingIDs[offset]; }
+
+    public int getMarkerCount() { return this.markerNodeIndexes.length; }
+
+    public int getMarkerNodeIndex(int marker) { return this.markerNodeIndexes[marker]; }
+
+    public String getMarkerName(int marker) { return this.markerNames[marker]; }
+
+    public String getMarkerGroup(int marker) { return this.markerGroups[marker]; }
+
+    //
+    // Rendering snapshots only
+    //
+
+    public int getOutType(int offset) { return this.outTypes[offset]; }
+
+    public boolean isSelected(int index) { return (this.states[index] & STATE_SELECTED) != 0; }
+
+    public boolean hasWarning(int index) { return (this.states[index] & STATE_WARNING) != 0; }
+
+    public boolean hasOverlapWarning(int index) { return (this.states[index] & STATE_OVERLAP_WARNING) != 0; }
+
+    public int getSelectedCount() { return this.selectedNodeIndexes.length; }
+
+    public int getSelectedNodeIndex(int selected) { return this.selectedNodeIndexes[selected]; }
+
+    //
+    // Returns the type of the connection from the node at index to the node at targetIndex, or -1 if
+    // there isn't one
+    //
+
+    public int getConnectionType(int index, int targetIndex) {
+        int targetID = this.ids[targetIndex];
+        for (int offset = this.outOffsets[index]; offset < this.outOffsets[index + 1]; offset++) {
+            if (this.outIDs[offset] == targetID) return this.outTypes[offset];
+        }
+        return -1;
+    }
+
+    //
+    // Passes the index of every node inside the area ( edges included ) to results, in no particular
+    // order. The index is built by the first search, so capturing a snapshot doesn't pay for it.
+    //
+
+    public void getNodesInArea(double minX, double minZ, double maxX, double maxZ, IntConsumer results) {
+        AreaIndex index = getAreaIndex();
+        int lastColumn = index.columnOf(maxX);
+        int lastRow = index.rowOf(maxZ);
+        for (int row = index.rowOf(minZ); row <= lastRow; row++) {
+            for (int column = index.columnOf(minX); column <= lastColumn; column++) {
+                int cell = row * index.columns + column;
+                for (int i = index.cellStarts[cell]; i < index.cellStarts[cell + 1]; i++) {
+                    int node = index.cellNodes[i];
+                    double x = this.xValues[node];
+                    double z = this.zValues[node];
+                    if (x >= minX && x <= maxX && z >= minZ && z <= maxZ) results.accept(node);
+                }
+            }
+        }
+    }
+
+    private synchronized AreaIndex getAreaIndex() {
+        if (this.areaIndex == null) this.areaIndex = new AreaIndex(this);
+        return this.areaIndex;
+    }
+
+    //
+    // A fixed grid over the area the nodes cover, with the node indexes sorted by cell ( the nodes of
+    // cell c are at cellStarts[c] to cellStarts[c + 1] ). Nodes outside the grid ( which can only
+    // happen for a NaN location ) are put in the nearest cell, the searches check every location.
+    //
+
+    private static class AreaIndex {
+        private final double minX;
+        private final double minZ;
+        private final double cellWidth;
+        private final double cellHeight;
+        private final int columns;
+        private final int rows;
+        private final int[] cellStarts;
+        private final int[] cellNodes;
+
+        private AreaIndex(RoadMapSnapshot snapshot) {
+            double minX = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+            for (int i = 0; i < snapshot.nodeCount; i++) {
+                double x = snapshot.xValues[i];
+                double z = snapshot.zValues[i];
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (z < minZ) minZ = z;
+                if (z > maxZ) maxZ = z;
+            }
+            if (minX > maxX) minX = maxX = 0;
+            if (minZ > maxZ) minZ = maxZ = 0;
+
+            int cellsPerSide = (int) Math.max(1, Math.min(MAX_INDEX_CELLS, Math.sqrt((double) snapshot.nodeCount / NODES_PER_INDEX_CELL)));
+            this.minX = minX;
+            this.minZ = minZ;
+            this.columns = cellsPerSide;
+            this.rows = cellsPerSide;
+            this.cellWidth = (maxX > minX) ? (maxX - minX) / cellsPerSide : 1;
+            this.cellHeight = (maxZ > minZ) ? (maxZ - minZ) / cellsPerSide : 1;
+
+            // counting sort of the node indexes by cell
+
+            int[] nodeCells = new int[snapshot.nodeCount];
+            this.cellStarts = new int[columns * rows + 1];
+            for (int i = 0; i < snapshot.nodeCount; i++) {
+                nodeCells[i] = rowOf(snapshot.zValues[i]) * columns + columnOf(snapshot.xValues[i]);
+                this.cellStarts[nodeCells[i] + 1]++;
+            }
+            for (int cell = 0; cell < columns * rows; cell++) {
+                this.cellStarts[cell + 1] += this.cellStarts[cell];
+            }
+            int[] nextSlot = Arrays.copyOf(this.cellStarts, columns * rows);
+            this.cellNodes = new int[snapshot.nodeCount];
+            for (int i = 0; i < snapshot.nodeCount; i++) {
+                this.cellNodes[nextSlot[nodeCells[i]]++] = i;
+            }
+        }
+
+        private int columnOf(double x) {
+            return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellWidth)));
+        }
+
+        private int rowOf(double z) {
+            return Math.max(0, Math.min(rows - 1, (int) ((z - minZ) / cellHeight)));
+        }
+    }
+
+    private static void copyIDs(List<MapNode> connections, int[] destination, int offset) {
+        for (int i = 0; i < connections.size(); i++) {
+            destination[offset + i] = connections.get(i).id;
+        }
+    }
+}
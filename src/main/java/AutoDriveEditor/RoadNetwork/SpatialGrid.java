@@ -0,0 +1,222 @@
+package AutoDriveEditor.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//
+// Uniform grid over the world x/z plane, used to find nodes by location
+// without walking the entire road map.
+//
+// Every node that is in the grid remembers the key of the cell it was filed
+// under, any code that changes a nodes x/z location must call update() so
+// the node can be moved to its new cell.
+//
+
+public class SpatialGrid {
+
+    public static final double DEFAULT_CELL_SIZE = 32;
+
+    private final double cellSize;
+    private final HashMap<Long, ArrayList<MapNode>> cells;
+    private int nodeCount;
+
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialGrid(double cellSize) {
+        this.cellSize = cellSize;
+        this.cells = new HashMap<>();
+        this.nodeCount = 0;
+    }
+
+    public double getCellSize() { return this.cellSize; }
+
+    public int size() { return this.nodeCount; }
+
+    public void clear() {
+        for (ArrayList<MapNode> cell : cells.values()) {
+            for (MapNode node : cell) {
+                node.isGridIndexed = false;
+            }
+        }
+        cells.clear();
+        nodeCount = 0;
+    }
+
+    public void rebuild(Collection<MapNode> nodes) {
+        clear();
+        for (MapNode node : nodes) {
+            insert(node);
+        }
+    }
+
+    public void insert(MapNode node) {
+        if (node.isGridIndexed) return;
+        long key = keyFor(cellIndex(node.x), cellIndex(node.z));
+        cells.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+        node.gridCellKey = key;
+        node.isGridIndexed = true;
+        nodeCount++;
+    }
+
+    public void remove(MapNode node) {
+        if (!node.isGridIndexed) return;
+        removeFromCell(node, node.gridCellKey);
+        node.isGridIndexed = false;
+        nodeCount--;
+    }
+
+    public void update(MapNode node) {
+        if (!node.isGridIndexed) return;
+        long key = keyFor(cellIndex(node.x), cellIndex(node.z));
+        if (key != node.gridCellKey) {
+            removeFromCell(node, node.gridCellKey);
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+            node.gridCellKey = key;
+        }
+    }
+
+    //
+    // Adds every node with minX <= x <= maxX and minZ <= z <= maxZ to the results list,
+    // the order the nodes are returned in is not defined.
+    //
+
+    public void getNodesInArea(double minX, double minZ, double maxX, double maxZ, List<MapNode> results) {
+        if (nodeCount == 0 || minX > maxX || minZ > maxZ) return;
+
+        int startCellX = cellIndex(minX);
+        int startCellZ = cellIndex(minZ);
+        int endCellX = cellIndex(maxX);
+        int endCellZ = cellIndex(maxZ);
+        long cellsCovered = ((long) endCellX - startCellX + 1) * ((long) endCellZ - startCellZ + 1);
+
+        if (cellsCovered > cells.size()) {
+            // the area covers more cells than are in use, so it's cheaper to check each used cell
+            for (Map.Entry<Long, ArrayList<MapNode>> entry : cells.entrySet()) {
+                long key = entry.getKey();
+                int cellX = cellXOf(key);
+                int cellZ = cellZOf(key);
+                if (cellX >= startCellX && cellX <= endCellX && cellZ >= startCellZ && cellZ <= endCellZ) {
+                    addNodesInArea(entry.getValue(), minX, minZ, maxX, maxZ, results);
+                }
+            }
+        } else {
+            for (int cellX = startCellX; cellX <= endCellX; cellX++) {
+                for (int cellZ = startCellZ; cellZ <= endCellZ; cellZ++) {
+                    ArrayList<MapNode> cell = cells.get(keyFor(cellX, cellZ));
+                    if (cell != null) addNodesInArea(cell, minX, minZ, maxX, maxZ, results);
+                }
+            }
+        }
+    }
+
+    //
+    // Returns the closest node to the world location that is no further away than maxDistance,
+    // or null if there isn't one. When two nodes are the same distance away, the lowest ID wins.
+    //
+
+    public MapNode getNearestNode(double worldX, double worldZ, double maxDistance) {
+        if (nodeCount == 0) return null;
+
+        int centreCellX = cellIndex(worldX);
+        int centreCellZ = cellIndex(worldZ);
+        long maxRing = (long) Math.ceil(maxDistance / cellSize) + 1;
+
+        NearestResult result = new NearestResult(maxDistance * maxDistance);
+
+        if ((2 * maxRing + 1) * (2 * maxRing + 1) > cells.size()) {
+            for (ArrayList<MapNode> cell : cells.values()) {
+                checkNearest(cell, worldX, worldZ, result);
+            }
+            return result.node;
+        }
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every cell in this ring is at least (ring - 1) cells away from the location,
+            // so once that is further than the best match we can stop searching.
+            double ringDistance = (ring - 1) * cellSize;
+            if (ring > 1 && ringDistance * ringDistance > result.distanceSq) break;
+            for (int cellX = centreCellX - ring; cellX <= centreCellX + ring; cellX++) {
+                boolean isEdgeColumn = cellX == centreCellX - ring || cellX == centreCellX + ring;
+                int step = isEdgeColumn ? 1 : Math.max(1, 2 * ring);
+                for (int cellZ = centreCellZ - ring; cellZ <= centreCellZ + ring; cellZ += step) {
+                    ArrayList<MapNode> cell = cells.get(keyFor(cellX, cellZ));
+                    if (cell != null) checkNearest(cell, worldX, worldZ, result);
+                }
+            }
+        }
+        return result.node;
+    }
+
+    private static void checkNearest(ArrayList<MapNode> cell, double worldX, double worldZ, NearestResult result) {
+        for (MapNode node : cell) {
+            double diffX = node.x - worldX;
+            double diffZ = node.z - worldZ;
+            double distanceSq = (diffX * diffX) + (diffZ * diffZ);
+            if (distanceSq < result.distanceSq || (distanceSq == result.distanceSq && (result.node == null || node.id < result.node.id))) {
+                result.distanceSq = distanceSq;
+                result.node = node;
+            }
+        }
+    }
+
+    private static void addNodesInArea(ArrayList<MapNode> cell, double minX, double minZ, double maxX, double maxZ, List<MapNode> results) {
+        for (MapNode node : cell) {
+            if (node.x >= minX && node.x <= maxX && node.z >= minZ && node.z <= maxZ) {
+                results.add(node);
+            }
+        }
+    }
+
+    private void removeFromCell(MapNode node, long key) {
+        ArrayList<MapNode> cell = cells.get(key);
+        if (cell == null) return;
+        // swap with the last entry so the removal doesn't shift the list
+        int index = cell.indexOf(node);
+        if (index != -1) {
+            int last = cell.size() - 1;
+            cell.set(index, cell.get(last));
+            cell.remove(last);
+        }
+        if (cell.isEmpty()) cells.remove(key);
+    }
+
+    private int cellIndex(double worldPos) {
+        return (int) Math.floor(worldPos / cellSize);
+    }
+
+    //
+    // The key is the cell x in the top 32 bits and the cell z in the bottom 32. Long.hashCode() xors
+    // the two halves, so neighbouring cells ( small x and z ) would mostly share a handful of hashes.
+    // Multiplying z by an odd constant spreads them out, and is undone with the constant's inverse.
+    //
+
+    private static final int KEY_Z_MULTIPLIER = 0x9E3779B9;
+    private static final int KEY_Z_INVERSE = 0x144CBC89;
+
+    static long keyFor(int cellX, int cellZ) {
+        return ((long) cellX << 32) | ((cellZ * KEY_Z_MULTIPLIER) & 0xFFFFFFFFL);
+    }
+
+    static int cellXOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int cellZOf(long key) {
+        return (int) key * KEY_Z_INVERSE;
+    }
+
+    private static class NearestResult {
+        private double distanceSq;
+        private MapNode node;
+
+        public NearestResult(double distanceSq) {
+            this.distanceSq = distanceSq;
+            this.node = null;
+        }
+    }
+}
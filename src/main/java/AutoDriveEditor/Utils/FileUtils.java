@@ -4,12 +4,25 @@ import AutoDriveEditor.AutoDriveEditor;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogFileIO;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
@@ -99,6 +112,112 @@ public class FileUtils {
         }
     }
 
+    public interface OutputWriter<E extends Exception> {
+        void write(OutputStream outputStream) throws IOException, E;
+    }
+
+    //
+    // Writes a file so a crash or a full disk part way through can never leave it half written.
+    //
+    // The contents are written to a temp file in the same directory, forced to disk, and then moved
+    // over the original in a single atomic rename, so the file is either the complete old version or
+    // the complete new one. The writer is free to close the stream it's given, the temp file is only
+    // closed once it has been forced to disk.
+    //
+
+    public static <E extends Exception> void writeFileAtomically(File file, OutputWriter<E> writer) throws IOException, E {
+        writeFileAtomically(file, writer, false);
+    }
+
+    //
+    // Same as writeFileAtomically(), but the file is left untouched if the SHA-256 hash of the new contents
+    // matches previousHash. Returns the hash of the new contents, so the caller can tell if it was skipped.
+    //
+    // The contents are hashed without being written anywhere first, so an unchanged file costs no disk
+    // I/O at all, the writer is only called a second time to write the file when the hash differs.
+    //
+
+    public static <E extends Exception> byte[] writeFileAtomicallyIfChanged(File file, byte[] previousHash, OutputWriter<E> writer) throws IOException, E {
+        if (previousHash != null) {
+            MessageDigest digest = createSHA256Digest();
+            OutputStream bufferedOutput = new BufferedOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest), 65536);
+            writer.write(bufferedOutput);
+            bufferedOutput.flush();
+            byte[] contentHash = digest.digest();
+            if (Arrays.equals(contentHash, previousHash)) {
+                if (bDebugLogFileIO) LOG.info("Contents of {} are unchanged, not replacing it", file.getAbsolutePath());
+                return contentHash;
+            }
+        }
+        return writeFileAtomically(file, writer, true);
+    }
+
+    private static <E extends Exception> byte[] writeFileAtomically(File file, OutputWriter<E> writer, boolean hashContents) throws IOException, E {
+        Path filePath = file.getAbsoluteFile().toPath();
+        Path tempPath = Files.createTempFile(filePath.getParent(), file.getName(), ".tmp");
+        try {
+            MessageDigest digest = hashContents ? createSHA256Digest() : null;
+            try (FileOutputStream fileOutput = new FileOutputStream(tempPath.toFile())) {
+                OutputStream output = new UnclosableOutputStream(fileOutput);
+                if (digest != null) output = new DigestOutputStream(output, digest);
+                OutputStream bufferedOutput = new BufferedOutputStream(output, 65536);
+                writer.write(bufferedOutput);
+                bufferedOutput.flush();
+                fileOutput.getChannel().force(true);
+            }
+
+            try {
+                Files.move(tempPath, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                LOG.warn("Atomic move not supported for {}, replacing it instead", filePath);
+                Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            forceDirectory(filePath.getParent());
+            return (digest != null) ? digest.digest() : null;
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    private static MessageDigest createSHA256Digest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256, so this should never happen
+            throw new IOException(e);
+        }
+    }
+
+    //
+    // Makes the rename itself durable, not every platform allows a directory to be opened ( e.g. Windows ),
+    // in which case the move is left for the OS to flush
+    //
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            if (bDebugLogFileIO) LOG.info("Unable to sync directory {} - {}", directory, e.toString());
+        }
+    }
+
+    private static class UnclosableOutputStream extends FilterOutputStream {
+
+        private UnclosableOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
     public static String removeFilenameFromString(String path) {
         return path.substring(0, path.lastIndexOf("\\") + 1);
     }
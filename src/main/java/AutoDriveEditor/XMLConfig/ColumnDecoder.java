@@ -0,0 +1,200 @@
+package AutoDriveEditor.XMLConfig;
+
+import java.util.Arrays;
+
+//
+// Decodes the comma separated value columns used by the AutoDrive configs ( e.g. <x>, <id> or
+// <out> ) straight into primitive arrays.
+//
+// The text can be passed in as many chunks as needed, a value split across two chunks is
+// joined back together, so a column can be decoded as it's being read from the XML stream
+// without ever building the full column string. List columns like <out> and <incoming>
+// use ';' to separate the list of each node, and ',' to separate the entries in a list,
+// the other columns accept either ',' ( savegame configs ) or ';' ( route manager configs ).
+//
+
+public class ColumnDecoder {
+
+    private static final int TYPE_INT = 0;
+    private static final int TYPE_DOUBLE = 1;
+    private static final int TYPE_INT_LISTS = 2;
+
+    // values with more digits than this can't be converted exactly by the
+    // fast path, so they are handed to Double.parseDouble() instead
+
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+    private final int columnType;
+    private char[] token;
+    private int tokenLength;
+    private int[] intValues;
+    private double[] doubleValues;
+    private int valueCount;
+    private int[] listOffsets;
+    private int listCount;
+    private boolean listHasContent;
+
+    private ColumnDecoder(int columnType, int expectedSize) {
+        this.columnType = columnType;
+        this.token = new char[32];
+        int capacity = Math.max(16, expectedSize);
+        if (columnType == TYPE_DOUBLE) {
+            this.doubleValues = new double[capacity];
+        } else {
+            this.intValues = new int[capacity];
+        }
+        if (columnType == TYPE_INT_LISTS) {
+            this.listOffsets = new int[capacity + 1];
+        }
+        reset();
+    }
+
+    public static ColumnDecoder forInts(int expectedSize) { return new ColumnDecoder(TYPE_INT, expectedSize); }
+
+    public static ColumnDecoder forDoubles(int expectedSize) { return new ColumnDecoder(TYPE_DOUBLE, expectedSize); }
+
+    public static ColumnDecoder forIntLists(int expectedSize) { return new ColumnDecoder(TYPE_INT_LISTS, expectedSize); }
+
+    public void reset() {
+        this.tokenLength = 0;
+        this.valueCount = 0;
+        this.listCount = 0;
+        this.listHasContent = false;
+        if (this.listOffsets != null) this.listOffsets[0] = 0;
+    }
+
+    public void decode(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            decodeChar(text.charAt(i));
+        }
+    }
+
+    public void decode(char[] chars, int start, int length) {
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            decodeChar(chars[i]);
+        }
+    }
+
+    //
+    // Must be called after the last chunk of text, so the final value is decoded
+    //
+
+    public void finish() {
+        endValue();
+        if (this.columnType == TYPE_INT_LISTS && this.listHasContent) endList();
+    }
+
+    //
+    // For int and double columns this is the number of values, for list columns it's the number of lists
+    //
+
+    public int size() {
+        return (this.columnType == TYPE_INT_LISTS) ? this.listCount : this.valueCount;
+    }
+
+    public int getInt(int index) { return this.intValues[index]; }
+
+    public double getDouble(int index) { return this.doubleValues[index]; }
+
+    public int getListStart(int listIndex) { return this.listOffsets[listIndex]; }
+
+    public int getListEnd(int listIndex) { return this.listOffsets[listIndex + 1]; }
+
+    public int getListValue(int valueIndex) { return this.intValues[valueIndex]; }
+
+    private void decodeChar(char c) {
+        if (c == ',') {
+            endValue();
+        } else if (c == ';') {
+            endValue();
+            if (this.columnType == TYPE_INT_LISTS) endList();
+        } else if (!Character.isWhitespace(c)) {
+            if (this.tokenLength == this.token.length) this.token = Arrays.copyOf(this.token, this.token.length * 2);
+            this.token[this.tokenLength++] = c;
+            this.listHasContent = true;
+        }
+    }
+
+    private void endValue() {
+        if (this.tokenLength == 0) return;
+        if (this.columnType == TYPE_DOUBLE) {
+            if (this.valueCount == this.doubleValues.length) this.doubleValues = Arrays.copyOf(this.doubleValues, this.valueCount * 2);
+            this.doubleValues[this.valueCount++] = parseDoubleToken();
+        } else {
+            if (this.valueCount == this.intValues.length) this.intValues = Arrays.copyOf(this.intValues, this.valueCount * 2);
+            this.intValues[this.valueCount++] = parseIntToken();
+        }
+        this.tokenLength = 0;
+    }
+
+    private void endList() {
+        if (this.listCount + 1 == this.listOffsets.length) this.listOffsets = Arrays.copyOf(this.listOffsets, this.listOffsets.length * 2);
+        this.listOffsets[++this.listCount] = this.valueCount;
+        this.listHasContent = false;
+    }
+
+    private int parseIntToken() {
+        int index = 0;
+        boolean isNegative = false;
+        if (this.token[0] == '-' || this.token[0] == '+') {
+            isNegative = this.token[0] == '-';
+            index++;
+        }
+        int digitCount = this.tokenLength - index;
+        if (digitCount == 0 || digitCount > 9) return Integer.parseInt(new String(this.token, 0, this.tokenLength));
+
+        int value = 0;
+        for (; index < this.tokenLength; index++) {
+            char c = this.token[index];
+            if (c < '0' || c > '9') return Integer.parseInt(new String(this.token, 0, this.tokenLength));
+            value = (value * 10) + (c - '0');
+        }
+        return isNegative ? -value : value;
+    }
+
+    //
+    // The configs store plain decimals ( e.g. -123.456 ), those are converted here without creating
+    // a String. Dividing the exact digits by an exact power of ten gives the same correctly rounded
+    // result as Double.parseDouble(), anything else ( exponents, very long values ) falls back to it.
+    //
+
+    private double parseDoubleToken() {
+        int index = 0;
+        boolean isNegative = false;
+        if (this.token[0] == '-' || this.token[0] == '+') {
+            isNegative = this.token[0] == '-';
+            index++;
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionCount = 0;
+        boolean hasPoint = false;
+        for (; index < this.tokenLength; index++) {
+            char c = this.token[index];
+            if (c >= '0' && c <= '9') {
+                if (digitCount == MAX_FAST_DIGITS) return Double.parseDouble(new String(this.token, 0, this.tokenLength));
+                digits = (digits * 10) + (c - '0');
+                if (digits != 0) digitCount++;
+                if (hasPoint) fractionCount++;
+            } else if (c == '.' && !hasPoint) {
+                hasPoint = true;
+            } else {
+                return Double.parseDouble(new String(this.token, 0, this.tokenLength));
+            }
+        }
+        if (fractionCount > MAX_FAST_DIGITS || (digitCount == 0 && !hasDigit(index))) return Double.parseDouble(new String(this.token, 0, this.tokenLength));
+
+        double value = (double) digits / POWERS_OF_TEN[fractionCount];
+        return isNegative ? -value : value;
+    }
+
+    private boolean hasDigit(int end) {
+        for (int i = 0; i < end; i++) {
+            if (this.token[i] >= '0' && this.token[i] <= '9') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+
+//
+// Formats the values of the comma separated config columns, the counterpart of ColumnDecoder.
+//
+// Everything is appended straight into the callers StringBuilder, StringBuilder.append(long)
+// writes the digits in place, so no Strings are created for each value.
+//
+
+public class ColumnEncoder {
+
+    // coordinates larger than this can't be scaled to a long exactly,
+    // they are written by StringBuilder.append(double) instead
+
+    private static final double MAX_FIXED_VALUE = 1e12;
+
+    //
+    // Appends a coordinate with exactly 3 decimal places ( e.g. -12.500 ), the
+    // editor stores all node locations rounded to 3 decimal places
+    //
+
+    public static void appendCoordinate(StringBuilder text, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED_VALUE) {
+            text.append(value);
+            return;
+        }
+        long scaled = Math.round(Math.abs(value) * 1000);
+        if (value < 0 && scaled != 0) text.append('-');
+        text.append(scaled / 1000).append('.');
+        int fraction = (int) (scaled % 1000);
+        if (fraction < 100) text.append('0');
+        if (fraction < 10) text.append('0');
+        text.append(fraction);
+    }
+
+    //
+    // Appends the ID's of the nodes connected to a snapshot node separated by commas, or -1 if there are none
+    //
+
+    public static void appendOutgoingIDs(StringBuilder text, RoadMapSnapshot snapshot, int index) {
+        int start = snapshot.getOutStart(index);
+        int end = snapshot.getOutEnd(index);
+        if (start == end) {
+            text.append(-1);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            if (i > start) text.append(',');
+            text.append(snapshot.getOutID(i));
+        }
+    }
+
+    public static void appendIncomingIDs(StringBuilder text, RoadMapSnapshot snapshot, int index) {
+        int start = snapshot.getIncomingStart(index);
+        int end = snapshot.getIncomingEnd(index);
+        if (start == end) {
+            text.append(-1);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            if (i > start) text.append(',');
+            text.append(snapshot.getIncomingID(i));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package AutoDriveEditor.XMLConfig;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+
+import static AutoDriveEditor.XMLConfig.MapNodeBuilder.decodeColumnAsync;
+
+//
+// Collects the text of a <waypoints> column from a StAX reader, which can split the text of one
+// element over several events, so the whole column can be handed to a background decode task.
+//
+
+public class ColumnText {
+
+    private char[] text = new char[65536];
+    private int length = 0;
+
+    public void append(char[] chars, int start, int count) {
+        if (length + count > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, length + count));
+        }
+        System.arraycopy(chars, start, text, length, count);
+        length += count;
+    }
+
+    //
+    // Starts decoding the collected text, nothing more can be appended afterwards
+    //
+
+    public ForkJoinTask<ColumnDecoder> decodeAsync(ColumnDecoder decoder) {
+        return decodeColumnAsync(text, length, decoder);
+    }
+}
@@ -0,0 +1,315 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.MarkerGroup;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogConfigInfo;
+import static AutoDriveEditor.Utils.FileUtils.writeFileAtomically;
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+
+//
+// Binary snapshot of a loaded config, written next to the XML file ( <config>.xml.editorcache ) so
+// reopening an unchanged config doesn't need the XML to be parsed again.
+//
+// The snapshot records the size and modified time of the XML it was created from ( the same check
+// the journal uses ), if either of them no longer matches the snapshot is ignored and the XML is
+// parsed as normal. The XML itself is never read to check it, so a valid snapshot is loaded without
+// touching the XML at all. The snapshot is written on a background thread once the config has been
+// loaded. The files are read into ordinary buffers rather than memory mapped, as Windows won't let a
+// file be replaced while a mapping of it is still waiting to be garbage collected, which would break
+// the next save. The layout is
+//
+//      header      - magic, format version, XML size, XML modified time
+//      strings     - config version, map name
+//      nodes       - node count, then the id, x, y, z and flag columns as primitive arrays
+//      adjacency   - outgoing and incoming connections in CSR form, an offsets array of
+//                    node count + 1 entries followed by the target node indexes
+//      markers     - marker count, then node index, name and group of each marker
+//      groups      - group count, then index and name of each route manager marker group
+//
+// Strings are stored as a byte count ( -1 for null ) followed by the UTF-8 bytes.
+//
+
+public class ConfigCache {
+
+    private static final int MAGIC = 0x41444543; // "ADEC"
+    private static final int FORMAT_VERSION = 2;
+    private static final String CACHE_EXTENSION = ".editorcache";
+
+    private static final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ConfigCache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //
+    // The contents of a snapshot, the nodes are fully linked and have their map markers set
+    //
+
+    public static class CachedConfig {
+        public final ArrayList<MapNode> nodes;
+        public final String version;
+        public final String mapName;
+        public final ArrayList<MarkerGroup> groups;
+
+        private CachedConfig(ArrayList<MapNode> nodes, String version, String mapName, ArrayList<MarkerGroup> groups) {
+            this.nodes = nodes;
+            this.version = version;
+            this.mapName = mapName;
+            this.groups = groups;
+        }
+    }
+
+    public static Path getCachePath(File source) {
+        return new File(source.getAbsolutePath() + CACHE_EXTENSION).toPath();
+    }
+
+    //
+    // Returns the snapshot for the source file, or null if there isn't one or it is out of date
+    //
+
+    public static CachedConfig read(File source) {
+        Path cachePath = getCachePath(source);
+        if (!Files.isRegularFile(cachePath)) return null;
+
+        long startTime = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = readFully(channel);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                LOG.info("Ignoring config cache {} - unknown format", cachePath);
+                return null;
+            }
+
+            long sourceSize = buffer.getLong();
+            long sourceModified = buffer.getLong();
+            BasicFileAttributes attributes = Files.readAttributes(source.toPath(), BasicFileAttributes.class);
+            if (attributes.size() != sourceSize || attributes.lastModifiedTime().toMillis() != sourceModified) {
+                LOG.info("Ignoring config cache {} - the config has changed", cachePath);
+                return null;
+            }
+
+            String version = readString(buffer);
+            String mapName = readString(buffer);
+
+            int nodeCount = readCount(buffer);
+            int[] ids = readInts(buffer, nodeCount);
+            double[] xValues = readDoubles(buffer, nodeCount);
+            double[] yValues = readDoubles(buffer, nodeCount);
+            double[] zValues = readDoubles(buffer, nodeCount);
+            int[] flags = readInts(buffer, nodeCount);
+            int[] outOffsets = readInts(buffer, nodeCount + 1);
+            int[] outTargets = readInts(buffer, readCount(buffer));
+            int[] inOffsets = readInts(buffer, nodeCount + 1);
+            int[] inTargets = readInts(buffer, readCount(buffer));
+            checkAdjacency(outOffsets, outTargets, nodeCount);
+            checkAdjacency(inOffsets, inTargets, nodeCount);
+
+            MapNode[] nodes = new MapNode[nodeCount];
+            // the stored coordinates were already rounded when the XML was loaded, so they are set
+            // directly rather than going through the rounding in the MapNode constructor again
+            MapNodeBuilder.nodeRange(nodeCount).forEach(i -> {
+                MapNode mapNode = new MapNode(ids[i], 0, 0, 0, flags[i], false, false);
+                mapNode.x = xValues[i];
+                mapNode.y = yValues[i];
+                mapNode.z = zValues[i];
+                nodes[i] = mapNode;
+            });
+            MapNodeBuilder.nodeRange(nodeCount).forEach(i -> {
+                for (int j = outOffsets[i]; j < outOffsets[i + 1]; j++) {
+                    nodes[i].outgoing.add(nodes[outTargets[j]]);
+                }
+                for (int j = inOffsets[i]; j < inOffsets[i + 1]; j++) {
+                    nodes[i].incoming.add(nodes[inTargets[j]]);
+                }
+            });
+
+            int markerCount = readCount(buffer);
+            for (int i = 0; i < markerCount; i++) {
+                int nodeIndex = buffer.getInt();
+                String markerName = readString(buffer);
+                String markerGroup = readString(buffer);
+                if (nodeIndex < 0 || nodeIndex >= nodeCount) throw new IOException("marker node index " + nodeIndex + " is out of range");
+                nodes[nodeIndex].createMapMarker(markerName, markerGroup);
+            }
+
+            int groupCount = readCount(buffer);
+            ArrayList<MarkerGroup> groups = new ArrayList<>(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                int groupIndex = buffer.getInt();
+                groups.add(new MarkerGroup(groupIndex, readString(buffer)));
+            }
+
+            ArrayList<MapNode> nodeList = new ArrayList<>(Arrays.asList(nodes));
+            LOG.info("Loaded {} nodes from config cache {} in {}ms", nodeCount, cachePath, System.currentTimeMillis() - startTime);
+            return new CachedConfig(nodeList, version, mapName, groups);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read config cache {} - {}", cachePath, e.toString());
+            return null;
+        }
+    }
+
+    //
+    // Writes a snapshot of the road map that has just been loaded from the source file on the cache
+    // thread. The road map is captured straight away, so this must be called before it can be edited
+    //
+
+    public static void writeInBackground(File source, String version, String mapName, List<MarkerGroup> groups) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(source.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            LOG.warn("Unable to write config cache for {} - {}", source, e.toString());
+            return;
+        }
+        RoadMapSnapshot snapshot = RoadMapSnapshot.capture();
+        ArrayList<MarkerGroup> groupCopies = new ArrayList<>(groups.size());
+        for (MarkerGroup group : groups) {
+            groupCopies.add(new MarkerGroup(group.groupIndex, group.groupName));
+        }
+        long sourceSize = attributes.size();
+        long sourceModified = attributes.lastModifiedTime().toMillis();
+        cacheExecutor.execute(() -> write(source, sourceSize, sourceModified, snapshot, version, mapName, groupCopies));
+    }
+
+    //
+    // Writes the snapshot, sourceSize and sourceModified are the attributes the source file had when
+    // it was loaded. The cache is only an optimization, so any errors are logged and otherwise ignored
+    //
+
+    static void write(File source, long sourceSize, long sourceModified, RoadMapSnapshot snapshot, String version, String mapName, List<MarkerGroup> groups) {
+        Path cachePath = getCachePath(source);
+        long startTime = System.currentTimeMillis();
+        try {
+            writeFileAtomically(cachePath.toFile(), outputStream -> {
+                DataOutputStream output = new DataOutputStream(outputStream);
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(sourceSize);
+                output.writeLong(sourceModified);
+                writeString(output, version);
+                writeString(output, mapName);
+
+                int nodeCount = snapshot.getNodeCount();
+                output.writeInt(nodeCount);
+                for (int i = 0; i < nodeCount; i++) output.writeInt(snapshot.getID(i));
+                for (int i = 0; i < nodeCount; i++) output.writeDouble(snapshot.getX(i));
+                for (int i = 0; i < nodeCount; i++) output.writeDouble(snapshot.getY(i));
+                for (int i = 0; i < nodeCount; i++) output.writeDouble(snapshot.getZ(i));
+                for (int i = 0; i < nodeCount; i++) output.writeInt(snapshot.getFlag(i));
+                writeAdjacency(output, snapshot, true);
+                writeAdjacency(output, snapshot, false);
+
+                output.writeInt(snapshot.getMarkerCount());
+                for (int marker = 0; marker < snapshot.getMarkerCount(); marker++) {
+                    output.writeInt(snapshot.getMarkerNodeIndex(marker));
+                    writeString(output, snapshot.getMarkerName(marker));
+                    writeString(output, snapshot.getMarkerGroup(marker));
+                }
+
+                output.writeInt(groups.size());
+                for (MarkerGroup group : groups) {
+                    output.writeInt(group.groupIndex);
+                    writeString(output, group.groupName);
+                }
+                output.flush();
+            });
+            if (bDebugLogConfigInfo) LOG.info("Wrote config cache {} in {}ms", cachePath, System.currentTimeMillis() - startTime);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to write config cache {} - {}", cachePath, e.toString());
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) throw new IOException("cache file is too large ( " + size + " bytes )");
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) throw new IOException("cache file ended early");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // the snapshot stores the ID's of the connected nodes, which are their index + 1
+
+    private static void writeAdjacency(DataOutputStream output, RoadMapSnapshot snapshot, boolean outgoing) throws IOException {
+        int nodeCount = snapshot.getNodeCount();
+        output.writeInt(0);
+        for (int i = 0; i < nodeCount; i++) {
+            output.writeInt(outgoing ? snapshot.getOutEnd(i) : snapshot.getIncomingEnd(i));
+        }
+        int connectionCount = (nodeCount == 0) ? 0 : (outgoing ? snapshot.getOutEnd(nodeCount - 1) : snapshot.getIncomingEnd(nodeCount - 1));
+        output.writeInt(connectionCount);
+        for (int offset = 0; offset < connectionCount; offset++) {
+            int targetIndex = (outgoing ? snapshot.getOutID(offset) : snapshot.getIncomingID(offset)) - 1;
+            if (targetIndex < 0 || targetIndex >= nodeCount) throw new IOException("connection to ID " + (targetIndex + 1) + " is outside the road map");
+            output.writeInt(targetIndex);
+        }
+    }
+
+    private static void checkAdjacency(int[] offsets, int[] targets, int nodeCount) throws IOException {
+        for (int i = 0; i < nodeCount; i++) {
+            if (offsets[i] > offsets[i + 1]) throw new IOException("connection offsets are out of order");
+        }
+        if (offsets[0] != 0 || offsets[nodeCount] != targets.length) throw new IOException("connection offsets don't match the connection count");
+        for (int target : targets) {
+            if (target < 0 || target >= nodeCount) throw new IOException("connection index " + target + " is out of range");
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String text) throws IOException {
+        if (text == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) return null;
+        if (length < 0 || length > buffer.remaining()) throw new IOException("invalid string length " + length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(ByteBuffer buffer) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) throw new IOException("invalid count " + count);
+        return count;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + (count * Integer.BYTES));
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + (count * Double.BYTES));
+        return values;
+    }
+}
@@ -0,0 +1,234 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+//
+// Writes a config as a stream of XML events, indenting each element on its own line ( by 2 spaces
+// unless told otherwise ) the same way the DOM Transformer did.
+//
+// The large <waypoints> columns are written in chunks through a small reusable buffer, so a column
+// is never built up as a single string before being written.
+//
+
+public class ConfigStreamWriter implements AutoCloseable {
+
+    private static final int COLUMN_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_INDENT_SIZE = 2;
+
+    private final BufferedWriter bufferedWriter;
+    private final XMLStreamWriter writer;
+    private final ArrayDeque<Boolean> hasChildElements;
+    private final StringBuilder columnText;
+    private final char[] columnBuffer;
+    private final String indent;
+
+    public ConfigStreamWriter(OutputStream outputStream) throws XMLStreamException {
+        this(outputStream, DEFAULT_INDENT_SIZE);
+    }
+
+    public ConfigStreamWriter(OutputStream outputStream, int indentSize) throws XMLStreamException {
+        this.bufferedWriter = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 65536);
+        this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(this.bufferedWriter);
+        this.hasChildElements = new ArrayDeque<>();
+        this.columnText = new StringBuilder(COLUMN_BUFFER_SIZE + 64);
+        this.columnBuffer = new char[COLUMN_BUFFER_SIZE + 64];
+        this.indent = " ".repeat(indentSize);
+    }
+
+    public void startDocument() throws XMLStreamException, IOException {
+        // written directly, as XMLStreamWriter has no way to add the standalone attribute
+        this.bufferedWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+    }
+
+    public void endDocument() throws XMLStreamException {
+        this.writer.writeCharacters("\n");
+        this.writer.flush();
+    }
+
+    public void startElement(String name) throws XMLStreamException {
+        writeIndent();
+        this.writer.writeStartElement(name);
+        this.hasChildElements.push(false);
+    }
+
+    //
+    // Starts a copy of the element the reader is on, including its attributes and namespaces
+    //
+
+    public void copyStartElement(XMLStreamReader reader) throws XMLStreamException {
+        writeIndent();
+        String prefix = reader.getPrefix();
+        String namespace = reader.getNamespaceURI();
+        if (namespace != null) {
+            this.writer.writeStartElement(prefix != null ? prefix : "", reader.getLocalName(), namespace);
+        } else {
+            this.writer.writeStartElement(reader.getLocalName());
+        }
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String namespacePrefix = reader.getNamespacePrefix(i);
+            if (namespacePrefix == null || namespacePrefix.isEmpty()) {
+                this.writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+            } else {
+                this.writer.writeNamespace(namespacePrefix, reader.getNamespaceURI(i));
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attributeNamespace = reader.getAttributeNamespace(i);
+            if (attributeNamespace != null && !attributeNamespace.isEmpty()) {
+                this.writer.writeAttribute(reader.getAttributePrefix(i), attributeNamespace, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            } else {
+                this.writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+        this.hasChildElements.push(false);
+    }
+
+    //
+    // Writes an element without any content ( <name/> ), its attributes can be added straight after
+    //
+
+    public void emptyElement(String name) throws XMLStreamException {
+        writeIndent();
+        this.writer.writeEmptyElement(name);
+    }
+
+    //
+    // Adds an attribute to the element that was just started, null values are left out
+    //
+
+    public void attribute(String name, String value) throws XMLStreamException {
+        if (value != null) this.writer.writeAttribute(name, value);
+    }
+
+    public void endElement() throws XMLStreamException {
+        flushColumn();
+        boolean hadChildElements = this.hasChildElements.pop();
+        if (hadChildElements) {
+            this.writer.writeCharacters("\n");
+            writeIndentChars(this.hasChildElements.size());
+        }
+        this.writer.writeEndElement();
+    }
+
+    public void textElement(String name, String text) throws XMLStreamException {
+        startElement(name);
+        if (text != null) this.writer.writeCharacters(text);
+        endElement();
+    }
+
+    //
+    // Copies a text event from the reader, whitespace only text is dropped as the output is re-indented
+    //
+
+    public void copyText(XMLStreamReader reader) throws XMLStreamException {
+        if (reader.isWhiteSpace()) return;
+        this.writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+    }
+
+    public void copyCData(XMLStreamReader reader) throws XMLStreamException {
+        this.writer.writeCData(reader.getText());
+    }
+
+    public void copyComment(XMLStreamReader reader) throws XMLStreamException {
+        writeIndent();
+        this.writer.writeComment(reader.getText());
+    }
+
+    public void copyProcessingInstruction(XMLStreamReader reader) throws XMLStreamException {
+        writeIndent();
+        String data = reader.getPIData();
+        if (data != null) {
+            this.writer.writeProcessingInstruction(reader.getPITarget(), data);
+        } else {
+            this.writer.writeProcessingInstruction(reader.getPITarget());
+        }
+    }
+
+    //
+    // Column values are collected in the column buffer and written out in chunks
+    //
+
+    public void appendValue(int value) throws XMLStreamException {
+        this.columnText.append(value);
+        checkColumnBuffer();
+    }
+
+    public void appendCoordinate(double value) throws XMLStreamException {
+        ColumnEncoder.appendCoordinate(this.columnText, value);
+        checkColumnBuffer();
+    }
+
+    public void appendOutgoingIDs(RoadMapSnapshot snapshot, int index) throws XMLStreamException {
+        ColumnEncoder.appendOutgoingIDs(this.columnText, snapshot, index);
+        checkColumnBuffer();
+    }
+
+    public void appendIncomingIDs(RoadMapSnapshot snapshot, int index) throws XMLStreamException {
+        ColumnEncoder.appendIncomingIDs(this.columnText, snapshot, index);
+        checkColumnBuffer();
+    }
+
+    public void appendSeparator(char separator) throws XMLStreamException {
+        this.columnText.append(separator);
+        checkColumnBuffer();
+    }
+
+    //
+    // A single append can take the column text well past the buffer size ( e.g. the ID list of a node
+    // with hundreds of connections ), so it's written out in as many buffer sized chunks as it needs
+    //
+
+    public void flushColumn() throws XMLStreamException {
+        int length = this.columnText.length();
+        if (length == 0) return;
+        for (int start = 0; start < length; start += this.columnBuffer.length) {
+            int end = Math.min(length, start + this.columnBuffer.length);
+            this.columnText.getChars(start, end, this.columnBuffer, 0);
+            this.writer.writeCharacters(this.columnBuffer, 0, end - start);
+        }
+        this.columnText.setLength(0);
+    }
+
+    public void flush() throws XMLStreamException, IOException {
+        flushColumn();
+        this.writer.flush();
+        this.bufferedWriter.flush();
+    }
+
+    @Override
+    public void close() throws XMLStreamException, IOException {
+        this.writer.close();
+        this.bufferedWriter.close();
+    }
+
+    private void checkColumnBuffer() throws XMLStreamException {
+        if (this.columnText.length() >= COLUMN_BUFFER_SIZE) flushColumn();
+    }
+
+    private void writeIndent() throws XMLStreamException {
+        flushColumn();
+        if (!this.hasChildElements.isEmpty()) {
+            this.hasChildElements.pop();
+            this.hasChildElements.push(true);
+        }
+        this.writer.writeCharacters("\n");
+        writeIndentChars(this.hasChildElements.size());
+    }
+
+    private void writeIndentChars(int depth) throws XMLStreamException {
+        for (int i = 0; i < depth; i++) {
+            this.writer.writeCharacters(this.indent);
+        }
+    }
+}
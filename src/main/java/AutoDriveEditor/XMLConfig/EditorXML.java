@@ -10,7 +10,7 @@ import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.awt.*;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -18,6 +18,7 @@ import static AutoDriveEditor.AutoDriveEditor.COURSE_EDITOR_VERSION;
 import static AutoDriveEditor.AutoDriveEditor.editor;
 import static AutoDriveEditor.GUI.MenuBuilder.bDebugLogConfigInfo;
 import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
+import static AutoDriveEditor.Utils.FileUtils.writeFileAtomically;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.Utils.XMLUtils.*;
 import static AutoDriveEditor.XMLConfig.GameXML.autoSaveLastUsedSlot;
@@ -40,6 +41,7 @@ public class EditorXML {
 
     public static int maxZoomLevel = 30;
     public static float nodeSize = 2;
+    public static int lodMetresPerPixel = 2; // 0 = always draw every node
 
     // curve panel default options
     
@@ -132,6 +134,7 @@ public class EditorXML {
             toolbarPosition = getTextValue(toolbarPosition, rootElement, "Toolbar_Position");
             maxZoomLevel = getIntegerValue(maxZoomLevel, rootElement, "MaxZoomLevel");
             nodeSize = getFloatValue(rootElement, "NodeSizeScale", nodeSize);
+            lodMetresPerPixel = getIntegerValue(lodMetresPerPixel, rootElement, "LODMetresPerPixel");
 
             bUseOnlineMapImages = getBooleanValue(bUseOnlineMapImages, rootElement, "Check_Online_MapImages");
             bContinuousConnections = getBooleanValue(bContinuousConnections, rootElement, "Continuous_Connection");
@@ -263,6 +266,7 @@ public class EditorXML {
             setTextValue("Toolbar_Position", doc, toolbarPosition, rootElement);
             setIntegerValue( "MaxZoomLevel", doc, maxZoomLevel, rootElement);
             setFloatValue("NodeSizeScale", doc, nodeSize, rootElement);
+            setIntegerValue("LODMetresPerPixel", doc, lodMetresPerPixel, rootElement);
             setBooleanValue("Check_Online_MapImages", doc, bUseOnlineMapImages, rootElement);
             setBooleanValue("Continuous_Connection", doc, bContinuousConnections, rootElement);
             setBooleanValue("MiddleMouseMove", doc, bMiddleMouseMove, rootElement);
@@ -360,10 +364,8 @@ public class EditorXML {
                 transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
 
                 DOMSource source = new DOMSource(doc);
-                StreamResult result;
                 try {
-                    result = new StreamResult(new FileOutputStream("EditorConfig.xml"));
-                    transformer.transform(source, result);
+                    writeFileAtomically(new File("EditorConfig.xml"), outputStream -> transformer.transform(source, new StreamResult(outputStream)));
                     LOG.info("{}", getLocaleString("console_editor_config_save_end"));
                 } catch (IOException ioe) {
                     LOG.error( getLocaleString("console_editor_config_save_error"));
@@ -2,32 +2,29 @@ package AutoDriveEditor.XMLConfig;
 
 import AutoDriveEditor.GUI.MenuBuilder;
 import AutoDriveEditor.Managers.ChangeManager;
+import AutoDriveEditor.Managers.JournalManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
 import com.vdurmont.semver4j.Semver;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import javax.swing.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
 
 import static AutoDriveEditor.AutoDriveEditor.*;
 import static AutoDriveEditor.GUI.MenuBuilder.*;
@@ -35,8 +32,9 @@ import static AutoDriveEditor.Locale.LocaleManager.getLocaleString;
 import static AutoDriveEditor.MapPanel.MapImage.*;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.FileUtils.removeExtension;
+import static AutoDriveEditor.Utils.FileUtils.writeFileAtomically;
+import static AutoDriveEditor.Utils.FileUtils.writeFileAtomicallyIfChanged;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
-import static AutoDriveEditor.Utils.XMLUtils.getTextValue;
 import static AutoDriveEditor.XMLConfig.EditorXML.maxAutoSaveSlots;
 
 public class GameXML {
@@ -46,10 +44,11 @@ public class GameXML {
 
     public static File xmlConfigFile;
     public static String lastLoadLocation;
-    private static boolean hasFlagTag = false; // indicates if the loaded XML file has the <flags> tag in the <waypoints> element
     public static boolean canEditConfig = false;
     public static int configVersion = 0;
     public static int autoSaveLastUsedSlot = 1;
+    // hash of the last autosave written, used to skip writing an identical autosave
+    private static byte[] lastAutoSaveHash;
 
     public static boolean loadConfigFile(File fXmlFile) {
         LOG.info("config loadFile: {}", fXmlFile.getAbsolutePath());
@@ -70,6 +69,9 @@ public class GameXML {
                 // initialize a new changeManager so undo/redo system won't throw errors
                 // when we try to undo/redo something on a config that is no longer loaded
                 changeManager = new ChangeManager();
+                // nothing to autosave until the newly loaded config is changed
+                ChangeManager.setSavedModificationCount(ChangeManager.getModificationCount());
+                JournalManager.openJournal(fXmlFile);
                 return true;
             } else {
                 JOptionPane.showMessageDialog(editor, getLocaleString("dialog_config_unknown"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
@@ -82,7 +84,53 @@ public class GameXML {
         }
     }
 
+    //
+    // Saves the config and waits for it to be written, used where the save has to be finished before
+    // carrying on ( e.g. exiting the editor, or a backup before merging nodes ). Any background saves
+    // are allowed to finish first, so they can't overwrite this one.
+    //
+
     public static boolean saveConfigFile(String newName, boolean isAutoSave, boolean isBackup) {
+        logSaveStart(isAutoSave, isBackup);
+        if (xmlConfigFile == null) return false;
+        SaveService.waitForSaves();
+
+        File sourceFile = xmlConfigFile;
+        if (newName != null) LOG.info("Saving config as {}", newName);
+        File saveFile = (newName == null) ? xmlConfigFile : new File(newName);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.capture();
+        UUID configUUID = RoadMap.uuid;
+        int staleGeneration = getStaleGeneration();
+        try {
+            saveXmlConfig(sourceFile, saveFile, snapshot, isAutoSave, isBackup);
+            onSaveComplete(saveFile, configUUID, staleGeneration, snapshot.getModificationCount(), isAutoSave, isBackup);
+            return true;
+        } catch (Exception e) {
+            onSaveFailed(e);
+            return false;
+        }
+    }
+
+    //
+    // Saves the config on the save thread, the road map is captured straight away so it can carry on
+    // being edited while the file is written.
+    //
+
+    public static void saveConfigFileInBackground(String newName) {
+        logSaveStart(false, false);
+        if (xmlConfigFile == null) return;
+
+        File sourceFile = xmlConfigFile;
+        if (newName != null) LOG.info("Saving config as {}", newName);
+        File saveFile = (newName == null) ? xmlConfigFile : new File(newName);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.capture();
+        UUID configUUID = RoadMap.uuid;
+        int staleGeneration = getStaleGeneration();
+        SaveService.submit(saveFile, () -> saveXmlConfig(sourceFile, saveFile, snapshot, false, false),
+                () -> onSaveComplete(saveFile, configUUID, staleGeneration, snapshot.getModificationCount(), false, false), GameXML::onSaveFailed);
+    }
+
+    private static void logSaveStart(boolean isAutoSave, boolean isBackup) {
         if (isAutoSave) {
             LOG.info(getLocaleString("console_config_autosave_start"));
         } else if (isBackup) {
@@ -90,37 +138,66 @@ public class GameXML {
         } else {
             LOG.info(getLocaleString("console_config_save_start"));
         }
+    }
 
-        try
-        {
-            if (xmlConfigFile == null) return false;
-            saveXmlConfig(xmlConfigFile, newName, isAutoSave, isBackup);
-            if (!isAutoSave && !isBackup) {
-                JOptionPane.showMessageDialog(editor, xmlConfigFile.getName() + " " + getLocaleString("dialog_save_success"), "AutoDrive", JOptionPane.INFORMATION_MESSAGE);
-                setStale(false);
-            }
-            return true;
-        } catch (Exception e) {
-            LOG.error(e.getMessage(), e);
-            JOptionPane.showMessageDialog(editor, getLocaleString("dialog_save_fail"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
-            return false;
+    //
+    // Nothing is updated if a different config was loaded while saving, and the config is only
+    // marked as saved if it wasn't changed after the road map was captured
+    //
+
+    private static void onSaveComplete(File saveFile, UUID configUUID, int staleGeneration, long modificationCount, boolean isAutoSave, boolean isBackup) {
+        if (RoadMap.uuid != configUUID) return;
+        ChangeManager.setSavedModificationCount(modificationCount);
+        if (isAutoSave || isBackup) return;
+        if (!saveFile.equals(xmlConfigFile)) {
+            xmlConfigFile = saveFile;
+            editor.setTitle(createTitle());
+        }
+        JournalManager.onConfigSaved(saveFile);
+        JOptionPane.showMessageDialog(editor, xmlConfigFile.getName() + " " + getLocaleString("dialog_save_success"), "AutoDrive", JOptionPane.INFORMATION_MESSAGE);
+        if (getStaleGeneration() == staleGeneration) setStale(false);
+    }
+
+    private static void onSaveFailed(Exception e) {
+        LOG.error(e.getMessage(), e);
+        JOptionPane.showMessageDialog(editor, getLocaleString("dialog_save_fail"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
+    }
+
+    //
+    // The autosave is skipped if nothing has been changed since the config was loaded or last saved,
+    // and the autosave slot is only written and moved on if the saved config differs from the last one.
+    //
+    // The road map is captured on the EDT in between edits, so the autosave never waits on a timer
+    // and never saves an edit that is only half done.
+    //
+
+    private static class AutoSaveSource {
+        private final File sourceFile;
+        private final UUID configUUID;
+        private final int staleGeneration;
+        private final RoadMapSnapshot snapshot;
+
+        private AutoSaveSource() {
+            this.sourceFile = xmlConfigFile;
+            this.configUUID = RoadMap.uuid;
+            this.staleGeneration = getStaleGeneration();
+            this.snapshot = RoadMapSnapshot.capture();
         }
     }
 
     public static void autoSaveGameConfigFile() {
-        while (!canAutoSave) {
-            try {
-                LOG.info("canAutoSave = false --- Waiting");
-                //noinspection BusyWait
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        if (!ChangeManager.isModifiedSinceSave()) {
+            LOG.info("No changes since the last save, skipping autosave");
+            return;
         }
 
-        String filename = removeExtension(xmlConfigFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
-        File file = new File(filename);
         try {
+            SaveService.waitForSaves();
+            AutoSaveSource source = callWhenNoEditInProgress(AutoSaveSource::new);
+            if (source.sourceFile == null) return;
+
+            String filename = removeExtension(source.sourceFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
+            File file = new File(filename);
             if (file.exists()) {
                 if (file.isDirectory())
                     throw new IOException("File '" + file + "' is a directory");
@@ -128,36 +205,142 @@ public class GameXML {
                 if (!file.canWrite())
                     throw new IOException("File '" + file + "' cannot be written");
             }
-            saveConfigFile(filename, true, false);
+            logSaveStart(true, false);
+
+            byte[] contentHash = writeFileAtomicallyIfChanged(file, lastAutoSaveHash, outputStream -> writeXmlConfig(outputStream, source.sourceFile, source.snapshot));
+            SwingUtilities.invokeLater(() -> onSaveComplete(file, source.configUUID, source.staleGeneration, source.snapshot.getModificationCount(), true, false));
+            if (Arrays.equals(contentHash, lastAutoSaveHash)) {
+                LOG.info("Config is the same as the last autosave, skipping autosave");
+                return;
+            }
+            lastAutoSaveHash = contentHash;
+            LOG.info(getLocaleString("console_config_autosave_end"));
             autoSaveLastUsedSlot++;
             if (autoSaveLastUsedSlot == maxAutoSaveSlots + 1 ) autoSaveLastUsedSlot = 1;
-        }
-        catch(IOException ioEx) {
-            ioEx.printStackTrace();
+        } catch (InterruptedException e) {
+            LOG.info("AutoSave interrupted");
+            Thread.currentThread().interrupt();
+        } catch (IOException | XMLStreamException | ExecutionException e) {
+            SwingUtilities.invokeLater(() -> onSaveFailed(e));
         }
     }
 
-    private static RoadMap loadXmlConfigFile(File fXmlFile) throws ParserConfigurationException, IOException, SAXException {
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        Document doc = dBuilder.parse(fXmlFile);
-        doc.getDocumentElement().normalize();
+    //
+    // Reads the config in a single pass with a StAX stream reader, the <waypoints> columns are decoded
+    // into primitive arrays by background tasks while the rest of the file is read, so the column
+    // strings are never built. The map markers, version and map name are collected in the same pass.
+    //
+    // If the config is unchanged since it was last opened, everything is read from its binary
+    // snapshot instead ( see ConfigCache ), and a new snapshot is written after the XML is parsed.
+    //
+
+    private static RoadMap loadXmlConfigFile(File fXmlFile) throws IOException, XMLStreamException {
 
         LOG.info("----------------------------");
         LOG.info("loadXmlConfigFile Parsing {}", fXmlFile.getAbsolutePath());
 
-        if (!doc.getDocumentElement().getNodeName().equals("AutoDrive")) {
-            LOG.info("Not an AutoDrive Config");
-            return null;
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        ArrayList<String> markerIDs = new ArrayList<>();
+        ArrayList<String> markerNames = new ArrayList<>();
+        ArrayList<String> markerGroups = new ArrayList<>();
+        String version = null;
+        String markerIDTag = null;
+        String mapName = null;
+
+        WaypointColumns waypointColumns = null;
+        StringBuilder currentText = null;
+        String currentTextElement = null;
+        int markerDepth = 0;
+
+        ConfigCache.CachedConfig cachedConfig = ConfigCache.read(fXmlFile);
+        if (cachedConfig != null) {
+            nodes = cachedConfig.nodes;
+            version = cachedConfig.version;
+            mapName = cachedConfig.mapName;
+        } else {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(fXmlFile))) {
+                XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+                try {
+                    reader.nextTag();
+                    if (!reader.getLocalName().equals("AutoDrive")) {
+                        LOG.info("Not an AutoDrive Config");
+                        return null;
+                    }
+
+                    while (reader.hasNext()) {
+                        int event = reader.next();
+                        if (event == XMLStreamConstants.START_ELEMENT) {
+                            String elementName = reader.getLocalName();
+                            if (markerDepth > 0) markerDepth++;
+                            if (waypointColumns != null) {
+                                waypointColumns.startColumn(elementName);
+                            } else if (elementName.equals("waypoints")) {
+                                LOG.info("----------------------------");
+                                LOG.info("{} : AutoDrive", getLocaleString("console_root_node"));
+                                LOG.info("Current Element :waypoints");
+                                waypointColumns = new WaypointColumns();
+                            } else if (elementName.equals("mapmarker") && markerDepth == 0) {
+                                markerDepth = 1;
+                            } else if ((markerDepth > 0 && (elementName.equals("id") || elementName.equals("name") || elementName.equals("group"))) ||
+                                    (version == null && elementName.equals("version")) ||
+                                    (markerIDTag == null && elementName.equals("markerID")) ||
+                                    (mapName == null && elementName.equals("MapName"))) {
+                                currentTextElement = elementName;
+                                currentText = new StringBuilder();
+                            }
+                        } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                            if (waypointColumns != null) {
+                                waypointColumns.appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            } else if (currentText != null) {
+                                currentText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            }
+                        } else if (event == XMLStreamConstants.END_ELEMENT) {
+                            String elementName = reader.getLocalName();
+                            if (waypointColumns != null) {
+                                if (elementName.equals("waypoints")) {
+                                    waypointColumns.createMapNodes(nodes);
+                                    waypointColumns = null;
+                                } else {
+                                    waypointColumns.endColumn();
+                                }
+                            } else if (currentText != null) {
+                                String text = (currentText.length() > 0) ? currentText.toString() : null;
+                                if (markerDepth > 0) {
+                                    if (currentTextElement.equals("id")) {
+                                        markerIDs.add(text);
+                                    } else if (currentTextElement.equals("name")) {
+                                        markerNames.add(text);
+                                    } else {
+                                        markerGroups.add(text);
+                                    }
+                                } else if (currentTextElement.equals("version")) {
+                                    version = text;
+                                } else if (currentTextElement.equals("markerID")) {
+                                    markerIDTag = text;
+                                } else {
+                                    mapName = text;
+                                }
+                                currentText = null;
+                                currentTextElement = null;
+                            }
+                            if (markerDepth > 0) markerDepth--;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
         }
 
-        if (getTextValue(null, doc.getDocumentElement(), "markerID") != null) {
+        if (markerIDTag != null) {
             JOptionPane.showConfirmDialog(editor, "" + getLocaleString("console_config_unsupported1") + "\n\n" + getLocaleString("console_config_unsupported2"), "AutoDrive", JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE);
             LOG.info("## {}",getLocaleString("console_config_unsupported1"));
             LOG.info("## {}",getLocaleString("console_config_unsupported2"));
             canEditConfig = false;
         } else {
-            String version = getTextValue(null, doc.getDocumentElement(), "version");
             Semver configSemver = new Semver(version);
 
             if (configSemver.getMajor() == 1 ) {
@@ -171,177 +354,47 @@ public class GameXML {
             canEditConfig = true;
         }
 
-        NodeList nList = doc.getElementsByTagName("waypoints");
-
-        LinkedList<MapNode> nodes = new LinkedList<>();
-        for (int temp = 0; temp < nList.getLength(); temp++) {
-            LOG.info("----------------------------");
-            LOG.info("{} : {}", getLocaleString("console_root_node"), doc.getDocumentElement().getNodeName());
-            Node nNode = nList.item(temp);
-            LOG.info("Current Element :{}", nNode.getNodeName());
-
-            if (nNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element eElement = (Element) nNode;
-
-                NodeList nodeList = eElement.getElementsByTagName("id").item(0).getChildNodes();
-                Node node = nodeList.item(0);
-                if ( node !=null ) {
-                    String idString = node.getNodeValue();
-                    String[] ids = idString.split(",");
-                    LOG.info("<waypoints> key = {} ID's", ids.length);
-                    LOG.info("----------------------------");
-
-
-                    nodeList = eElement.getElementsByTagName("x").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String xString = node.getNodeValue();
-                    String[] xValues = xString.split(",");
-                    LOG.info("{} <x> Entries", xValues.length);
-
-                    nodeList = eElement.getElementsByTagName("y").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String yString = node.getNodeValue();
-                    String[] yValues = yString.split(",");
-                    LOG.info("{} <y> Entries", yValues.length);
-
-                    nodeList = eElement.getElementsByTagName("z").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String zString = node.getNodeValue();
-                    String[] zValues = zString.split(",");
-                    LOG.info("{} <z> Entries", zValues.length);
-
-                    nodeList = eElement.getElementsByTagName("out").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String outString = node.getNodeValue();
-                    String[] outValueArrays = outString.split(";");
-                    LOG.info("{} <out> Entries", outValueArrays.length);
-
-                    nodeList = eElement.getElementsByTagName("incoming").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String incomingString = node.getNodeValue();
-                    String[] incomingValueArrays = incomingString.split(";");
-                    LOG.info("{} <in> Entries", incomingValueArrays.length);
-
-                    if (eElement.getElementsByTagName("flags").item(0) != null ) {
-                        nodeList = eElement.getElementsByTagName("flags").item(0).getChildNodes();
-                        node = nodeList.item(0);
-                        String flagsString = node.getNodeValue();
-                        String[] flagsValue = flagsString.split(",");
-                        LOG.info("{} <flags> Entries", flagsValue.length);
-                        LOG.info("----------------------------");
-
-                        hasFlagTag = true;
-
-                        LOG.info("starting creation of {} map nodes", ids.length);
-
-                        for (int i=0; i<ids.length; i++) {
-                            int id = Integer.parseInt(ids[i]);
-                            double x = Double.parseDouble(xValues[i]);
-                            double y = Double.parseDouble(yValues[i]);
-                            double z = Double.parseDouble(zValues[i]);
-                            int flag = Integer.parseInt(flagsValue[i]);
-                            // is this a FS22 AutoDrive config
-                            if (configVersion == FS22_CONFIG) {
-                                // check if a nodes flag values is equal 2 or 4, this means it was autogenerated by AutoDrive from the map splines
-                                if (flag == 2 || flag == 4) {
-                                    // reset the flag to 0, the editor will just see it as a CONNECTION_REGULAR in checks
-                                    flag = 0;
-                                }
-                            }
+        // the flags can only be checked once the version is known, as FS22 configs
+        // need the spline flag values reset
 
-                            MapNode mapNode = new MapNode(id, x, y, z, flag, false, false);
-                            nodes.add(mapNode);
-                        }
-                    } else {
-                        hasFlagTag = false;
-                        LOG.info("No <flags> tag found... starting creation of {} map nodes with flag set to 0", ids.length);
-                        for (int i=0; i<ids.length; i++) {
-                            int id = Integer.parseInt(ids[i]);
-                            double x = Double.parseDouble(xValues[i]);
-                            double y = Double.parseDouble(yValues[i]);
-                            double z = Double.parseDouble(zValues[i]);
-                            int flag = 0;
-
-                            MapNode mapNode = new MapNode(id, x, y, z, flag, false, false);
-                            nodes.add(mapNode);
-                        }
-                    }
-
-                    for (int i=0; i<ids.length; i++) {
-                        MapNode mapNode = nodes.get(i);
-                        String[] outNodes = outValueArrays[i].split(",");
-                        for (String outNode : outNodes) {
-                            if (Integer.parseInt(outNode) != -1) {
-                                mapNode.outgoing.add(nodes.get(Integer.parseInt(outNode) - 1));
-                            }
-                        }
-                    }
-
-                    for (int i=0; i<ids.length; i++) {
-                        MapNode mapNode = nodes.get(i);
-                        String[] incomingNodes = incomingValueArrays[i].split(",");
-                        for (String incomingNode : incomingNodes) {
-                            if (Integer.parseInt(incomingNode) != -1) {
-                                mapNode.incoming.add(nodes.get(Integer.parseInt(incomingNode)-1));
-                            }
-                        }
-                    }
-                    LOG.info("Finished creating all map nodes");
-                    LOG.info("----------------------------");
+        if (configVersion == FS22_CONFIG) {
+            for (MapNode mapNode : nodes) {
+                // check if a nodes flag values is equal 2 or 4, this means it was autogenerated by AutoDrive from the map splines
+                if (mapNode.flag == 2 || mapNode.flag == 4) {
+                    // reset the flag to 0, the editor will just see it as a CONNECTION_REGULAR in checks
+                    mapNode.flag = 0;
                 }
             }
         }
 
-        NodeList markerList = doc.getElementsByTagName("mapmarker");
+        LOG.info("Starting Creation of {} Markers", markerIDs.size());
 
+        for (int markerIndex = 0; markerIndex < markerIDs.size(); markerIndex++ ) {
+            String markerNodeId = markerIDs.get(markerIndex);
+            String markerName = markerNames.get(markerIndex);
+            String markerGroup = markerGroups.get(markerIndex);
 
+            // AD 6.0.0.4 config fix for Node ID's being Long Format
+            float num = Float.parseFloat(markerNodeId);
+            int id = (int) num;
 
-        for (int temp = 0; temp < markerList.getLength(); temp++) {
-            Node markerNode = markerList.item(temp);
-            if (markerNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element eElement = (Element) markerNode;
-
-                NodeList idNodeList = eElement.getElementsByTagName("id");
-                NodeList nameNodeList = eElement.getElementsByTagName("name");
-                NodeList groupNodeList = eElement.getElementsByTagName("group");
-
-                LOG.info("Starting Creation of {} Markers", idNodeList.getLength());
-
-                for (int markerIndex = 0; markerIndex<idNodeList.getLength(); markerIndex++ ) {
-                    Node node = idNodeList.item(markerIndex).getChildNodes().item(0);
-                    String markerNodeId = node.getNodeValue();
-
-                    node = nameNodeList.item(markerIndex).getChildNodes().item(0);
-                    String markerName = node.getNodeValue();
-
-                    node = groupNodeList.item(markerIndex).getChildNodes().item(0);
-                    String markerGroup = node.getNodeValue();
-
-                    // AD 6.0.0.4 config fix for Node ID's being Long Format
-                    float num = Float.parseFloat(markerNodeId);
-                    int id = (int) num;
-
-                    // add the marker info to the node
-                    MapNode mapNode = nodes.get(id - 1);
-                    mapNode.createMapMarker(markerName, markerGroup);
-                    if (bDebugLogConfigInfo) LOG.info("created marker - index {} ( ID {} ) , name {} , group {}", id-1, id, markerName, markerGroup);
-                }
-            }
+            // add the marker info to the node
+            MapNode mapNode = nodes.get(id - 1);
+            mapNode.createMapMarker(markerName, markerGroup);
+            if (bDebugLogConfigInfo) LOG.info("created marker - index {} ( ID {} ) , name {} , group {}", id-1, id, markerName, markerGroup);
         }
 
         LOG.info("Finished creating all map markers");
         LOG.info("---------------------------------");
 
         RoadMap roadMap = new RoadMap();
-        RoadMap.mapNodes = nodes;
+        RoadMap.setMapNodes(nodes);
 
-        // check for MapName element
+        // unsupported configs are never cached, so they always show the warning when opened
 
-        NodeList mapNameNode = doc.getElementsByTagName("MapName");
-        Element mapNameElement = (Element) mapNameNode.item(0);
-        if ( mapNameElement != null) {
-            NodeList fstNm = mapNameElement.getChildNodes();
-            String mapName = (fstNm.item(0)).getNodeValue();
+        if (cachedConfig == null && canEditConfig) ConfigCache.writeInBackground(fXmlFile, version, mapName, Collections.emptyList());
+
+        if (mapName != null) {
             LOG.info("{} : {}", getLocaleString("console_config_load"), mapName);
             RoadMap.mapName = mapName;
         }
@@ -354,222 +407,259 @@ public class GameXML {
         return roadMap;
     }
 
-    private static void saveXmlConfig(File file, String newName, boolean isAutoSave, boolean isBackup) throws ParserConfigurationException, IOException, SAXException, TransformerException, XPathExpressionException {
-
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        Document doc = docBuilder.parse(file);
-        Node AutoDrive = doc.getFirstChild();
-        Node waypoints = doc.getElementsByTagName("waypoints").item(0);
-        int totalMarkers = 0;
-
-        // If no <flags> tag was detected on config load, create it
-
-        if (!hasFlagTag) {
-            Element flagTag = doc.createElement("flags");
-            waypoints.appendChild(flagTag);
-        }
-
-
-
-        // loop the staff child node
-        NodeList list = waypoints.getChildNodes();
-
-        for (int i = 0; i < list.getLength(); i++) {
-            Node node = list.item(i);
-
-            if ("id".equals(node.getNodeName())) {
-                StringBuilder ids = new StringBuilder();
-                for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-                    MapNode mapNode = RoadMap.mapNodes.get(j);
-                    ids.append(mapNode.id);
-                    if (j < (RoadMap.mapNodes.size() - 1)) {
-                        ids.append(",");
-                    }
-                    // check if each mapNode has a mapMarker and increment totalMarkers if it has one
-                    // NOTE: TotalMarkers is used later on in creating the map markers entries.
-                    if (mapNode.hasMapMarker()) totalMarkers++;
-                }
-                node.setTextContent(ids.toString());
-            }
-            if ("x".equals(node.getNodeName())) {
-                StringBuilder xPositions = new StringBuilder();
-                for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-                    MapNode mapNode = RoadMap.mapNodes.get(j);
-                    xPositions.append(mapNode.x);
-                    if (j < (RoadMap.mapNodes.size() - 1)) {
-                        xPositions.append(",");
-                    }
-                }
-                node.setTextContent(xPositions.toString());
-            }
-            if ("y".equals(node.getNodeName())) {
-                StringBuilder yPositions = new StringBuilder();
-                for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-                    MapNode mapNode = RoadMap.mapNodes.get(j);
-                    yPositions.append(mapNode.y);
-                    if (j < (RoadMap.mapNodes.size() - 1)) {
-                        yPositions.append(",");
-                    }
-                }
-                node.setTextContent(yPositions.toString());
-            }
-            if ("z".equals(node.getNodeName())) {
-                StringBuilder zPositions = new StringBuilder();
-                for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-                    MapNode mapNode = RoadMap.mapNodes.get(j);
-                    zPositions.append(mapNode.z);
-                    if (j < (RoadMap.mapNodes.size() - 1)) {
-                        zPositions.append(",");
-                    }
-                }
-                node.setTextContent(zPositions.toString());
-            }
-            if ("incoming".equals(node.getNodeName())) {
-                StringBuilder incomingString = new StringBuilder();
-                for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-                    MapNode mapNode = RoadMap.mapNodes.get(j);
-                    StringBuilder incomingPerNode = new StringBuilder();
-                    for (int incomingIndex = 0; incomingIndex < mapNode.incoming.size(); incomingIndex++) {
-                        MapNode incomingNode = mapNode.incoming.get(incomingIndex);
-                        incomingPerNode.append(incomingNode.id);
-                        if (incomingIndex < (mapNode.incoming.size() - 1)) {
-                            incomingPerNode.append(",");
-                        }
-                    }
-                    if (incomingPerNode.toString().isEmpty()) {
-                        incomingPerNode = new StringBuilder("-1");
-                    }
-                    incomingString.append(incomingPerNode);
-                    if (j < (RoadMap.mapNodes.size() - 1)) {
-                        incomingString.append(";");
-                    }
-                }
-                node.setTextContent(incomingString.toString());
-            }
-            if ("out".equals(node.getNodeName())) {
-                StringBuilder outgoingString = new StringBuilder();
-                for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-                    MapNode mapNode = RoadMap.mapNodes.get(j);
-                    StringBuilder outgoingPerNode = new StringBuilder();
-                    for (int outgoingIndex = 0; outgoingIndex < mapNode.outgoing.size(); outgoingIndex++) {
-                        MapNode outgoingNode = mapNode.outgoing.get(outgoingIndex);
-                        outgoingPerNode.append(outgoingNode.id);
-                        if (outgoingIndex < (mapNode.outgoing.size() - 1)) {
-                            outgoingPerNode.append(",");
-                        }
-                    }
-                    if (outgoingPerNode.toString().isEmpty()) {
-                        outgoingPerNode = new StringBuilder("-1");
-                    }
-                    outgoingString.append(outgoingPerNode);
-                    if (j < (RoadMap.mapNodes.size() - 1)) {
-                        outgoingString.append(";");
-                    }
-                }
-                node.setTextContent(outgoingString.toString());
-            }
-            if ("flags".equals(node.getNodeName())) {
-                StringBuilder flags = new StringBuilder();
-                for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-                    MapNode mapNode = RoadMap.mapNodes.get(j);
-                    flags.append(mapNode.flag);
-                    if (j < (RoadMap.mapNodes.size() - 1)) {
-                        flags.append(",");
-                    }
-                }
-                node.setTextContent(flags.toString());
+    //
+    // Collects the <waypoints> columns while the config is being read. The text of each column is
+    // copied into its own buffer and handed to a background decode task as soon as the column ends,
+    // so the columns are decoded in parallel with each other and with the rest of the file being read.
+    //
+
+    private static class WaypointColumns {
+        private static final int ID_COLUMN = 0;
+        private static final int FLAGS_COLUMN = 6;
+
+        private final ColumnDecoder[] decoders = { ColumnDecoder.forInts(1024), ColumnDecoder.forDoubles(1024), ColumnDecoder.forDoubles(1024), ColumnDecoder.forDoubles(1024),
+                ColumnDecoder.forIntLists(1024), ColumnDecoder.forIntLists(1024), ColumnDecoder.forInts(1024) };
+        private final ForkJoinTask<?>[] decodeTasks = new ForkJoinTask<?>[7];
+        private int currentColumn = -1;
+        private ColumnText columnText;
+
+        // only the first occurrence of each column is used
+
+        public void startColumn(String elementName) {
+            int column;
+            switch (elementName) {
+                case "id": column = ID_COLUMN; break;
+                case "x": column = 1; break;
+                case "y": column = 2; break;
+                case "z": column = 3; break;
+                case "out": column = 4; break;
+                case "incoming": column = 5; break;
+                case "flags": column = FLAGS_COLUMN; break;
+                default: return;
             }
+            if (decodeTasks[column] != null) return;
+            currentColumn = column;
+            columnText = new ColumnText();
         }
 
-        // remove all the existing map markers, so we can save an upto date list
-
-        for (int markerIndex = 1; markerIndex < totalMarkers + 100; markerIndex++) {
-            Element element = (Element) doc.getElementsByTagName("mm" + (markerIndex)).item(0);
-            if (element != null) {
-                Element parent = (Element) element.getParentNode();
-                while (parent.hasChildNodes())
-                    parent.removeChild(parent.getFirstChild());
-            }
+        public void appendText(char[] chars, int start, int length) {
+            if (currentColumn == -1) return;
+            columnText.append(chars, start, length);
         }
 
-        // Check if the mapmarker key exists in the XML, if it doesn't exist and totalMarkers > 1
-        // we need to create the <mapmarker> key or else we will get an exception thrown..
-
-        NodeList testWaypoints = doc.getElementsByTagName("mapmarker");
-
-        if (totalMarkers > 0 && testWaypoints.getLength() == 0 ) {
-            LOG.info("{}", getLocaleString("console_markers_new"));
-            Element test = doc.createElement("mapmarker");
-            AutoDrive.appendChild(test);
+        public void endColumn() {
+            if (currentColumn == -1) return;
+            decodeTasks[currentColumn] = columnText.decodeAsync(decoders[currentColumn]);
+            currentColumn = -1;
+            columnText = null;
         }
 
-        NodeList markerList = doc.getElementsByTagName("mapmarker");
-        Node markerNode = markerList.item(0);
-        int mapMarkerCount = 1;
-        for (MapNode mapNode : RoadMap.mapNodes) {
-            if (mapNode.hasMapMarker()) {
-                Element newMarkerElement = doc.createElement("mm" + mapMarkerCount);
-
-                Element markerID = doc.createElement("id");
-                markerID.appendChild(doc.createTextNode("" + mapNode.id));
-                newMarkerElement.appendChild(markerID);
+        public boolean hasFlags() { return decodeTasks[FLAGS_COLUMN] != null; }
 
-                Element markerName = doc.createElement("name");
-                markerName.appendChild(doc.createTextNode(mapNode.getMarkerName()));
-                newMarkerElement.appendChild(markerName);
+        public void createMapNodes(ArrayList<MapNode> nodes) throws XMLStreamException {
+            for (ForkJoinTask<?> decodeTask : decodeTasks) {
+                if (decodeTask != null) decodeTask.join();
+            }
 
-                Element markerGroup = doc.createElement("group");
-                markerGroup.appendChild(doc.createTextNode(mapNode.getMarkerGroup()));
-                newMarkerElement.appendChild(markerGroup);
+            ColumnDecoder ids = decoders[ID_COLUMN];
+            ColumnDecoder xValues = decoders[1];
+            ColumnDecoder yValues = decoders[2];
+            ColumnDecoder zValues = decoders[3];
+            ColumnDecoder outValues = decoders[4];
+            ColumnDecoder incomingValues = decoders[5];
+            ColumnDecoder flagsValues = decoders[FLAGS_COLUMN];
+            if (ids.size() == 0) return;
+
+            if (xValues.size() < ids.size() || yValues.size() < ids.size() || zValues.size() < ids.size() || outValues.size() < ids.size() ||
+                    incomingValues.size() < ids.size() || (hasFlags() && flagsValues.size() < ids.size())) {
+                throw new XMLStreamException("<waypoints> columns are shorter than the " + ids.size() + " ID's");
+            }
 
-                markerNode.appendChild(newMarkerElement);
-                mapMarkerCount += 1;
+            LOG.info("<waypoints> key = {} ID's", ids.size());
+            LOG.info("----------------------------");
+            LOG.info("{} <x> Entries", xValues.size());
+            LOG.info("{} <y> Entries", yValues.size());
+            LOG.info("{} <z> Entries", zValues.size());
+            LOG.info("{} <out> Entries", outValues.size());
+            LOG.info("{} <in> Entries", incomingValues.size());
+            if (hasFlags()) {
+                LOG.info("{} <flags> Entries", flagsValues.size());
+                LOG.info("----------------------------");
+                LOG.info("starting creation of {} map nodes", ids.size());
+            } else {
+                LOG.info("No <flags> tag found... starting creation of {} map nodes with flag set to 0", ids.size());
             }
 
+            MapNodeBuilder.createMapNodes(nodes, ids.size(), ids, xValues, yValues, zValues, hasFlags() ? flagsValues : null, outValues, incomingValues);
+            LOG.info("Finished creating all map nodes");
+            LOG.info("----------------------------");
         }
+    }
 
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-        DOMSource source = new DOMSource(doc);
+    //
+    // Saves the config by streaming the original file through to the new one, every element is copied
+    // across untouched except the <waypoints> columns and the <mapmarker> entries, which are written
+    // from the road map snapshot. The new file is written with writeFileAtomically(), so the original
+    // can still be read while saving over it, and is never left half written. Nothing here touches the
+    // UI or the live road map, so it's safe to run on the save thread.
+    //
 
-        // Clean all the empty whitespaces from XML before save
+    private static void saveXmlConfig(File sourceFile, File saveFile, RoadMapSnapshot snapshot, boolean isAutoSave, boolean isBackup) throws IOException, XMLStreamException {
 
-        XPath xp = XPathFactory.newInstance().newXPath();
-        NodeList nl = (NodeList) xp.evaluate("//text()[normalize-space(.)='']", doc, XPathConstants.NODESET);
+        writeFileAtomically(saveFile, outputStream -> writeXmlConfig(outputStream, sourceFile, snapshot));
 
-        for (int i=0; i < nl.getLength(); ++i) {
-            Node node = nl.item(i);
-            node.getParentNode().removeChild(node);
+        if (isAutoSave) {
+            LOG.info(getLocaleString("console_config_autosave_end"));
+        } else if (isBackup) {
+            LOG.info(getLocaleString("console_config_backup_end"));
+        } else {
+            LOG.info(getLocaleString("console_config_save_end"));
         }
+    }
 
-        // write the content into xml file
+    private static void writeXmlConfig(OutputStream outputStream, File sourceFile, RoadMapSnapshot snapshot) throws IOException, XMLStreamException {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
 
-        StreamResult result;
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(sourceFile));
+             ConfigStreamWriter writer = new ConfigStreamWriter(outputStream)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+            try {
+                streamConfig(reader, writer, snapshot);
+            } finally {
+                reader.close();
+            }
+            writer.flush();
+        }
+    }
 
-        if (newName == null) {
-            result = new StreamResult(xmlConfigFile);
-        } else {
-            File newFile = new File(newName);
-            LOG.info("Saving config as {}",newName);
-            result = new StreamResult(newFile);
-            if (!isAutoSave && !isBackup) {
-                xmlConfigFile = newFile;
-                editor.setTitle(createTitle());
+    private static void streamConfig(XMLStreamReader reader, ConfigStreamWriter writer, RoadMapSnapshot snapshot) throws XMLStreamException, IOException {
+        int depth = 0;
+        boolean insideWaypoints = false;
+        boolean hasFlags = false;
+        boolean hasMapMarkers = false;
+
+        writer.startDocument();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String elementName = reader.getLocalName();
+                    if (depth == 1 && elementName.equals("waypoints")) {
+                        insideWaypoints = true;
+                    } else if (insideWaypoints && depth == 2 && writeWaypointColumn(writer, snapshot, elementName)) {
+                        // the column was written from the road map, skip the old values
+                        if (elementName.equals("flags")) hasFlags = true;
+                        skipElement(reader);
+                        break;
+                    } else if (depth == 1 && elementName.equals("mapmarker")) {
+                        // only the first <mapmarker> is used to store the markers, any others are emptied
+                        writer.copyStartElement(reader);
+                        if (!hasMapMarkers) writeMapMarkers(writer, snapshot);
+                        writer.endElement();
+                        hasMapMarkers = true;
+                        skipElement(reader);
+                        break;
+                    }
+                    writer.copyStartElement(reader);
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (insideWaypoints && depth == 2) {
+                        // If no <flags> tag was in the config, create it
+                        if (!hasFlags) writeWaypointColumn(writer, snapshot, "flags");
+                        insideWaypoints = false;
+                    } else if (depth == 1 && !hasMapMarkers && snapshot.getMarkerCount() > 0) {
+                        LOG.info("{}", getLocaleString("console_markers_new"));
+                        writer.startElement("mapmarker");
+                        writeMapMarkers(writer, snapshot);
+                        writer.endElement();
+                    }
+                    writer.endElement();
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    if (depth > 0) writer.copyText(reader);
+                    break;
+                case XMLStreamConstants.CDATA:
+                    writer.copyCData(reader);
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    writer.copyComment(reader);
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    writer.copyProcessingInstruction(reader);
+                    break;
+                default:
+                    break;
             }
         }
-        transformer.transform(source, result);
+        writer.endDocument();
+    }
 
-        if (isAutoSave) {
-            LOG.info(getLocaleString("console_config_autosave_end"));
-        } else if (isBackup) {
-            LOG.info(getLocaleString("console_config_backup_end"));
-        } else {
-            LOG.info(getLocaleString("console_config_save_end"));
+    //
+    // Writes the named <waypoints> column from the snapshot, returns false if it isn't a column
+    //
+
+    private static boolean writeWaypointColumn(ConfigStreamWriter writer, RoadMapSnapshot snapshot, String columnName) throws XMLStreamException {
+        int nodeCount = snapshot.getNodeCount();
+        switch (columnName) {
+            case "id":
+            case "x":
+            case "y":
+            case "z":
+            case "flags":
+                writer.startElement(columnName);
+                for (int j = 0; j < nodeCount; j++) {
+                    if (j > 0) writer.appendSeparator(',');
+                    switch (columnName) {
+                        case "id": writer.appendValue(snapshot.getID(j)); break;
+                        case "x": writer.appendCoordinate(snapshot.getX(j)); break;
+                        case "y": writer.appendCoordinate(snapshot.getY(j)); break;
+                        case "z": writer.appendCoordinate(snapshot.getZ(j)); break;
+                        default: writer.appendValue(snapshot.getFlag(j)); break;
+                    }
+                }
+                writer.endElement();
+                return true;
+            case "out":
+            case "incoming":
+                writer.startElement(columnName);
+                for (int j = 0; j < nodeCount; j++) {
+                    if (j > 0) writer.appendSeparator(';');
+                    if (columnName.equals("out")) {
+                        writer.appendOutgoingIDs(snapshot, j);
+                    } else {
+                        writer.appendIncomingIDs(snapshot, j);
+                    }
+                }
+                writer.endElement();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void writeMapMarkers(ConfigStreamWriter writer, RoadMapSnapshot snapshot) throws XMLStreamException {
+        for (int marker = 0; marker < snapshot.getMarkerCount(); marker++) {
+            writer.startElement("mm" + (marker + 1));
+            writer.textElement("id", String.valueOf(snapshot.getID(snapshot.getMarkerNodeIndex(marker))));
+            writer.textElement("name", snapshot.getMarkerName(marker));
+            writer.textElement("group", snapshot.getMarkerGroup(marker));
+            writer.endElement();
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int skipDepth = 1;
+        while (skipDepth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                skipDepth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                skipDepth--;
+            }
         }
     }
 
@@ -0,0 +1,74 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+//
+// Builds the road map nodes from the decoded <waypoints> columns, used by both the savegame
+// and route manager loaders.
+//
+// The columns don't depend on each other, so each one is decoded as a separate task on the
+// common ForkJoin pool, the caller only waits for them once all the columns have been handed
+// over. The nodes are then created and linked in parallel over the node indexes, each node's
+// incoming/outgoing lists are only ever written by the task handling that node.
+//
+
+public class MapNodeBuilder {
+
+    // below this many nodes the work isn't worth splitting across threads
+
+    private static final int PARALLEL_MIN_NODES = 10000;
+
+    //
+    // Starts decoding a column in the background, the text must not be changed until the task is done
+    //
+
+    public static ForkJoinTask<ColumnDecoder> decodeColumnAsync(char[] text, int length, ColumnDecoder decoder) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            decoder.decode(text, 0, length);
+            decoder.finish();
+            return decoder;
+        });
+    }
+
+    //
+    // Adds count new nodes to the end of the nodes list. The ids and flags columns are optional, without
+    // them the node ID's are numbered from 1 and all the flags are 0. Connection ID's refer to the
+    // position in the full nodes list ( ID 1 is nodes.get(0) ), -1 means no connection.
+    //
+
+    public static void createMapNodes(ArrayList<MapNode> nodes, int count, ColumnDecoder ids, ColumnDecoder xValues, ColumnDecoder yValues, ColumnDecoder zValues,
+                                      ColumnDecoder flagsValues, ColumnDecoder outValues, ColumnDecoder incomingValues) {
+
+        MapNode[] newNodes = new MapNode[count];
+        nodeRange(count).forEach(i -> {
+            int id = (ids != null) ? ids.getInt(i) : i + 1;
+            int flag = (flagsValues != null) ? flagsValues.getInt(i) : 0;
+            newNodes[i] = new MapNode(id, xValues.getDouble(i), yValues.getDouble(i), zValues.getDouble(i), flag, false, false);
+        });
+
+        nodes.addAll(Arrays.asList(newNodes));
+
+        nodeRange(count).forEach(i -> {
+            MapNode mapNode = newNodes[i];
+            for (int j = outValues.getListStart(i); j < outValues.getListEnd(i); j++) {
+                int outNode = outValues.getListValue(j);
+                if (outNode != -1) mapNode.outgoing.add(nodes.get(outNode - 1));
+            }
+            for (int j = incomingValues.getListStart(i); j < incomingValues.getListEnd(i); j++) {
+                int incomingNode = incomingValues.getListValue(j);
+                if (incomingNode != -1) mapNode.incoming.add(nodes.get(incomingNode - 1));
+            }
+        });
+    }
+
+    static IntStream nodeRange(int count) {
+        IntStream range = IntStream.range(0, count);
+        return (count >= PARALLEL_MIN_NODES) ? range.parallel() : range;
+    }
+}
@@ -1,28 +1,37 @@
 package AutoDriveEditor.XMLConfig;
 
+import AutoDriveEditor.Managers.ChangeManager;
+import AutoDriveEditor.Managers.JournalManager;
 import AutoDriveEditor.RoadNetwork.MapNode;
 import AutoDriveEditor.RoadNetwork.MarkerGroup;
 import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import javax.swing.*;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
 
 import static AutoDriveEditor.AutoDriveEditor.*;
 import static AutoDriveEditor.GUI.MenuBuilder.*;
@@ -31,6 +40,8 @@ import static AutoDriveEditor.Managers.ScanManager.scanNetworkForOverlapNodes;
 import static AutoDriveEditor.MapPanel.MapImage.*;
 import static AutoDriveEditor.MapPanel.MapPanel.*;
 import static AutoDriveEditor.Utils.FileUtils.removeExtension;
+import static AutoDriveEditor.Utils.FileUtils.writeFileAtomically;
+import static AutoDriveEditor.Utils.FileUtils.writeFileAtomicallyIfChanged;
 import static AutoDriveEditor.Utils.LoggerUtils.LOG;
 import static AutoDriveEditor.XMLConfig.EditorXML.maxAutoSaveSlots;
 import static AutoDriveEditor.XMLConfig.GameXML.autoSaveLastUsedSlot;
@@ -39,6 +50,8 @@ import static AutoDriveEditor.XMLConfig.GameXML.xmlConfigFile;
 public class RouteManagerXML {
 
     public static LinkedList<MarkerGroup> markerGroup = new LinkedList<>();
+    // hash of the last autosave written, used to skip writing an identical autosave
+    private static byte[] lastAutoSaveHash;
 
     public static boolean loadRouteManagerXML(File fXmlFile, boolean skipRoutesCheck, String mapName) {
         LOG.info("RouteManager loadFile: {}", fXmlFile.getAbsolutePath());
@@ -92,6 +105,9 @@ public class RouteManagerXML {
                 }
                 scanNetworkForOverlapNodes();
                 setStale(false);
+                // nothing to autosave until the newly loaded route is changed
+                ChangeManager.setSavedModificationCount(ChangeManager.getModificationCount());
+                JournalManager.openJournal(fXmlFile);
                 return true;
             } else {
                 JOptionPane.showMessageDialog(editor, getLocaleString("dialog_config_route_unknown"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
@@ -104,7 +120,51 @@ public class RouteManagerXML {
         }
     }
 
+    //
+    // Saves the route and waits for it to be written, used where the save has to be finished before
+    // carrying on ( autosaves, or a backup before merging nodes ). Any background saves are allowed
+    // to finish first, so they can't overwrite this one.
+    //
+
     public static void saveRouteManagerXML(String newName, boolean isAutoSave, boolean isBackup) {
+        logSaveStart(isAutoSave, isBackup);
+        if (xmlConfigFile == null) return;
+        SaveService.waitForSaves();
+
+        if (newName != null) LOG.info("Saving config as {}", newName);
+        File saveFile = (newName == null) ? xmlConfigFile : new File(newName);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.capture();
+        ArrayList<MarkerGroup> groups = copyMarkerGroups();
+        UUID configUUID = RoadMap.uuid;
+        int staleGeneration = getStaleGeneration();
+        try {
+            saveRouteXML(saveFile, snapshot, groups, isAutoSave, isBackup);
+            onSaveComplete(saveFile, configUUID, staleGeneration, snapshot.getModificationCount(), isAutoSave, isBackup);
+        } catch (Exception e) {
+            onSaveFailed(e);
+        }
+    }
+
+    //
+    // Saves the route on the save thread, the road map is captured straight away so it can carry on
+    // being edited while the file is written.
+    //
+
+    public static void saveRouteManagerXMLInBackground(String newName) {
+        logSaveStart(false, false);
+        if (xmlConfigFile == null) return;
+
+        if (newName != null) LOG.info("Saving config as {}", newName);
+        File saveFile = (newName == null) ? xmlConfigFile : new File(newName);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.capture();
+        ArrayList<MarkerGroup> groups = copyMarkerGroups();
+        UUID configUUID = RoadMap.uuid;
+        int staleGeneration = getStaleGeneration();
+        SaveService.submit(saveFile, () -> saveRouteXML(saveFile, snapshot, groups, false, false),
+                () -> onSaveComplete(saveFile, configUUID, staleGeneration, snapshot.getModificationCount(), false, false), RouteManagerXML::onSaveFailed);
+    }
+
+    private static void logSaveStart(boolean isAutoSave, boolean isBackup) {
         if (isAutoSave) {
             LOG.info(getLocaleString("console_config_autosave_start"));
         } else if (isBackup) {
@@ -112,35 +172,76 @@ public class RouteManagerXML {
         } else {
             LOG.info(getLocaleString("console_config_save_start"));
         }
+    }
 
-        try
-        {
-            if (xmlConfigFile == null) return;
-            saveRouteXML(xmlConfigFile, newName, isAutoSave, isBackup);
-            if (!isAutoSave || !isBackup) {
-                JOptionPane.showMessageDialog(editor, xmlConfigFile.getName() + " " + getLocaleString("dialog_save_success"), "AutoDrive", JOptionPane.INFORMATION_MESSAGE);
-                setStale(false);
-            }
-        } catch (Exception e) {
-            LOG.error(e.getMessage(), e);
-            JOptionPane.showMessageDialog(editor, getLocaleString("dialog_save_fail"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
+    private static ArrayList<MarkerGroup> copyMarkerGroups() {
+        ArrayList<MarkerGroup> groups = new ArrayList<>(markerGroup.size());
+        for (MarkerGroup group : markerGroup) {
+            groups.add(new MarkerGroup(group.groupIndex, group.groupName));
+        }
+        return groups;
+    }
+
+    //
+    // Nothing is updated if a different config was loaded while saving, and the route is only
+    // marked as saved if it wasn't changed after the road map was captured
+    //
+
+    private static void onSaveComplete(File saveFile, UUID configUUID, int staleGeneration, long modificationCount, boolean isAutoSave, boolean isBackup) {
+        if (RoadMap.uuid != configUUID) return;
+        ChangeManager.setSavedModificationCount(modificationCount);
+        if (isAutoSave || isBackup) return;
+        if (!saveFile.equals(xmlConfigFile)) {
+            xmlConfigFile = saveFile;
+            editor.setTitle(createTitle());
+        }
+        JournalManager.onConfigSaved(saveFile);
+        JOptionPane.showMessageDialog(editor, xmlConfigFile.getName() + " " + getLocaleString("dialog_save_success"), "AutoDrive", JOptionPane.INFORMATION_MESSAGE);
+        if (getStaleGeneration() == staleGeneration) setStale(false);
+    }
+
+    private static void onSaveFailed(Exception e) {
+        LOG.error(e.getMessage(), e);
+        JOptionPane.showMessageDialog(editor, getLocaleString("dialog_save_fail"), "AutoDrive", JOptionPane.ERROR_MESSAGE);
+    }
+
+    //
+    // The autosave is skipped if nothing has been changed since the route was loaded or last saved,
+    // and the autosave slot is only written and moved on if the saved route differs from the last one.
+    //
+    // The road map and marker groups are captured on the EDT in between edits, so the autosave never
+    // waits on a timer and never saves an edit that is only half done.
+    //
+
+    private static class AutoSaveSource {
+        private final File routeFile;
+        private final UUID configUUID;
+        private final int staleGeneration;
+        private final RoadMapSnapshot snapshot;
+        private final ArrayList<MarkerGroup> groups;
+
+        private AutoSaveSource() {
+            this.routeFile = xmlConfigFile;
+            this.configUUID = RoadMap.uuid;
+            this.staleGeneration = getStaleGeneration();
+            this.snapshot = RoadMapSnapshot.capture();
+            this.groups = copyMarkerGroups();
         }
     }
 
     public static void autoSaveRouteManagerXML() {
-        while (!canAutoSave) {
-            try {
-                LOG.info("canAutoSave = false --- Waiting 5 seconds to try again");
-                //noinspection BusyWait
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        if (!ChangeManager.isModifiedSinceSave()) {
+            LOG.info("No changes since the last save, skipping autosave");
+            return;
         }
 
-        String filename = removeExtension(xmlConfigFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
-        File file = new File(filename);
         try {
+            SaveService.waitForSaves();
+            AutoSaveSource source = callWhenNoEditInProgress(AutoSaveSource::new);
+            if (source.routeFile == null) return;
+
+            String filename = removeExtension(source.routeFile.getAbsolutePath()) + "_autosave_" + autoSaveLastUsedSlot + ".xml";
+            File file = new File(filename);
             if (file.exists()) {
                 if (file.isDirectory())
                     throw new IOException("File '" + file + "' is a directory");
@@ -148,337 +249,194 @@ public class RouteManagerXML {
                 if (!file.canWrite())
                     throw new IOException("File '" + file + "' cannot be written");
             }
-            saveRouteManagerXML(filename, true, false);
+            logSaveStart(true, false);
+
+            byte[] contentHash = writeFileAtomicallyIfChanged(file, lastAutoSaveHash, outputStream -> writeRouteXML(outputStream, source.snapshot, source.groups));
+            SwingUtilities.invokeLater(() -> onSaveComplete(file, source.configUUID, source.staleGeneration, source.snapshot.getModificationCount(), true, false));
+            if (Arrays.equals(contentHash, lastAutoSaveHash)) {
+                LOG.info("Route is the same as the last autosave, skipping autosave");
+                return;
+            }
+            lastAutoSaveHash = contentHash;
+            LOG.info(getLocaleString("console_config_autosave_end"));
             autoSaveLastUsedSlot++;
             if (autoSaveLastUsedSlot >= maxAutoSaveSlots + 1 ) autoSaveLastUsedSlot = 1;
-        }
-        catch(IOException ioEx) {
-            ioEx.printStackTrace();
+        } catch (InterruptedException e) {
+            LOG.info("AutoSave interrupted");
+            Thread.currentThread().interrupt();
+        } catch (IOException | XMLStreamException | ExecutionException e) {
+            SwingUtilities.invokeLater(() -> onSaveFailed(e));
         }
     }
 
-    private static RoadMap loadRouteXML(File fXmlFile)  throws ParserConfigurationException, IOException, SAXException {
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        Document doc = dBuilder.parse(fXmlFile);
-        doc.getDocumentElement().normalize();
+    //
+    // Reads the route in a single pass with a StAX stream reader, the same way as a savegame config
+    // ( see GameXML ). The <waypoints> columns are decoded by background tasks while the rest of the
+    // file is read, the <g> groups and <m> markers are read from their attributes.
+    //
+
+    private static RoadMap loadRouteXML(File fXmlFile) throws IOException, XMLStreamException {
+        ConfigCache.CachedConfig cachedConfig = ConfigCache.read(fXmlFile);
+        if (cachedConfig != null) {
+            markerGroup.clear();
+            markerGroup.addAll(cachedConfig.groups);
+            RoadMap roadMap = new RoadMap();
+            RoadMap.setMapNodes(cachedConfig.nodes);
+            return roadMap;
+        }
 
         LOG.info("----------------------------");
         LOG.info("loadRouteXML Parsing {}", fXmlFile.getAbsolutePath());
 
-        if (!doc.getDocumentElement().getNodeName().equals("routeExport")) {
-            LOG.info("Not an AutoDrive RoutesManager config");
-            return null;
-        }
-
-        NodeList waypointsList = doc.getElementsByTagName("waypoints");
-
-        LinkedList<MapNode> nodes = new LinkedList<>();
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
 
-        for (int temp = 0; temp < waypointsList.getLength(); temp++) {
-            LOG.info("----------------------------");
-            LOG.info("{} : {}", getLocaleString("console_root_node"), doc.getDocumentElement().getNodeName());
-            Node nNode = waypointsList.item(temp);
-            LOG.info("Current Element :{}", nNode.getNodeName());
-            if (nNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element eElement = (Element) nNode;
-                int wayPointIDs = Integer.parseInt(eElement.getAttribute("c"));
-                LOG.info("<waypoints> key = {} ID's", wayPointIDs);
-                LOG.info("----------------------------");
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        ArrayList<MarkerGroup> groups = new ArrayList<>();
+        ArrayList<String> markerIDs = new ArrayList<>();
+        ArrayList<String> markerNames = new ArrayList<>();
+        ArrayList<String> markerGroups = new ArrayList<>();
+        RouteColumns routeColumns = null;
 
-                if (wayPointIDs > 0 ) {
-                    NodeList nodeList = eElement.getElementsByTagName("x").item(0).getChildNodes();
-                    Node node = nodeList.item(0);
-                    String xString = node.getNodeValue();
-                    String[] xValues = xString.split(";");
-                    LOG.info("{} <x> Entries", xValues.length);
-
-                    nodeList = eElement.getElementsByTagName("y").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String yString = node.getNodeValue();
-                    String[] yValues = yString.split(";");
-                    LOG.info("{} <y> Entries", yValues.length);
-
-                    nodeList = eElement.getElementsByTagName("z").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String zString = node.getNodeValue();
-                    String[] zValues = zString.split(";");
-                    LOG.info("{} <z> Entries", zValues.length);
-
-                    nodeList = eElement.getElementsByTagName("out").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String outString = node.getNodeValue();
-                    String[] outValueArrays = outString.split(";");
-                    LOG.info("{} <out> Entries", outValueArrays.length);
-
-                    nodeList = eElement.getElementsByTagName("in").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String incomingString = node.getNodeValue();
-                    String[] inValueArrays = incomingString.split(";");
-                    LOG.info("{} <in> Entries", inValueArrays.length);
-
-                    nodeList = eElement.getElementsByTagName("flags").item(0).getChildNodes();
-                    node = nodeList.item(0);
-                    String flagsString = node.getNodeValue();
-                    String[] flagsValue = flagsString.split(";");
-                    LOG.info("{} <flags> Entries", flagsValue.length);
-                    LOG.info("----------------------------");
-
-                    LOG.info("starting creation of {} map nodes", wayPointIDs);
-
-                    for (int i=0; i<wayPointIDs; i++) {
-                        int id = i+1;
-                        long x = Long.parseLong(xValues[i]);
-                        long y = Long.parseLong(yValues[i]);
-                        long z = Long.parseLong(zValues[i]);
-                        int flag = Integer.parseInt(flagsValue[i]);
-                        MapNode mapNode = new MapNode(id, x, y, z, flag, false, false);
-                        nodes.add(mapNode);
-                    }
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(fXmlFile))) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+            try {
+                reader.nextTag();
+                if (!reader.getLocalName().equals("routeExport")) {
+                    LOG.info("Not an AutoDrive RoutesManager config");
+                    return null;
+                }
 
-                    for (int i=0; i<wayPointIDs; i++) {
-                        MapNode mapNode = nodes.get(i);
-                        String[] outNodes = outValueArrays[i].split(",");
-                        for (String outNode : outNodes) {
-                            if (Integer.parseInt(outNode) != -1) {
-                                mapNode.outgoing.add(nodes.get(Integer.parseInt(outNode) - 1));
-                            }
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String elementName = reader.getLocalName();
+                        if (routeColumns != null) {
+                            routeColumns.startColumn(elementName);
+                        } else if (elementName.equals("waypoints")) {
+                            LOG.info("----------------------------");
+                            LOG.info("{} : routeExport", getLocaleString("console_root_node"));
+                            LOG.info("Current Element :waypoints");
+                            int wayPointIDs = Integer.parseInt(reader.getAttributeValue(null, "c"));
+                            LOG.info("<waypoints> key = {} ID's", wayPointIDs);
+                            LOG.info("----------------------------");
+                            routeColumns = new RouteColumns(wayPointIDs);
+                        } else if (elementName.equals("g")) {
+                            String groupId = reader.getAttributeValue(null, "i");
+                            String groupName = reader.getAttributeValue(null, "n");
+                            if (bDebugLogRouteManager) LOG.info("Group {} : index {} , name {}", groups.size() + 1, groupId, groupName);
+                            groups.add(new MarkerGroup(Integer.parseInt(groupId), groupName));
+                        } else if (elementName.equals("m")) {
+                            markerIDs.add(reader.getAttributeValue(null, "i"));
+                            markerNames.add(reader.getAttributeValue(null, "n"));
+                            markerGroups.add(reader.getAttributeValue(null, "g"));
                         }
-                    }
-
-                    for (int i=0; i<wayPointIDs; i++) {
-                        MapNode mapNode = nodes.get(i);
-                        String[] incomingNodes = inValueArrays[i].split(",");
-                        for (String incomingNode : incomingNodes) {
-                            if (Integer.parseInt(incomingNode) != -1) {
-                                mapNode.incoming.add(nodes.get(Integer.parseInt(incomingNode)-1));
+                    } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                        if (routeColumns != null) {
+                            routeColumns.appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (routeColumns != null) {
+                            if (reader.getLocalName().equals("waypoints")) {
+                                routeColumns.createMapNodes(nodes);
+                                routeColumns = null;
+                            } else {
+                                routeColumns.endColumn();
                             }
                         }
                     }
-                    LOG.info("Finished creating all map nodes");
-                    LOG.info("----------------------------");
                 }
+            } finally {
+                reader.close();
             }
         }
 
-        NodeList groupList = doc.getElementsByTagName("g");
         markerGroup.clear();
-        if (bDebugLogRouteManager) {
-            LOG.info("----------------------------");
-            LOG.info("Group Index length = {}", groupList.getLength());
-            LOG.info("----------------------------");
-        }
-        for (int temp = 0; temp < groupList.getLength(); temp++) {
-            Node markerNode = groupList.item(temp);
-            if (markerNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element eElement = (Element) markerNode;
-                String groupId = eElement.getAttribute("i");
-                String groupName = eElement.getAttribute("n");
-                if (bDebugLogRouteManager) LOG.info("Group {} : index {} , name {}", temp+1, groupId, groupName);
-                MarkerGroup group = new MarkerGroup(Integer.parseInt(groupId), groupName);
-                markerGroup.add(group);
-            }
-        }
+        markerGroup.addAll(groups);
         if (bDebugLogRouteManager) LOG.info("markerGroup size {}", markerGroup.size());
 
-        NodeList markerList = doc.getElementsByTagName("m");
         if (bDebugLogRouteManager) {
             LOG.info("----------------------------");
-            LOG.info("Marker length = {}", markerList.getLength());
+            LOG.info("Marker length = {}", markerIDs.size());
             LOG.info("----------------------------");
         }
-        for (int temp = 0; temp < markerList.getLength(); temp++) {
-            Node markerNode = markerList.item(temp);
-            if (markerNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element eElement = (Element) markerNode;
-                String markerNodeId = eElement.getAttribute("i");
-                String markerName = eElement.getAttribute("n");
-                String markerGroup = eElement.getAttribute("g");
-                if (bDebugLogRouteManager) LOG.info("Marker {} : ID {} , name '{}' , group '{}'", temp+1, markerNodeId, markerName, markerGroup);
-                MapNode node = nodes.get(Integer.parseInt(markerNodeId) -1);
-                node.createMapMarker(markerName, markerGroup);
-            }
+        for (int i = 0; i < markerIDs.size(); i++) {
+            if (bDebugLogRouteManager) LOG.info("Marker {} : ID {} , name '{}' , group '{}'", i + 1, markerIDs.get(i), markerNames.get(i), markerGroups.get(i));
+            MapNode node = nodes.get(Integer.parseInt(markerIDs.get(i)) - 1);
+            node.createMapMarker(markerNames.get(i), markerGroups.get(i));
         }
+
         RoadMap roadMap = new RoadMap();
-        RoadMap.mapNodes = nodes;
+        RoadMap.setMapNodes(nodes);
+        ConfigCache.writeInBackground(fXmlFile, null, null, markerGroup);
         return roadMap;
     }
 
-    private static void saveRouteXML(File file, String newName, boolean isAutoSave, boolean isBackup) throws ParserConfigurationException, TransformerException {
-
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        Document doc = docBuilder.newDocument();
-
-        // create the root node
-
-        Element root = doc.createElement("routeExport");
-        doc.appendChild(root);
-
-        // create a parent node for the waypoints
+    //
+    // Collects the <waypoints> columns of one <waypoints> element, each column is decoded in the
+    // background as soon as its end tag is read
+    //
 
-        Element waypoints = doc.createElement("waypoints");
-        root.appendChild(waypoints);
-        waypoints.setAttribute("c", String.valueOf(RoadMap.mapNodes.size()));
+    private static class RouteColumns {
+        private static final String[] COLUMN_NAMES = { "x", "y", "z", "out", "in", "flags" };
 
-        // create a child node for all x co-ordinates
+        private final int wayPointIDs;
+        private final ColumnDecoder[] decoders;
+        private final ForkJoinTask<?>[] decodeTasks = new ForkJoinTask<?>[COLUMN_NAMES.length];
+        private int currentColumn = -1;
+        private ColumnText columnText;
 
-        Element xElement = doc.createElement("x");
-        waypoints.appendChild(xElement);
-        StringBuilder xPositions = new StringBuilder();
-        for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-            MapNode mapNode = RoadMap.mapNodes.get(j);
-            xPositions.append(mapNode.x);
-            if (j < (RoadMap.mapNodes.size() - 1)) {
-                xPositions.append(";");
-            }
-        }
-        xElement.setTextContent(xPositions.toString());
-
-        // create a child node for all y co-ordinates
-
-        Element yElement = doc.createElement("y");
-        waypoints.appendChild(yElement);
-        StringBuilder yPositions = new StringBuilder();
-        for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-            MapNode mapNode = RoadMap.mapNodes.get(j);
-            yPositions.append(mapNode.y);
-            if (j < (RoadMap.mapNodes.size() - 1)) {
-                yPositions.append(";");
-            }
-        }
-        yElement.setTextContent(yPositions.toString());
-
-        // create a child node for all z co-ordinates
-
-        Element zElement = doc.createElement("z");
-        waypoints.appendChild(zElement);
-        StringBuilder zPositions = new StringBuilder();
-        for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-            MapNode mapNode = RoadMap.mapNodes.get(j);
-            zPositions.append(mapNode.z);
-            if (j < (RoadMap.mapNodes.size() - 1)) {
-                zPositions.append(";");
-            }
-        }
-        zElement.setTextContent(zPositions.toString());
-
-        // create a child node for all outgoing connections
-
-        Element outElement = doc.createElement("out");
-        waypoints.appendChild(outElement);
-        StringBuilder outString = new StringBuilder();
-        for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-            MapNode mapNode = RoadMap.mapNodes.get(j);
-            StringBuilder outgoingPerNode = new StringBuilder();
-            for (int outgoingIndex = 0; outgoingIndex < mapNode.outgoing.size(); outgoingIndex++) {
-                MapNode outgoingNode = mapNode.outgoing.get(outgoingIndex);
-                outgoingPerNode.append(outgoingNode.id);
-                if (outgoingIndex < (mapNode.outgoing.size() - 1)) {
-                    outgoingPerNode.append(",");
-                }
-            }
-            if (outgoingPerNode.toString().isEmpty()) {
-                outgoingPerNode = new StringBuilder("-1");
-            }
-            outString.append(outgoingPerNode);
-            if (j < (RoadMap.mapNodes.size() - 1)) {
-                outString.append(";");
-            }
-        }
-        outElement.setTextContent(outString.toString());
-
-        // create a child node for all incoming connections
-
-        Element inElement = doc.createElement("in");
-        waypoints.appendChild(inElement);
-        StringBuilder inString = new StringBuilder();
-        for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-            MapNode mapNode = RoadMap.mapNodes.get(j);
-            StringBuilder incomingPerNode = new StringBuilder();
-            for (int incomingIndex = 0; incomingIndex < mapNode.incoming.size(); incomingIndex++) {
-                MapNode incomingNode = mapNode.incoming.get(incomingIndex);
-                incomingPerNode.append(incomingNode.id);
-                if (incomingIndex < (mapNode.incoming.size() - 1)) {
-                    incomingPerNode.append(",");
-                }
-            }
-            if (incomingPerNode.toString().isEmpty()) {
-                incomingPerNode = new StringBuilder("-1");
-            }
-            inString.append(incomingPerNode);
-            if (j < (RoadMap.mapNodes.size() - 1)) {
-                inString.append(";");
-            }
+        private RouteColumns(int wayPointIDs) {
+            this.wayPointIDs = wayPointIDs;
+            this.decoders = new ColumnDecoder[] { ColumnDecoder.forDoubles(wayPointIDs), ColumnDecoder.forDoubles(wayPointIDs), ColumnDecoder.forDoubles(wayPointIDs),
+                    ColumnDecoder.forIntLists(wayPointIDs), ColumnDecoder.forIntLists(wayPointIDs), ColumnDecoder.forInts(wayPointIDs) };
         }
-        inElement.setTextContent(inString.toString());
-
-        // create a child node for all flags
-
-        Element flagsElement = doc.createElement("flags");
-        waypoints.appendChild(flagsElement);
-        StringBuilder flags = new StringBuilder();
-        for (int j = 0; j < RoadMap.mapNodes.size(); j++) {
-            MapNode mapNode = RoadMap.mapNodes.get(j);
-            flags.append(mapNode.flag);
-            if (j < (RoadMap.mapNodes.size() - 1)) {
-                flags.append(";");
-            }
-        }
-        flagsElement.setTextContent(flags.toString());
-
-        // create a parent node for map markers
 
-        Element markers = doc.createElement("markers");
-        root.appendChild(markers);
+        // only the first occurrence of each column is used
 
-        // add all map markers to the marker element
-        for (MapNode mapNode : RoadMap.mapNodes) {
-            if (mapNode.hasMapMarker()) {
-                Element newMapMarker = doc.createElement("m");
-                markers.appendChild(newMapMarker);
-                newMapMarker.setAttribute("i", String.valueOf(mapNode.id));
-                newMapMarker.setAttribute("n", mapNode.getMarkerName());
-                newMapMarker.setAttribute("g", mapNode.getMarkerGroup());
-            }
+        public void startColumn(String elementName) {
+            int column = Arrays.asList(COLUMN_NAMES).indexOf(elementName);
+            if (column == -1 || decodeTasks[column] != null) return;
+            currentColumn = column;
+            columnText = new ColumnText();
+        }
 
+        public void appendText(char[] chars, int start, int length) {
+            if (currentColumn == -1) return;
+            columnText.append(chars, start, length);
         }
 
-        // create a parent node for marker groups
+        public void endColumn() {
+            if (currentColumn == -1) return;
+            decodeTasks[currentColumn] = columnText.decodeAsync(decoders[currentColumn]);
+            currentColumn = -1;
+            columnText = null;
+        }
 
-        Element groups = doc.createElement("groups");
-        root.appendChild(groups);
+        public void createMapNodes(ArrayList<MapNode> nodes) throws XMLStreamException {
+            for (ForkJoinTask<?> decodeTask : decodeTasks) {
+                if (decodeTask != null) decodeTask.join();
+            }
+            if (wayPointIDs <= 0) return;
 
-        LOG.info("marker groups size = {}", markerGroup.size());
+            for (int column = 0; column < COLUMN_NAMES.length; column++) {
+                LOG.info("{} <{}> Entries", decoders[column].size(), COLUMN_NAMES[column]);
+                if (decoders[column].size() < wayPointIDs) {
+                    throw new XMLStreamException("<waypoints> columns are shorter than the " + wayPointIDs + " ID's");
+                }
+            }
+            LOG.info("----------------------------");
 
-        for (MarkerGroup group : markerGroup) {
-            Element newMapMarker = doc.createElement("g");
-            groups.appendChild(newMapMarker);
-            newMapMarker.setAttribute("i", String.valueOf(group.groupIndex));
-            newMapMarker.setAttribute("n", group.groupName);
+            LOG.info("starting creation of {} map nodes", wayPointIDs);
+            MapNodeBuilder.createMapNodes(nodes, wayPointIDs, null, decoders[0], decoders[1], decoders[2], decoders[5], decoders[3], decoders[4]);
+            LOG.info("Finished creating all map nodes");
+            LOG.info("----------------------------");
         }
+    }
 
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-
-        DOMSource source = new DOMSource(doc);
-        StreamResult result;
+    private static void saveRouteXML(File saveFile, RoadMapSnapshot snapshot, List<MarkerGroup> groupList, boolean isAutoSave, boolean isBackup) throws XMLStreamException, IOException {
 
-        if (newName == null) {
-            result = new StreamResult(file);
-        } else {
-            File newFile = new File(newName);
-            LOG.info("Saving config as {}",newName);
-            result = new StreamResult(newFile);
-            if (!isAutoSave) {
-                xmlConfigFile = newFile;
-                editor.setTitle(createTitle());
-            }
-        }
-        transformer.transform(source, result);
+        writeFileAtomically(saveFile, outputStream -> writeRouteXML(outputStream, snapshot, groupList));
 
         if (isAutoSave) {
             LOG.info(getLocaleString("console_config_autosave_end"));
@@ -489,6 +447,61 @@ public class RouteManagerXML {
         }
     }
 
+    //
+    // Writes the route with a StAX stream writer, the columns are written straight from the snapshot
+    //
+
+    private static void writeRouteXML(OutputStream outputStream, RoadMapSnapshot snapshot, List<MarkerGroup> groupList) throws XMLStreamException, IOException {
+        ConfigStreamWriter writer = new ConfigStreamWriter(outputStream, 4);
+        int nodeCount = snapshot.getNodeCount();
+
+        writer.startDocument();
+        writer.startElement("routeExport");
+
+        writer.startElement("waypoints");
+        writer.attribute("c", String.valueOf(nodeCount));
+
+        for (String columnName : new String[] { "x", "y", "z", "out", "in", "flags" }) {
+            writer.startElement(columnName);
+            for (int j = 0; j < nodeCount; j++) {
+                if (j > 0) writer.appendSeparator(';');
+                switch (columnName) {
+                    case "x": writer.appendCoordinate(snapshot.getX(j)); break;
+                    case "y": writer.appendCoordinate(snapshot.getY(j)); break;
+                    case "z": writer.appendCoordinate(snapshot.getZ(j)); break;
+                    case "out": writer.appendOutgoingIDs(snapshot, j); break;
+                    case "in": writer.appendIncomingIDs(snapshot, j); break;
+                    default: writer.appendValue(snapshot.getFlag(j)); break;
+                }
+            }
+            writer.endElement();
+        }
+        writer.endElement();
+
+        writer.startElement("markers");
+        for (int marker = 0; marker < snapshot.getMarkerCount(); marker++) {
+            writer.emptyElement("m");
+            writer.attribute("i", String.valueOf(snapshot.getID(snapshot.getMarkerNodeIndex(marker))));
+            writer.attribute("n", snapshot.getMarkerName(marker));
+            writer.attribute("g", snapshot.getMarkerGroup(marker));
+        }
+        writer.endElement();
+
+        LOG.info("marker groups size = {}", groupList.size());
+
+        writer.startElement("groups");
+        for (MarkerGroup group : groupList) {
+            writer.emptyElement("g");
+            writer.attribute("i", String.valueOf(group.groupIndex));
+            writer.attribute("n", group.groupName);
+        }
+        writer.endElement();
+
+        writer.endElement();
+        writer.endDocument();
+        writer.flush();
+    }
+
     public static LinkedList<Route> getRoutesConfigContents(File routesFile) {
         try {
             if (bDebugLogRouteManager) {
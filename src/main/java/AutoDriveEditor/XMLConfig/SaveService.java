@@ -0,0 +1,88 @@
+package AutoDriveEditor.XMLConfig;
+
+import javax.swing.*;
+import java.io.File;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static AutoDriveEditor.Utils.LoggerUtils.LOG;
+
+//
+// Writes configs on a background thread so the editor stays responsive while saving.
+//
+// The caller captures everything the save needs ( see RoadMapSnapshot ) before submitting it, the
+// write then runs on the save thread and the success or failure callback is run on the EDT.
+// Saves run one at a time in the order they were submitted. A save submitted while another save
+// to the same file is still waiting to start replaces the waiting one, as the newer save already
+// contains all its changes, so repeated saves never queue up multiple writes of the same file.
+//
+
+public class SaveService {
+
+    public interface SaveTask {
+        void write() throws Exception;
+    }
+
+    private static final ExecutorService saveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SaveService");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // saves that have been submitted but not yet started, by destination file
+
+    private static final HashMap<File, PendingSave> pendingSaves = new HashMap<>();
+
+    private static class PendingSave {
+        private final SaveTask saveTask;
+        private final Runnable onSuccess;
+        private final Consumer<Exception> onFailure;
+
+        private PendingSave(SaveTask saveTask, Runnable onSuccess, Consumer<Exception> onFailure) {
+            this.saveTask = saveTask;
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+    }
+
+    public static void submit(File saveFile, SaveTask saveTask, Runnable onSuccess, Consumer<Exception> onFailure) {
+        File key = saveFile.getAbsoluteFile();
+        synchronized (pendingSaves) {
+            if (pendingSaves.put(key, new PendingSave(saveTask, onSuccess, onFailure)) != null) {
+                LOG.info("Save of {} is already waiting, it will use the latest changes", key.getName());
+                return;
+            }
+        }
+        saveExecutor.execute(() -> runSave(key));
+    }
+
+    //
+    // Blocks until every save submitted so far has been written, the callbacks may still be waiting to run on the EDT
+    //
+
+    public static void waitForSaves() {
+        try {
+            saveExecutor.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    private static void runSave(File key) {
+        PendingSave pendingSave;
+        synchronized (pendingSaves) {
+            pendingSave = pendingSaves.remove(key);
+        }
+        try {
+            pendingSave.saveTask.write();
+            SwingUtilities.invokeLater(pendingSave.onSuccess);
+        } catch (Exception e) {
+            SwingUtilities.invokeLater(() -> pendingSave.onFailure.accept(e));
+        }
+    }
+}
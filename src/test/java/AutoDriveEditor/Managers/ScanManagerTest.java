@@ -0,0 +1,104 @@
+package AutoDriveEditor.Managers;
+
+import AutoDriveEditor.MapPanel.MapPanel;
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ScanManagerTest {
+
+    private ArrayList<MapNode> nodes;
+
+    //
+    // Two groups of overlapping nodes, 1-2-3 chained together and 5-6, with connections into, out
+    // of and between the members of each group
+    //
+
+    @Before
+    public void createRoadMap() {
+        MapPanel.roadMap = new RoadMap();
+        double[] positions = { 0, 0.03, 0.06, 10, 20, 20.02, 30 };
+        nodes = new ArrayList<>();
+        for (int i = 0; i < positions.length; i++) {
+            nodes.add(new MapNode(i + 1, positions[i], 0, 0, 0, false, false));
+        }
+        RoadMap.setMapNodes(nodes);
+        connect(1, 2);
+        connect(2, 3);
+        connect(3, 4);
+        connect(4, 2);
+        connect(4, 5);
+        connect(6, 7);
+        connect(7, 6);
+        connect(5, 6);
+        ScanManager.updateOverlapWarnings(nodes);
+    }
+
+    @Test
+    public void mergesEachGroupIntoItsLowestID() {
+        ScanManager.MergeNodesChanger mergeChanger = ScanManager.mergeNodeGroups();
+        assertNotNull(mergeChanger);
+
+        // 1-2-3 become 1, 4 becomes 2, 5-6 become 3 and 7 becomes 4, the connections between the members
+        // of a group are dropped
+        assertEquals(List.of("1 in[2] out[2] warn[]", "2 in[1] out[1, 3] warn[]", "3 in[2, 4] out[4] warn[]", "4 in[3] out[3] warn[]"), describeRoadMap());
+        for (MapNode mapNode : RoadMap.mapNodes) assertFalse(mapNode.hasWarning);
+    }
+
+    @Test
+    public void undoAndRedoRestoreTheRoadMapExactly() {
+        List<MapNode> nodesBefore = new ArrayList<>(RoadMap.mapNodes);
+        List<String> before = describeRoadMap();
+
+        ScanManager.MergeNodesChanger mergeChanger = ScanManager.mergeNodeGroups();
+        assertNotNull(mergeChanger);
+        List<MapNode> nodesAfter = new ArrayList<>(RoadMap.mapNodes);
+        List<String> after = describeRoadMap();
+        assertNotEquals(before, after);
+
+        for (int i = 0; i < 2; i++) {
+            mergeChanger.restoreMergedNodes();
+            assertEquals(nodesBefore, RoadMap.mapNodes);
+            assertEquals(before, describeRoadMap());
+
+            mergeChanger.removeMergedNodes();
+            assertEquals(nodesAfter, RoadMap.mapNodes);
+            assertEquals(after, describeRoadMap());
+        }
+    }
+
+    private void connect(int startID, int endID) {
+        MapNode start = nodes.get(startID - 1);
+        MapNode end = nodes.get(endID - 1);
+        start.outgoing.add(end);
+        end.incoming.add(start);
+    }
+
+    // the order of the warnings depends on the order the nodes were checked in, so only which nodes are in them is compared
+
+    private static List<String> describeRoadMap() {
+        ArrayList<String> description = new ArrayList<>();
+        for (MapNode mapNode : RoadMap.mapNodes) {
+            List<Integer> warnings = ids(mapNode.warningNodes);
+            Collections.sort(warnings);
+            description.add(mapNode.id + " in" + ids(mapNode.incoming) + " out" + ids(mapNode.outgoing) + " warn" + warnings);
+        }
+        return description;
+    }
+
+    private static List<Integer> ids(List<MapNode> connections) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (MapNode mapNode : connections) ids.add(mapNode.id);
+        return ids;
+    }
+}
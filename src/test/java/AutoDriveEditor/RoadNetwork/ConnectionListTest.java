@@ -0,0 +1,101 @@
+package AutoDriveEditor.RoadNetwork;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionListTest {
+
+    //
+    // Runs the same random edits on a ConnectionList and an ArrayList, growing both well past the
+    // inline capacity and shrinking them back down, they must always hold the same nodes
+    //
+
+    @Test
+    public void matchesArrayList() {
+        MapNode[] pool = new MapNode[40];
+        for (int i = 0; i < pool.length; i++) pool[i] = new MapNode(i + 1, 0, 0, 0, 0, false, false);
+
+        Random random = new Random(4);
+        ConnectionList connections = new ConnectionList();
+        ArrayList<MapNode> expected = new ArrayList<>();
+        for (int step = 0; step < 20000; step++) {
+            MapNode node = pool[random.nextInt(pool.length)];
+            int operation = random.nextInt(8);
+            if (operation <= 1) {
+                assertEquals(expected.add(node), connections.add(node));
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, node);
+                connections.add(index, node);
+            } else if (operation == 3) {
+                boolean isAbsent = !expected.contains(node);
+                if (isAbsent) expected.add(node);
+                assertEquals(isAbsent, connections.addIfAbsent(node));
+            } else if (operation == 4 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), connections.remove(index));
+            } else if (operation == 5) {
+                assertEquals(expected.remove(node), connections.remove(node));
+            } else if (operation == 6 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, node), connections.set(index, node));
+            } else if (operation == 7) {
+                int id = random.nextInt(pool.length);
+                assertEquals(expected.removeIf(mapNode -> mapNode.id > id), connections.removeIf(mapNode -> mapNode.id > id));
+            }
+            if (step % 1000 == 999) {
+                expected.clear();
+                connections.clear();
+            }
+            assertEquals(expected, connections);
+            assertEquals(expected.indexOf(node), connections.indexOf(node));
+            assertEquals(expected.contains(node), connections.contains(node));
+        }
+    }
+
+    //
+    // MapNode doesn't override equals(), the list must only match the exact same node
+    //
+
+    @Test
+    public void comparesNodesByReference() {
+        MapNode node = new MapNode(1, 5, 0, 5, 0, false, false);
+        MapNode sameLocation = new MapNode(1, 5, 0, 5, 0, false, false);
+        ConnectionList connections = new ConnectionList();
+        connections.add(node);
+
+        assertTrue(connections.contains(node));
+        assertFalse(connections.contains(sameLocation));
+        assertFalse(connections.remove(sameLocation));
+        assertTrue(connections.addIfAbsent(sameLocation));
+        assertEquals(2, connections.size());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void iteratorFailsAfterAnEdit() {
+        ConnectionList connections = new ConnectionList();
+        connections.add(new MapNode(1, 0, 0, 0, 0, false, false));
+        connections.add(new MapNode(2, 0, 0, 0, 0, false, false));
+        Iterator<MapNode> iterator = connections.iterator();
+        iterator.next();
+        connections.add(new MapNode(3, 0, 0, 0, 0, false, false));
+        iterator.next();
+    }
+
+    // the array has room for 4 nodes, the slot after the last one must still be out of bounds
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastTheEndThrows() {
+        ConnectionList connections = new ConnectionList();
+        for (int id = 1; id <= 3; id++) connections.add(new MapNode(id, 0, 0, 0, 0, false, false));
+        connections.get(3);
+    }
+}
@@ -0,0 +1,88 @@
+package AutoDriveEditor.RoadNetwork;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RoadMapSnapshotTest {
+
+    //
+    // The area index is a grid over the area the nodes cover, so searches that start or end outside
+    // it, at negative coordinates or exactly on a node have to find the same nodes as checking them all
+    //
+
+    @Test
+    public void findsNodesInArea() {
+        Random random = new Random(5);
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (int id = 1; id <= 3000; id++) {
+            nodes.add(new MapNode(id, (random.nextDouble() - 0.75) * 8000, 0, (random.nextDouble() - 0.25) * 8000, 0, false, false));
+        }
+        new RoadMap();
+        RoadMap.setMapNodes(nodes);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.captureForRendering();
+
+        for (int i = 0; i < 300; i++) {
+            double minX = (random.nextDouble() - 0.75) * 10000;
+            double minZ = (random.nextDouble() - 0.25) * 10000;
+            double size = (i % 2 == 0) ? random.nextDouble() * 300 : random.nextDouble() * 10000;
+            assertArea(snapshot, nodes, minX, minZ, minX + size, minZ + size);
+        }
+        MapNode node = nodes.get(42);
+        assertArea(snapshot, nodes, node.x, node.z, node.x, node.z);
+        assertArea(snapshot, nodes, -1e9, -1e9, 1e9, 1e9);
+    }
+
+    @Test
+    public void copiesTheConnectionTypesAndSelection() {
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (int id = 1; id <= 4; id++) {
+            nodes.add(new MapNode(id, id, 0, 0, (id == 3) ? MapNode.NODE_FLAG_SUBPRIO : MapNode.NODE_FLAG_STANDARD, id == 2, false));
+        }
+        connect(nodes.get(0), nodes.get(1));
+        connect(nodes.get(1), nodes.get(0));
+        connect(nodes.get(1), nodes.get(2));
+        connect(nodes.get(2), nodes.get(3));
+        nodes.get(3).hasWarning = true;
+        nodes.get(3).warningType = MapNode.NODE_WARNING_OVERLAP;
+        new RoadMap();
+        RoadMap.setMapNodes(nodes);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.captureForRendering();
+
+        assertEquals(RoadMap.CONNECTION_TYPE_DUAL, snapshot.getConnectionType(0, 1));
+        assertEquals(RoadMap.CONNECTION_TYPE_DUAL, snapshot.getConnectionType(1, 0));
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, snapshot.getConnectionType(1, 2));
+        assertEquals(RoadMap.CONNECTION_TYPE_SUBPRIO, snapshot.getConnectionType(2, 3));
+        assertEquals(-1, snapshot.getConnectionType(3, 2));
+
+        assertEquals(1, snapshot.getSelectedCount());
+        assertEquals(1, snapshot.getSelectedNodeIndex(0));
+        assertTrue(snapshot.isSelected(1));
+        assertFalse(snapshot.hasWarning(2));
+        assertTrue(snapshot.hasOverlapWarning(3));
+    }
+
+    private static void connect(MapNode start, MapNode end) {
+        start.outgoing.add(end);
+        end.incoming.add(start);
+    }
+
+    private static void assertArea(RoadMapSnapshot snapshot, List<MapNode> nodes, double minX, double minZ, double maxX, double maxZ) {
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            MapNode node = nodes.get(i);
+            if (node.x >= minX && node.x <= maxX && node.z >= minZ && node.z <= maxZ) expected.add(i);
+        }
+        ArrayList<Integer> actual = new ArrayList<>();
+        snapshot.getNodesInArea(minX, minZ, maxX, maxZ, actual::add);
+        Collections.sort(actual);
+        assertEquals("area " + minX + ", " + minZ + " to " + maxX + ", " + maxZ, expected, actual);
+    }
+}
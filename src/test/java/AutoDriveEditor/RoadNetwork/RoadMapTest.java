@@ -0,0 +1,136 @@
+package AutoDriveEditor.RoadNetwork;
+
+import AutoDriveEditor.MapPanel.MapPanel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class RoadMapTest {
+
+    private ArrayList<MapNode> nodes;
+
+    @Before
+    public void createRoadMap() {
+        new RoadMap();
+        nodes = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            nodes.add(new MapNode(id, id * 10, 0, 0, 0, false, false));
+        }
+        for (int i = 0; i < nodes.size() - 1; i++) {
+            nodes.get(i).outgoing.add(nodes.get(i + 1));
+            nodes.get(i + 1).incoming.add(nodes.get(i));
+        }
+        RoadMap.setMapNodes(new ArrayList<>(nodes));
+    }
+
+    @Test
+    public void removingNodesRenumbersTheRest() {
+        List<MapNode> removed = List.of(nodes.get(0), nodes.get(4), nodes.get(5), nodes.get(19));
+        RoadMap.removeMapNodes(removed);
+
+        assertEquals(nodes.size() - removed.size(), RoadMap.mapNodes.size());
+        assertIDsMatchIndexes();
+        for (MapNode mapNode : RoadMap.mapNodes) {
+            for (MapNode removedNode : removed) {
+                assertFalse(mapNode.outgoing.contains(removedNode));
+                assertFalse(mapNode.incoming.contains(removedNode));
+            }
+        }
+
+        // the removed nodes keep their old ID's and connections, ready to be put back
+        assertEquals(5, removed.get(1).id);
+        assertSame(nodes.get(6), removed.get(2).outgoing.get(0));
+        assertNull(RoadMap.getNearestNode(nodes.get(4).x, 0, 1));
+    }
+
+    @Test
+    public void insertingRemovedNodesRestoresTheOrder() {
+        List<MapNode> removed = List.of(nodes.get(0), nodes.get(4), nodes.get(5), nodes.get(19));
+        RoadMap.removeMapNodes(removed);
+        RoadMap.insertMapNodes(removed);
+
+        assertEquals(nodes, RoadMap.mapNodes);
+        assertIDsMatchIndexes();
+        for (MapNode mapNode : removed) {
+            assertSame(mapNode, RoadMap.getMapNodeByID(mapNode.id));
+            assertSame(mapNode, RoadMap.getNearestNode(mapNode.x, 0, 1));
+        }
+    }
+
+    @Test
+    public void insertingNodesThatDoNotFitLeavesTheRoadMapAlone() {
+        List<MapNode> removed = List.of(nodes.get(2), nodes.get(3));
+        RoadMap.removeMapNodes(removed);
+        ArrayList<MapNode> before = new ArrayList<>(RoadMap.mapNodes);
+
+        MapNode tooFar = new MapNode(RoadMap.mapNodes.size() + 5, 0, 0, 0, 0, false, false);
+        try {
+            RoadMap.insertMapNodes(List.of(removed.get(0), tooFar));
+            fail("inserted ID " + tooFar.id + " into a road map of size " + before.size());
+        } catch (IndexOutOfBoundsException expected) {
+            // the road map must not have been touched
+        }
+        assertEquals(before, RoadMap.mapNodes);
+        assertIDsMatchIndexes();
+    }
+
+    @Test
+    public void removingOneNodeUnlinksItsNeighbours() {
+        MapNode removed = nodes.get(5);
+        MapPanel.createConnectionBetween(removed, nodes.get(4), MapPanel.CONNECTION_DUAL);
+        RoadMap.removeMapNode(removed);
+
+        assertEquals(nodes.size() - 1, RoadMap.mapNodes.size());
+        assertIDsMatchIndexes();
+        for (MapNode mapNode : RoadMap.mapNodes) {
+            assertFalse(mapNode.outgoing.contains(removed));
+            assertFalse(mapNode.incoming.contains(removed));
+        }
+        assertSame(nodes.get(6), removed.outgoing.get(0));
+    }
+
+    //
+    // Each edit only invalidates the cached types of the nodes it touched, the types seen from both
+    // ends of the edited connection have to follow it
+    //
+
+    @Test
+    public void connectionTypesFollowEdits() {
+        MapNode first = nodes.get(3);
+        MapNode second = nodes.get(4);
+        MapNode untouched = nodes.get(10);
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, RoadMap.getConnectionType(first, second));
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, RoadMap.getConnectionType(untouched, 0));
+
+        MapPanel.createConnectionBetween(second, first, MapPanel.CONNECTION_STANDARD);
+        assertEquals(RoadMap.CONNECTION_TYPE_DUAL, RoadMap.getConnectionType(first, second));
+        assertEquals(RoadMap.CONNECTION_TYPE_DUAL, RoadMap.getConnectionType(second, first));
+
+        MapPanel.createConnectionBetween(second, first, MapPanel.CONNECTION_STANDARD);
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, RoadMap.getConnectionType(first, second));
+        assertEquals(-1, RoadMap.getConnectionType(second, first));
+
+        first.flag = MapNode.NODE_FLAG_SUBPRIO;
+        RoadMap.invalidateConnectionTypes(first);
+        assertEquals(RoadMap.CONNECTION_TYPE_SUBPRIO, RoadMap.getConnectionType(first, second));
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, RoadMap.getConnectionType(nodes.get(2), first));
+
+        RoadMap.removeMapNodes(List.of(second));
+        assertEquals(-1, RoadMap.getConnectionType(first, 0));
+        assertEquals(RoadMap.CONNECTION_TYPE_REGULAR, RoadMap.getConnectionType(untouched, 0));
+    }
+
+    private static void assertIDsMatchIndexes() {
+        for (int i = 0; i < RoadMap.mapNodes.size(); i++) {
+            assertEquals(i + 1, RoadMap.mapNodes.get(i).id);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package AutoDriveEditor.RoadNetwork;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SpatialGridTest {
+
+    private static final int[] CELL_INDEXES = { Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -65536, -2, -1, 0, 1, 2, 65535, Integer.MAX_VALUE - 1, Integer.MAX_VALUE };
+
+    @Test
+    public void keysDecodeBackToTheirCell() {
+        for (int cellX : CELL_INDEXES) {
+            for (int cellZ : CELL_INDEXES) {
+                assertKeyDecodes(cellX, cellZ);
+            }
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            assertKeyDecodes(random.nextInt(), random.nextInt());
+        }
+    }
+
+    //
+    // Nodes sitting exactly on a cell edge, just either side of it and either side of zero, where
+    // flooring a negative position is easy to get wrong
+    //
+
+    @Test
+    public void findsNodesOnCellBoundaries() {
+        double cellSize = SpatialGrid.DEFAULT_CELL_SIZE;
+        double[] positions = { -cellSize * 2, -cellSize - 0.001, -cellSize, -cellSize + 0.001, -0.001, -0.0, 0, 0.001, cellSize - 0.001, cellSize, cellSize + 0.001 };
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (double x : positions) {
+            for (double z : positions) {
+                nodes.add(new MapNode(nodes.size() + 1, x, 0, z, 0, false, false));
+            }
+        }
+        SpatialGrid grid = new SpatialGrid();
+        grid.rebuild(nodes);
+        assertEquals(nodes.size(), grid.size());
+
+        for (double minX : positions) {
+            for (double minZ : positions) {
+                assertArea(grid, nodes, minX, minZ, minX, minZ);
+                assertArea(grid, nodes, minX, minZ, minX + cellSize, minZ + cellSize);
+                assertArea(grid, nodes, minX, minZ, cellSize * 2, cellSize * 2);
+            }
+        }
+    }
+
+    //
+    // Small areas are searched cell by cell, areas covering more cells than are in use check every
+    // used cell instead, so both have to be given the same answer
+    //
+
+    @Test
+    public void findsNodesAtNegativeCoordinates() {
+        Random random = new Random(2);
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            nodes.add(new MapNode(i, (random.nextDouble() - 0.75) * 20000, 0, (random.nextDouble() - 0.75) * 20000, 0, false, false));
+        }
+        SpatialGrid grid = new SpatialGrid();
+        grid.rebuild(nodes);
+
+        for (int i = 0; i < 200; i++) {
+            double minX = (random.nextDouble() - 0.75) * 20000;
+            double minZ = (random.nextDouble() - 0.75) * 20000;
+            double size = (i % 2 == 0) ? random.nextDouble() * 200 : random.nextDouble() * 20000;
+            assertArea(grid, nodes, minX, minZ, minX + size, minZ + size);
+        }
+    }
+
+    @Test
+    public void movesNodesBetweenCells() {
+        MapNode first = new MapNode(1, -0.5, 0, -0.5, 0, false, false);
+        MapNode second = new MapNode(2, 40, 0, 40, 0, false, false);
+        SpatialGrid grid = new SpatialGrid();
+        grid.insert(first);
+        grid.insert(second);
+
+        first.x = 0.5;
+        first.z = 0.5;
+        grid.update(first);
+        assertArea(grid, List.of(first, second), -1, -1, -0.1, -0.1);
+        assertArea(grid, List.of(first, second), 0, 0, 1, 1);
+        assertSame(first, grid.getNearestNode(0.4, 0.4, 1));
+
+        grid.remove(first);
+        assertEquals(1, grid.size());
+        assertNull(grid.getNearestNode(0.4, 0.4, 1));
+        assertSame(second, grid.getNearestNode(0.4, 0.4, 100));
+    }
+
+    private static void assertKeyDecodes(int cellX, int cellZ) {
+        long key = SpatialGrid.keyFor(cellX, cellZ);
+        assertEquals(cellX, SpatialGrid.cellXOf(key));
+        assertEquals(cellZ, SpatialGrid.cellZOf(key));
+    }
+
+    private static void assertArea(SpatialGrid grid, List<MapNode> nodes, double minX, double minZ, double maxX, double maxZ) {
+        ArrayList<MapNode> expected = new ArrayList<>();
+        for (MapNode node : nodes) {
+            if (node.x >= minX && node.x <= maxX && node.z >= minZ && node.z <= maxZ) expected.add(node);
+        }
+        ArrayList<MapNode> actual = new ArrayList<>();
+        grid.getNodesInArea(minX, minZ, maxX, maxZ, actual);
+        actual.sort(Comparator.comparingInt(node -> node.id));
+        assertEquals("area " + minX + ", " + minZ + " to " + maxX + ", " + maxZ, expected, actual);
+    }
+}
@@ -0,0 +1,58 @@
+package AutoDriveEditor.Utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FileUtilsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheFileWhenTheContentsChange() throws Exception {
+        File file = new File(folder.getRoot(), "config.xml");
+        byte[] firstHash = FileUtils.writeFileAtomicallyIfChanged(file, null, output -> output.write(bytes("first")));
+        byte[] secondHash = FileUtils.writeFileAtomicallyIfChanged(file, firstHash, output -> output.write(bytes("second")));
+
+        assertEquals("second", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertFalse(Arrays.equals(firstHash, secondHash));
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    //
+    // An unchanged file must not be written to at all, not even as a temp file
+    //
+
+    @Test
+    public void leavesAnUnchangedFileAlone() throws Exception {
+        File file = new File(folder.getRoot(), "config.xml");
+        byte[] hash = FileUtils.writeFileAtomicallyIfChanged(file, null, output -> output.write(bytes("same")));
+        Files.write(file.toPath(), bytes("edited elsewhere"));
+
+        AtomicInteger writes = new AtomicInteger();
+        byte[] unchangedHash = FileUtils.writeFileAtomicallyIfChanged(file, hash, output -> {
+            writes.incrementAndGet();
+            output.write(bytes("same"));
+        });
+
+        assertArrayEquals(hash, unchangedHash);
+        assertEquals(1, writes.get());
+        assertEquals("edited elsewhere", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,143 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ColumnCodecTest {
+
+    private static final double[] EDGE_COORDINATES = { 0, -0.0, 0.001, -0.001, 0.0004, -0.0004, 0.0005, -12.5, 12.345, -1024.999, 999999.999, -8191.0005, 123456789.123, 1e12, -1e13, 1.5e-9 };
+
+    //
+    // Every location the editor stores is rounded to 3 decimal places, those have to come back exactly
+    //
+
+    @Test
+    public void roundedCoordinatesComeBackExactly() {
+        Random random = new Random(3);
+        ArrayList<Double> values = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            values.add(Math.round((random.nextDouble() - 0.5) * 20000000) / 1000.0);
+        }
+        double[] decoded = roundTripCoordinates(values);
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), decoded[i], 0);
+        }
+    }
+
+    @Test
+    public void coordinatesAreRoundedToThreeDecimalPlaces() {
+        ArrayList<Double> values = new ArrayList<>();
+        for (double value : EDGE_COORDINATES) values.add(value);
+        double[] decoded = roundTripCoordinates(values);
+        for (int i = 0; i < values.size(); i++) {
+            double value = values.get(i);
+            StringBuilder text = new StringBuilder();
+            ColumnEncoder.appendCoordinate(text, value);
+            assertEquals(text.toString(), Double.parseDouble(text.toString()), decoded[i], 0);
+            if (Math.abs(value) < 1e12) assertEquals(text.toString(), value, decoded[i], 0.0005 + Math.ulp(value));
+        }
+    }
+
+    @Test
+    public void decodesIntsSplitAcrossChunks() {
+        int[] values = { 0, 1, -1, 42, -999999999, 1000000000, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) text.append(',');
+            text.append(values[i]);
+        }
+        for (int chunkSize = 1; chunkSize <= text.length(); chunkSize++) {
+            ColumnDecoder decoder = ColumnDecoder.forInts(2);
+            decodeInChunks(decoder, text.toString(), chunkSize);
+            assertEquals(values.length, decoder.size());
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(values[i], decoder.getInt(i));
+            }
+        }
+    }
+
+    //
+    // Nodes without connections are written as -1, and a node with a lot of them makes a single list
+    // much longer than any chunk of text it's decoded from
+    //
+
+    @Test
+    public void connectionListsRoundTrip() {
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (int id = 1; id <= 1500; id++) {
+            nodes.add(new MapNode(id, id, 0, -id, 0, false, false));
+        }
+        MapNode hub = nodes.get(1);
+        for (int i = 2; i < nodes.size(); i += 2) {
+            hub.outgoing.add(nodes.get(i));
+            nodes.get(i).incoming.add(hub);
+        }
+        for (int i = 3; i < nodes.size(); i += 3) {
+            nodes.get(i).outgoing.add(nodes.get(i - 1));
+            nodes.get(i - 1).incoming.add(nodes.get(i));
+        }
+        new RoadMap();
+        RoadMap.setMapNodes(nodes);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.capture();
+
+        StringBuilder outText = new StringBuilder();
+        StringBuilder incomingText = new StringBuilder();
+        for (int i = 0; i < snapshot.getNodeCount(); i++) {
+            if (i > 0) {
+                outText.append(';');
+                incomingText.append(';');
+            }
+            ColumnEncoder.appendOutgoingIDs(outText, snapshot, i);
+            ColumnEncoder.appendIncomingIDs(incomingText, snapshot, i);
+        }
+
+        ColumnDecoder out = ColumnDecoder.forIntLists(16);
+        ColumnDecoder incoming = ColumnDecoder.forIntLists(16);
+        decodeInChunks(out, outText.toString(), 7);
+        decodeInChunks(incoming, incomingText.toString(), 4096);
+        assertEquals(nodes.size(), out.size());
+        assertEquals(nodes.size(), incoming.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertIDs(nodes.get(i).outgoing, out, i);
+            assertIDs(nodes.get(i).incoming, incoming, i);
+        }
+    }
+
+    private static double[] roundTripCoordinates(ArrayList<Double> values) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) text.append(',');
+            ColumnEncoder.appendCoordinate(text, values.get(i));
+        }
+        ColumnDecoder decoder = ColumnDecoder.forDoubles(values.size());
+        decodeInChunks(decoder, text.toString(), 5);
+        assertEquals(values.size(), decoder.size());
+        double[] decoded = new double[values.size()];
+        for (int i = 0; i < decoded.length; i++) decoded[i] = decoder.getDouble(i);
+        return decoded;
+    }
+
+    private static void decodeInChunks(ColumnDecoder decoder, String text, int chunkSize) {
+        char[] chars = text.toCharArray();
+        for (int start = 0; start < chars.length; start += chunkSize) {
+            decoder.decode(chars, start, Math.min(chunkSize, chars.length - start));
+        }
+        decoder.finish();
+    }
+
+    private static void assertIDs(Iterable<MapNode> connections, ColumnDecoder column, int listIndex) {
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (MapNode mapNode : connections) expected.add(mapNode.id);
+        if (expected.isEmpty()) expected.add(-1);
+        ArrayList<Integer> actual = new ArrayList<>();
+        for (int i = column.getListStart(listIndex); i < column.getListEnd(listIndex); i++) actual.add(column.getListValue(i));
+        assertEquals("connections of node " + (listIndex + 1), expected, actual);
+    }
+}
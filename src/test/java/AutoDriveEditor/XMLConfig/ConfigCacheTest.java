@@ -0,0 +1,134 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.MarkerGroup;
+import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ConfigCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatWasWritten() throws Exception {
+        File source = writeSource("<AutoDrive>abcdef</AutoDrive>");
+        List<MapNode> nodes = createNodes();
+        ArrayList<MarkerGroup> groups = new ArrayList<>();
+        groups.add(new MarkerGroup(1, "Fields"));
+        writeCache(source, nodes, groups);
+
+        ConfigCache.CachedConfig cached = ConfigCache.read(source);
+        assertNotNull(cached);
+        assertEquals("1.1", cached.version);
+        assertEquals("Test Map", cached.mapName);
+        assertEquals(1, cached.groups.size());
+        assertEquals("Fields", cached.groups.get(0).groupName);
+        assertEquals(nodes.size(), cached.nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            MapNode expected = nodes.get(i);
+            MapNode actual = cached.nodes.get(i);
+            assertEquals(expected.id, actual.id);
+            assertEquals(expected.x, actual.x, 0);
+            assertEquals(expected.y, actual.y, 0);
+            assertEquals(expected.z, actual.z, 0);
+            assertEquals(expected.flag, actual.flag);
+            assertEquals(expected.hasMapMarker(), actual.hasMapMarker());
+            if (expected.hasMapMarker()) {
+                assertEquals(expected.getMarkerName(), actual.getMarkerName());
+                assertEquals(expected.getMarkerGroup(), actual.getMarkerGroup());
+            }
+            assertEquals(ids(expected.outgoing), ids(actual.outgoing));
+            assertEquals(ids(expected.incoming), ids(actual.incoming));
+        }
+    }
+
+    //
+    // The cache is only checked against the size and modified time of the config, a change to
+    // either of them has to be caught
+    //
+
+    @Test
+    public void ignoresTheCacheWhenTheConfigChanges() throws Exception {
+        File source = writeSource("<AutoDrive>abcdef</AutoDrive>");
+        FileTime modified = Files.getLastModifiedTime(source.toPath());
+        writeCache(source, createNodes(), new ArrayList<>());
+        assertNotNull(ConfigCache.read(source));
+
+        Files.write(source.toPath(), "<AutoDrive>abcdefg</AutoDrive>".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(source.toPath(), modified);
+        assertNull(ConfigCache.read(source));
+
+        writeCache(source, createNodes(), new ArrayList<>());
+        assertNotNull(ConfigCache.read(source));
+        Files.setLastModifiedTime(source.toPath(), FileTime.fromMillis(modified.toMillis() + 2000));
+        assertNull(ConfigCache.read(source));
+    }
+
+    //
+    // Saving replaces the config and its cache straight after they were read, which fails on
+    // Windows if either file is still mapped
+    //
+
+    @Test
+    public void filesCanBeReplacedAfterReading() throws Exception {
+        File source = writeSource("<AutoDrive>abcdef</AutoDrive>");
+        writeCache(source, createNodes(), new ArrayList<>());
+        assertNotNull(ConfigCache.read(source));
+
+        File replacement = folder.newFile("replacement.xml");
+        Files.write(replacement.toPath(), "<AutoDrive/>".getBytes(StandardCharsets.UTF_8));
+        Files.move(replacement.toPath(), source.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeCache(source, createNodes(), new ArrayList<>());
+        assertNotNull(ConfigCache.read(source));
+    }
+
+    // writes the cache the way it's written after a load, from a snapshot of the loaded road map
+
+    private static void writeCache(File source, List<MapNode> nodes, List<MarkerGroup> groups) throws Exception {
+        new RoadMap();
+        RoadMap.setMapNodes(new ArrayList<>(nodes));
+        ConfigCache.write(source, Files.size(source.toPath()), Files.getLastModifiedTime(source.toPath()).toMillis(), RoadMapSnapshot.capture(), "1.1", "Test Map", groups);
+    }
+
+    private File writeSource(String content) throws Exception {
+        File source = new File(folder.getRoot(), "AutoDrive_config.xml");
+        Files.write(source.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return source;
+    }
+
+    private static List<MapNode> createNodes() {
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (int id = 1; id <= 50; id++) {
+            nodes.add(new MapNode(id, id * 1.5, 20.125, -id * 2.25, id % 2, false, false));
+        }
+        for (int i = 0; i < nodes.size() - 1; i++) {
+            nodes.get(i).outgoing.add(nodes.get(i + 1));
+            nodes.get(i + 1).incoming.add(nodes.get(i));
+        }
+        nodes.get(0).createMapMarker("Farm", "Fields");
+        nodes.get(49).createMapMarker("Silo", "All");
+        return nodes;
+    }
+
+    private static List<Integer> ids(List<MapNode> connections) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (MapNode mapNode : connections) ids.add(mapNode.id);
+        return ids;
+    }
+}
@@ -0,0 +1,98 @@
+package AutoDriveEditor.XMLConfig;
+
+import AutoDriveEditor.RoadNetwork.MapNode;
+import AutoDriveEditor.RoadNetwork.RoadMap;
+import AutoDriveEditor.RoadNetwork.RoadMapSnapshot;
+import org.junit.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConfigStreamWriterTest {
+
+    //
+    // Hub nodes with hundreds of connections make a single append far bigger than the column
+    // buffer, with enough of them one is sure to land right on the flush boundary
+    //
+
+    @Test
+    public void writesHighDegreeNodesAcrossTheFlushBoundary() throws Exception {
+        ArrayList<MapNode> nodes = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            nodes.add(new MapNode(id, id * 0.5, 10, -id * 0.25, 0, false, false));
+        }
+        for (int hub = 0; hub < nodes.size(); hub += 97) {
+            MapNode hubNode = nodes.get(hub);
+            int connections = 200 + hub % 700;
+            for (int i = 1; i <= connections; i++) {
+                MapNode target = nodes.get((hub + i * 7) % nodes.size());
+                if (target == hubNode) continue;
+                hubNode.outgoing.add(target);
+                target.incoming.add(hubNode);
+            }
+        }
+        new RoadMap();
+        RoadMap.setMapNodes(nodes);
+        RoadMapSnapshot snapshot = RoadMapSnapshot.capture();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ConfigStreamWriter writer = new ConfigStreamWriter(outputStream)) {
+            writer.startDocument();
+            writer.startElement("waypoints");
+            writer.startElement("out");
+            for (int i = 0; i < snapshot.getNodeCount(); i++) {
+                if (i > 0) writer.appendSeparator(';');
+                writer.appendOutgoingIDs(snapshot, i);
+            }
+            writer.endElement();
+            writer.startElement("incoming");
+            for (int i = 0; i < snapshot.getNodeCount(); i++) {
+                if (i > 0) writer.appendSeparator(';');
+                writer.appendIncomingIDs(snapshot, i);
+            }
+            writer.endElement();
+            writer.endElement();
+            writer.endDocument();
+            writer.flush();
+        }
+
+        ColumnDecoder out = ColumnDecoder.forIntLists(nodes.size());
+        ColumnDecoder incoming = ColumnDecoder.forIntLists(nodes.size());
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(outputStream.toByteArray()));
+        ColumnDecoder column = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (reader.getLocalName().equals("out")) column = out;
+                if (reader.getLocalName().equals("incoming")) column = incoming;
+            } else if (event == XMLStreamConstants.CHARACTERS && column != null) {
+                column.decode(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            } else if (event == XMLStreamConstants.END_ELEMENT && column != null) {
+                column.finish();
+                column = null;
+            }
+        }
+
+        assertEquals(nodes.size(), out.size());
+        assertEquals(nodes.size(), incoming.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertIDs(nodes.get(i).outgoing, out, i);
+            assertIDs(nodes.get(i).incoming, incoming, i);
+        }
+    }
+
+    private static void assertIDs(Iterable<MapNode> connections, ColumnDecoder column, int listIndex) {
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (MapNode mapNode : connections) expected.add(mapNode.id);
+        if (expected.isEmpty()) expected.add(-1);
+        ArrayList<Integer> actual = new ArrayList<>();
+        for (int i = column.getListStart(listIndex); i < column.getListEnd(listIndex); i++) actual.add(column.getListValue(i));
+        assertEquals("connections of node " + (listIndex + 1), expected, actual);
+    }
+}